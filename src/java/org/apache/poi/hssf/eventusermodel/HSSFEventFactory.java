@@ -17,14 +17,28 @@
 
 package org.apache.poi.hssf.eventusermodel;
 
+import java.io.File;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 
 import org.apache.poi.hssf.eventusermodel.HSSFUserException;
 import org.apache.poi.hssf.record.*;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.DocumentEntry;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.LittleEndian;
 import static org.apache.poi.hssf.model.InternalWorkbook.WORKBOOK_DIR_ENTRY_NAMES;
 
 /**
@@ -37,9 +51,21 @@ import static org.apache.poi.hssf.model.InternalWorkbook.WORKBOOK_DIR_ENTRY_NAME
  * to your associated HSSFListener.
  */
 public class HSSFEventFactory {
+	private boolean _reuseCellRecords;
+
 	/** Creates a new instance of HSSFEventFactory */
 	public HSSFEventFactory() {
-		// no instance fields
+		// no initialisation needed
+	}
+
+	/**
+	 * Makes this factory pass the same record instance to the listeners for all cells of one kind
+	 * (see {@link RecordFactoryInputStream#setReuseCellRecords(boolean)}), which is much cheaper
+	 * for large sheets. Listeners must not keep the {@link NumberRecord} or {@link LabelSSTRecord}
+	 * instances they are passed. The default is <code>false</code>.
+	 */
+	public void setReuseCellRecords(boolean reuseCellRecords) {
+		_reuseCellRecords = reuseCellRecords;
 	}
 
 	/**
@@ -52,6 +78,25 @@ public class HSSFEventFactory {
 	   processWorkbookEvents(req, fs.getRoot());
 	}
 
+	/**
+	 * Processes a file into essentially record events, reading the file read-only and
+	 * memory-mapped, so the records are decoded straight from the mapped blocks rather than
+	 * from copies of them. The file is closed once processing has finished.
+	 *
+	 * @param req  an Instance of HSSFRequest which has your registered listeners
+	 * @param file the file containing your workbook
+	 */
+	public void processWorkbookEvents(HSSFRequest req, File file) throws IOException {
+	   NPOIFSFileSystem fs = new NPOIFSFileSystem(file, true);
+	   // safe, as the records are all read before the file is closed
+	   fs.setMappedReads(true);
+	   try {
+	      processWorkbookEvents(req, fs.getRoot());
+	   } finally {
+	      fs.close();
+	   }
+	}
+
    /**
     * Processes a file into essentially record events.
     *
@@ -59,22 +104,257 @@ public class HSSFEventFactory {
     * @param dir  a DirectoryNode containing your workbook
     */
     public void processWorkbookEvents(HSSFRequest req, DirectoryNode dir) throws IOException {
+        InputStream in = dir.createDocumentInputStream(getWorkbookDirEntryName(dir));
+        processEvents(req, in);
+    }
+
+    private static String getWorkbookDirEntryName(DirectoryNode dir) {
         // some old documents have "WORKBOOK" or "BOOK"
-        String name = null;
         Set<String> entryNames = dir.getEntryNames();
         for (String potentialName : WORKBOOK_DIR_ENTRY_NAMES) {
             if (entryNames.contains(potentialName)) {
-                name = potentialName;
-                break;
+                return potentialName;
             }
         }
         // If in doubt, go for the default
-        if (name == null) {
-            name = WORKBOOK_DIR_ENTRY_NAMES[0];
+        return WORKBOOK_DIR_ENTRY_NAMES[0];
+    }
+
+    /**
+     * Processes a file into essentially record events, decoding the sheets in parallel.
+     * The workbook global records, up to the first EOF record, are passed to
+     * <code>globalsReq</code> on the calling thread first. Then the substream of each sheet,
+     * which starts at the offset given by its {@link BoundSheetRecord}, is read from the
+     * document and decoded by a separate task on <code>executor</code>, and its records are
+     * passed to the request <code>sheetReqs</code> creates for that sheet. This method returns
+     * once all sheets have been processed.
+     * <p>
+     * Encrypted workbooks can only be decrypted from the start of the stream, so their sheets
+     * (like those of workbooks with invalid sheet offsets) are processed one after another on
+     * the calling thread instead.
+     *
+     * @param globalsReq an Instance of HSSFRequest with the listeners for the workbook globals
+     * @param sheetReqs  creates the HSSFRequest with the listeners for each sheet
+     * @param dir        a DirectoryNode containing your workbook
+     * @param executor   runs the tasks which decode the sheets
+     */
+    public void processWorkbookEvents(HSSFRequest globalsReq, HSSFSheetRequestFactory sheetReqs,
+            DirectoryNode dir, Executor executor) throws IOException {
+        DocumentEntry workbook = (DocumentEntry) dir.getEntry(getWorkbookDirEntryName(dir));
+        List<BoundSheetRecord> boundSheets = new ArrayList<BoundSheetRecord>();
+        BoundSheetRecord[] sheetsInOrder;
+        HSSFRequest[] sheetRequests;
+        InputStream in = new DocumentInputStream(workbook);
+        try {
+            RecordFactoryInputStream recordStream = new RecordFactoryInputStream(in, false);
+            recordStream.setReuseCellRecords(_reuseCellRecords);
+            try {
+                if (processSubstream(globalsReq, recordStream, boundSheets) != 0) {
+                    return;
+                }
+            } catch (HSSFUserException hue) {
+                /*If an HSSFUserException user exception is thrown, ignore it.*/
+                return;
+            }
+
+            sheetsInOrder = BoundSheetRecord.orderByBofPosition(boundSheets);
+            sheetRequests = new HSSFRequest[sheetsInOrder.length];
+            for (int i = 0; i < sheetsInOrder.length; i++) {
+                int sheetIndex = indexOf(boundSheets, sheetsInOrder[i]);
+                sheetRequests[i] = sheetReqs.createSheetRequest(sheetIndex, sheetsInOrder[i]);
+            }
+
+            if (isEncrypted(workbook) || !hasValidBofPositions(workbook, sheetsInOrder)) {
+                processSheetsInOrder(recordStream, sheetRequests);
+                return;
+            }
+        } finally {
+            in.close();
         }
 
-        InputStream in = dir.createDocumentInputStream(name);
-        processEvents(req, in);
+        CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executor);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(sheetsInOrder.length);
+        boolean completed = false;
+        try {
+            for (int i = 0; i < sheetsInOrder.length; i++) {
+                futures.add(completionService.submit(new SheetTask(sheetRequests[i], workbook,
+                        sheetsInOrder[i].getPositionOfBof(), _reuseCellRecords)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                completionService.take().get();
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the sheets to be processed");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            if (!completed) {
+                for (Future<Void> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the records of one sheet substream, reading them straight from the
+     * workbook document starting at the BOF record of the sheet
+     */
+    private static final class SheetTask implements Callable<Void> {
+        private final HSSFRequest _req;
+        private final DocumentEntry _workbook;
+        private final int _bofPosition;
+        private final boolean _reuseCellRecords;
+
+        public SheetTask(HSSFRequest req, DocumentEntry workbook, int bofPosition, boolean reuseCellRecords) {
+            _req = req;
+            _workbook = workbook;
+            _bofPosition = bofPosition;
+            _reuseCellRecords = reuseCellRecords;
+        }
+
+        public Void call() throws IOException {
+            InputStream in = new DocumentInputStream(_workbook);
+            try {
+                in.skip(_bofPosition);
+                RecordFactoryInputStream recordStream = new RecordFactoryInputStream(in, false);
+                recordStream.setReuseCellRecords(_reuseCellRecords);
+                processSubstream(_req, recordStream, null);
+            } catch (HSSFUserException hue) {
+                /*If an HSSFUserException user exception is thrown, ignore it.*/
+            } finally {
+                in.close();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Passes the records of one substream, e.g. the workbook globals, up to its EOF
+     * record to the request, and collects the {@link BoundSheetRecord}s if
+     * <code>boundSheets</code> is given.
+     */
+    private static short processSubstream(HSSFRequest req, RecordFactoryInputStream recordStream,
+            List<BoundSheetRecord> boundSheets) throws HSSFUserException {
+        int bofDepth = 0;
+        while (true) {
+            Record r = recordStream.nextRecord();
+            if (r == null) {
+                return 0;
+            }
+            if (r instanceof BOFRecord) {
+                bofDepth++;
+            } else if (boundSheets != null && r instanceof BoundSheetRecord) {
+                boundSheets.add((BoundSheetRecord) r);
+            }
+            short userCode = req.processRecord(r);
+            if (userCode != 0) {
+                return userCode;
+            }
+            if (r instanceof EOFRecord && --bofDepth <= 0) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Passes the records of the sheet substreams following the workbook globals to the
+     * requests of the sheets, one sheet after another.
+     */
+    private static void processSheetsInOrder(RecordFactoryInputStream recordStream, HSSFRequest[] sheetRequests) {
+        HSSFRequest req = null;
+        int nextSheet = 0;
+        int bofDepth = 0;
+        try {
+            while (true) {
+                Record r = recordStream.nextRecord();
+                if (r == null) {
+                    return;
+                }
+                if (r instanceof BOFRecord && bofDepth++ == 0) {
+                    req = nextSheet < sheetRequests.length ? sheetRequests[nextSheet] : null;
+                    nextSheet++;
+                }
+                if (req != null && req.processRecord(r) != 0) {
+                    // skip the rest of this sheet
+                    req = null;
+                }
+                if (r instanceof EOFRecord) {
+                    bofDepth--;
+                }
+            }
+        } catch (HSSFUserException hue) {
+            /*If an HSSFUserException user exception is thrown, ignore it.*/
+        }
+    }
+
+    private static int indexOf(List<BoundSheetRecord> boundSheets, BoundSheetRecord boundSheet) {
+        for (int i = 0; i < boundSheets.size(); i++) {
+            if (boundSheets.get(i) == boundSheet) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sheet " + boundSheet.getSheetname());
+    }
+
+    /**
+     * @return <code>true</code> if one of the first records is a {@link FilePassRecord}
+     */
+    private static boolean isEncrypted(DocumentEntry workbook) throws IOException {
+        // Encrypted is normally BOF then FILEPASS, sometimes BOF, WRITEPROTECT, FILEPASS
+        DocumentInputStream in = new DocumentInputStream(workbook);
+        try {
+            int size = workbook.getSize();
+            int pos = 0;
+            for (int i = 0; i < 3 && pos + 4 <= size; i++) {
+                if (in.readUShort() == FilePassRecord.sid) {
+                    return true;
+                }
+                int length = in.readUShort();
+                in.skip(length);
+                pos += 4 + length;
+            }
+            return false;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static boolean hasValidBofPositions(DocumentEntry workbook, BoundSheetRecord[] sheetsInOrder)
+            throws IOException {
+        DocumentInputStream in = new DocumentInputStream(workbook);
+        try {
+            int size = workbook.getSize();
+            int minPos = 0;
+            int current = 0;
+            for (BoundSheetRecord bsr : sheetsInOrder) {
+                int pos = bsr.getPositionOfBof();
+                if (pos <= minPos || pos + 4 > size) {
+                    return false;
+                }
+                in.skip(pos - current);
+                if (in.readUShort() != BOFRecord.sid) {
+                    return false;
+                }
+                current = pos + LittleEndian.SHORT_SIZE;
+                minPos = pos;
+            }
+            return true;
+        } finally {
+            in.close();
+        }
     }
 
    /**
@@ -145,10 +425,15 @@ public class HSSFEventFactory {
 	 */
 	private short genericProcessEvents(HSSFRequest req, InputStream in)
 		throws HSSFUserException {
-		short userCode = 0;
-
 		// Create a new RecordStream and use that
 		RecordFactoryInputStream recordStream = new RecordFactoryInputStream(in, false);
+		recordStream.setReuseCellRecords(_reuseCellRecords);
+		return processRecords(req, recordStream);
+	}
+
+	private static short processRecords(HSSFRequest req, RecordFactoryInputStream recordStream)
+		throws HSSFUserException {
+		short userCode = 0;
 
 		// Process each record as they come in
 		while(true) {
@@ -0,0 +1,43 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.eventusermodel;
+
+import org.apache.poi.hssf.record.BoundSheetRecord;
+
+/**
+ * Supplies the {@link HSSFRequest} with the listeners for the records of one sheet, when
+ * the sheets of a workbook are processed in parallel by
+ * {@link HSSFEventFactory#processWorkbookEvents(HSSFRequest, HSSFSheetRequestFactory, org.apache.poi.poifs.filesystem.DirectoryNode, java.util.concurrent.Executor)}.
+ * The requests are created once all workbook global records have been processed, so the
+ * listeners can make use of what has been collected from those (like the shared strings).
+ *
+ * @see org.apache.poi.hssf.eventusermodel.HSSFEventFactory
+ */
+public interface HSSFSheetRequestFactory {
+
+    /**
+     * Creates the request for the records of one sheet. The listeners of the returned request
+     * are only called from a single thread, but the requests of different sheets are used
+     * concurrently.
+     *
+     * @param sheetIndex the zero based index of the sheet in the workbook
+     * @param boundSheet the record describing the sheet
+     * @return the request for the records of the sheet, from its BOF up to its EOF record
+     */
+    HSSFRequest createSheetRequest(int sheetIndex, BoundSheetRecord boundSheet);
+}
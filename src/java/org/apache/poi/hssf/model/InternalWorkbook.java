@@ -81,6 +81,7 @@ import org.apache.poi.hssf.record.WindowOneRecord;
 import org.apache.poi.hssf.record.WindowProtectRecord;
 import org.apache.poi.hssf.record.WriteAccessRecord;
 import org.apache.poi.hssf.record.WriteProtectRecord;
+import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
 import org.apache.poi.hssf.record.common.UnicodeString;
 import org.apache.poi.hssf.util.HSSFColor;
 import org.apache.poi.poifs.crypt.CryptoFunctions;
@@ -1111,6 +1112,53 @@ public final class InternalWorkbook {
         }
     }
 
+    /**
+     * Passes the workbook records to the visitor in the order {@link #serialize(int, byte[])}
+     * writes them, so that they can be written out one by one. The visitor has to serialize
+     * each record before returning, as the EXTSST record is built from the offsets found
+     * while serializing the SST record.
+     *
+     * @param offset the position of the workbook records in the Workbook stream
+     * @param rv the visitor which serializes the records
+     */
+    public void visitSerializedRecords(int offset, RecordVisitor rv)
+    {
+        int pos = 0;
+
+        SSTRecord sst = null;
+        int sstPos = 0;
+        boolean wroteBoundSheets = false;
+        for ( int k = 0; k < records.size(); k++ )
+        {
+            Record record = records.get( k );
+            if (record instanceof SSTRecord)
+            {
+                sst = (SSTRecord)record;
+                sstPos = pos;
+            }
+            if (record.getSid() == ExtSSTRecord.sid && sst != null)
+            {
+                record = sst.createExtSSTRecord(sstPos + offset);
+            }
+            if (record instanceof BoundSheetRecord) {
+                if(!wroteBoundSheets) {
+                    for (int i = 0; i < boundsheets.size(); i++) {
+                        BoundSheetRecord bsr = getBoundSheetRec(i);
+                        rv.visitRecord(bsr);
+                        pos += bsr.getRecordSize();
+                    }
+                    wroteBoundSheets = true;
+                }
+            } else {
+                rv.visitRecord(record);
+                // only the position of the SST is needed, so avoid sizing it and what follows
+                if (sst == null) {
+                    pos += record.getRecordSize();
+                }
+            }
+        }
+    }
+
     public int getSize()
     {
         int retval = 0;
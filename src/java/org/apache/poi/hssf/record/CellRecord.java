@@ -36,6 +36,13 @@ public abstract class CellRecord extends StandardRecord implements CellValueReco
     }
 
     protected CellRecord(RecordInputStream in) {
+        readBaseFields(in);
+    }
+
+    /**
+     * Reads the row, column and format index, for records which are read again into the same instance
+     */
+    protected final void readBaseFields(RecordInputStream in) {
         _rowIndex = in.readUShort();
         _columnIndex = in.readUShort();
         _formatIndex = in.readUShort();
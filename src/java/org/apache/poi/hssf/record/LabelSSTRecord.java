@@ -39,6 +39,15 @@ public final class LabelSSTRecord extends CellRecord implements Cloneable {
         field_4_sst_index = in.readInt();
     }
 
+    /**
+     * Reads the next LABELSST record into this instance, so that one instance can be used for all
+     * LABELSST records in event based processing
+     */
+    /* package */ void readFields(RecordInputStream in) {
+        readBaseFields(in);
+        field_4_sst_index = in.readInt();
+    }
+
     /**
      * set the index to the string in the SSTRecord
      *
@@ -32,10 +32,13 @@ import org.apache.poi.util.LittleEndianOutput;
  */
 public final class MulRKRecord extends StandardRecord {
 	public final static short sid = 0x00BD;
+	/** size of the XF index and RK number of one cell */
+	private static final int RK_ENCODED_SIZE = 6;
 
 	private int	 field_1_row;
 	private short   field_2_first_col;
-	private RkRec[] field_3_rks;
+	private short[] field_3_xfs;
+	private int[]   field_3_rks;
 	private short   field_4_last_col;
 
 	public int getRow() {
@@ -71,7 +74,7 @@ public final class MulRKRecord extends StandardRecord {
 	 * @return the XF index for the column
 	 */
 	public short getXFAt(int coffset) {
-		return field_3_rks[coffset].xf;
+		return field_3_xfs[coffset];
 	}
 
 	/**
@@ -79,16 +82,36 @@ public final class MulRKRecord extends StandardRecord {
 	 * @return the value (decoded into a double)
 	 */
 	public double getRKNumberAt(int coffset) {
-		return RKUtil.decodeNumber(field_3_rks[coffset].rk);
+		return RKUtil.decodeNumber(field_3_rks[coffset]);
+	}
+
+	/* package */ MulRKRecord() {
+		// fields uninitialised, see readFields()
 	}
 
 	/**
 	 * @param in the RecordInputstream to read the record from
 	 */
 	public MulRKRecord(RecordInputStream in) {
+		readFields(in);
+	}
+
+	/**
+	 * Reads the next MULRK record into this instance, so that one instance can be used for all
+	 * MULRK records in event based processing
+	 */
+	/* package */ void readFields(RecordInputStream in) {
 		field_1_row = in.readUShort();
 		field_2_first_col = in.readShort();
-		field_3_rks = RkRec.parseRKs(in);
+		int nItems = (in.remaining() - 2) / RK_ENCODED_SIZE;
+		if (field_3_rks == null || field_3_rks.length < nItems) {
+			field_3_xfs = new short[nItems];
+			field_3_rks = new int[nItems];
+		}
+		for (int i = 0; i < nItems; i++) {
+			field_3_xfs[i] = in.readShort();
+			field_3_rks[i] = in.readInt();
+		}
 		field_4_last_col = in.readShort();
 	}
 
@@ -120,24 +143,4 @@ public final class MulRKRecord extends StandardRecord {
 	protected int getDataSize() {
 		throw new RecordFormatException( "Sorry, you can't serialize MulRK in this release");
 	}
-
-	private static final class RkRec {
-		public static final int ENCODED_SIZE = 6;
-		public final short xf;
-		public final int   rk;
-
-		private RkRec(RecordInputStream in) {
-			xf = in.readShort();
-			rk = in.readInt();
-		}
-
-		public static RkRec[] parseRKs(RecordInputStream in) {
-			int nItems = (in.remaining()-2) / ENCODED_SIZE;
-			RkRec[] retval = new RkRec[nItems];
-			for (int i=0; i<nItems; i++) {
-				retval[i] = new RkRec(in);
-			}
-			return retval;
-		}
-	}
 }
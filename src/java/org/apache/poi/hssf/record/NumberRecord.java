@@ -17,6 +17,7 @@
 
 package org.apache.poi.hssf.record;
 
+import org.apache.poi.hssf.util.RKUtil;
 import org.apache.poi.ss.util.NumberToTextConverter;
 import org.apache.poi.util.LittleEndianOutput;
 
@@ -43,6 +44,23 @@ public final class NumberRecord extends CellRecord implements Cloneable {
         field_4_value = in.readDouble();
     }
 
+    /**
+     * Reads the next NUMBER record into this instance, so that one instance can be used for all
+     * NUMBER records in event based processing
+     */
+    /* package */ void readFields(RecordInputStream in) {
+        readBaseFields(in);
+        field_4_value = in.readDouble();
+    }
+
+    /**
+     * Reads the next RK record into this instance, like {@link RecordFactory#convertToNumberRecord(RKRecord)}
+     */
+    /* package */ void readRKFields(RecordInputStream in) {
+        readBaseFields(in);
+        field_4_value = RKUtil.decodeNumber(in.readInt());
+    }
+
     /**
      * set the value for the cell
      *
@@ -193,6 +193,18 @@ public final class RecordFactoryInputStream {
 
 	private boolean _lastRecordWasEOFLevelZero;
 
+	/**
+	 * instances returned for all cell records of one kind, <code>null</code> unless
+	 * {@link #setReuseCellRecords(boolean)} has been called
+	 */
+	private NumberRecord _reusedNumberRecord;
+	private LabelSSTRecord _reusedLabelSSTRecord;
+	private MulRKRecord _reusedMulRKRecord;
+	/**
+	 * the next column of {@link #_reusedMulRKRecord} to return, -1 if all have been returned
+	 */
+	private int _mulRKIndex = -1;
+
 
 	/**
 	 * @param shouldIncludeContinueRecords caller can pass <code>false</code> if loose
@@ -239,6 +251,25 @@ public final class RecordFactoryInputStream {
 		_lastRecordWasEOFLevelZero = false;
 	}
 
+	/**
+	 * Makes this stream return the same {@link NumberRecord} instance for all NUMBER, RK and MULRK
+	 * records and the same {@link LabelSSTRecord} instance for all LABELSST records, instead of
+	 * creating new records for each cell. The returned cell records are only valid until the next
+	 * call to {@link #nextRecord()}, so this is only suitable for event based processing.
+	 */
+	public void setReuseCellRecords(boolean reuseCellRecords) {
+		if (reuseCellRecords) {
+			_reusedNumberRecord = new NumberRecord();
+			_reusedLabelSSTRecord = new LabelSSTRecord();
+			_reusedMulRKRecord = new MulRKRecord();
+		} else {
+			_reusedNumberRecord = null;
+			_reusedLabelSSTRecord = null;
+			_reusedMulRKRecord = null;
+			_mulRKIndex = -1;
+		}
+	}
+
 	/**
 	 * Returns the next (complete) record from the
 	 * stream, or null if there are no more.
@@ -250,6 +281,9 @@ public final class RecordFactoryInputStream {
 			// found an unread record
 			return r;
 		}
+		if (_mulRKIndex >= 0) {
+			return nextMulRKCell();
+		}
 		while (true) {
 			if (!_recStream.hasNextRecord()) {
 				// recStream is exhausted;
@@ -305,6 +339,15 @@ public final class RecordFactoryInputStream {
 	 */
 	private Record readNextRecord() {
 
+		if (_reusedNumberRecord != null) {
+			CellRecord cellRecord = readReusedCellRecord();
+			if (cellRecord != null) {
+				_lastRecordWasEOFLevelZero = false;
+				_lastRecord = cellRecord;
+				return cellRecord;
+			}
+		}
+
 		Record record = RecordFactory.createSingleRecord(_recStream);
 		_lastRecordWasEOFLevelZero = false;
 
@@ -385,4 +428,51 @@ public final class RecordFactoryInputStream {
 		}
 		return record;
 	}
+
+	/**
+	 * @return the reused record holding the current cell record, <code>null</code> if the
+	 * current record is not a cell record which can be reused
+	 */
+	private CellRecord readReusedCellRecord() {
+		try {
+			switch (_recStream.getSid()) {
+				case NumberRecord.sid:
+					_reusedNumberRecord.readFields(_recStream);
+					return _reusedNumberRecord;
+				case RKRecord.sid:
+					_reusedNumberRecord.readRKFields(_recStream);
+					return _reusedNumberRecord;
+				case LabelSSTRecord.sid:
+					_reusedLabelSSTRecord.readFields(_recStream);
+					return _reusedLabelSSTRecord;
+				case MulRKRecord.sid:
+					_reusedMulRKRecord.readFields(_recStream);
+					_mulRKIndex = 0;
+					return nextMulRKCell();
+			}
+		} catch (RecordFormatException e) {
+			throw e;
+		} catch (EncryptedDocumentException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			// same as for the records created by RecordFactory.createSingleRecord()
+			throw new RecordFormatException("Unable to construct record instance" , e);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the reused {@link NumberRecord} holding the next column of the current MULRK record
+	 */
+	private NumberRecord nextMulRKCell() {
+		MulRKRecord mrk = _reusedMulRKRecord;
+		int k = _mulRKIndex;
+		NumberRecord nr = _reusedNumberRecord;
+		nr.setColumn((short) (k + mrk.getFirstColumn()));
+		nr.setRow(mrk.getRow());
+		nr.setXFIndex(mrk.getXFAt(k));
+		nr.setValue(mrk.getRKNumberAt(k));
+		_mulRKIndex = k + 1 < mrk.getNumColumns() ? k + 1 : -1;
+		return nr;
+	}
 }
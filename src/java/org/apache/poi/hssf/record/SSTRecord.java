@@ -57,9 +57,11 @@ public final class SSTRecord extends ContinuableRecord {
 
     /** according to docs ONLY SST */
     private int field_2_num_unique_strings;
+    /** <code>null</code> while the strings read from a record are only held by {@link #_stringPool} */
     private IntMapper<UnicodeString> field_3_strings;
 
-    private SSTDeserializer deserializer;
+    /** the strings read from a record, decoded as they are asked for */
+    private SSTStringPool _stringPool;
 
     /** Offsets from the beginning of the SST record (even across continuations) */
     int[] bucketAbsoluteOffsets;
@@ -71,7 +73,22 @@ public final class SSTRecord extends ContinuableRecord {
         field_1_num_strings = 0;
         field_2_num_unique_strings = 0;
         field_3_strings = new IntMapper<UnicodeString>();
-        deserializer = new SSTDeserializer(field_3_strings);
+    }
+
+    /**
+     * @return the strings for lookup and modification, decoding all strings read
+     *  from a record if that has not been done yet
+     */
+    private IntMapper<UnicodeString> getStringMapper() {
+        if (field_3_strings == null) {
+            IntMapper<UnicodeString> strings = new IntMapper<UnicodeString>(_stringPool.size());
+            for (int i = 0; i < _stringPool.size(); i++) {
+                SSTDeserializer.addToStringTable(strings, _stringPool.get(i));
+            }
+            field_3_strings = strings;
+            _stringPool = null;
+        }
+        return field_3_strings;
     }
 
     /**
@@ -87,16 +104,17 @@ public final class SSTRecord extends ContinuableRecord {
         UnicodeString ucs = ( string == null ) ? EMPTY_STRING
                 : string;
         int rval;
-        int index = field_3_strings.getIndex(ucs);
+        IntMapper<UnicodeString> strings = getStringMapper();
+        int index = strings.getIndex(ucs);
 
         if ( index != -1 ) {
             rval = index;
         } else {
             // This is a new string -- we didn't see it among the
             // strings we've already collected
-            rval = field_3_strings.size();
+            rval = strings.size();
             field_2_num_unique_strings++;
-            SSTDeserializer.addToStringTable( field_3_strings, ucs );
+            SSTDeserializer.addToStringTable( strings, ucs );
         }
         return rval;
     }
@@ -127,6 +145,9 @@ public final class SSTRecord extends ContinuableRecord {
      */
     public UnicodeString getString(int id )
     {
+        if (field_3_strings == null) {
+            return _stringPool.get( id );
+        }
         return field_3_strings.get( id );
     }
 
@@ -144,9 +165,9 @@ public final class SSTRecord extends ContinuableRecord {
                 .append( Integer.toHexString( getNumStrings() ) ).append( "\n" );
         buffer.append( "    .uniquestrings  = " )
                 .append( Integer.toHexString( getNumUniqueStrings() ) ).append( "\n" );
-        for ( int k = 0; k < field_3_strings.size(); k++ )
+        for ( int k = 0; k < countStrings(); k++ )
         {
-          UnicodeString s = field_3_strings.get( k );
+          UnicodeString s = getString( k );
             buffer.append( "    .string_" + k + "      = " )
                     .append( s.getDebugInfo() ).append( "\n" );
         }
@@ -242,16 +263,17 @@ public final class SSTRecord extends ContinuableRecord {
         // we initialize our fields
         field_1_num_strings = in.readInt();
         field_2_num_unique_strings = in.readInt();
-        field_3_strings = new IntMapper<UnicodeString>();
         
-        deserializer = new SSTDeserializer(field_3_strings);
         // Bug 57456: some Excel Sheets send 0 as field=1, but have some random number in field_2,
         // we should not try to read the strings in this case.
         if(field_1_num_strings == 0) {
             field_2_num_unique_strings = 0;
+            field_3_strings = new IntMapper<UnicodeString>();
             return;
         }
-        deserializer.manufactureStrings( field_2_num_unique_strings, in );
+        // only keep the string data for now, most strings are never looked at
+        // by extraction-only code
+        _stringPool = new SSTStringPool( field_2_num_unique_strings, in );
     }
 
 
@@ -261,27 +283,26 @@ public final class SSTRecord extends ContinuableRecord {
      */
     Iterator<UnicodeString> getStrings()
     {
-        return field_3_strings.iterator();
+        return getStringMapper().iterator();
     }
 
     /**
      * @return count of the strings we hold.
      */
     int countStrings() {
+        if (field_3_strings == null) {
+            return _stringPool.size();
+        }
         return field_3_strings.size();
     }
 
     protected void serialize(ContinuableRecordOutput out) {
-        SSTSerializer serializer = new SSTSerializer(field_3_strings, getNumStrings(), getNumUniqueStrings() );
+        SSTSerializer serializer = new SSTSerializer(getStringMapper(), getNumStrings(), getNumUniqueStrings() );
         serializer.serialize(out);
         bucketAbsoluteOffsets = serializer.getBucketAbsoluteOffsets();
         bucketRelativeOffsets = serializer.getBucketRelativeOffsets();
     }
 
-    SSTDeserializer getDeserializer() {
-        return deserializer;
-    }
-
     /**
      * Creates an extended string record based on the current contents of
      * the current SST record.  The offset within the stream to the SST record
@@ -318,6 +339,6 @@ public final class SSTRecord extends ContinuableRecord {
      * @return  The size of the ExtSST record in bytes.
      */
     public int calcExtSSTRecordSize() {
-      return ExtSSTRecord.getRecordSizeForStrings(field_3_strings.size());
+      return ExtSSTRecord.getRecordSizeForStrings(countStrings());
     }
 }
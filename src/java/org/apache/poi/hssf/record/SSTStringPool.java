@@ -0,0 +1,189 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.record;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.poi.hssf.record.common.UnicodeString;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.LittleEndianByteArrayInputStream;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+import org.apache.poi.util.RecordFormatException;
+
+/**
+ * Holds the strings read from an SST record without creating a {@link UnicodeString}
+ * for each of them. The string data is copied out of the SST and its continue records
+ * into one byte array, with the characters kept as Latin-1 or UTF-16 as in the record,
+ * and each string is only decoded when it is first asked for.
+ * <p>
+ * Strings with extended (phonetic) data are decoded right away, as the size of that data
+ * is only known once it has been parsed.
+ */
+final class SSTStringPool {
+    private static final POILogger logger = POILogFactory.getLogger(SSTStringPool.class);
+
+    // the option flags of a UnicodeString
+    private static final int HIGH_BYTE_FLAG = 0x01;
+    private static final int EXT_FLAG = 0x04;
+    private static final int RICH_TEXT_FLAG = 0x08;
+
+    /** the strings not yet decoded, each laid out like a UnicodeString without continue breaks */
+    private byte[] _data;
+    private int _dataSize;
+    /** where each string starts in {@link #_data}, -1 if it was decoded while reading */
+    private final int[] _offsets;
+    private final UnicodeString[] _strings;
+    /**
+     * the strings which start out compressed in the record, but are held as UTF-16 as
+     * they continue uncompressed (decoded strings keep the option flags from the record)
+     */
+    private final BitSet _widenedStrings = new BitSet();
+
+    /**
+     * Reads the given count of strings from the SST record, including its continue records.
+     */
+    public SSTStringPool(int stringCount, RecordInputStream in) {
+        _offsets = new int[stringCount];
+        _strings = new UnicodeString[stringCount];
+        _data = new byte[Math.max(64, in.remaining())];
+        for (int i = 0; i < stringCount; i++) {
+            _offsets[i] = -1;
+            // Extract exactly the count of strings from the SST record.
+            if (in.available() == 0 && !in.hasNextRecord()) {
+                logger.log(POILogger.ERROR, "Ran out of data before creating all the strings! String at index " + i + "");
+                _strings[i] = new UnicodeString("");
+                continue;
+            }
+            short charCount = in.readShort();
+            byte optionFlags = in.readByte();
+            if ((optionFlags & EXT_FLAG) != 0) {
+                _strings[i] = new UnicodeString(charCount, optionFlags, in);
+            } else {
+                _offsets[i] = _dataSize;
+                copyString(i, charCount, optionFlags, in);
+            }
+        }
+        if (_data.length > _dataSize) {
+            _data = Arrays.copyOf(_data, _dataSize);
+        }
+    }
+
+    public int size() {
+        return _strings.length;
+    }
+
+    public synchronized UnicodeString get(int index) {
+        UnicodeString result = _strings[index];
+        if (result == null) {
+            int offset = _offsets[index];
+            result = new UnicodeString(new LittleEndianByteArrayInputStream(_data, offset, _dataSize - offset));
+            if (_widenedStrings.get(index)) {
+                result.setOptionFlags((byte)(result.getOptionFlags() & ~HIGH_BYTE_FLAG));
+            }
+            _strings[index] = result;
+        }
+        return result;
+    }
+
+    private void copyString(int index, short charCount, byte optionFlags, RecordInputStream in) {
+        int flagsPos = _dataSize + LittleEndian.SHORT_SIZE;
+        ensureCapacity(3);
+        LittleEndian.putShort(_data, _dataSize, charCount);
+        _data[flagsPos] = optionFlags;
+        _dataSize += 3;
+
+        int runCount = 0;
+        if ((optionFlags & RICH_TEXT_FLAG) != 0) {
+            runCount = in.readShort();
+            ensureCapacity(LittleEndian.SHORT_SIZE);
+            LittleEndian.putShort(_data, _dataSize, (short)runCount);
+            _dataSize += LittleEndian.SHORT_SIZE;
+        }
+
+        // the characters may be spread over several continue records, with the
+        // encoding changing at each of them
+        int requestedLength = charCount & 0xFFFF;
+        boolean isCompressedEncoding = (optionFlags & HIGH_BYTE_FLAG) == 0;
+        boolean isCompressedInPool = isCompressedEncoding;
+        int charsPos = _dataSize;
+        int curLen = 0;
+        while (true) {
+            int availableChars = isCompressedEncoding ? in.remaining() : in.remaining() / LittleEndian.SHORT_SIZE;
+            int nChars = Math.min(requestedLength - curLen, availableChars);
+            if (isCompressedEncoding == isCompressedInPool) {
+                int len = isCompressedEncoding ? nChars : nChars * LittleEndian.SHORT_SIZE;
+                ensureCapacity(len);
+                in.readFully(_data, _dataSize, len);
+                _dataSize += len;
+            } else if (isCompressedEncoding) {
+                ensureCapacity(nChars * LittleEndian.SHORT_SIZE);
+                for (int i = 0; i < nChars; i++) {
+                    _data[_dataSize++] = in.readByte();
+                    _data[_dataSize++] = 0;
+                }
+            } else {
+                // switch the pool to UTF-16 for this string, then copy as is
+                int charsSoFar = _dataSize - charsPos;
+                ensureCapacity(charsSoFar + nChars * LittleEndian.SHORT_SIZE);
+                for (int i = charsSoFar - 1; i >= 0; i--) {
+                    _data[charsPos + 2 * i + 1] = 0;
+                    _data[charsPos + 2 * i] = _data[charsPos + i];
+                }
+                _dataSize = charsPos + 2 * charsSoFar;
+                _data[flagsPos] |= HIGH_BYTE_FLAG;
+                _widenedStrings.set(index);
+                isCompressedInPool = false;
+                int len = nChars * LittleEndian.SHORT_SIZE;
+                in.readFully(_data, _dataSize, len);
+                _dataSize += len;
+            }
+            curLen += nChars;
+            if (curLen == requestedLength) {
+                break;
+            }
+
+            // else string has been spilled into next continue record
+            if (in.remaining() != 0) {
+                throw new RecordFormatException("Odd number of bytes(" + in.remaining() + ") left behind");
+            }
+            if (!in.hasNextRecord() || in.getNextSid() != ContinueRecord.sid) {
+                throw new RecordFormatException("Expected to find a ContinueRecord in order to read remaining "
+                        + (requestedLength - curLen) + " of " + requestedLength + " chars");
+            }
+            in.nextRecord();
+            // note - the compressed flag may change on the fly
+            isCompressedEncoding = (in.readByte() == 0);
+        }
+
+        if (runCount > 0) {
+            int len = runCount * 4;
+            ensureCapacity(len);
+            in.readFully(_data, _dataSize, len);
+            _dataSize += len;
+        }
+    }
+
+    private void ensureCapacity(int extraBytes) {
+        int required = _dataSize + extraBytes;
+        if (required > _data.length) {
+            _data = Arrays.copyOf(_data, Math.max(required, 2 * _data.length));
+        }
+    }
+}
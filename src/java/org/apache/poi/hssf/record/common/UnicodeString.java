@@ -445,8 +445,19 @@ public class UnicodeString implements Comparable<UnicodeString> {
      * @param in the RecordInputstream to read the record from
      */
     public UnicodeString(RecordInputStream in) {
-        field_1_charCount   = in.readShort();
-        field_2_optionflags = in.readByte();
+        this(in.readShort(), in.readByte(), in);
+    }
+
+    /**
+     * construct a unicode string record whose character count and option flags
+     * have already been read, and fill the remaining fields
+     * @param charCount the character count read from the record
+     * @param optionFlags the option flags read from the record
+     * @param in the RecordInputstream to read the rest of the string from
+     */
+    public UnicodeString(short charCount, byte optionFlags, RecordInputStream in) {
+        field_1_charCount   = charCount;
+        field_2_optionflags = optionFlags;
 
         int runCount = 0;
         int extensionLength = 0;
@@ -480,6 +491,40 @@ public class UnicodeString implements Comparable<UnicodeString> {
 
 
 
+    /**
+     * construct a unicode string from data which is not split across continue
+     * records (for example as kept by a lazily decoded SST record)
+     * @param in the input to read the string from
+     */
+    public UnicodeString(LittleEndianInput in) {
+        field_1_charCount   = in.readShort();
+        field_2_optionflags = in.readByte();
+
+        int runCount = 0;
+        int extensionLength = 0;
+        if (isRichText()) {
+            runCount = in.readShort();
+        }
+        if (isExtendedText()) {
+            extensionLength = in.readInt();
+        }
+
+        boolean isCompressed = ((field_2_optionflags & 1) == 0);
+        int cc = getCharCount();
+        field_3_string = (isCompressed) ? StringUtil.readCompressedUnicode(in, cc) : StringUtil.readUnicodeLE(in, cc);
+
+        if (isRichText() && (runCount > 0)) {
+          field_4_format_runs = new ArrayList<FormatRun>(runCount);
+          for (int i=0;i<runCount;i++) {
+            field_4_format_runs.add(new FormatRun(in));
+          }
+        }
+
+        if (isExtendedText() && (extensionLength > 0)) {
+          field_5_ext_rst = new ExtRst(in, extensionLength);
+        }
+    }
+
     /**
      * get the number of characters in the string,
      *  as an un-wrapped int
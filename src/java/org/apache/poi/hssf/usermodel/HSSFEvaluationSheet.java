@@ -45,4 +45,7 @@ final class HSSFEvaluationSheet implements EvaluationSheet {
 		}
 		return new HSSFEvaluationCell(cell, this);
 	}
+	public int getLastRowNum() {
+		return _hs.getLastRowNum();
+	}
 }
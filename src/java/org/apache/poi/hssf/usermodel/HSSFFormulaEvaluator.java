@@ -17,10 +17,17 @@
 
 package org.apache.poi.hssf.usermodel;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.apache.poi.ss.formula.CollaboratingWorkbooksEnvironment;
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.FormulaDependencyGraph;
 import org.apache.poi.ss.formula.IStabilityClassifier;
+import org.apache.poi.ss.formula.ParallelFormulaEvaluator;
 import org.apache.poi.ss.formula.WorkbookEvaluator;
 import org.apache.poi.ss.formula.WorkbookEvaluatorProvider;
 import org.apache.poi.ss.formula.eval.BoolEval;
@@ -35,6 +42,7 @@ import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
 
 /**
  * Evaluates formula cells.<p/>
@@ -47,6 +55,9 @@ public class HSSFFormulaEvaluator implements FormulaEvaluator, WorkbookEvaluator
 
 	private WorkbookEvaluator _bookEvaluator;
 	private HSSFWorkbook _book;
+	/** dependencies of the formula cells for {@link #recalculate(Collection)}, built on demand */
+	private FormulaDependencyGraph _dependencyGraph;
+	private List<HSSFCell> _graphCells;
 
 	/**
 	 * @deprecated (Sep 2008) HSSFSheet parameter is ignored
@@ -126,6 +137,7 @@ public class HSSFFormulaEvaluator implements FormulaEvaluator, WorkbookEvaluator
 	@Override
     public void clearAllCachedResultValues() {
 		_bookEvaluator.clearAllCachedResultValues();
+		_dependencyGraph = null;
 	}
 	/**
 	 * Should be called to tell the cell value cache that the specified (value or formula) cell
@@ -135,10 +147,11 @@ public class HSSFFormulaEvaluator implements FormulaEvaluator, WorkbookEvaluator
 	 */
 	public void notifyUpdateCell(HSSFCell cell) {
 		_bookEvaluator.notifyUpdateCell(new HSSFEvaluationCell(cell));
+		checkDependencyGraph(cell);
 	}
     @Override
     public void notifyUpdateCell(Cell cell) {
-        _bookEvaluator.notifyUpdateCell(new HSSFEvaluationCell((HSSFCell)cell));
+        notifyUpdateCell((HSSFCell)cell);
     }
 	/**
 	 * Should be called to tell the cell value cache that the specified cell has just been
@@ -148,10 +161,11 @@ public class HSSFFormulaEvaluator implements FormulaEvaluator, WorkbookEvaluator
 	 */
 	public void notifyDeleteCell(HSSFCell cell) {
 		_bookEvaluator.notifyDeleteCell(new HSSFEvaluationCell(cell));
+		_dependencyGraph = null;
 	}
 	@Override
     public void notifyDeleteCell(Cell cell) {
-		_bookEvaluator.notifyDeleteCell(new HSSFEvaluationCell((HSSFCell)cell));
+		notifyDeleteCell((HSSFCell)cell);
 	}
 
 	/**
@@ -163,6 +177,21 @@ public class HSSFFormulaEvaluator implements FormulaEvaluator, WorkbookEvaluator
 	@Override
     public void notifySetFormula(Cell cell) {
 		_bookEvaluator.notifyUpdateCell(new HSSFEvaluationCell((HSSFCell)cell));
+		_dependencyGraph = null;
+	}
+
+	/**
+	 * Drops the dependency graph if the given cell became a formula cell or stopped being one
+	 */
+	private void checkDependencyGraph(HSSFCell cell) {
+		if (_dependencyGraph == null) {
+			return;
+		}
+		int sheetIndex = _book.getSheetIndex(cell.getSheet());
+		boolean inGraph = _dependencyGraph.indexOf(sheetIndex, cell.getRowIndex(), cell.getColumnIndex()) >= 0;
+		if (inGraph != (cell.getCellType() == Cell.CELL_TYPE_FORMULA)) {
+			_dependencyGraph = null;
+		}
 	}
 
 	/**
@@ -354,12 +383,79 @@ public void evaluateAll() {
       evaluateAllFormulaCells(_book, this);
    }
 
+	/**
+	 * Evaluates all formula cells of the workbook like {@link #evaluateAll()}, but
+	 *  spreads the work over the given executor. The formula cells are grouped into
+	 *  levels of cells which do not depend on each other, each level is evaluated
+	 *  concurrently. The workbook must not be modified until this method returns.
+	 *
+	 * @param executor runs the evaluation tasks, e.g. a fixed size thread pool
+	 * @see ParallelFormulaEvaluator
+	 */
+	public void evaluateAll(Executor executor) {
+		FormulaDependencyGraph graph = getDependencyGraph();
+		ValueEval[] results = new ParallelFormulaEvaluator(_bookEvaluator, executor).evaluate(graph);
+		for (int i = 0; i < results.length; i++) {
+			setCellValue(_graphCells.get(i), toCellValue(results[i]));
+		}
+	}
+
+	/**
+	 * Re-evaluates only the formula cells which are affected by the given changed cells and
+	 *  saves their results, like {@link #evaluateFormulaCell(Cell)} does. The dependencies of
+	 *  the formula cells are kept between calls and only rebuilt after a formula has been
+	 *  changed, which has to be reported with {@link #notifySetFormula(Cell)}.<br/>
+	 *
+	 * Formula cells with references which are only known after evaluating them (INDIRECT,
+	 *  OFFSET, external names) and circular references are always re-evaluated.
+	 *
+	 * @param changedCells the cells whose values or formulas were changed
+	 * @see FormulaDependencyGraph
+	 */
+	public void recalculate(Collection<? extends Cell> changedCells) {
+		List<CellReference> refs = new ArrayList<CellReference>(changedCells.size());
+		for (Cell cell : changedCells) {
+			notifyUpdateCell(cell);
+			refs.add(new CellReference(cell.getSheet().getSheetName(), cell.getRowIndex(), cell.getColumnIndex(), false, false));
+		}
+		FormulaDependencyGraph graph = getDependencyGraph();
+		for (int index : graph.getDirtyCells(refs)) {
+			HSSFCell cell = _graphCells.get(index);
+			setCellValue(cell, toCellValue(_bookEvaluator.evaluate(new HSSFEvaluationCell(cell))));
+		}
+	}
+
+	private FormulaDependencyGraph getDependencyGraph() {
+		if (_dependencyGraph == null) {
+			List<HSSFCell> cells = new ArrayList<HSSFCell>();
+			for (int i = 0; i < _book.getNumberOfSheets(); i++) {
+				for (Row r : _book.getSheetAt(i)) {
+					for (Cell c : r) {
+						if (c.getCellType() == Cell.CELL_TYPE_FORMULA) {
+							cells.add((HSSFCell)c);
+						}
+					}
+				}
+			}
+			EvaluationCell[] evalCells = new EvaluationCell[cells.size()];
+			for (int i = 0; i < evalCells.length; i++) {
+				evalCells[i] = new HSSFEvaluationCell(cells.get(i));
+			}
+			_dependencyGraph = new FormulaDependencyGraph(_bookEvaluator, evalCells);
+			_graphCells = cells;
+		}
+		return _dependencyGraph;
+	}
+
 	/**
 	 * Returns a CellValue wrapper around the supplied ValueEval instance.
 	 * @param cell
 	 */
 	private CellValue evaluateFormulaCellValue(Cell cell) {
-		ValueEval eval = _bookEvaluator.evaluate(new HSSFEvaluationCell((HSSFCell)cell));
+		return toCellValue(_bookEvaluator.evaluate(new HSSFEvaluationCell((HSSFCell)cell)));
+	}
+
+	private static CellValue toCellValue(ValueEval eval) {
 		if (eval instanceof BoolEval) {
 			BoolEval be = (BoolEval) eval;
 			return CellValue.valueOf(be.getBooleanValue());
@@ -384,6 +480,17 @@ public void evaluateAll() {
         _bookEvaluator.setIgnoreMissingWorkbooks(ignore);
     }
 
+    /**
+     * Whether formula cells should be compiled on their first evaluation, so that repeated
+     * recalculations don't interpret the formula tokens again. Changed formulas must be reported
+     * with {@link #notifySetFormula(Cell)} or {@link #clearAllCachedResultValues()}.
+     *
+     * @param value whether to compile formulas, <code>false</code> by default
+     */
+    public void setCompileFormulas(boolean value){
+        _bookEvaluator.setCompileFormulas(value);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setDebugEvaluationOutputForNextEval(boolean value){
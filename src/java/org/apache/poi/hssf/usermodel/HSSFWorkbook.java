@@ -79,6 +79,8 @@ import org.apache.poi.poifs.filesystem.FilteringDirectoryNode;
 import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
 import org.apache.poi.poifs.filesystem.Ole10Native;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.poifs.filesystem.POIFSWriterEvent;
+import org.apache.poi.poifs.filesystem.POIFSWriterListener;
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.FormulaShifter;
 import org.apache.poi.ss.formula.FormulaType;
@@ -1315,7 +1317,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
             List<String> excepts = new ArrayList<String>(1);
     
             // Write out the Workbook stream
-            fs.createDocument(new ByteArrayInputStream(getBytes()), "Workbook");
+            writeWorkbookStream(fs);
     
             // Write out our HPFS properties, if we have them
             writeProperties(fs, excepts);
@@ -1370,22 +1372,75 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
             }
             return result;
         }
+        public void visitRecords(RecordVisitor rv) {
+            for (Record rec : _list) {
+                rv.visitRecord(rec);
+            }
+        }
     }
 
-
     /**
-     * Method getBytes - get the bytes of just the HSSF portions of the XLS file.
-     * Use this to construct a POI POIFSFileSystem yourself.
-     *
-     *
-     * @return byte[] array containing the binary representation of this workbook and all contained
-     *         sheets, rows, cells, etc.
+     * Serializes the records it visits one by one into an OutputStream, through a
+     * buffer which is reused for all records that fit into it
      */
-    public byte[] getBytes() {
-        if (log.check( POILogger.DEBUG )) {
-            log.log(DEBUG, "HSSFWorkbook.getBytes()");
+    private static final class RecordStreamWriter implements RecordVisitor {
+        private final OutputStream _out;
+        private final byte[] _buffer = new byte[8192];
+        private int _bufferSize;
+        private int _written;
+        private IOException _failure;
+
+        public RecordStreamWriter(OutputStream out) {
+            _out = out;
+        }
+        /**
+         * @return the number of bytes serialized so far
+         */
+        public int getWritten() {
+            return _written;
         }
+        @Override
+        public void visitRecord(Record r) {
+            int size = r.getRecordSize();
+            if (_bufferSize + size > _buffer.length) {
+                flush();
+            }
+            if (size > _buffer.length) {
+                write(r.serialize(), size);
+            } else {
+                _bufferSize += r.serialize(_bufferSize, _buffer);
+            }
+            _written += size;
+        }
+        public void flush() {
+            write(_buffer, _bufferSize);
+            _bufferSize = 0;
+        }
+        private void write(byte[] data, int len) {
+            if (_failure != null) {
+                return;
+            }
+            try {
+                _out.write(data, 0, len);
+            } catch (IOException e) {
+                _failure = e;
+            }
+        }
+        /**
+         * Rethrows the first exception the OutputStream threw, if any
+         */
+        public void checkFailure() throws IOException {
+            if (_failure != null) {
+                throw _failure;
+            }
+        }
+    }
 
+    /**
+     * Tells the workbook and sheets that serialization is about to occur, sets the
+     * BOF offsets of the sheets and collects the records of each sheet.
+     */
+    private SheetRecordCollector[] collectSheetRecords() {
         HSSFSheet[] sheets = getSheets();
         int nSheets = sheets.length;
 
@@ -1409,22 +1464,83 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
             totalsize += src.getTotalSize();
             srCollectors[k] = src;
         }
+        return srCollectors;
+    }
+
+    private static void checkSerializedSheetSize(int serializedSize, SheetRecordCollector src, int sheetIndex) {
+        if (serializedSize != src.getTotalSize()) {
+            // Wrong offset values have been passed in the call to setSheetBof() above.
+            // For books with more than one sheet, this discrepancy would cause excel
+            // to report errors and loose data while reading the workbook
+            throw new IllegalStateException("Actual serialized sheet size (" + serializedSize
+                    + ") differs from pre-calculated size (" + src.getTotalSize()
+                    + ") for sheet (" + sheetIndex + ")");
+            // TODO - add similar sanity check to ensure that Sheet.serializeIndexRecord() does not write mis-aligned offsets either
+        }
+    }
+
+    /**
+     * Writes the Workbook stream straight into the filesystem, record by record, instead
+     * of building it in a byte array first like {@link #getBytes()} does. The size of the
+     * stream is known up front, as it is needed for the BOF offsets of the sheets anyway.
+     */
+    private void writeWorkbookStream(NPOIFSFileSystem fs) throws IOException {
+        final SheetRecordCollector[] srCollectors = collectSheetRecords();
+        final int workbookSize = workbook.getSize();
+        int totalsize = workbookSize;
+        for (SheetRecordCollector src : srCollectors) {
+            totalsize += src.getTotalSize();
+        }
+
+        final RecordStreamWriter[] writers = new RecordStreamWriter[1];
+        fs.createDocument("Workbook", totalsize, new POIFSWriterListener() {
+            @Override
+            public void processPOIFSWriterEvent(POIFSWriterEvent event) {
+                RecordStreamWriter writer = new RecordStreamWriter(event.getStream());
+                writers[0] = writer;
+                workbook.visitSerializedRecords(0, writer);
+                if (writer.getWritten() != workbookSize) {
+                    throw new IllegalStateException("Actual serialized workbook size (" + writer.getWritten()
+                            + ") differs from pre-calculated size (" + workbookSize + ")");
+                }
+                for (int k = 0; k < srCollectors.length; k++) {
+                    int pos = writer.getWritten();
+                    srCollectors[k].visitRecords(writer);
+                    checkSerializedSheetSize(writer.getWritten() - pos, srCollectors[k], k);
+                }
+                writer.flush();
+            }
+        });
+        writers[0].checkFailure();
+    }
+
+
+    /**
+     * Method getBytes - get the bytes of just the HSSF portions of the XLS file.
+     * Use this to construct a POI POIFSFileSystem yourself.
+     *
+     *
+     * @return byte[] array containing the binary representation of this workbook and all contained
+     *         sheets, rows, cells, etc.
+     */
+    public byte[] getBytes() {
+        if (log.check( POILogger.DEBUG )) {
+            log.log(DEBUG, "HSSFWorkbook.getBytes()");
+        }
+
+        SheetRecordCollector[] srCollectors = collectSheetRecords();
+        int totalsize = workbook.getSize();
+        for (SheetRecordCollector src : srCollectors) {
+            totalsize += src.getTotalSize();
+        }
 
         byte[] retval = new byte[totalsize];
         int pos = workbook.serialize(0, retval);
 
-        for (int k = 0; k < nSheets; k++) {
+        for (int k = 0; k < srCollectors.length; k++) {
             SheetRecordCollector src = srCollectors[k];
             int serializedSize = src.serialize(pos, retval);
-            if (serializedSize != src.getTotalSize()) {
-                // Wrong offset values have been passed in the call to setSheetBof() above.
-                // For books with more than one sheet, this discrepancy would cause excel
-                // to report errors and loose data while reading the workbook
-                throw new IllegalStateException("Actual serialized sheet size (" + serializedSize
-                        + ") differs from pre-calculated size (" + src.getTotalSize()
-                        + ") for sheet (" + k + ")");
-                // TODO - add similar sanity check to ensure that Sheet.serializeIndexRecord() does not write mis-aligned offsets either
-            }
+            checkSerializedSheetSize(serializedSize, src, k);
             pos += serializedSize;
         }
         return retval;
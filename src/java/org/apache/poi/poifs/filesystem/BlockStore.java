@@ -37,6 +37,14 @@ public abstract class BlockStore {
      * Load the block at the given offset.
      */
     protected abstract ByteBuffer getBlockAt(final int offset) throws IOException;
+
+    /**
+     * Load the block at the given offset, for reading only. The
+     *  returned block must not be changed.
+     */
+    protected ByteBuffer getReadOnlyBlockAt(final int offset) throws IOException {
+       return getBlockAt(offset);
+    }
     
     /**
      * Extends the file if required to hold blocks up to
@@ -19,6 +19,7 @@ package org.apache.poi.poifs.filesystem;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Iterator;
 
 import org.apache.poi.poifs.property.DocumentProperty;
@@ -120,15 +121,7 @@ public final class NDocumentInputStream extends DocumentInputStream {
         if (atEOD()) {
             return EOF;
         }
-        byte[] b = new byte[1];
-        int result = read(b, 0, 1);
-        if(result >= 0) {
-            if(b[0] < 0) {
-                return b[0]+256;
-            }
-            return b[0];
-        }
-        return result;
+        return readUByte();
     }
 
     @Override
@@ -171,7 +164,7 @@ public final class NDocumentInputStream extends DocumentInputStream {
         _data = _document.getBlockIterator();
         _current_offset = 0;
 		for(int i=0; i<_marked_offset_count; i++) {
-		   _buffer = _data.next();
+		   _buffer = nextBlock();
 		   _current_offset += _buffer.remaining();
 		}
 		
@@ -180,7 +173,7 @@ public final class NDocumentInputStream extends DocumentInputStream {
       // Do we need to position within it?
       if(_current_offset != _marked_offset) {
    		// Grab the right block
-         _buffer = _data.next();
+         _buffer = nextBlock();
          _current_block_count++;
          
    		// Skip to the right place in it
@@ -211,9 +204,28 @@ public final class NDocumentInputStream extends DocumentInputStream {
 		
 		long rval = new_offset - _current_offset;
 		
-		// TODO Do this better
-		byte[] skip = new byte[(int)rval];
-		readFully(skip);
+		// Move through the blocks without copying them out
+		int toSkip = (int)rval;
+		while(toSkip > 0) {
+		   if ((_buffer == null || _buffer.remaining() == 0)
+		         && _data instanceof NPOIFSStream.StreamBlockByteBufferIterator) {
+		      // whole blocks are skipped without reading them at all
+		      NPOIFSStream.StreamBlockByteBufferIterator blocks = (NPOIFSStream.StreamBlockByteBufferIterator)_data;
+		      int blockSize = blocks.getBlockSize();
+		      if (toSkip >= blockSize) {
+		         blocks.skipBlock();
+		         _current_block_count++;
+		         _current_offset += blockSize;
+		         toSkip -= blockSize;
+		         continue;
+		      }
+		   }
+		   fetchBlockIfNeeded();
+		   int limit = Math.min(toSkip, _buffer.remaining());
+		   _buffer.position(_buffer.position() + limit);
+		   _current_offset += limit;
+		   toSkip -= limit;
+		}
 		return rval;
 	}
 
@@ -223,6 +235,38 @@ public final class NDocumentInputStream extends DocumentInputStream {
 		}
 	}
 
+	/**
+	 * Fetches the next block, set up so that primitive values can be read
+	 *  from it directly (the block stores are little endian)
+	 */
+	private ByteBuffer nextBlock() {
+		ByteBuffer block = _data.next();
+		block.order(ByteOrder.LITTLE_ENDIAN);
+		return block;
+	}
+
+	private void fetchBlockIfNeeded() {
+		if(_buffer == null || _buffer.remaining() == 0) {
+		   _current_block_count++;
+		   _buffer = nextBlock();
+		}
+	}
+
+	/**
+	 * Checks that the value of the given size can be read, and readies the
+	 *  current block. Returns <code>true</code> if the whole value is within
+	 *  the current block, so it can be taken from there without copying
+	 */
+	private boolean canReadFromBuffer(int requestedSize) {
+		checkAvaliable(requestedSize);
+		fetchBlockIfNeeded();
+		if(_buffer.remaining() < requestedSize) {
+		   return false;
+		}
+		_current_offset += requestedSize;
+		return true;
+	}
+
 	private boolean atEOD() {
 		return _current_offset == _document_size;
 	}
@@ -243,10 +287,7 @@ public final class NDocumentInputStream extends DocumentInputStream {
 
 		int read = 0;
 		while(read < len) {
-		   if(_buffer == null || _buffer.remaining() == 0) {
-		      _current_block_count++;
-		      _buffer = _data.next();
-		   }
+		   fetchBlockIfNeeded();
 		   
 		   int limit = Math.min(len-read, _buffer.remaining());
 		   _buffer.get(buf, off+read, limit);
@@ -267,7 +308,9 @@ public final class NDocumentInputStream extends DocumentInputStream {
 
    @Override
 	public long readLong() {
-		checkAvaliable(SIZE_LONG);
+		if(canReadFromBuffer(SIZE_LONG)) {
+		   return _buffer.getLong();
+		}
 		byte[] data = new byte[SIZE_LONG];
 		readFully(data, 0, SIZE_LONG);
 		return LittleEndian.getLong(data, 0);
@@ -275,7 +318,9 @@ public final class NDocumentInputStream extends DocumentInputStream {
 
    @Override
    public short readShort() {
-      checkAvaliable(SIZE_SHORT);
+      if(canReadFromBuffer(SIZE_SHORT)) {
+         return _buffer.getShort();
+      }
       byte[] data = new byte[SIZE_SHORT];
       readFully(data, 0, SIZE_SHORT);
       return LittleEndian.getShort(data);
@@ -283,7 +328,9 @@ public final class NDocumentInputStream extends DocumentInputStream {
 
    @Override
 	public int readInt() {
-		checkAvaliable(SIZE_INT);
+		if(canReadFromBuffer(SIZE_INT)) {
+		   return _buffer.getInt();
+		}
       byte[] data = new byte[SIZE_INT];
       readFully(data, 0, SIZE_INT);
       return LittleEndian.getInt(data);
@@ -291,7 +338,9 @@ public final class NDocumentInputStream extends DocumentInputStream {
 
    @Override
 	public int readUShort() {
-		checkAvaliable(SIZE_SHORT);
+		if(canReadFromBuffer(SIZE_SHORT)) {
+		   return _buffer.getShort() & 0xFFFF;
+		}
       byte[] data = new byte[SIZE_SHORT];
       readFully(data, 0, SIZE_SHORT);
       return LittleEndian.getUShort(data);
@@ -300,10 +349,8 @@ public final class NDocumentInputStream extends DocumentInputStream {
    @Override
 	public int readUByte() {
 		checkAvaliable(1);
-      byte[] data = new byte[1];
-      readFully(data, 0, 1);
-      if(data[0] >= 0)
-         return data[0];
-      return data[0] + 256;
+		fetchBlockIfNeeded();
+		_current_offset++;
+		return _buffer.get() & 0xFF;
 	}
 }
@@ -176,6 +176,9 @@ public final class NPOIFSDocument implements POIFSViewable {
    
    Iterator<ByteBuffer> getBlockIterator() {
       if(getSize() > 0) {
+         if (_filesystem.isMappedReads()) {
+            return _stream.getReadOnlyBlockIterator();
+         }
          return _stream.getBlockIterator();
       } else {
          List<ByteBuffer> empty = Collections.emptyList();
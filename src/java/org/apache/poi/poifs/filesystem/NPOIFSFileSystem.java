@@ -86,6 +86,9 @@ public class NPOIFSFileSystem extends BlockStore
     private DirectoryNode   _root;
     
     private DataSource _data;
+
+    // Whether documents read their blocks from a mapping of the file
+    private boolean _mappedReads;
     
     /**
      * What big block size the file uses. Most files
@@ -477,10 +480,50 @@ public class NPOIFSFileSystem extends BlockStore
      */
     @Override
     protected ByteBuffer getBlockAt(final int offset) throws IOException {
+       return getBlockAt(offset, false);
+    }
+
+    /**
+     * Load the block at the given offset, for reading only.
+     *  If mapped reads are enabled, this is a view of the mapped
+     *  file rather than a copy.
+     */
+    @Override
+    protected ByteBuffer getReadOnlyBlockAt(final int offset) throws IOException {
+       return getBlockAt(offset, _mappedReads);
+    }
+
+    /**
+     * Makes the documents of a read-only FileSystem, which is backed by a
+     *  file, read their blocks as views of a memory mapping of the whole
+     *  file instead of copying them. Off by default.
+     * <p>
+     * The mapping is released by {@link #close()}. No stream or buffer of
+     *  the documents may be used after that, as reading unmapped memory
+     *  crashes the JVM instead of throwing an exception.
+     *
+     * @param mappedReads whether the documents are read from a mapping of the file
+     */
+    public void setMappedReads(boolean mappedReads) {
+       _mappedReads = mappedReads;
+    }
+
+    /**
+     * @return whether the documents are read from a mapping of the file,
+     *  see {@link #setMappedReads(boolean)}
+     */
+    public boolean isMappedReads() {
+       return _mappedReads;
+    }
+
+    private ByteBuffer getBlockAt(final int offset, boolean readOnly) throws IOException {
        // The header block doesn't count, so add one
        long blockWanted = offset + 1;
        long startAt = blockWanted * bigBlockSize.getBigBlockSize();
        try {
+           if (readOnly) {
+               return _data.readOnly(bigBlockSize.getBigBlockSize(), startAt);
+           }
            return _data.read(bigBlockSize.getBigBlockSize(), startAt);
        } catch (IndexOutOfBoundsException e) {
            IndexOutOfBoundsException wrapped = new IndexOutOfBoundsException("Block " + offset + " not found");
@@ -92,7 +92,20 @@ public class NPOIFSStream implements Iterable<ByteBuffer>
                "Can't read from a new stream before it has been written to"
          );
       }
-      return new StreamBlockByteBufferIterator(startBlock);
+      return new StreamBlockByteBufferIterator(startBlock, false);
+   }
+
+   /**
+    * Returns an iterator that'll supply one {@link ByteBuffer}
+    *  per block in the stream, which will only be read from.
+    */
+   Iterator<ByteBuffer> getReadOnlyBlockIterator() {
+      if(startBlock == POIFSConstants.END_OF_CHAIN) {
+         throw new IllegalStateException(
+               "Can't read from a new stream before it has been written to"
+         );
+      }
+      return new StreamBlockByteBufferIterator(startBlock, true);
    }
 
    /**
@@ -142,9 +155,15 @@ public class NPOIFSStream implements Iterable<ByteBuffer>
    protected class StreamBlockByteBufferIterator implements Iterator<ByteBuffer> {
       private ChainLoopDetector loopDetector;
       private int nextBlock;
+      private final boolean readOnly;
       
       protected StreamBlockByteBufferIterator(int firstBlock) {
+         this(firstBlock, false);
+      }
+
+      protected StreamBlockByteBufferIterator(int firstBlock, boolean readOnly) {
          this.nextBlock = firstBlock;
+         this.readOnly = readOnly;
          try {
             this.loopDetector = blockStore.getChainLoopDetector();
          } catch(IOException e) {
@@ -166,7 +185,7 @@ public class NPOIFSStream implements Iterable<ByteBuffer>
          
          try {
             loopDetector.claim(nextBlock);
-            ByteBuffer data = blockStore.getBlockAt(nextBlock);
+            ByteBuffer data = readOnly ? blockStore.getReadOnlyBlockAt(nextBlock) : blockStore.getBlockAt(nextBlock);
             nextBlock = blockStore.getNextBlock(nextBlock);
             return data;
          } catch(IOException e) {
@@ -174,6 +193,24 @@ public class NPOIFSStream implements Iterable<ByteBuffer>
          }
       }
 
+      /**
+       * @return the size of the blocks returned by this iterator
+       */
+      int getBlockSize() {
+         return blockStore.getBlockStoreBlockSize();
+      }
+
+      /**
+       * Moves past the next block without reading its data
+       */
+      void skipBlock() {
+         if(nextBlock == POIFSConstants.END_OF_CHAIN) {
+            throw new IndexOutOfBoundsException("Can't read past the end of the stream");
+         }
+         loopDetector.claim(nextBlock);
+         nextBlock = blockStore.getNextBlock(nextBlock);
+      }
+
       public void remove() {
          throw new UnsupportedOperationException();
       }
@@ -26,6 +26,14 @@ import java.nio.ByteBuffer;
  */
 public abstract class DataSource {
    public abstract ByteBuffer read(int length, long position) throws IOException;
+   /**
+    * Reads bytes which the caller will only read and never change. This is the
+    *  same as {@link #read(int, long)} unless the data source can hand out a
+    *  view of its data instead of a copy.
+    */
+   public ByteBuffer readOnly(int length, long position) throws IOException {
+      return read(length, position);
+   }
    public abstract void write(ByteBuffer src, long position) throws IOException;
    public abstract long size() throws IOException;
    /** Close the underlying stream */
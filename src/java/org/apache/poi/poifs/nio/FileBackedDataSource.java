@@ -32,7 +32,6 @@ import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
 import org.apache.poi.util.SuppressForbidden;
@@ -54,8 +53,15 @@ public class FileBackedDataSource extends DataSource {
    // See https://bz.apache.org/bugzilla/show_bug.cgi?id=58480, 
    // http://stackoverflow.com/questions/3602783/file-access-synchronized-on-java-object and
    // http://bugs.java.com/view_bug.do?bug_id=4724038 for related discussions
+   // Guarded by this, as blocks may be read from several threads
    private List<ByteBuffer> buffersToClean = new ArrayList<ByteBuffer>();
 
+   // When read-only, the whole file is mapped once for readOnly(), and the
+   // blocks are handed out as slices of it without any copying.
+   // Set once under the lock of this, and read without it afterwards
+   private volatile ByteBuffer readOnlyMapping;
+   private volatile boolean readOnlyMappingFailed;
+
    public FileBackedDataSource(File file) throws FileNotFoundException {
        this(newSrcFile(file, "r"), true);
    }
@@ -95,10 +101,10 @@ public class FileBackedDataSource extends DataSource {
           dst = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
           worked = 0;
       } else {
-          // Read
-          channel.position(position);
+          // Read at the given position, without moving the position of the channel,
+          //  so that several threads can read from the same source
           dst = ByteBuffer.allocate(length);
-          worked = IOUtils.readFully(channel, dst);
+          worked = readFully(dst, position);
       }
 
       // Check
@@ -110,12 +116,70 @@ public class FileBackedDataSource extends DataSource {
       dst.position(0);
 
       // remember the buffer for cleanup if necessary
-      buffersToClean.add(dst);
+      if (writable) {
+          synchronized (this) {
+              buffersToClean.add(dst);
+          }
+      }
       
       // All done
       return dst;
    }
 
+   private int readFully(ByteBuffer dst, long position) throws IOException {
+      int total = 0;
+      while (dst.hasRemaining()) {
+         int got = channel.read(dst, position + total);
+         if (got < 0) {
+            return (total == 0) ? -1 : total;
+         }
+         total += got;
+      }
+      return total;
+   }
+
+   @Override
+   public ByteBuffer readOnly(int length, long position) throws IOException {
+      ByteBuffer mapping = getReadOnlyMapping();
+      if (mapping == null || position + length > mapping.capacity()) {
+         return read(length, position);
+      }
+      ByteBuffer dst = mapping.duplicate();
+      dst.position((int)position);
+      dst.limit((int)position + length);
+      return dst.slice();
+   }
+
+   /**
+    * Maps the whole file on first use if it is read-only. Returns <code>null</code>
+    *  if it is writable, too large for a single mapping or cannot be mapped, in
+    *  which case the blocks are read as usual.
+    */
+   private ByteBuffer getReadOnlyMapping() throws IOException {
+      ByteBuffer mapping = readOnlyMapping;
+      if (mapping != null || readOnlyMappingFailed) {
+         return mapping;
+      }
+      synchronized (this) {
+         if (readOnlyMapping == null && !readOnlyMappingFailed) {
+            long size = channel.size();
+            if (writable || size > Integer.MAX_VALUE) {
+               readOnlyMappingFailed = true;
+            } else {
+               try {
+                  mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                  buffersToClean.add(mapping);
+                  readOnlyMapping = mapping;
+               } catch (IOException e) {
+                  logger.log(POILogger.INFO, "Unable to map file, reading blocks instead.", e);
+                  readOnlyMappingFailed = true;
+               }
+            }
+         }
+         return readOnlyMapping;
+      }
+   }
+
    @Override
    public void write(ByteBuffer src, long position) throws IOException {
       channel.write(src, position);
@@ -138,10 +202,15 @@ public class FileBackedDataSource extends DataSource {
    public void close() throws IOException {
 	   // also ensure that all buffers are unmapped so we do not keep files locked on Windows
 	   // We consider it a bug if a Buffer is still in use now! 
-       for(ByteBuffer buffer : buffersToClean) {
-           unmap(buffer);
+       synchronized (this) {
+           for(ByteBuffer buffer : buffersToClean) {
+               unmap(buffer);
+           }
+           buffersToClean.clear();
+           readOnlyMapping = null;
+           // do not map the file again once it is closed
+           readOnlyMappingFailed = true;
        }
-       buffersToClean.clear();
 
        if (srcFile != null) {
           // see http://bugs.java.com/bugdatabase/view_bug.do?bug_id=4796385
@@ -0,0 +1,94 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.util.IntList;
+
+/**
+ * Gives an evaluator access to the results of the evaluator it was forked from (the <em>base</em>
+ * evaluator). A result of the base evaluator can be reused as long as the formula cell does not
+ * depend on a cell which was changed after forking. These <em>dirty</em> formula cells are found
+ * by following the dependencies recorded in the evaluation cache of the base evaluator, so only
+ * the formula cells affected by the changes are visited.<br/>
+ *
+ * The base evaluator must not evaluate or change any cells once it is used as a base, so its
+ * results can be read without locking by evaluators running on different threads. Only finding
+ * the dirty cells, which happens when a cell is changed, locks the base evaluator.
+ */
+final class BaseEvaluatorResults {
+
+	private final WorkbookEvaluator _baseEvaluator;
+	private final IntList _changedSheetIndexes;
+	private final List<EvaluationCell> _changedCells;
+	/** identity keys of the formula cells which depend on the changed cells */
+	private Set<Object> _dirtyCells;
+
+	public BaseEvaluatorResults(WorkbookEvaluator baseEvaluator) {
+		_baseEvaluator = baseEvaluator;
+		_changedSheetIndexes = new IntList();
+		_changedCells = new ArrayList<EvaluationCell>();
+		_dirtyCells = Collections.emptySet();
+	}
+
+	/**
+	 * @param identityKey the identity key of a formula cell of the master workbook
+	 * @return the result of the base evaluator for the given cell, or <code>null</code> if the
+	 *  cell depends on a changed cell or has not been evaluated by the base evaluator
+	 */
+	public ValueEval getResult(Object identityKey) {
+		if (_dirtyCells.contains(identityKey)) {
+			return null;
+		}
+		return _baseEvaluator.getCachedResult(identityKey);
+	}
+
+	/**
+	 * Records a cell changed after forking
+	 *
+	 * @return the identity keys of the formula cells which are affected by this change, but not by
+	 *  previous changes
+	 */
+	public Set<Object> addChangedCell(int sheetIndex, EvaluationCell cell) {
+		_changedSheetIndexes.add(sheetIndex);
+		_changedCells.add(cell);
+		EvaluationCell[] cells = new EvaluationCell[_changedCells.size()];
+		_changedCells.toArray(cells);
+		Set<Object> previous = _dirtyCells;
+		_dirtyCells = findDependentFormulaCells(_changedSheetIndexes.toArray(), cells);
+		Set<Object> result = new HashSet<Object>(_dirtyCells);
+		result.removeAll(previous);
+		return result;
+	}
+
+	/**
+	 * @return the formula cells of the base evaluator which depend on the given cells
+	 */
+	public Set<Object> findDependentFormulaCells(int[] sheetIndexes, EvaluationCell[] cells) {
+		// evaluators forked from the same base may do this at the same time
+		synchronized (_baseEvaluator) {
+			return _baseEvaluator.findDependentFormulaCells(sheetIndexes, cells);
+		}
+	}
+}
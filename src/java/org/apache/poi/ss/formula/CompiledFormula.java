@@ -0,0 +1,486 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.EvaluationException;
+import org.apache.poi.ss.formula.eval.MissingArgEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.OperandResolver;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.TwoOperandNumericOperation;
+import org.apache.poi.ss.formula.eval.UnaryMinusEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.function.FunctionMetadataRegistry;
+import org.apache.poi.ss.formula.functions.Choose;
+import org.apache.poi.ss.formula.functions.Function;
+import org.apache.poi.ss.formula.functions.IfFunc;
+import org.apache.poi.ss.formula.ptg.AreaErrPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.AttrPtg;
+import org.apache.poi.ss.formula.ptg.BoolPtg;
+import org.apache.poi.ss.formula.ptg.ControlPtg;
+import org.apache.poi.ss.formula.ptg.DeletedArea3DPtg;
+import org.apache.poi.ss.formula.ptg.DeletedRef3DPtg;
+import org.apache.poi.ss.formula.ptg.ErrPtg;
+import org.apache.poi.ss.formula.ptg.FuncVarPtg;
+import org.apache.poi.ss.formula.ptg.IntPtg;
+import org.apache.poi.ss.formula.ptg.MemAreaPtg;
+import org.apache.poi.ss.formula.ptg.MemErrPtg;
+import org.apache.poi.ss.formula.ptg.MemFuncPtg;
+import org.apache.poi.ss.formula.ptg.MissingArgPtg;
+import org.apache.poi.ss.formula.ptg.NumberPtg;
+import org.apache.poi.ss.formula.ptg.OperationPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.RefErrorPtg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.apache.poi.ss.formula.ptg.StringPtg;
+import org.apache.poi.ss.formula.ptg.UnionPtg;
+
+/**
+ * A formula token array translated into a flat list of instructions, so that repeated
+ * evaluations of the same formula don't have to interpret the tokens again.<p/>
+ *
+ * Constant operands are created once, operators are resolved to their {@link Function}
+ * and the skip distances of tAttrIf, tAttrChoose and tAttrSkip are turned into jump
+ * targets. The results of arithmetic operators are kept as primitive doubles until a
+ * function or the final result needs them as {@link NumberEval}. References are still
+ * resolved against the {@link OperationEvaluationContext} of each evaluation. Formulas
+ * which cannot be translated (for example because of bad skip distances) are evaluated
+ * by {@link WorkbookEvaluator#evaluateFormula} instead.
+ *
+ * @see WorkbookEvaluator#setCompileFormulas(boolean)
+ */
+final class CompiledFormula {
+
+	/** pushes the constant operand */
+	private static final int PUSH_CONSTANT = 0;
+	/** pushes the {@link RefPtg} operand */
+	private static final int PUSH_REF = 1;
+	/** pushes the {@link AreaPtg} operand */
+	private static final int PUSH_AREA = 2;
+	/** pushes the value of any other operand token */
+	private static final int PUSH_PTG = 3;
+	/** applies the operator {@link Function} to the top <tt>arg</tt> values */
+	private static final int OPERATOR = 4;
+	/** applies the {@link OperationPtg} to the top <tt>arg</tt> values */
+	private static final int OPERATION = 5;
+	/** tAttrIf, jumps to <tt>arg</tt> if the condition is false */
+	private static final int IF = 6;
+	/** tAttrChoose, jumps to the target of the chosen argument */
+	private static final int CHOOSE = 7;
+	/** tAttrSkip, jumps to <tt>arg</tt> */
+	private static final int SKIP = 8;
+	/** applies the {@link TwoOperandNumericOperation} to the top two values, unboxed */
+	private static final int NUMERIC_OPERATOR = 9;
+	/** negates the top value, keeps the result unboxed */
+	private static final int NEGATE = 10;
+
+	private final Ptg[] _ptgs;
+	private final int[] _opcodes;
+	private final int[] _args;
+	private final Object[] _operands;
+
+	private CompiledFormula(Ptg[] ptgs, int[] opcodes, int[] args, Object[] operands) {
+		_ptgs = ptgs;
+		_opcodes = opcodes;
+		_args = args;
+		_operands = operands;
+	}
+
+	/**
+	 * Target of an optimized IF
+	 */
+	private static final class IfTargets {
+		final int _errorTarget;
+		final boolean _pushFalse;
+
+		IfTargets(int errorTarget, boolean pushFalse) {
+			_errorTarget = errorTarget;
+			_pushFalse = pushFalse;
+		}
+	}
+
+	/**
+	 * Targets of an optimized CHOOSE
+	 */
+	private static final class ChooseTargets {
+		final int[] _targets;
+		final int _errorTarget;
+
+		ChooseTargets(int[] targets, int errorTarget) {
+			_targets = targets;
+			_errorTarget = errorTarget;
+		}
+	}
+
+	/**
+	 * @return the compiled formula, never <code>null</code>. If the tokens can't be translated,
+	 *  the result evaluates them with {@link WorkbookEvaluator#evaluateFormula}
+	 */
+	public static CompiledFormula compile(Ptg[] ptgs) {
+		try {
+			return new Compiler(ptgs).compile();
+		} catch (RuntimeException e) {
+			// leave any errors to the evaluation of the tokens
+			return new CompiledFormula(ptgs, null, null, null);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the tokens have been translated
+	 */
+	public boolean isCompiled() {
+		return _opcodes != null;
+	}
+
+	public ValueEval evaluate(WorkbookEvaluator evaluator, OperationEvaluationContext ec) {
+		if (_opcodes == null) {
+			return evaluator.evaluateFormula(ec, _ptgs);
+		}
+		int[] opcodes = _opcodes;
+		int srcRowIndex = ec.getRowIndex();
+		int srcColumnIndex = ec.getColumnIndex();
+		// a null value means the result of a numeric operator is held unboxed in numbers
+		ValueEval[] stack = new ValueEval[_ptgs.length + 1];
+		double[] numbers = null;
+		int sp = 0;
+		int pc = 0;
+		while (pc < opcodes.length) {
+			int arg = _args[pc];
+			Object operand = _operands[pc];
+			ValueEval opResult;
+			switch (opcodes[pc]) {
+				case PUSH_CONSTANT:
+					opResult = (ValueEval) operand;
+					break;
+				case PUSH_REF:
+					RefPtg rptg = (RefPtg) operand;
+					opResult = ec.getRefEval(rptg.getRow(), rptg.getColumn());
+					break;
+				case PUSH_AREA:
+					AreaPtg aptg = (AreaPtg) operand;
+					opResult = ec.getAreaEval(aptg.getFirstRow(), aptg.getFirstColumn(), aptg.getLastRow(), aptg.getLastColumn());
+					break;
+				case PUSH_PTG:
+					opResult = evaluator.getEvalForPtg((Ptg) operand, ec);
+					break;
+				case NUMERIC_OPERATOR:
+				case NEGATE: {
+					if (numbers == null) {
+						numbers = new double[stack.length];
+					}
+					double result;
+					sp -= arg;
+					try {
+						if (opcodes[pc] == NUMERIC_OPERATOR) {
+							double d0 = toNumber(stack, numbers, sp, srcRowIndex, srcColumnIndex);
+							double d1 = toNumber(stack, numbers, sp+1, srcRowIndex, srcColumnIndex);
+							result = ((TwoOperandNumericOperation) operand).evaluateNumbers(d0, d1);
+						} else {
+							double d = toNumber(stack, numbers, sp, srcRowIndex, srcColumnIndex);
+							result = UnaryMinusEval.evaluateNumber(d);
+						}
+					} catch (EvaluationException e) {
+						stack[sp++] = e.getErrorEval();
+						pc++;
+						continue;
+					}
+					numbers[sp] = result;
+					stack[sp++] = null;
+					pc++;
+					continue;
+				}
+				case OPERATOR:
+				case OPERATION: {
+					ValueEval[] ops = new ValueEval[arg];
+					sp -= arg;
+					for (int j = 0; j < arg; j++) {
+						ops[j] = box(stack, numbers, sp + j);
+					}
+					if (opcodes[pc] == OPERATOR) {
+						opResult = ((Function) operand).evaluate(ops, srcRowIndex, (short) srcColumnIndex);
+					} else {
+						opResult = OperationEvaluatorFactory.evaluate((OperationPtg) operand, ops, ec);
+					}
+					break;
+				}
+				case IF: {
+					IfTargets targets = (IfTargets) operand;
+					boolean evaluatedPredicate;
+					try {
+						sp--;
+						evaluatedPredicate = IfFunc.evaluateFirstArg(box(stack, numbers, sp), srcRowIndex, srcColumnIndex);
+					} catch (EvaluationException e) {
+						stack[sp++] = e.getErrorEval();
+						pc = targets._errorTarget;
+						continue;
+					}
+					if (evaluatedPredicate) {
+						pc++;
+					} else {
+						if (targets._pushFalse) {
+							stack[sp++] = BoolEval.FALSE;
+						}
+						pc = arg;
+					}
+					continue;
+				}
+				case CHOOSE: {
+					ChooseTargets targets = (ChooseTargets) operand;
+					int nChoices = targets._targets.length;
+					try {
+						sp--;
+						int switchIndex = Choose.evaluateFirstArg(box(stack, numbers, sp), srcRowIndex, srcColumnIndex);
+						if (switchIndex<1 || switchIndex > nChoices) {
+							stack[sp++] = ErrorEval.VALUE_INVALID;
+							pc = targets._errorTarget;
+						} else {
+							pc = targets._targets[switchIndex-1];
+						}
+					} catch (EvaluationException e) {
+						stack[sp++] = e.getErrorEval();
+						pc = targets._errorTarget;
+					}
+					continue;
+				}
+				case SKIP:
+					if (stack[sp-1] == MissingArgEval.instance) {
+						stack[sp-1] = BlankEval.instance;
+					}
+					pc = arg;
+					continue;
+				default:
+					throw new IllegalStateException("Unexpected opcode (" + opcodes[pc] + ")");
+			}
+			if (opResult == null) {
+				throw new RuntimeException("Evaluation result must not be null");
+			}
+			stack[sp++] = opResult;
+			pc++;
+		}
+
+		if (sp != 1) {
+			throw new IllegalStateException("evaluation stack not empty");
+		}
+		return WorkbookEvaluator.dereferenceResult(box(stack, numbers, 0), srcRowIndex, srcColumnIndex);
+	}
+
+	/**
+	 * @return the value of the given stack slot, creating the {@link NumberEval} of an unboxed result
+	 */
+	private static ValueEval box(ValueEval[] stack, double[] numbers, int index) {
+		ValueEval result = stack[index];
+		if (result == null) {
+			result = new NumberEval(numbers[index]);
+		}
+		return result;
+	}
+
+	/**
+	 * Converts the operand of a numeric operator like {@link TwoOperandNumericOperation} does
+	 */
+	private static double toNumber(ValueEval[] stack, double[] numbers, int index,
+			int srcRowIndex, int srcColumnIndex) throws EvaluationException {
+		ValueEval value = stack[index];
+		if (value == null) {
+			return numbers[index];
+		}
+		ValueEval ve = OperandResolver.getSingleValue(value, srcRowIndex, srcColumnIndex);
+		return OperandResolver.coerceValueToDouble(ve);
+	}
+
+	/**
+	 * Translates the tokens the same way {@link WorkbookEvaluator#evaluateFormula} interprets
+	 * them. Jump targets are first collected as token indexes and mapped to instruction
+	 * indexes at the end.
+	 */
+	private static final class Compiler {
+		private final Ptg[] _ptgs;
+		private final int[] _opcodes;
+		private final int[] _args;
+		private final Object[] _operands;
+		/** for each token, the index of the first instruction at or after it */
+		private final int[] _instructionIndexes;
+		private int _size;
+
+		Compiler(Ptg[] ptgs) {
+			_ptgs = ptgs;
+			_opcodes = new int[ptgs.length];
+			_args = new int[ptgs.length];
+			_operands = new Object[ptgs.length];
+			_instructionIndexes = new int[ptgs.length + 1];
+		}
+
+		CompiledFormula compile() {
+			Ptg[] ptgs = _ptgs;
+			for (int i = 0, iSize = ptgs.length; i < iSize; i++) {
+				_instructionIndexes[i] = _size;
+				Ptg ptg = ptgs[i];
+				if (ptg instanceof AttrPtg) {
+					AttrPtg attrPtg = (AttrPtg) ptg;
+					if (attrPtg.isSum()) {
+						ptg = FuncVarPtg.SUM;
+					}
+					if (attrPtg.isOptimizedChoose()) {
+						int[] jumpTable = attrPtg.getJumpTable();
+						int nChoices = jumpTable.length;
+						int[] targets = new int[nChoices];
+						for (int j = 0; j < nChoices; j++) {
+							targets[j] = skipTarget(i, jumpTable[j] - (nChoices*2+2));
+						}
+						int errorTarget = skipTarget(i, attrPtg.getChooseFuncOffset() + 4 - (nChoices*2+2));
+						add(CHOOSE, 0, new ChooseTargets(targets, errorTarget));
+						continue;
+					}
+					if (attrPtg.isOptimizedIf()) {
+						int falseIndex = i + WorkbookEvaluator.countTokensToBeSkipped(ptgs, i, attrPtg.getData());
+						AttrPtg skipPtg = (AttrPtg) ptgs[falseIndex];
+						int errorTarget = skipTarget(falseIndex, skipPtg.getData()+1);
+						Ptg nextPtg = ptgs[falseIndex+1];
+						boolean pushFalse = ptgs[falseIndex] instanceof AttrPtg && nextPtg instanceof FuncVarPtg &&
+								((FuncVarPtg)nextPtg).getFunctionIndex() == FunctionMetadataRegistry.FUNCTION_INDEX_IF;
+						int falseTarget = pushFalse ? falseIndex + 2 : falseIndex + 1;
+						add(IF, falseTarget, new IfTargets(errorTarget, pushFalse));
+						continue;
+					}
+					if (attrPtg.isSkip()) {
+						add(SKIP, skipTarget(i, attrPtg.getData()+1), null);
+						continue;
+					}
+				}
+				if (ptg instanceof ControlPtg) {
+					continue;
+				}
+				if (ptg instanceof MemFuncPtg || ptg instanceof MemAreaPtg || ptg instanceof MemErrPtg) {
+					continue;
+				}
+				if (ptg instanceof OperationPtg) {
+					OperationPtg optg = (OperationPtg) ptg;
+					if (optg instanceof UnionPtg) {
+						continue;
+					}
+					Function operator = OperationEvaluatorFactory.getOperator(optg);
+					if (operator instanceof TwoOperandNumericOperation) {
+						add(NUMERIC_OPERATOR, 2, operator);
+					} else if (operator == UnaryMinusEval.instance) {
+						add(NEGATE, 1, operator);
+					} else if (operator != null) {
+						add(OPERATOR, optg.getNumberOfOperands(), operator);
+					} else {
+						add(OPERATION, optg.getNumberOfOperands(), optg);
+					}
+					continue;
+				}
+				ValueEval constant = getConstant(ptg);
+				if (constant != null) {
+					add(PUSH_CONSTANT, 0, constant);
+				} else if (ptg instanceof RefPtg) {
+					add(PUSH_REF, 0, ptg);
+				} else if (ptg instanceof AreaPtg) {
+					add(PUSH_AREA, 0, ptg);
+				} else {
+					add(PUSH_PTG, 0, ptg);
+				}
+			}
+			_instructionIndexes[ptgs.length] = _size;
+
+			// map jump targets from token indexes to instruction indexes
+			for (int pc = 0; pc < _size; pc++) {
+				switch (_opcodes[pc]) {
+					case IF:
+						IfTargets ifTargets = (IfTargets) _operands[pc];
+						_args[pc] = toInstructionIndex(_args[pc]);
+						_operands[pc] = new IfTargets(toInstructionIndex(ifTargets._errorTarget), ifTargets._pushFalse);
+						break;
+					case CHOOSE:
+						ChooseTargets chooseTargets = (ChooseTargets) _operands[pc];
+						int[] targets = chooseTargets._targets;
+						for (int j = 0; j < targets.length; j++) {
+							targets[j] = toInstructionIndex(targets[j]);
+						}
+						_operands[pc] = new ChooseTargets(targets, toInstructionIndex(chooseTargets._errorTarget));
+						break;
+					case SKIP:
+						_args[pc] = toInstructionIndex(_args[pc]);
+						break;
+				}
+			}
+
+			int[] opcodes = new int[_size];
+			int[] args = new int[_size];
+			Object[] operands = new Object[_size];
+			System.arraycopy(_opcodes, 0, opcodes, 0, _size);
+			System.arraycopy(_args, 0, args, 0, _size);
+			System.arraycopy(_operands, 0, operands, 0, _size);
+			return new CompiledFormula(ptgs, opcodes, args, operands);
+		}
+
+		/**
+		 * @return the index of the token after the skipped tokens
+		 */
+		private int skipTarget(int index, int distInBytes) {
+			return index + WorkbookEvaluator.countTokensToBeSkipped(_ptgs, index, distInBytes) + 1;
+		}
+
+		private int toInstructionIndex(int ptgIndex) {
+			if (ptgIndex > _ptgs.length) {
+				throw new RuntimeException("Skip distance too far (ran out of formula tokens).");
+			}
+			return _instructionIndexes[ptgIndex];
+		}
+
+		private void add(int opcode, int arg, Object operand) {
+			_opcodes[_size] = opcode;
+			_args[_size] = arg;
+			_operands[_size] = operand;
+			_size++;
+		}
+
+		/**
+		 * @return the value of a constant operand token, <code>null</code> for any other token
+		 */
+		private static ValueEval getConstant(Ptg ptg) {
+			if (ptg instanceof IntPtg) {
+				return new NumberEval(((IntPtg)ptg).getValue());
+			}
+			if (ptg instanceof NumberPtg) {
+				return new NumberEval(((NumberPtg)ptg).getValue());
+			}
+			if (ptg instanceof StringPtg) {
+				return new StringEval(((StringPtg) ptg).getValue());
+			}
+			if (ptg instanceof BoolPtg) {
+				return BoolEval.valueOf(((BoolPtg) ptg).getValue());
+			}
+			if (ptg instanceof ErrPtg) {
+				return ErrorEval.valueOf(((ErrPtg) ptg).getErrorCode());
+			}
+			if (ptg instanceof MissingArgPtg) {
+				return MissingArgEval.instance;
+			}
+			if (ptg instanceof AreaErrPtg ||ptg instanceof RefErrorPtg
+					|| ptg instanceof DeletedArea3DPtg || ptg instanceof DeletedRef3DPtg) {
+				return ErrorEval.REF_INVALID;
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,332 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.OperandResolver;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.util.IntList;
+import org.apache.poi.util.Internal;
+
+/**
+ * The values of an area together with indexes for the criteria of the conditional aggregate
+ * functions (COUNTIF, SUMIF, COUNTIFS, SUMIFS).<br/>
+ *
+ * Cells are identified by their position in the area, row by row. All <tt>find</tt> methods
+ * return the matching positions in ascending order. The indexes are built on first use. The
+ * values may end before the last row of the area, the remaining cells are blank.<br/>
+ *
+ * For POI internal use only
+ */
+@Internal
+public final class CriteriaIndex {
+	private static final int[] EMPTY = { };
+
+	private final ValueEval[] _values;
+	private final int _width;
+	private final int _size;
+
+	/** positions of numbers, strings (case folded), booleans and errors by value */
+	private Map<Object, IntList> _equalValues;
+	/** positions of strings which can be parsed as numbers, by the number */
+	private Map<Double, IntList> _numericStrings;
+	private int[] _blanks;
+	/** positions of the numbers, in ascending order of the numbers */
+	private double[] _sortedNumbers;
+	private int[] _sortedNumberPositions;
+
+	/**
+	 * @param values the values of the area, row by row
+	 * @param width number of columns of the area
+	 */
+	public CriteriaIndex(ValueEval[] values, int width) {
+		this(values, width, width == 0 ? 0 : values.length / width);
+	}
+
+	/**
+	 * @param values the values of the first rows of the area, row by row
+	 * @param width number of columns of the area
+	 * @param height number of rows of the area, the rows after the given values are blank
+	 */
+	public CriteriaIndex(ValueEval[] values, int width, int height) {
+		_values = values;
+		_width = width;
+		_size = width * height;
+	}
+
+	public int getWidth() {
+		return _width;
+	}
+
+	public int getHeight() {
+		return _width == 0 ? 0 : _size / _width;
+	}
+
+	/**
+	 * @return number of cells of the area
+	 */
+	public int getSize() {
+		return _size;
+	}
+
+	public ValueEval getValue(int position) {
+		if (position >= _values.length && position < _size) {
+			return BlankEval.instance;
+		}
+		return _values[position];
+	}
+
+	/**
+	 * @return the key of the given value for {@link #findEqual(Object)}, <code>null</code> for blank values
+	 */
+	public static Object toKey(ValueEval value) {
+		if (value instanceof ErrorEval) {
+			return Integer.valueOf(((ErrorEval) value).getErrorCode());
+		}
+		return LookupIndex.toKey(value);
+	}
+
+	/**
+	 * @param key the key of a number, string, boolean or error value, see {@link #toKey(ValueEval)}
+	 * @return the positions of the cells with the given value, strings are compared ignoring case
+	 */
+	public int[] findEqual(Object key) {
+		if (_equalValues == null) {
+			buildEqualValues();
+		}
+		IntList result = _equalValues.get(key);
+		return result == null ? EMPTY : result.toArray();
+	}
+
+	/**
+	 * @return the positions of the strings which are numbers equal to the given number
+	 */
+	public int[] findNumericStrings(double value) {
+		if (_equalValues == null) {
+			buildEqualValues();
+		}
+		IntList result = _numericStrings.get(Double.valueOf(normalize(value)));
+		return result == null ? EMPTY : result.toArray();
+	}
+
+	/**
+	 * @return the positions of the blank cells
+	 */
+	public int[] findBlanks() {
+		if (_equalValues == null) {
+			buildEqualValues();
+		}
+		return _blanks.clone();
+	}
+
+	/**
+	 * @return the positions of the numbers less than (or equal to) the given number, compared
+	 *  like {@link Double#compare(double, double)} does
+	 */
+	public int[] findNumbersLessThan(double value, boolean orEqual) {
+		if (_sortedNumbers == null) {
+			buildSortedNumbers();
+		}
+		int end = orEqual ? upperBound(value) : lowerBound(value);
+		return sortedPositions(0, end);
+	}
+
+	/**
+	 * @return the positions of the numbers greater than (or equal to) the given number, compared
+	 *  like {@link Double#compare(double, double)} does
+	 */
+	public int[] findNumbersGreaterThan(double value, boolean orEqual) {
+		if (_sortedNumbers == null) {
+			buildSortedNumbers();
+		}
+		int start = orEqual ? lowerBound(value) : upperBound(value);
+		return sortedPositions(start, _sortedNumbers.length);
+	}
+
+	/**
+	 * @return the positions which are contained in both sorted arrays
+	 */
+	public static int[] intersect(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[count++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * @return the positions which are contained in one of the sorted arrays
+	 */
+	public static int[] union(int[] a, int[] b) {
+		int[] result = new int[a.length + b.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			if (j == b.length || (i < a.length && a[i] < b[j])) {
+				result[count++] = a[i++];
+			} else if (i == a.length || a[i] > b[j]) {
+				result[count++] = b[j++];
+			} else {
+				result[count++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * positive and negative zero are the same number when parsed from a string
+	 */
+	private static double normalize(double value) {
+		return value == 0.0 ? 0.0 : value;
+	}
+
+	private void buildEqualValues() {
+		Map<Object, IntList> equalValues = new HashMap<Object, IntList>();
+		Map<Double, IntList> numericStrings = new HashMap<Double, IntList>();
+		IntList blanks = new IntList();
+		for (int i = 0; i < _values.length; i++) {
+			ValueEval value = _values[i];
+			if (value == BlankEval.instance) {
+				blanks.add(i);
+				continue;
+			}
+			Object key = toKey(value);
+			if (key == null) {
+				continue;
+			}
+			add(equalValues, key, i);
+			if (value instanceof StringEval) {
+				Double number = OperandResolver.parseDouble(((StringEval) value).getStringValue());
+				if (number != null && !number.isNaN()) {
+					add(numericStrings, Double.valueOf(normalize(number.doubleValue())), i);
+				}
+			}
+		}
+		for (int i = _values.length; i < _size; i++) {
+			blanks.add(i);
+		}
+		_numericStrings = numericStrings;
+		_blanks = blanks.toArray();
+		_equalValues = equalValues;
+	}
+
+	private static <K> void add(Map<K, IntList> map, K key, int position) {
+		IntList positions = map.get(key);
+		if (positions == null) {
+			positions = new IntList(4);
+			map.put(key, positions);
+		}
+		positions.add(position);
+	}
+
+	private void buildSortedNumbers() {
+		IntList positions = new IntList();
+		for (int i = 0; i < _values.length; i++) {
+			if (_values[i] instanceof NumberEval) {
+				positions.add(i);
+			}
+		}
+		int n = positions.size();
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = Integer.valueOf(positions.get(i));
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Double.compare(getNumber(a.intValue()), getNumber(b.intValue()));
+			}
+		});
+		double[] numbers = new double[n];
+		int[] sortedPositions = new int[n];
+		for (int i = 0; i < n; i++) {
+			sortedPositions[i] = order[i].intValue();
+			numbers[i] = getNumber(sortedPositions[i]);
+		}
+		_sortedNumberPositions = sortedPositions;
+		_sortedNumbers = numbers;
+	}
+
+	private double getNumber(int position) {
+		return ((NumberEval) _values[position]).getNumberValue();
+	}
+
+	/**
+	 * @return index of the first number which is not less than the given number
+	 */
+	private int lowerBound(double value) {
+		int low = 0;
+		int high = _sortedNumbers.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (Double.compare(_sortedNumbers[mid], value) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return index of the first number which is greater than the given number
+	 */
+	private int upperBound(double value) {
+		int low = 0;
+		int high = _sortedNumbers.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (Double.compare(_sortedNumbers[mid], value) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private int[] sortedPositions(int start, int end) {
+		if (start >= end) {
+			return EMPTY;
+		}
+		int[] result = Arrays.copyOfRange(_sortedNumberPositions, start, end);
+		Arrays.sort(result);
+		return result;
+	}
+}
@@ -0,0 +1,34 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import org.apache.poi.util.Internal;
+
+/**
+ * Implemented by areas which can supply a cached {@link CriteriaIndex} of their values.
+ * The index is kept by the evaluator until one of the cells of the area changes.<br/>
+ *
+ * For POI internal use only
+ */
+@Internal
+public interface CriteriaIndexProvider {
+	/**
+	 * @return the index of the values of this area, or <code>null</code> if none is available
+	 */
+	CriteriaIndex getCriteriaIndex();
+}
@@ -17,6 +17,15 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -39,6 +48,8 @@ final class EvaluationCache {
 
 	private final PlainCellCache _plainCellCache;
 	private final FormulaCellCache _formulaCellCache;
+	/** indexes of the areas used by lookup and conditional aggregate functions */
+	private final Map<AreaKey, AreaIndexEntry> _areaIndexes;
 	/** only used for testing. <code>null</code> otherwise */
 	final IEvaluationListener _evaluationListener;
 
@@ -46,6 +57,7 @@ final class EvaluationCache {
 		_evaluationListener = evaluationListener;
 		_plainCellCache = new PlainCellCache();
 		_formulaCellCache = new FormulaCellCache();
+		_areaIndexes = new HashMap<AreaKey, AreaIndexEntry>();
 	}
 
 	public void notifyUpdateCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
@@ -58,7 +70,7 @@ final class EvaluationCache {
 
 		if (cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
 			if (fcce == null) {
-				fcce = new FormulaCellCacheEntry();
+				fcce = new FormulaCellCacheEntry(cell.getIdentityKey());
 				if (pcce == null) {
 					if (_evaluationListener != null) {
 						_evaluationListener.onChangeFromBlankValue(sheetIndex, rowIndex,
@@ -124,6 +136,9 @@ final class EvaluationCache {
 				entry.notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener);
 			}
 		});
+		for (AreaIndexEntry entry : _areaIndexes.values()) {
+			entry.getCacheEntry().notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener);
+		}
 	}
 
 	public PlainValueCellCacheEntry getPlainValueEntry(int bookIndex, int sheetIndex,
@@ -175,16 +190,122 @@ final class EvaluationCache {
 		throw new IllegalStateException("Unexpected value class (" + cls.getName() + ")");
 	}
 
+	/**
+	 * @return the index entry of the given area. The entry is valid while the value of its cache
+	 *  entry is set, the inputs of the cache entry are the cells of the area.
+	 */
+	public AreaIndexEntry getOrCreateAreaIndexEntry(int bookIndex, int sheetIndex,
+			int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		AreaKey key = new AreaKey(bookIndex, sheetIndex, firstRow, firstColumn, lastRow, lastColumn);
+		AreaIndexEntry result = _areaIndexes.get(key);
+		if (result == null) {
+			result = new AreaIndexEntry();
+			_areaIndexes.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the cached result of the formula cell with the given identity key, <code>null</code>
+	 *  if the cell has not been evaluated
+	 */
+	public ValueEval getFormulaCellValue(Object identityKey) {
+		FormulaCellCacheEntry fcce = _formulaCellCache.getByIdentityKey(identityKey);
+		if (fcce == null) {
+			return null;
+		}
+		return fcce.getValue();
+	}
+
 	public FormulaCellCacheEntry getOrCreateFormulaCellEntry(EvaluationCell cell) {
 		FormulaCellCacheEntry result = _formulaCellCache.get(cell);
 		if (result == null) {
 
-			result = new FormulaCellCacheEntry();
+			result = new FormulaCellCacheEntry(cell.getIdentityKey());
 			_formulaCellCache.put(cell, result);
 		}
 		return result;
 	}
 
+	/**
+	 * Clears the cached result of the formula cell with the given identity key and of all formula
+	 * cells depending on it.
+	 */
+	public void clearFormulaCellEntry(Object identityKey) {
+		FormulaCellCacheEntry fcce = _formulaCellCache.getByIdentityKey(identityKey);
+		if (fcce != null) {
+			fcce.recurseClearCachedFormulaResults(_evaluationListener);
+			fcce.clearFormulaEntry();
+		}
+	}
+
+	/**
+	 * Finds the formula cells of this cache which depend on the given changed cells, following the
+	 * dependencies recorded during evaluation. Cells which have not been evaluated yet are not found.
+	 *
+	 * @param wasBlank for each changed cell, whether it is blank in the evaluated workbook
+	 * @param changedFormulaCells identity keys of formula cells known to be affected by the changes
+	 * @return the identity keys of the affected formula cells, including <tt>changedFormulaCells</tt>
+	 */
+	public Set<Object> findDependentFormulaCells(int bookIndex, int[] sheetIndexes, EvaluationCell[] changedCells,
+			boolean[] wasBlank, Set<Object> changedFormulaCells) {
+		Set<Object> result = new HashSet<Object>(changedFormulaCells);
+		List<CellCacheEntry> pending = new ArrayList<CellCacheEntry>();
+		for (int i = 0; i < changedCells.length; i++) {
+			EvaluationCell cell = changedCells[i];
+			int sheetIndex = sheetIndexes[i];
+			int rowIndex = cell.getRowIndex();
+			int columnIndex = cell.getColumnIndex();
+			FormulaCellCacheEntry fcce = _formulaCellCache.get(cell);
+			if (fcce != null) {
+				pending.add(fcce);
+			}
+			PlainValueCellCacheEntry pcce = _plainCellCache.get(new Loc(bookIndex, sheetIndex, rowIndex, columnIndex));
+			if (pcce != null) {
+				pending.add(pcce);
+			}
+			if (wasBlank[i]) {
+				// dependencies on blank cells are only kept by the formulas using them
+				BookSheetKey bsk = new BookSheetKey(bookIndex, sheetIndex);
+				for (CellCacheEntry entry : _formulaCellCache.getCacheEntries()) {
+					FormulaCellCacheEntry formulaEntry = (FormulaCellCacheEntry) entry;
+					if (formulaEntry.isUsingBlankCell(bsk, rowIndex, columnIndex)) {
+						pending.add(formulaEntry);
+					}
+				}
+				for (AreaIndexEntry entry : _areaIndexes.values()) {
+					if (entry.getCacheEntry().isUsingBlankCell(bsk, rowIndex, columnIndex)) {
+						pending.add(entry.getCacheEntry());
+					}
+				}
+			}
+		}
+		for (Object identityKey : changedFormulaCells) {
+			FormulaCellCacheEntry fcce = _formulaCellCache.getByIdentityKey(identityKey);
+			if (fcce != null) {
+				pending.add(fcce);
+			}
+		}
+
+		Set<CellCacheEntry> visited = Collections.newSetFromMap(new IdentityHashMap<CellCacheEntry, Boolean>());
+		while (!pending.isEmpty()) {
+			CellCacheEntry entry = pending.remove(pending.size() - 1);
+			if (!visited.add(entry)) {
+				continue;
+			}
+			if (entry instanceof FormulaCellCacheEntry) {
+				Object identityKey = ((FormulaCellCacheEntry) entry).getIdentityKey();
+				if (identityKey != null) {
+					result.add(identityKey);
+				}
+			}
+			for (FormulaCellCacheEntry consumer : entry.getConsumingCells()) {
+				pending.add(consumer);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Should be called whenever there are changes to input cells in the evaluated workbook.
 	 */
@@ -194,6 +315,7 @@ final class EvaluationCache {
 		}
 		_plainCellCache.clear();
 		_formulaCellCache.clear();
+		_areaIndexes.clear();
 	}
 	public void notifyDeleteCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
 
@@ -216,4 +338,81 @@ final class EvaluationCache {
 			}
 		}
 	}
+
+	/**
+	 * Cached values of an area and the indexes built from them. The cache entry acts like a formula
+	 * cell which uses all cells of the area, so that it is cleared together with the formulas
+	 * depending on it when one of these cells changes.
+	 */
+	static final class AreaIndexEntry {
+		private final FormulaCellCacheEntry _cce = new FormulaCellCacheEntry();
+		private ValueEval[] _values;
+		private int _width;
+		private int _height;
+		private LookupIndex _lookupIndex;
+		private CriteriaIndex _criteriaIndex;
+
+		public FormulaCellCacheEntry getCacheEntry() {
+			return _cce;
+		}
+		public boolean isValid() {
+			return _cce.getValue() != null;
+		}
+		/**
+		 * @param values the values of the first rows of the area, row by row
+		 * @param height the number of rows of the area, the rows after the values are blank
+		 */
+		public void setValues(ValueEval[] values, int width, int height) {
+			_values = values;
+			_width = width;
+			_height = height;
+			_lookupIndex = null;
+			_criteriaIndex = null;
+		}
+		/**
+		 * @return the index of the area, which has to be a single row or column
+		 */
+		public LookupIndex getLookupIndex() {
+			if (_lookupIndex == null) {
+				_lookupIndex = new LookupIndex(_values);
+			}
+			return _lookupIndex;
+		}
+		public CriteriaIndex getCriteriaIndex() {
+			if (_criteriaIndex == null) {
+				_criteriaIndex = new CriteriaIndex(_values, _width, _height);
+			}
+			return _criteriaIndex;
+		}
+	}
+
+	private static final class AreaKey {
+		private final int _bookIndex;
+		private final int _sheetIndex;
+		private final int _firstRow;
+		private final int _firstColumn;
+		private final int _lastRow;
+		private final int _lastColumn;
+
+		public AreaKey(int bookIndex, int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+			_bookIndex = bookIndex;
+			_sheetIndex = sheetIndex;
+			_firstRow = firstRow;
+			_firstColumn = firstColumn;
+			_lastRow = lastRow;
+			_lastColumn = lastColumn;
+		}
+		public int hashCode() {
+			return ((((_bookIndex * 31 + _sheetIndex) * 31 + _firstRow) * 31 + _firstColumn) * 31 + _lastRow) * 31 + _lastColumn;
+		}
+		public boolean equals(Object obj) {
+			if (!(obj instanceof AreaKey)) {
+				return false;
+			}
+			AreaKey other = (AreaKey) obj;
+			return _bookIndex == other._bookIndex && _sheetIndex == other._sheetIndex
+					&& _firstRow == other._firstRow && _firstColumn == other._firstColumn
+					&& _lastRow == other._lastRow && _lastColumn == other._lastColumn;
+		}
+	}
 }
@@ -30,4 +30,9 @@ public interface EvaluationSheet {
 	 * @return <code>null</code> if there is no cell at the specified coordinates
 	 */
 	EvaluationCell getCell(int rowIndex, int columnIndex);
+
+	/**
+	 * @return the index of the last row which may contain cells, 0 if the sheet is empty
+	 */
+	int getLastRowNum();
 }
@@ -148,4 +148,18 @@ final class EvaluationTracker {
 			}
 		}
 	}
+
+	/**
+	 * Notifies the currently evaluating frame that it depends on an area of blank cells, which
+	 * has not been read cell by cell
+	 */
+	public void acceptBlankAreaDependency(int bookIndex, int sheetIndex, int firstRowIndex,
+			int firstColumnIndex, int lastRowIndex, int lastColumnIndex) {
+		int prevFrameIndex = _evaluationFrames.size() - 1;
+		if (prevFrameIndex >= 0) {
+			CellEvaluationFrame consumingFrame = _evaluationFrames.get(prevFrameIndex);
+			consumingFrame.addUsedBlankArea(bookIndex, sheetIndex, firstRowIndex, firstColumnIndex,
+					lastRowIndex, lastColumnIndex);
+		}
+	}
 }
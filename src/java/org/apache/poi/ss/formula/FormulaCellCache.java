@@ -56,6 +56,13 @@ final class FormulaCellCache {
 		return _formulaEntriesByCell.get(cell.getIdentityKey());
 	}
 
+	/**
+	 * @return <code>null</code> if not found
+	 */
+	public FormulaCellCacheEntry getByIdentityKey(Object identityKey) {
+		return _formulaEntriesByCell.get(identityKey);
+	}
+
 	public void put(EvaluationCell cell, FormulaCellCacheEntry entry) {
 		_formulaEntriesByCell.put(cell.getIdentityKey(), entry);
 	}
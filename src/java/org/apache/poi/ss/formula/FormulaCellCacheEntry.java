@@ -39,8 +39,23 @@ final class FormulaCellCacheEntry extends CellCacheEntry {
 
 	private FormulaUsedBlankCellSet _usedBlankCellGroup;
 
+	/** identity key of the formula cell, <code>null</code> for entries which do not belong to a cell */
+	private final Object _identityKey;
+
 	public FormulaCellCacheEntry() {
-		// leave fields un-set
+		this(null);
+	}
+
+	public FormulaCellCacheEntry(Object identityKey) {
+		_identityKey = identityKey;
+		// leave other fields un-set
+	}
+
+	/**
+	 * @return the identity key of the formula cell, <code>null</code> if this entry does not belong to a cell
+	 */
+	public Object getIdentityKey() {
+		return _identityKey;
 	}
 	
 	public boolean isInputSensitive() {
@@ -114,11 +129,16 @@ final class FormulaCellCacheEntry extends CellCacheEntry {
 	}
 
 	public void notifyUpdatedBlankCell(BookSheetKey bsk, int rowIndex, int columnIndex, IEvaluationListener evaluationListener) {
-		if (_usedBlankCellGroup != null) {
-			if (_usedBlankCellGroup.containsCell(bsk, rowIndex, columnIndex)) {
-				clearFormulaEntry();
-				recurseClearCachedFormulaResults(evaluationListener);
-			}
+		if (isUsingBlankCell(bsk, rowIndex, columnIndex)) {
+			clearFormulaEntry();
+			recurseClearCachedFormulaResults(evaluationListener);
+		}
+	}
+
+	public boolean isUsingBlankCell(BookSheetKey bsk, int rowIndex, int columnIndex) {
+		if (_usedBlankCellGroup == null) {
+			return false;
 		}
+		return _usedBlankCellGroup.containsCell(bsk, rowIndex, columnIndex);
 	}
 }
\ No newline at end of file
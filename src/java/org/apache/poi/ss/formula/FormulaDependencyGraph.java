@@ -0,0 +1,756 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.formula.function.FunctionMetadataRegistry;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.AreaNPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.NameXPxg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Pxg3D;
+import org.apache.poi.ss.formula.ptg.RefNPtg;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.IntList;
+
+/**
+ * The dependencies between the formula cells of a workbook, built from the cell and area
+ * references of their parsed formulas.<br/>
+ *
+ * Formula cells are identified by their index in the array given to the constructor. Every
+ * distinct area reference is kept as a single range node between the formula cells inside it
+ * and the formula cells referencing it, so a range which is used by many formulas does not
+ * multiply the number of edges: it has one edge per member and one per dependent.<br/>
+ *
+ * References which can only be resolved by evaluating them (INDIRECT, OFFSET and external
+ * names) make a formula cell <em>dynamic</em>. Dynamic cells, the cells which depend on them
+ * and cells which are part of a circular reference are <em>unresolved</em>: they have no
+ * dependency level and are always considered dirty.<br/>
+ *
+ * The graph reflects the formulas at the time it was built, it has to be rebuilt if formulas
+ * are added, changed or removed.<br/>
+ *
+ * For POI internal use only
+ */
+@Internal
+public final class FormulaDependencyGraph {
+	/** maximum nesting of defined names which is followed when looking for precedents */
+	private static final int MAX_NAME_DEPTH = 8;
+	private static final int FUNCTION_INDEX_OFFSET = FunctionMetadataRegistry.lookupIndexByName("OFFSET");
+
+	private static final int COLUMN_BITS = 14;
+	private static final int ROW_BITS = 20;
+	private static final long COLUMN_MASK = (1L << COLUMN_BITS) - 1;
+	private static final long ROW_MASK = (1L << ROW_BITS) - 1;
+	/** number of rows covered by one bucket of the range index */
+	private static final int ROW_BUCKET_BITS = 10;
+
+	private final EvaluationWorkbook _workbook;
+	private final EvaluationCell[] _cells;
+	private final int[] _sheetIndexes;
+	private final Ptg[][] _formulas;
+	private final boolean[] _dynamic;
+
+	/** locations of the formula cells, sorted by sheet, row and column */
+	private long[] _sortedKeys;
+	private int[] _sortedPositions;
+	/** locations of the formula cells, sorted by sheet, column and row */
+	private long[] _columnKeys;
+	private int[] _columnPositions;
+
+	/** referenced single cells, sorted, with their dependent formula cells */
+	private long[] _refKeys;
+	private int[][] _refDependents;
+
+	/** the range nodes, each covering one area on one or more sheets */
+	private final List<Range> _ranges = new ArrayList<Range>();
+	/** range nodes by sheet and row bucket */
+	private final Map<Long, IntList> _rangeIndex = new HashMap<Long, IntList>();
+
+	/** formula precedents and dependents of each formula cell through single cell references */
+	private int[][] _precedents;
+	private int[][] _dependents;
+	/** the range nodes containing each formula cell, and the range nodes referenced by it */
+	private int[][] _rangesOfCell;
+	private int[][] _referencedRanges;
+
+	/** dependency level of each formula cell, -1 if unresolved */
+	private int[] _levelOfCell;
+	private List<int[]> _levels;
+	private int[] _unresolved;
+
+	/**
+	 * @param evaluator the evaluator of the workbook containing the cells
+	 * @param formulaCells all formula cells which should be part of the graph
+	 */
+	public FormulaDependencyGraph(WorkbookEvaluator evaluator, EvaluationCell[] formulaCells) {
+		this(evaluator.getWorkbook(), formulaCells);
+	}
+
+	/**
+	 * @param workbook the workbook containing the cells
+	 * @param formulaCells all formula cells which should be part of the graph
+	 */
+	public FormulaDependencyGraph(EvaluationWorkbook workbook, EvaluationCell[] formulaCells) {
+		_workbook = workbook;
+		int n = formulaCells.length;
+		_cells = formulaCells.clone();
+		_sheetIndexes = new int[n];
+		_formulas = new Ptg[n][];
+		_dynamic = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			EvaluationCell cell = formulaCells[i];
+			_sheetIndexes[i] = workbook.getSheetIndex(cell.getSheet());
+			_formulas[i] = workbook.getFormulaTokens(cell);
+		}
+		indexFormulaCells();
+
+		ReferenceCollector refs = new ReferenceCollector();
+		for (int i = 0; i < n; i++) {
+			_dynamic[i] = refs.addReferences(_formulas[i], _sheetIndexes[i], i, 0);
+		}
+		refs.indexReferences();
+		linkFormulaCells();
+		computeLevels();
+	}
+
+	private static long toKey(int sheetIndex, int rowIndex, int columnIndex) {
+		return ((long)sheetIndex << (ROW_BITS + COLUMN_BITS)) | ((long)rowIndex << COLUMN_BITS) | columnIndex;
+	}
+
+	private static long toColumnKey(int sheetIndex, int rowIndex, int columnIndex) {
+		return ((long)sheetIndex << (ROW_BITS + COLUMN_BITS)) | ((long)columnIndex << ROW_BITS) | rowIndex;
+	}
+
+	private static long toBucketKey(int sheetIndex, int rowIndex) {
+		return ((long)sheetIndex << ROW_BITS) | (rowIndex >> ROW_BUCKET_BITS);
+	}
+
+	private void indexFormulaCells() {
+		int n = _cells.length;
+		final long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = toKey(_sheetIndexes[i], _cells[i].getRowIndex(), _cells[i].getColumnIndex());
+		}
+		int[] order = sortedOrder(keys);
+		_sortedKeys = new long[n];
+		_sortedPositions = order;
+		for (int i = 0; i < n; i++) {
+			_sortedKeys[i] = keys[order[i]];
+		}
+
+		for (int i = 0; i < n; i++) {
+			keys[i] = toColumnKey(_sheetIndexes[i], _cells[i].getRowIndex(), _cells[i].getColumnIndex());
+		}
+		order = sortedOrder(keys);
+		_columnKeys = new long[n];
+		_columnPositions = order;
+		for (int i = 0; i < n; i++) {
+			_columnKeys[i] = keys[order[i]];
+		}
+	}
+
+	/**
+	 * @return the index of the first key which is not less than the given key
+	 */
+	private static int lowerBound(long[] sortedKeys, long key) {
+		int idx = Arrays.binarySearch(sortedKeys, key);
+		return idx < 0 ? -(idx + 1) : idx;
+	}
+
+	/**
+	 * @return the indexes of the given keys in ascending key order
+	 */
+	private static int[] sortedOrder(final long[] keys) {
+		Integer[] order = new Integer[keys.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				long ka = keys[a.intValue()];
+				long kb = keys[b.intValue()];
+				return ka < kb ? -1 : (ka == kb ? 0 : 1);
+			}
+		});
+		int[] result = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			result[i] = order[i].intValue();
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of formula cells in this graph
+	 */
+	public int getNumberOfFormulaCells() {
+		return _cells.length;
+	}
+
+	public EvaluationCell getFormulaCell(int index) {
+		return _cells[index];
+	}
+
+	/* package */ Ptg[] getFormulaTokens(int index) {
+		return _formulas[index];
+	}
+
+	/**
+	 * @return the index of the formula cell at the given location, or -1 if there is none
+	 */
+	public int indexOf(int sheetIndex, int rowIndex, int columnIndex) {
+		int idx = Arrays.binarySearch(_sortedKeys, toKey(sheetIndex, rowIndex, columnIndex));
+		return idx < 0 ? -1 : _sortedPositions[idx];
+	}
+
+	/**
+	 * @return the formula cells which are directly referenced by the given formula cell
+	 */
+	public int[] getPrecedents(int index) {
+		IntList result = new IntList();
+		for (int precedent : _precedents[index]) {
+			result.add(precedent);
+		}
+		for (int range : _referencedRanges[index]) {
+			for (int member : _ranges.get(range).getMembers()) {
+				result.add(member);
+			}
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * @return the formula cells which directly reference the given formula cell
+	 */
+	public int[] getDependents(int index) {
+		IntList result = new IntList();
+		for (int dependent : _dependents[index]) {
+			result.add(dependent);
+		}
+		for (int range : _rangesOfCell[index]) {
+			result.addAll(_ranges.get(range).getDependents());
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * @return whether the formula of the given cell contains references which can only be resolved by evaluating it
+	 */
+	public boolean isDynamic(int index) {
+		return _dynamic[index];
+	}
+
+	/**
+	 * @return the formula cells which directly reference the given location, which may be
+	 *  a value cell, a formula cell or an empty cell
+	 */
+	public int[] getDirectDependents(int sheetIndex, int rowIndex, int columnIndex) {
+		IntList result = new IntList();
+		int idx = Arrays.binarySearch(_refKeys, toKey(sheetIndex, rowIndex, columnIndex));
+		if (idx >= 0) {
+			for (int dependent : _refDependents[idx]) {
+				result.add(dependent);
+			}
+		}
+		IntList candidates = _rangeIndex.get(Long.valueOf(toBucketKey(sheetIndex, rowIndex)));
+		if (candidates != null) {
+			for (int i = 0; i < candidates.size(); i++) {
+				Range range = _ranges.get(candidates.get(i));
+				if (range.contains(sheetIndex, rowIndex, columnIndex)) {
+					result.addAll(range.getDependents());
+				}
+			}
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * @return the dependency level of the given formula cell, i.e. the length of the longest chain
+	 *  of formula precedents, or -1 if the cell is unresolved
+	 */
+	public int getLevel(int index) {
+		return _levelOfCell[index];
+	}
+
+	/**
+	 * @return the formula cells grouped by dependency level, the cells of one level only depend on lower levels
+	 */
+	public List<int[]> getLevels() {
+		return _levels;
+	}
+
+	/**
+	 * @return the formula cells which have no dependency level, in ascending index order
+	 */
+	public int[] getUnresolved() {
+		return _unresolved.clone();
+	}
+
+	/**
+	 * Finds the formula cells which need to be recalculated after the given cells were changed.
+	 *
+	 * @param changedCells the changed cells, each with a sheet name
+	 * @return the changed formula cells and all their direct and indirect dependents in a valid
+	 *  evaluation order, followed by all unresolved cells
+	 */
+	public int[] getDirtyCells(Collection<CellReference> changedCells) {
+		int n = _cells.length;
+		boolean[] dirty = new boolean[n];
+		IntList pending = new IntList();
+		for (CellReference ref : changedCells) {
+			int sheetIndex = _workbook.getSheetIndex(ref.getSheetName());
+			if (sheetIndex < 0) {
+				throw new IllegalArgumentException("Unknown sheet '" + ref.getSheetName() + "'");
+			}
+			int self = indexOf(sheetIndex, ref.getRow(), ref.getCol());
+			if (self >= 0 && !dirty[self]) {
+				dirty[self] = true;
+				pending.add(self);
+			}
+			for (int dependent : getDirectDependents(sheetIndex, ref.getRow(), ref.getCol())) {
+				if (!dirty[dependent]) {
+					dirty[dependent] = true;
+					pending.add(dependent);
+				}
+			}
+		}
+		boolean[] dirtyRanges = new boolean[_ranges.size()];
+		while (!pending.isEmpty()) {
+			int cell = pending.remove(pending.size() - 1);
+			for (int dependent : _dependents[cell]) {
+				if (!dirty[dependent]) {
+					dirty[dependent] = true;
+					pending.add(dependent);
+				}
+			}
+			// through each range only once, however many of its members are dirty
+			for (int range : _rangesOfCell[cell]) {
+				if (dirtyRanges[range]) {
+					continue;
+				}
+				dirtyRanges[range] = true;
+				IntList dependents = _ranges.get(range).getDependents();
+				for (int d = 0; d < dependents.size(); d++) {
+					int dependent = dependents.get(d);
+					if (!dirty[dependent]) {
+						dirty[dependent] = true;
+						pending.add(dependent);
+					}
+				}
+			}
+		}
+
+		IntList result = new IntList();
+		for (int[] level : _levels) {
+			for (int cell : level) {
+				if (dirty[cell]) {
+					result.add(cell);
+				}
+			}
+		}
+		for (int cell : _unresolved) {
+			result.add(cell);
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * Connects the formula cells through the single cell references, and to the range nodes
+	 *  which contain them or which they reference
+	 */
+	private void linkFormulaCells() {
+		int n = _cells.length;
+		IntList[] precedents = new IntList[n];
+		IntList[] rangesOfCell = new IntList[n];
+		IntList[] referencedRanges = new IntList[n];
+		for (int i = 0; i < n; i++) {
+			precedents[i] = new IntList(4);
+			rangesOfCell[i] = new IntList(2);
+			referencedRanges[i] = new IntList(2);
+		}
+		for (int r = 0; r < _refKeys.length; r++) {
+			int idx = Arrays.binarySearch(_sortedKeys, _refKeys[r]);
+			if (idx >= 0) {
+				int precedent = _sortedPositions[idx];
+				for (int dependent : _refDependents[r]) {
+					precedents[dependent].add(precedent);
+				}
+			}
+		}
+		for (int r = 0; r < _ranges.size(); r++) {
+			Range range = _ranges.get(r);
+			int[] members = range.findFormulaCells();
+			range.setMembers(members);
+			for (int member : members) {
+				rangesOfCell[member].add(r);
+			}
+			IntList dependents = range.getDependents();
+			for (int d = 0; d < dependents.size(); d++) {
+				referencedRanges[dependents.get(d)].add(r);
+			}
+		}
+
+		_precedents = new int[n][];
+		_rangesOfCell = new int[n][];
+		_referencedRanges = new int[n][];
+		int[] dependentCount = new int[n];
+		for (int i = 0; i < n; i++) {
+			_precedents[i] = precedents[i].toArray();
+			_rangesOfCell[i] = rangesOfCell[i].toArray();
+			_referencedRanges[i] = referencedRanges[i].toArray();
+			for (int p : _precedents[i]) {
+				dependentCount[p]++;
+			}
+		}
+		_dependents = new int[n][];
+		for (int i = 0; i < n; i++) {
+			_dependents[i] = new int[dependentCount[i]];
+			dependentCount[i] = 0;
+		}
+		for (int i = 0; i < n; i++) {
+			for (int p : _precedents[i]) {
+				_dependents[p][dependentCount[p]++] = i;
+			}
+		}
+	}
+
+	/**
+	 * Assigns the dependency levels, processing the cells in topological order. A range node
+	 *  is ready once all its members are, which makes its dependents one step more ready.
+	 */
+	private void computeLevels() {
+		int n = _cells.length;
+		int[] inDegree = new int[n];
+		for (int i = 0; i < n; i++) {
+			inDegree[i] = _precedents[i].length + _referencedRanges[i].length;
+			if (_dynamic[i]) {
+				// never becomes ready, and neither do its dependents
+				inDegree[i]++;
+			}
+		}
+		int[] rangeInDegree = new int[_ranges.size()];
+		for (int r = 0; r < rangeInDegree.length; r++) {
+			rangeInDegree[r] = _ranges.get(r).getMembers().length;
+			if (rangeInDegree[r] == 0) {
+				// ranges without formula cells are ready right away
+				IntList dependents = _ranges.get(r).getDependents();
+				for (int d = 0; d < dependents.size(); d++) {
+					inDegree[dependents.get(d)]--;
+				}
+			}
+		}
+
+		_levels = new ArrayList<int[]>();
+		_levelOfCell = new int[n];
+		Arrays.fill(_levelOfCell, -1);
+		IntList current = new IntList();
+		for (int i = 0; i < n; i++) {
+			if (inDegree[i] == 0) {
+				current.add(i);
+			}
+		}
+		while (!current.isEmpty()) {
+			int[] level = current.toArray();
+			int levelNumber = _levels.size();
+			_levels.add(level);
+			current = new IntList();
+			for (int cell : level) {
+				_levelOfCell[cell] = levelNumber;
+				for (int dependent : _dependents[cell]) {
+					if (--inDegree[dependent] == 0) {
+						current.add(dependent);
+					}
+				}
+				for (int range : _rangesOfCell[cell]) {
+					if (--rangeInDegree[range] != 0) {
+						continue;
+					}
+					IntList dependents = _ranges.get(range).getDependents();
+					for (int d = 0; d < dependents.size(); d++) {
+						int dependent = dependents.get(d);
+						if (--inDegree[dependent] == 0) {
+							current.add(dependent);
+						}
+					}
+				}
+			}
+		}
+
+		IntList unresolved = new IntList();
+		for (int i = 0; i < n; i++) {
+			if (_levelOfCell[i] < 0) {
+				unresolved.add(i);
+			}
+		}
+		_unresolved = unresolved.toArray();
+	}
+
+	/**
+	 * Collects the references of the formulas while the graph is built
+	 */
+	private final class ReferenceCollector {
+		private long[] _keys = new long[16];
+		private int[] _owners = new int[16];
+		private int _count;
+		private final Map<Range, Integer> _rangeIds = new HashMap<Range, Integer>();
+
+		/**
+		 * @return <code>true</code> if the tokens contain references which can only be resolved by evaluating them
+		 */
+		public boolean addReferences(Ptg[] ptgs, int sheetIndex, int owner, int nameDepth) {
+			boolean dynamic = false;
+			for (Ptg ptg : ptgs) {
+				if (ptg instanceof RefNPtg || ptg instanceof AreaNPtg) {
+					// relative to the formula cell, not expected in evaluated cell formulas
+					continue;
+				}
+				if (ptg instanceof RefPtgBase) {
+					RefPtgBase ref = (RefPtgBase) ptg;
+					addArea(ptg, sheetIndex, ref.getRow(), ref.getColumn(), ref.getRow(), ref.getColumn(), owner);
+				} else if (ptg instanceof AreaPtgBase) {
+					AreaPtgBase area = (AreaPtgBase) ptg;
+					addArea(ptg, sheetIndex, area.getFirstRow(), area.getFirstColumn(),
+							area.getLastRow(), area.getLastColumn(), owner);
+				} else if (ptg instanceof NamePtg) {
+					EvaluationName name = _workbook.getName((NamePtg) ptg);
+					if (nameDepth >= MAX_NAME_DEPTH) {
+						dynamic = true;
+					} else if (name != null && !name.isFunctionName() && name.hasFormula()) {
+						dynamic |= addReferences(name.getNameDefinition(), sheetIndex, owner, nameDepth + 1);
+					}
+				} else if (ptg instanceof NameXPtg || ptg instanceof NameXPxg) {
+					dynamic = true;
+				} else if (ptg instanceof AbstractFunctionPtg) {
+					int functionIndex = ((AbstractFunctionPtg) ptg).getFunctionIndex();
+					if (functionIndex == FunctionMetadataRegistry.FUNCTION_INDEX_INDIRECT
+							|| functionIndex == FUNCTION_INDEX_OFFSET) {
+						dynamic = true;
+					}
+				}
+			}
+			return dynamic;
+		}
+
+		private void addArea(Ptg ptg, int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn, int owner) {
+			int firstSheet = sheetIndex;
+			int lastSheet = sheetIndex;
+			if (ptg instanceof ExternSheetReferenceToken) {
+				int externSheetIndex = ((ExternSheetReferenceToken) ptg).getExternSheetIndex();
+				EvaluationWorkbook.ExternalSheet externalSheet = _workbook.getExternalSheet(externSheetIndex);
+				if (externalSheet == null) {
+					firstSheet = lastSheet = _workbook.convertFromExternSheetIndex(externSheetIndex);
+				} else if (externalSheet.getWorkbookName() != null) {
+					return;
+				} else {
+					firstSheet = lastSheet = _workbook.getSheetIndex(externalSheet.getSheetName());
+					if (externalSheet instanceof EvaluationWorkbook.ExternalSheetRange) {
+						lastSheet = _workbook.getSheetIndex(((EvaluationWorkbook.ExternalSheetRange) externalSheet).getLastSheetName());
+					}
+				}
+			} else if (ptg instanceof Pxg3D) {
+				Pxg3D pxg = (Pxg3D) ptg;
+				if (pxg.getExternalWorkbookNumber() > 0) {
+					return;
+				}
+				if (pxg.getSheetName() != null) {
+					firstSheet = lastSheet = _workbook.getSheetIndex(pxg.getSheetName());
+					if (pxg.getLastSheetName() != null) {
+						lastSheet = _workbook.getSheetIndex(pxg.getLastSheetName());
+					}
+				}
+			}
+			if (firstSheet < 0 || lastSheet < firstSheet) {
+				return;
+			}
+
+			if (firstSheet == lastSheet && firstRow == lastRow && firstColumn == lastColumn) {
+				if (_count == _keys.length) {
+					_keys = Arrays.copyOf(_keys, _count * 2);
+					_owners = Arrays.copyOf(_owners, _count * 2);
+				}
+				_keys[_count] = toKey(firstSheet, firstRow, firstColumn);
+				_owners[_count] = owner;
+				_count++;
+				return;
+			}
+
+			Range range = new Range(firstSheet, lastSheet, firstRow, firstColumn, lastRow, lastColumn);
+			Integer id = _rangeIds.get(range);
+			if (id == null) {
+				id = Integer.valueOf(_ranges.size());
+				_rangeIds.put(range, id);
+				_ranges.add(range);
+				for (int sheet = firstSheet; sheet <= lastSheet; sheet++) {
+					for (int row = firstRow; row <= lastRow; row += 1 << ROW_BUCKET_BITS) {
+						addToRangeIndex(toBucketKey(sheet, row), id.intValue());
+					}
+					// the loop may step over the bucket of the last row
+					addToRangeIndex(toBucketKey(sheet, lastRow), id.intValue());
+				}
+			} else {
+				range = _ranges.get(id.intValue());
+			}
+			range.addDependent(owner);
+		}
+
+		private void addToRangeIndex(long bucketKey, int rangeId) {
+			Long key = Long.valueOf(bucketKey);
+			IntList ids = _rangeIndex.get(key);
+			if (ids == null) {
+				ids = new IntList(4);
+				_rangeIndex.put(key, ids);
+			}
+			if (ids.isEmpty() || ids.get(ids.size() - 1) != rangeId) {
+				ids.add(rangeId);
+			}
+		}
+
+		/**
+		 * Groups the single cell references by the referenced location
+		 */
+		public void indexReferences() {
+			long[] keys = Arrays.copyOf(_keys, _count);
+			int[] order = sortedOrder(keys);
+			IntList distinct = new IntList();
+			for (int i = 0; i < order.length; i++) {
+				if (i == 0 || keys[order[i]] != keys[order[i - 1]]) {
+					distinct.add(i);
+				}
+			}
+			int distinctCount = distinct.size();
+			_refKeys = new long[distinctCount];
+			_refDependents = new int[distinctCount][];
+			for (int d = 0; d < distinctCount; d++) {
+				int from = distinct.get(d);
+				int to = d + 1 < distinctCount ? distinct.get(d + 1) : order.length;
+				_refKeys[d] = keys[order[from]];
+				int[] dependents = new int[to - from];
+				for (int i = from; i < to; i++) {
+					dependents[i - from] = _owners[order[i]];
+				}
+				_refDependents[d] = dependents;
+			}
+			_keys = null;
+			_owners = null;
+		}
+	}
+
+	/**
+	 * A range node: an area on one or more sheets and the formula cells referencing it
+	 */
+	private final class Range {
+		private final int _firstSheet, _lastSheet;
+		private final int _firstRow, _firstColumn, _lastRow, _lastColumn;
+		private final IntList _dependents = new IntList(2);
+		private int[] _members;
+
+		public Range(int firstSheet, int lastSheet, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+			_firstSheet = firstSheet;
+			_lastSheet = lastSheet;
+			_firstRow = firstRow;
+			_firstColumn = firstColumn;
+			_lastRow = lastRow;
+			_lastColumn = lastColumn;
+		}
+
+		public boolean contains(int sheetIndex, int rowIndex, int columnIndex) {
+			return sheetIndex >= _firstSheet && sheetIndex <= _lastSheet
+					&& rowIndex >= _firstRow && rowIndex <= _lastRow
+					&& columnIndex >= _firstColumn && columnIndex <= _lastColumn;
+		}
+
+		public void addDependent(int owner) {
+			_dependents.add(owner);
+		}
+
+		public IntList getDependents() {
+			return _dependents;
+		}
+
+		public void setMembers(int[] members) {
+			_members = members;
+		}
+
+		public int[] getMembers() {
+			return _members;
+		}
+
+		/**
+		 * Finds the formula cells inside this range. The formula cells in its rows and those in
+		 * its columns are both found by binary search, only the smaller of the two is scanned.
+		 *
+		 * @return the formula cells inside this range
+		 */
+		public int[] findFormulaCells() {
+			if (_members != null) {
+				return _members;
+			}
+			IntList result = new IntList();
+			for (int sheet = _firstSheet; sheet <= _lastSheet; sheet++) {
+				int rowsStart = lowerBound(_sortedKeys, toKey(sheet, _firstRow, 0));
+				int rowsEnd = lowerBound(_sortedKeys, toKey(sheet, _lastRow, (int) COLUMN_MASK) + 1);
+				int columnsStart = lowerBound(_columnKeys, toColumnKey(sheet, 0, _firstColumn));
+				int columnsEnd = lowerBound(_columnKeys, toColumnKey(sheet, (int) ROW_MASK, _lastColumn) + 1);
+				if (rowsEnd - rowsStart <= columnsEnd - columnsStart) {
+					for (int idx = rowsStart; idx < rowsEnd; idx++) {
+						int column = (int) (_sortedKeys[idx] & COLUMN_MASK);
+						if (column >= _firstColumn && column <= _lastColumn) {
+							result.add(_sortedPositions[idx]);
+						}
+					}
+				} else {
+					for (int idx = columnsStart; idx < columnsEnd; idx++) {
+						int row = (int) (_columnKeys[idx] & ROW_MASK);
+						if (row >= _firstRow && row <= _lastRow) {
+							result.add(_columnPositions[idx]);
+						}
+					}
+				}
+			}
+			return result.toArray();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Range)) {
+				return false;
+			}
+			Range other = (Range) obj;
+			return _firstSheet == other._firstSheet && _lastSheet == other._lastSheet
+					&& _firstRow == other._firstRow && _firstColumn == other._firstColumn
+					&& _lastRow == other._lastRow && _lastColumn == other._lastColumn;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((((_firstSheet * 31 + _lastSheet) * 31 + _firstRow) * 31 + _firstColumn) * 31 + _lastRow) * 31 + _lastColumn;
+		}
+	}
+}
@@ -86,6 +86,10 @@ final class FormulaUsedBlankCellSet {
 			}
 		}
 
+		public void addArea(int firstRowIndex, int firstColumnIndex, int lastRowIndex, int lastColumnIndex) {
+			_rectangleGroups.add(new BlankCellRectangleGroup(firstRowIndex, firstColumnIndex, lastRowIndex, lastColumnIndex));
+		}
+
 		public boolean containsCell(int rowIndex, int columnIndex) {
 			for (int i=_rectangleGroups.size()-1; i>=0; i--) {
 				BlankCellRectangleGroup bcrg = _rectangleGroups.get(i);
@@ -113,10 +117,14 @@ final class FormulaUsedBlankCellSet {
 		private int _lastRowIndex;
 
 		public BlankCellRectangleGroup(int firstRowIndex, int firstColumnIndex, int lastColumnIndex) {
+			this(firstRowIndex, firstColumnIndex, firstRowIndex, lastColumnIndex);
+		}
+
+		public BlankCellRectangleGroup(int firstRowIndex, int firstColumnIndex, int lastRowIndex, int lastColumnIndex) {
 			_firstRowIndex = firstRowIndex;
 			_firstColumnIndex = firstColumnIndex;
 			_lastColumnIndex = lastColumnIndex;
-			_lastRowIndex = firstRowIndex;
+			_lastRowIndex = lastRowIndex;
 		}
 
 		public boolean containsCell(int rowIndex, int columnIndex) {
@@ -169,6 +177,15 @@ final class FormulaUsedBlankCellSet {
 		sbcg.addCell(rowIndex, columnIndex);
 	}
 
+	/**
+	 * Adds an area of cells which are all blank
+	 */
+	public void addArea(int bookIndex, int sheetIndex, int firstRowIndex, int firstColumnIndex,
+			int lastRowIndex, int lastColumnIndex) {
+		BlankCellSheetGroup sbcg = getSheetGroup(bookIndex, sheetIndex);
+		sbcg.addArea(firstRowIndex, firstColumnIndex, lastRowIndex, lastColumnIndex);
+	}
+
 	private BlankCellSheetGroup getSheetGroup(int bookIndex, int sheetIndex) {
 		BookSheetKey key = new BookSheetKey(bookIndex, sheetIndex);
 
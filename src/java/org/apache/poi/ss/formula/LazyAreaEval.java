@@ -27,7 +27,7 @@ import org.apache.poi.ss.util.CellReference;
 /**
  * Provides Lazy Evaluation to 3D Ranges
  */
-final class LazyAreaEval extends AreaEvalBase {
+final class LazyAreaEval extends AreaEvalBase implements LookupIndexProvider, CriteriaIndexProvider {
 	private final SheetRangeEvaluator _evaluator;
 
 	LazyAreaEval(AreaI ptg, SheetRangeEvaluator evaluator) {
@@ -74,6 +74,25 @@ final class LazyAreaEval extends AreaEvalBase {
 		return new LazyAreaEval(getFirstRow(), absColIx, getLastRow(), absColIx, _evaluator);
 	}
 
+	public LookupIndex getRowLookupIndex(int relativeRowIndex) {
+		int absRowIx = getFirstRow() + relativeRowIndex;
+		SheetRefEvaluator sre = _evaluator.getSheetEvaluator(_evaluator.getFirstSheetIndex());
+		return sre.getLookupIndex(absRowIx, getFirstColumn(), absRowIx, getLastColumn());
+	}
+	public LookupIndex getColumnLookupIndex(int relativeColumnIndex) {
+		int absColIx = getFirstColumn() + relativeColumnIndex;
+		SheetRefEvaluator sre = _evaluator.getSheetEvaluator(_evaluator.getFirstSheetIndex());
+		return sre.getLookupIndex(getFirstRow(), absColIx, getLastRow(), absColIx);
+	}
+
+	public CriteriaIndex getCriteriaIndex() {
+		if (getFirstSheetIndex() != getLastSheetIndex()) {
+			return null;
+		}
+		SheetRefEvaluator sre = _evaluator.getSheetEvaluator(getFirstSheetIndex());
+		return sre.getCriteriaIndex(getFirstRow(), getFirstColumn(), getLastRow(), getLastColumn());
+	}
+
 	public String toString() {
 		CellReference crA = new CellReference(getFirstRow(), getFirstColumn());
 		CellReference crB = new CellReference(getLastRow(), getLastColumn());
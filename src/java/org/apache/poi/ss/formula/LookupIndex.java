@@ -0,0 +1,92 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.util.Internal;
+
+/**
+ * Hash index of the values of a single row or column, used for exact match lookups
+ * (VLOOKUP, HLOOKUP and MATCH). Maps every number, string and boolean value to the
+ * position of its first occurrence.<br/>
+ *
+ * Values of different types never match, strings are compared ignoring case like
+ * {@link String#compareToIgnoreCase(String)} does.<br/>
+ *
+ * For POI internal use only
+ */
+@Internal
+public final class LookupIndex {
+	private final Map<Object, Integer> _firstIndexes;
+
+	public LookupIndex(ValueEval[] values) {
+		_firstIndexes = new HashMap<Object, Integer>(values.length * 4 / 3 + 1);
+		for (int i = values.length - 1; i >= 0; i--) {
+			Object key = toKey(values[i]);
+			if (key != null) {
+				// backward iteration, so that the first occurrence wins
+				_firstIndexes.put(key, Integer.valueOf(i));
+			}
+		}
+	}
+
+	/**
+	 * @return the key of the given value in the index, <code>null</code> if values of its type are not indexed
+	 */
+	public static Object toKey(ValueEval value) {
+		Class<?> cls = value.getClass();
+		if (cls == NumberEval.class) {
+			return Double.valueOf(((NumberEval) value).getNumberValue());
+		}
+		if (cls == StringEval.class) {
+			return toKey(((StringEval) value).getStringValue());
+		}
+		if (cls == BoolEval.class) {
+			return Boolean.valueOf(((BoolEval) value).getBooleanValue());
+		}
+		return null;
+	}
+
+	/**
+	 * @return the key of the given string, equal for all strings which are equal ignoring case
+	 */
+	public static Object toKey(String value) {
+		int len = value.length();
+		char[] chars = new char[len];
+		for (int i = 0; i < len; i++) {
+			// same folding as String.compareToIgnoreCase
+			chars[i] = Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @param key a key created by one of the <tt>toKey</tt> methods
+	 * @return zero based position of the first matching value, -1 if there is none
+	 */
+	public int indexOf(Object key) {
+		Integer result = _firstIndexes.get(key);
+		return result == null ? -1 : result.intValue();
+	}
+}
@@ -104,6 +104,13 @@ final class OperationEvaluatorFactory {
 		m.put(ptgKey, instance);
 	}
 
+	/**
+	 * @return the function of an operator token, <code>null</code> for function tokens
+	 */
+	public static Function getOperator(OperationPtg ptg) {
+		return _instancesByPtgClass.get(ptg);
+	}
+
 	/**
 	 * returns the OperationEval concrete impl instance corresponding
 	 * to the supplied operationPtg
@@ -0,0 +1,404 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.util.AreaReference;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.Internal;
+
+/**
+ * Evaluates a batch of formula cells of one workbook on several threads.<br/>
+ *
+ * The {@link FormulaDependencyGraph} of the formula cells is used to sort them into
+ * dependency levels, so that a cell only depends on formula cells of lower levels. All cells of
+ * one level are then evaluated concurrently. Each worker uses its own {@link WorkbookEvaluator},
+ * which sees the results of the lower levels as plain values instead of evaluating them again.<br/>
+ *
+ * Cells with references which cannot be resolved statically (INDIRECT, OFFSET and external
+ * names), the cells depending on them and cells which are part of a circular reference are
+ * evaluated serially after all levels, in the given order. A precedent which is missed by the
+ * analysis is not a problem either, the worker just evaluates it itself.<br/>
+ *
+ * The workbook must not be modified while the evaluation is running.<br/>
+ *
+ * For POI internal use only
+ */
+@Internal
+public final class ParallelFormulaEvaluator {
+	/** lower bound for the number of cells of one task, to keep the scheduling overhead low */
+	private static final int MIN_CELLS_PER_TASK = 64;
+
+	private final WorkbookEvaluator _masterEvaluator;
+	private final EvaluationWorkbook _workbook;
+	private final Executor _executor;
+
+	/** the evaluators of the worker threads, each one is only used by one thread at a time */
+	private final ConcurrentLinkedQueue<WorkbookEvaluator> _evaluators = new ConcurrentLinkedQueue<WorkbookEvaluator>();
+
+	// state of the current evaluation, read-only while the workers are running
+	private EvaluationCell[] _cells;
+	private FormulaDependencyGraph _graph;
+	private AtomicReferenceArray<ValueEval> _results;
+
+	/**
+	 * @param masterEvaluator the evaluator of the workbook, its settings are used for the workers
+	 * @param executor runs the evaluation tasks
+	 */
+	public ParallelFormulaEvaluator(WorkbookEvaluator masterEvaluator, Executor executor) {
+		_masterEvaluator = masterEvaluator;
+		_workbook = masterEvaluator.getWorkbook();
+		_executor = executor;
+	}
+
+	/**
+	 * Evaluates the given formula cells. The cells must all be formula cells of the workbook
+	 * of the master evaluator.
+	 *
+	 * @return the results in the order of the given cells
+	 */
+	public ValueEval[] evaluate(EvaluationCell[] cells) {
+		int n = cells.length;
+		ValueEval[] results = new ValueEval[n];
+		if (_masterEvaluator.getEnvironment() != CollaboratingWorkbooksEnvironment.EMPTY) {
+			// the workers cannot share the evaluators of the other workbooks
+			for (int i = 0; i < n; i++) {
+				results[i] = _masterEvaluator.evaluate(cells[i]);
+			}
+			return results;
+		}
+
+		return evaluate(new FormulaDependencyGraph(_workbook, cells));
+	}
+
+	/**
+	 * Evaluates all formula cells of the given dependency graph, which must have been built
+	 * for the workbook of the master evaluator and still match its formulas.
+	 *
+	 * @return the results in the order of the cells of the graph
+	 */
+	public ValueEval[] evaluate(FormulaDependencyGraph graph) {
+		int n = graph.getNumberOfFormulaCells();
+		ValueEval[] results = new ValueEval[n];
+		_cells = new EvaluationCell[n];
+		for (int i = 0; i < n; i++) {
+			_cells[i] = graph.getFormulaCell(i);
+		}
+		if (_masterEvaluator.getEnvironment() != CollaboratingWorkbooksEnvironment.EMPTY) {
+			for (int i = 0; i < n; i++) {
+				results[i] = _masterEvaluator.evaluate(_cells[i]);
+			}
+			_cells = null;
+			return results;
+		}
+		_graph = graph;
+		_results = new AtomicReferenceArray<ValueEval>(n);
+		try {
+			for (int[] level : graph.getLevels()) {
+				evaluateLevel(level);
+			}
+
+			// dynamic and circular references are evaluated serially in the original order
+			int[] unresolved = graph.getUnresolved();
+			if (unresolved.length > 0) {
+				evaluateCells(unresolved, 0, unresolved.length);
+			}
+
+			for (int i = 0; i < n; i++) {
+				results[i] = _results.get(i);
+			}
+			return results;
+		} finally {
+			_cells = null;
+			_graph = null;
+			_results = null;
+			_evaluators.clear();
+		}
+	}
+
+	private void evaluateLevel(final int[] level) {
+		int processors = Runtime.getRuntime().availableProcessors();
+		int chunk = Math.max(MIN_CELLS_PER_TASK, (level.length + 4 * processors - 1) / (4 * processors));
+		if (level.length <= chunk) {
+			evaluateCells(level, 0, level.length);
+			return;
+		}
+
+		List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+		for (int start = 0; start < level.length; start += chunk) {
+			final int from = start;
+			final int to = Math.min(level.length, start + chunk);
+			FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+				public Void call() {
+					evaluateCells(level, from, to);
+					return null;
+				}
+			});
+			_executor.execute(task);
+			tasks.add(task);
+		}
+
+		// wait for all tasks, even if one of them failed, so that no worker
+		// is still running when the exception is reported
+		Throwable failure = null;
+		boolean interrupted = false;
+		for (FutureTask<Void> task : tasks) {
+			while (true) {
+				try {
+					task.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause();
+					}
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new RuntimeException("Could not evaluate formula cells", failure);
+		}
+	}
+
+	private void evaluateCells(int[] positions, int from, int to) {
+		WorkbookEvaluator evaluator = _evaluators.poll();
+		if (evaluator == null) {
+			evaluator = new WorkbookEvaluator(new ResultsEvaluationWorkbook(), null,
+					_masterEvaluator.getStabilityClassifier(), null);
+			evaluator.setIgnoreMissingWorkbooks(_masterEvaluator.isIgnoreMissingWorkbooks());
+		}
+		try {
+			for (int i = from; i < to; i++) {
+				int position = positions[i];
+				_results.set(position, evaluator.evaluate(_cells[position]));
+			}
+		} finally {
+			_evaluators.add(evaluator);
+		}
+	}
+
+	/**
+	 * The view of the workbook for the worker evaluators, formula cells which already have a
+	 * result appear as plain value cells. Each worker has its own instance.<br/>
+	 *
+	 * The parsing methods are needed by INDIRECT and are only supported if the master
+	 * workbook supports them as well.
+	 */
+	private final class ResultsEvaluationWorkbook implements EvaluationWorkbook, FormulaParsingWorkbook {
+		private final Map<Integer, ResultsEvaluationSheet> _sheets = new HashMap<Integer, ResultsEvaluationSheet>();
+
+		public EvaluationSheet getSheet(int sheetIndex) {
+			Integer key = Integer.valueOf(sheetIndex);
+			ResultsEvaluationSheet sheet = _sheets.get(key);
+			if (sheet == null) {
+				sheet = new ResultsEvaluationSheet(sheetIndex, _workbook.getSheet(sheetIndex));
+				_sheets.put(key, sheet);
+			}
+			return sheet;
+		}
+
+		public int getSheetIndex(EvaluationSheet sheet) {
+			if (sheet instanceof ResultsEvaluationSheet) {
+				return ((ResultsEvaluationSheet) sheet).getSheetIndex();
+			}
+			return _workbook.getSheetIndex(sheet);
+		}
+
+		public Ptg[] getFormulaTokens(EvaluationCell cell) {
+			int position = _graph.indexOf(getSheetIndex(cell.getSheet()), cell.getRowIndex(), cell.getColumnIndex());
+			return position < 0 ? _workbook.getFormulaTokens(cell) : _graph.getFormulaTokens(position);
+		}
+
+		public String getSheetName(int sheetIndex) {
+			return _workbook.getSheetName(sheetIndex);
+		}
+		public int getSheetIndex(String sheetName) {
+			return _workbook.getSheetIndex(sheetName);
+		}
+		public ExternalSheet getExternalSheet(int externSheetIndex) {
+			return _workbook.getExternalSheet(externSheetIndex);
+		}
+		public ExternalSheet getExternalSheet(String firstSheetName, String lastSheetName, int externalWorkbookNumber) {
+			return _workbook.getExternalSheet(firstSheetName, lastSheetName, externalWorkbookNumber);
+		}
+		public int convertFromExternSheetIndex(int externSheetIndex) {
+			return _workbook.convertFromExternSheetIndex(externSheetIndex);
+		}
+		public ExternalName getExternalName(int externSheetIndex, int externNameIndex) {
+			return _workbook.getExternalName(externSheetIndex, externNameIndex);
+		}
+		public ExternalName getExternalName(String nameName, String sheetName, int externalWorkbookNumber) {
+			return _workbook.getExternalName(nameName, sheetName, externalWorkbookNumber);
+		}
+		public EvaluationName getName(NamePtg namePtg) {
+			return _workbook.getName(namePtg);
+		}
+		public EvaluationName getName(String name, int sheetIndex) {
+			return _workbook.getName(name, sheetIndex);
+		}
+		public String resolveNameXText(NameXPtg ptg) {
+			return _workbook.resolveNameXText(ptg);
+		}
+		public UDFFinder getUDFFinder() {
+			return _workbook.getUDFFinder();
+		}
+
+		private FormulaParsingWorkbook getParsingWorkbook() {
+			return (FormulaParsingWorkbook) _workbook;
+		}
+		public Name createName() {
+			return getParsingWorkbook().createName();
+		}
+		public Ptg getNameXPtg(String name, SheetIdentifier sheet) {
+			return getParsingWorkbook().getNameXPtg(name, sheet);
+		}
+		public Ptg get3DReferencePtg(CellReference cell, SheetIdentifier sheet) {
+			return getParsingWorkbook().get3DReferencePtg(cell, sheet);
+		}
+		public Ptg get3DReferencePtg(AreaReference area, SheetIdentifier sheet) {
+			return getParsingWorkbook().get3DReferencePtg(area, sheet);
+		}
+		public int getExternalSheetIndex(String sheetName) {
+			return getParsingWorkbook().getExternalSheetIndex(sheetName);
+		}
+		public int getExternalSheetIndex(String workbookName, String sheetName) {
+			return getParsingWorkbook().getExternalSheetIndex(workbookName, sheetName);
+		}
+		public SpreadsheetVersion getSpreadsheetVersion() {
+			return getParsingWorkbook().getSpreadsheetVersion();
+		}
+	}
+
+	private final class ResultsEvaluationSheet implements EvaluationSheet {
+		private final int _sheetIndex;
+		private final EvaluationSheet _masterSheet;
+
+		public ResultsEvaluationSheet(int sheetIndex, EvaluationSheet masterSheet) {
+			_sheetIndex = sheetIndex;
+			_masterSheet = masterSheet;
+		}
+
+		public int getSheetIndex() {
+			return _sheetIndex;
+		}
+
+		public EvaluationCell getCell(int rowIndex, int columnIndex) {
+			int position = _graph.indexOf(_sheetIndex, rowIndex, columnIndex);
+			if (position >= 0) {
+				ValueEval result = _results.get(position);
+				if (result != null) {
+					return new ResultCell(this, _cells[position], result);
+				}
+			}
+			return _masterSheet.getCell(rowIndex, columnIndex);
+		}
+
+		public int getLastRowNum() {
+			return _masterSheet.getLastRowNum();
+		}
+	}
+
+	/**
+	 * A formula cell which has already been evaluated, presented as a plain value cell
+	 */
+	private static final class ResultCell implements EvaluationCell {
+		private final EvaluationSheet _sheet;
+		private final EvaluationCell _masterCell;
+		private final ValueEval _value;
+
+		public ResultCell(EvaluationSheet sheet, EvaluationCell masterCell, ValueEval value) {
+			_sheet = sheet;
+			_masterCell = masterCell;
+			_value = value;
+		}
+
+		public Object getIdentityKey() {
+			return _masterCell.getIdentityKey();
+		}
+		public EvaluationSheet getSheet() {
+			return _sheet;
+		}
+		public int getRowIndex() {
+			return _masterCell.getRowIndex();
+		}
+		public int getColumnIndex() {
+			return _masterCell.getColumnIndex();
+		}
+		public int getCellType() {
+			if (_value instanceof NumberEval) {
+				return Cell.CELL_TYPE_NUMERIC;
+			}
+			if (_value instanceof StringEval) {
+				return Cell.CELL_TYPE_STRING;
+			}
+			if (_value instanceof BoolEval) {
+				return Cell.CELL_TYPE_BOOLEAN;
+			}
+			if (_value instanceof ErrorEval) {
+				return Cell.CELL_TYPE_ERROR;
+			}
+			throw new IllegalStateException("Unexpected result " + _value);
+		}
+		public double getNumericCellValue() {
+			return ((NumberEval) _value).getNumberValue();
+		}
+		public String getStringCellValue() {
+			return ((StringEval) _value).getStringValue();
+		}
+		public boolean getBooleanCellValue() {
+			return ((BoolEval) _value).getBooleanValue();
+		}
+		public int getErrorCellValue() {
+			return ((ErrorEval) _value).getErrorCode();
+		}
+		public int getCachedFormulaResultType() {
+			return getCellType();
+		}
+	}
+}
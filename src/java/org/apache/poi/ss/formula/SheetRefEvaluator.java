@@ -48,6 +48,20 @@ final class SheetRefEvaluator {
 		return _bookEvaluator.evaluateReference(getSheet(), _sheetIndex, rowIndex, columnIndex, _tracker);
 	}
 
+	/**
+	 * @return the cached index of the given single row or column, or <code>null</code>
+	 */
+	public LookupIndex getLookupIndex(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		return _bookEvaluator.getLookupIndex(_sheetIndex, firstRow, firstColumn, lastRow, lastColumn, _tracker);
+	}
+
+	/**
+	 * @return the cached index of the given area, or <code>null</code>
+	 */
+	public CriteriaIndex getCriteriaIndex(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		return _bookEvaluator.getCriteriaIndex(_sheetIndex, firstRow, firstColumn, lastRow, lastColumn, _tracker);
+	}
+
 	private EvaluationSheet getSheet() {
 		if (_sheet == null) {
 			_sheet = _bookEvaluator.getSheet(_sheetIndex);
@@ -19,8 +19,10 @@ package org.apache.poi.ss.formula;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 import java.util.TreeSet;
 
@@ -70,6 +72,13 @@ public final class WorkbookEvaluator {
 
     private boolean _ignoreMissingWorkbooks = false;
 
+    private boolean _compileFormulas = false;
+    /** compiled formulas by the identity key of their cell */
+    private final Map<Object, CompiledFormula> _compiledFormulas = new IdentityHashMap<Object, CompiledFormula>();
+
+	/** results of the evaluator this one was forked from, <code>null</code> if there is none */
+	private BaseEvaluatorResults _baseResults;
+
 	/**
 	 * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
 	 */
@@ -160,6 +169,62 @@ public final class WorkbookEvaluator {
 		return _evaluationListener;
 	}
 
+	/* package */ IStabilityClassifier getStabilityClassifier() {
+		return _stabilityClassifier;
+	}
+
+	/* package */ boolean isIgnoreMissingWorkbooks() {
+		return _ignoreMissingWorkbooks;
+	}
+
+	/**
+	 * Reuses the results of another evaluator for the same master workbook. Formula cells which do
+	 * not depend on cells changed in this evaluator (as told by {@link #notifyUpdateCell(EvaluationCell)})
+	 * take their values from <tt>baseEvaluator</tt> instead of being evaluated again.<br/>
+	 *
+	 * Only the results which the base evaluator has already calculated are reused. The base
+	 * evaluator may be shared by several evaluators on different threads, so it must not evaluate
+	 * or change any cells any more.
+	 *
+	 * @param baseEvaluator an evaluator whose workbook has the same cells as the workbook of this
+	 *  evaluator, except for the cells changed after this call
+	 */
+	public void setBaseEvaluator(WorkbookEvaluator baseEvaluator) {
+		_baseResults = new BaseEvaluatorResults(baseEvaluator);
+		_cache.clear();
+	}
+
+	/**
+	 * @return the result of the given formula cell calculated by this evaluator or taken from its
+	 *  base evaluators, <code>null</code> if it has not been evaluated yet
+	 */
+	/* package */ ValueEval getCachedResult(Object identityKey) {
+		ValueEval result = _cache.getFormulaCellValue(identityKey);
+		if (result != null || _baseResults == null) {
+			return result;
+		}
+		return _baseResults.getResult(identityKey);
+	}
+
+	/**
+	 * @return the identity keys of the formula cells whose results in this evaluator depend on the
+	 *  given cells
+	 */
+	/* package */ Set<Object> findDependentFormulaCells(int[] sheetIndexes, EvaluationCell[] cells) {
+		Set<Object> baseResult;
+		if (_baseResults == null) {
+			baseResult = Collections.emptySet();
+		} else {
+			baseResult = _baseResults.findDependentFormulaCells(sheetIndexes, cells);
+		}
+		boolean[] wasBlank = new boolean[cells.length];
+		for (int i = 0; i < cells.length; i++) {
+			EvaluationCell cell = getSheet(sheetIndexes[i]).getCell(cells[i].getRowIndex(), cells[i].getColumnIndex());
+			wasBlank[i] = cell == null || cell.getCellType() == Cell.CELL_TYPE_BLANK;
+		}
+		return _cache.findDependentFormulaCells(_workbookIx, sheetIndexes, cells, wasBlank, baseResult);
+	}
+
 	/**
 	 * Should be called whenever there are changes to input cells in the evaluated workbook.
 	 * Failure to call this method after changing cell values will cause incorrect behaviour
@@ -168,6 +233,7 @@ public final class WorkbookEvaluator {
 	public void clearAllCachedResultValues() {
 		_cache.clear();
 		_sheetIndexesBySheet.clear();
+		_compiledFormulas.clear();
 	}
 
 	/**
@@ -177,6 +243,13 @@ public final class WorkbookEvaluator {
 	public void notifyUpdateCell(EvaluationCell cell) {
 		int sheetIndex = getSheetIndex(cell.getSheet());
 		_cache.notifyUpdateCell(_workbookIx, sheetIndex, cell);
+		_compiledFormulas.remove(cell.getIdentityKey());
+		if (_baseResults != null) {
+			// formula cells which have been taken from the base evaluator do not know their inputs
+			for (Object identityKey : _baseResults.addChangedCell(sheetIndex, cell)) {
+				_cache.clearFormulaCellEntry(identityKey);
+			}
+		}
 	}
 	/**
 	 * Should be called to tell the cell value cache that the specified cell has just been
@@ -185,6 +258,7 @@ public final class WorkbookEvaluator {
 	public void notifyDeleteCell(EvaluationCell cell) {
 		int sheetIndex = getSheetIndex(cell.getSheet());
 		_cache.notifyDeleteCell(_workbookIx, sheetIndex, cell);
+		_compiledFormulas.remove(cell.getIdentityKey());
 	}
 	
 	private int getSheetIndex(EvaluationSheet sheet) {
@@ -251,6 +325,13 @@ public final class WorkbookEvaluator {
 		IEvaluationListener evalListener = _evaluationListener;
 		ValueEval result;
 		if (cce.getValue() == null) {
+			if (_baseResults != null) {
+				result = _baseResults.getResult(srcCell.getIdentityKey());
+				if (result != null) {
+					cce.updateFormulaResult(result, CellCacheEntry.EMPTY_ARRAY, null);
+					return result;
+				}
+			}
 			if (!tracker.startEvaluate(cce)) {
 				return ErrorEval.CIRCULAR_REF_ERROR;
 			}
@@ -258,12 +339,11 @@ public final class WorkbookEvaluator {
 
 			try {
 
-				Ptg[] ptgs = _workbook.getFormulaTokens(srcCell);
 				if (evalListener == null) {
-					result = evaluateFormula(ec, ptgs);
+					result = evaluateFormulaCell(ec, srcCell);
 				} else {
 					evalListener.onStartEvaluate(srcCell, cce);
-					result = evaluateFormula(ec, ptgs);
+					result = evaluateFormulaCell(ec, srcCell);
 					evalListener.onEndEvaluate(cce, result);
 				}
 
@@ -372,6 +452,19 @@ public final class WorkbookEvaluator {
 	// current indent level for evalution; negative value for no output
 	private int dbgEvaluationOutputIndent = -1;
 
+	private ValueEval evaluateFormulaCell(OperationEvaluationContext ec, EvaluationCell srcCell) {
+		if (!_compileFormulas || dbgEvaluationOutputForNextEval || dbgEvaluationOutputIndent > 0) {
+			return evaluateFormula(ec, _workbook.getFormulaTokens(srcCell));
+		}
+		Object key = srcCell.getIdentityKey();
+		CompiledFormula formula = _compiledFormulas.get(key);
+		if (formula == null) {
+			formula = CompiledFormula.compile(_workbook.getFormulaTokens(srcCell));
+			_compiledFormulas.put(key, formula);
+		}
+		return formula.evaluate(this, ec);
+	}
+
 	// visibility raised for testing
 	/* package */ ValueEval evaluateFormula(OperationEvaluationContext ec, Ptg[] ptgs) {
 
@@ -539,7 +632,7 @@ public final class WorkbookEvaluator {
 	 * @return the number of tokens (starting from <tt>startIndex+1</tt>) that need to be skipped
 	 * to achieve the specified <tt>distInBytes</tt> skip distance.
 	 */
-	private static int countTokensToBeSkipped(Ptg[] ptgs, int startIndex, int distInBytes) {
+	/* package */ static int countTokensToBeSkipped(Ptg[] ptgs, int startIndex, int distInBytes) {
 		int remBytes = distInBytes;
 		int index = startIndex;
 		while (remBytes != 0) {
@@ -587,7 +680,7 @@ public final class WorkbookEvaluator {
     * StringPtg, BoolPtg <br/>special Note: OperationPtg subtypes cannot be
     * passed here!
     */
-   private ValueEval getEvalForPtg(Ptg ptg, OperationEvaluationContext ec) {
+   /* package */ ValueEval getEvalForPtg(Ptg ptg, OperationEvaluationContext ec) {
        //  consider converting all these (ptg instanceof XxxPtg) expressions to (ptg.getClass() == XxxPtg.class)
 
        if (ptg instanceof NamePtg) {
@@ -701,6 +794,77 @@ public final class WorkbookEvaluator {
 		EvaluationCell cell = sheet.getCell(rowIndex, columnIndex);
 		return evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker);
 	}
+	/**
+	 * Used by the lazy area evals for exact match lookups.
+	 *
+	 * @return the index of the given single row or column, or <code>null</code> if it cannot be
+	 *  built because of a circular reference
+	 * @see #getAreaIndexEntry(int, int, int, int, int, EvaluationTracker)
+	 */
+	/* package */ LookupIndex getLookupIndex(int sheetIndex, int firstRow, int firstColumn,
+			int lastRow, int lastColumn, EvaluationTracker tracker) {
+		EvaluationCache.AreaIndexEntry entry = getAreaIndexEntry(sheetIndex, firstRow, firstColumn, lastRow, lastColumn, tracker);
+		return entry == null ? null : entry.getLookupIndex();
+	}
+
+	/**
+	 * Used by the lazy area evals for conditional aggregates (COUNTIF, SUMIF, ...).
+	 *
+	 * @return the index of the given area, or <code>null</code> if it cannot be built because
+	 *  of a circular reference
+	 * @see #getAreaIndexEntry(int, int, int, int, int, EvaluationTracker)
+	 */
+	/* package */ CriteriaIndex getCriteriaIndex(int sheetIndex, int firstRow, int firstColumn,
+			int lastRow, int lastColumn, EvaluationTracker tracker) {
+		EvaluationCache.AreaIndexEntry entry = getAreaIndexEntry(sheetIndex, firstRow, firstColumn, lastRow, lastColumn, tracker);
+		return entry == null ? null : entry.getCriteriaIndex();
+	}
+
+	/**
+	 * The values of an area are read once and kept in the evaluation cache together with the
+	 * indexes built from them, the current formula becomes dependent on all cells of the area.
+	 * Only the rows up to the last row of the sheet are read, so whole column references like
+	 * <tt>A:A</tt> do not visit a million rows. The rows below it are blank.
+	 *
+	 * @return <code>null</code> if a cell of the area is part of a circular reference
+	 */
+	private EvaluationCache.AreaIndexEntry getAreaIndexEntry(int sheetIndex, int firstRow, int firstColumn,
+			int lastRow, int lastColumn, EvaluationTracker tracker) {
+		EvaluationCache.AreaIndexEntry entry = _cache.getOrCreateAreaIndexEntry(_workbookIx, sheetIndex,
+				firstRow, firstColumn, lastRow, lastColumn);
+		FormulaCellCacheEntry cce = entry.getCacheEntry();
+		if (!entry.isValid()) {
+			if (!tracker.startEvaluate(cce)) {
+				// a cell of the area uses an index of this area
+				return null;
+			}
+			try {
+				EvaluationSheet sheet = getSheet(sheetIndex);
+				int width = lastColumn - firstColumn + 1;
+				int readLastRow = Math.max(firstRow - 1, Math.min(lastRow, sheet.getLastRowNum()));
+				ValueEval[] values = new ValueEval[width * (readLastRow - firstRow + 1)];
+				for (int i = 0; i < values.length; i++) {
+					ValueEval value = evaluateReference(sheet, sheetIndex, firstRow + i / width, firstColumn + i % width, tracker);
+					if (value == ErrorEval.CIRCULAR_REF_ERROR) {
+						return null;
+					}
+					values[i] = value;
+				}
+				if (readLastRow < lastRow) {
+					// cells added below the last row invalidate the index
+					tracker.acceptBlankAreaDependency(_workbookIx, sheetIndex, readLastRow + 1, firstColumn,
+							lastRow, lastColumn);
+				}
+				entry.setValues(values, width, lastRow - firstRow + 1);
+				tracker.updateCacheResult(new NumberEval(values.length));
+			} finally {
+				tracker.endEvaluate(cce);
+			}
+		}
+		tracker.acceptFormulaDependency(cce);
+		return entry;
+	}
+
 	public FreeRefFunction findUserDefinedFunction(String functionName) {
 		return _udfFinder.findFunction(functionName);
 	}
@@ -773,6 +937,20 @@ public final class WorkbookEvaluator {
         FunctionEval.registerFunction(name, func);
     }
 
+    /**
+     * Whether formula cells should be translated into a {@link CompiledFormula} on their first
+     * evaluation, which is then reused for later evaluations of the cell. This speeds up repeated
+     * recalculation of the same formulas, as long as changed formulas are reported with
+     * {@link #notifyUpdateCell(EvaluationCell)} or {@link #clearAllCachedResultValues()}.
+     * The default is <code>false</code>.
+     *
+     * @param value whether to compile formulas
+     */
+    public void setCompileFormulas(boolean value){
+        _compileFormulas = value;
+        _compiledFormulas.clear();
+    }
+
     public void setDebugEvaluationOutputForNextEval(boolean value){
         dbgEvaluationOutputForNextEval = value;
     }
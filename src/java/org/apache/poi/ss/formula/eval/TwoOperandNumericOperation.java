@@ -34,22 +34,37 @@ public abstract class TwoOperandNumericOperation extends Fixed2ArgFunction {
 		try {
 			double d0 = singleOperandEvaluate(arg0, srcRowIndex, srcColumnIndex);
 			double d1 = singleOperandEvaluate(arg1, srcRowIndex, srcColumnIndex);
-			result = evaluate(d0, d1);
-			if (result == 0.0) { // this '==' matches +0.0 and -0.0
-				// Excel converts -0.0 to +0.0 for '*', '/', '%', '+' and '^'
-				if (!(this instanceof SubtractEvalClass)) {
-					return NumberEval.ZERO;
-				}
-			}
-			if (Double.isNaN(result) || Double.isInfinite(result)) {
-				return ErrorEval.NUM_ERROR;
-			}
+			result = evaluateNumbers(d0, d1);
 		} catch (EvaluationException e) {
 			return e.getErrorEval();
 		}
+		if (result == 0.0 && !(this instanceof SubtractEvalClass)) {
+			return NumberEval.ZERO;
+		}
 		return new NumberEval(result);
 	}
 
+	/**
+	 * Applies this operator to operands which have already been converted to numbers, without
+	 * creating a {@link NumberEval} for the result.
+	 *
+	 * @return the result, never NaN or infinite
+	 * @throws EvaluationException if the result is an error
+	 */
+	public final double evaluateNumbers(double d0, double d1) throws EvaluationException {
+		double result = evaluate(d0, d1);
+		if (result == 0.0) { // this '==' matches +0.0 and -0.0
+			// Excel converts -0.0 to +0.0 for '*', '/', '%', '+' and '^'
+			if (!(this instanceof SubtractEvalClass)) {
+				return 0.0;
+			}
+		}
+		if (Double.isNaN(result) || Double.isInfinite(result)) {
+			throw new EvaluationException(ErrorEval.NUM_ERROR);
+		}
+		return result;
+	}
+
 	protected abstract double evaluate(double d0, double d1) throws EvaluationException;
 
 	public static final Function AddEval = new TwoOperandNumericOperation() {
@@ -44,4 +44,14 @@ public final class UnaryMinusEval extends Fixed1ArgFunction {
 		}
 		return new NumberEval(-d);
 	}
+
+	/**
+	 * Negates a number which has already been resolved from the operand.
+	 */
+	public static double evaluateNumber(double d) {
+		if (d == 0.0) { // this '==' matches +0.0 and -0.0
+			return 0.0;
+		}
+		return -d;
+	}
 }
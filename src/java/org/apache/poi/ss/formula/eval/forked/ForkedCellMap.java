@@ -0,0 +1,118 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import java.util.Arrays;
+
+/**
+ * The updated cells of a forked workbook, kept in arrays sorted by a key made of sheet index,
+ * row index and column index. A copy shares the arrays with the original map until either of
+ * them is changed, so forking an evaluator does not copy its updated cells.
+ */
+final class ForkedCellMap {
+	private static final int COLUMN_BITS = 14;
+	private static final int ROW_BITS = 20;
+	private static final int INITIAL_CAPACITY = 8;
+
+	private long[] _keys;
+	private ForkedEvaluationCell[] _cells;
+	private int _size;
+	/** whether the arrays are used by another map as well */
+	private boolean _shared;
+
+	public ForkedCellMap() {
+		_keys = new long[INITIAL_CAPACITY];
+		_cells = new ForkedEvaluationCell[INITIAL_CAPACITY];
+	}
+
+	private ForkedCellMap(ForkedCellMap other) {
+		_keys = other._keys;
+		_cells = other._cells;
+		_size = other._size;
+		_shared = true;
+		other._shared = true;
+	}
+
+	public static long toKey(int sheetIndex, int rowIndex, int columnIndex) {
+		return ((long)sheetIndex << (ROW_BITS + COLUMN_BITS)) | ((long)rowIndex << COLUMN_BITS) | columnIndex;
+	}
+
+	public static int getSheetIndex(long key) {
+		return (int) (key >>> (ROW_BITS + COLUMN_BITS));
+	}
+
+	/**
+	 * @return a map with the same cells, which can be changed independently of this one
+	 */
+	public ForkedCellMap copy() {
+		return new ForkedCellMap(this);
+	}
+
+	/**
+	 * @return <code>null</code> if the cell has not been updated
+	 */
+	public ForkedEvaluationCell get(long key) {
+		int index = Arrays.binarySearch(_keys, 0, _size, key);
+		return index < 0 ? null : _cells[index];
+	}
+
+	public void put(long key, ForkedEvaluationCell cell) {
+		int index = Arrays.binarySearch(_keys, 0, _size, key);
+		if (index >= 0) {
+			ensureCapacity(_size);
+			_cells[index] = cell;
+			return;
+		}
+		index = -index - 1;
+		ensureCapacity(_size + 1);
+		System.arraycopy(_keys, index, _keys, index + 1, _size - index);
+		System.arraycopy(_cells, index, _cells, index + 1, _size - index);
+		_keys[index] = key;
+		_cells[index] = cell;
+		_size++;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (!_shared && capacity <= _keys.length) {
+			return;
+		}
+		int newCapacity = Math.max(_keys.length, INITIAL_CAPACITY);
+		while (newCapacity < capacity) {
+			newCapacity *= 2;
+		}
+		long[] keys = new long[newCapacity];
+		ForkedEvaluationCell[] cells = new ForkedEvaluationCell[newCapacity];
+		System.arraycopy(_keys, 0, keys, 0, _size);
+		System.arraycopy(_cells, 0, cells, 0, _size);
+		_keys = keys;
+		_cells = cells;
+		_shared = false;
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	public long getKey(int index) {
+		return _keys[index];
+	}
+
+	public ForkedEvaluationCell getCell(int index) {
+		return _cells[index];
+	}
+}
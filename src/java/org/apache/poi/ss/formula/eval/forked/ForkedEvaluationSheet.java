@@ -17,16 +17,9 @@
 
 package org.apache.poi.ss.formula.eval.forked;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
 import org.apache.poi.ss.formula.EvaluationWorkbook;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.util.CellReference;
 
 /**
@@ -40,31 +33,38 @@ import org.apache.poi.ss.util.CellReference;
 final class ForkedEvaluationSheet implements EvaluationSheet {
 
 	private final EvaluationSheet _masterSheet;
+	private final int _sheetIndex;
 	/**
-	 * Only cells which have been split are put in this map.  (This has been done to conserve memory).
+	 * The updated cells of all sheets of the workbook.  Only cells which have been split are put in
+	 * this map.  (This has been done to conserve memory).
 	 */
-	private final Map<RowColKey, ForkedEvaluationCell> _sharedCellsByRowCol;
+	private final ForkedCellMap _updatedCells;
 
-	public ForkedEvaluationSheet(EvaluationSheet masterSheet) {
+	public ForkedEvaluationSheet(EvaluationSheet masterSheet, int sheetIndex, ForkedCellMap updatedCells) {
 		_masterSheet = masterSheet;
-		_sharedCellsByRowCol = new HashMap<RowColKey, ForkedEvaluationCell>();
+		_sheetIndex = sheetIndex;
+		_updatedCells = updatedCells;
 	}
 
 	public EvaluationCell getCell(int rowIndex, int columnIndex) {
-		RowColKey key = new RowColKey(rowIndex, columnIndex);
-
-		ForkedEvaluationCell result = _sharedCellsByRowCol.get(key);
+		ForkedEvaluationCell result = _updatedCells.get(ForkedCellMap.toKey(_sheetIndex, rowIndex, columnIndex));
 		if (result == null) {
 			return _masterSheet.getCell(rowIndex, columnIndex);
 		}
 		return result;
 	}
 
+	public int getLastRowNum() {
+		// only cells which exist in the master sheet can be updated
+		return _masterSheet.getLastRowNum();
+	}
+
 	public ForkedEvaluationCell getOrCreateUpdatableCell(int rowIndex, int columnIndex) {
-		RowColKey key = new RowColKey(rowIndex, columnIndex);
+		long key = ForkedCellMap.toKey(_sheetIndex, rowIndex, columnIndex);
 
-		ForkedEvaluationCell result = _sharedCellsByRowCol.get(key);
-		if (result == null) {
+		ForkedEvaluationCell result = _updatedCells.get(key);
+		// cells inherited from the evaluator this one was forked from are not changed in place
+		if (result == null || result.getSheet() != this) {
 			EvaluationCell mcell = _masterSheet.getCell(rowIndex, columnIndex);
 			if (mcell == null) {
 				CellReference cr = new CellReference(rowIndex, columnIndex);
@@ -72,65 +72,12 @@ final class ForkedEvaluationSheet implements EvaluationSheet {
 						+ cr.formatAsString() + "' is missing in master sheet.");
 			}
 			result = new ForkedEvaluationCell(this, mcell);
-			_sharedCellsByRowCol.put(key, result);
+			_updatedCells.put(key, result);
 		}
 		return result;
 	}
 
-	public void copyUpdatedCells(Sheet sheet) {
-		RowColKey[] keys = new RowColKey[_sharedCellsByRowCol.size()];
-		_sharedCellsByRowCol.keySet().toArray(keys);
-		Arrays.sort(keys);
-		for (int i = 0; i < keys.length; i++) {
-			RowColKey key = keys[i];
-			Row row = sheet.getRow(key.getRowIndex());
-			if (row == null) {
-				row = sheet.createRow(key.getRowIndex());
-			}
-			Cell destCell = row.getCell(key.getColumnIndex());
-			if (destCell == null) {
-				destCell = row.createCell(key.getColumnIndex());
-			}
-
-			ForkedEvaluationCell srcCell = _sharedCellsByRowCol.get(key);
-			srcCell.copyValue(destCell);
-		}
-	}
-
 	public int getSheetIndex(EvaluationWorkbook mewb) {
 		return mewb.getSheetIndex(_masterSheet);
 	}
-
-	private static final class RowColKey implements Comparable<RowColKey>{
-		private final int _rowIndex;
-		private final int _columnIndex;
-
-		public RowColKey(int rowIndex, int columnIndex) {
-			_rowIndex = rowIndex;
-			_columnIndex = columnIndex;
-		}
-		@Override
-		public boolean equals(Object obj) {
-			assert obj instanceof RowColKey : "these private cache key instances are only compared to themselves";
-			RowColKey other = (RowColKey) obj;
-			return _rowIndex == other._rowIndex && _columnIndex == other._columnIndex;
-		}
-		@Override
-		public int hashCode() {
-			return _rowIndex ^ _columnIndex;
-		}
-		public int compareTo(RowColKey o) {
-			int cmp = _rowIndex - o._rowIndex;
-			if (cmp != 0) {
-				return cmp;
-			}
-			return _columnIndex - o._columnIndex;
-		}
-		public int getRowIndex() {
-			return _rowIndex;
-		}
-		public int getColumnIndex() {
-			return _columnIndex;
-		}
-	}
 }
@@ -28,6 +28,9 @@ import org.apache.poi.ss.formula.ptg.NamePtg;
 import org.apache.poi.ss.formula.ptg.NameXPtg;
 import org.apache.poi.ss.formula.ptg.Ptg;
 import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 
 /**
@@ -39,10 +42,23 @@ final class ForkedEvaluationWorkbook implements EvaluationWorkbook {
 
 	private final EvaluationWorkbook _masterBook;
 	private final Map<String, ForkedEvaluationSheet> _sharedSheetsByName;
+	private final ForkedCellMap _updatedCells;
 
 	public ForkedEvaluationWorkbook(EvaluationWorkbook master) {
+		this(master, new ForkedCellMap());
+	}
+
+	private ForkedEvaluationWorkbook(EvaluationWorkbook master, ForkedCellMap updatedCells) {
 		_masterBook = master;
 		_sharedSheetsByName = new HashMap<String, ForkedEvaluationSheet>();
+		_updatedCells = updatedCells;
+	}
+
+	/**
+	 * @return a workbook which starts with the cells updated in this workbook
+	 */
+	public ForkedEvaluationWorkbook fork() {
+		return new ForkedEvaluationWorkbook(_masterBook, _updatedCells.copy());
 	}
 
 	public ForkedEvaluationCell getOrCreateUpdatableCell(String sheetName, int rowIndex,
@@ -59,19 +75,27 @@ final class ForkedEvaluationWorkbook implements EvaluationWorkbook {
 	private ForkedEvaluationSheet getSharedSheet(String sheetName) {
 		ForkedEvaluationSheet result = _sharedSheetsByName.get(sheetName);
 		if (result == null) {
-			result = new ForkedEvaluationSheet(_masterBook.getSheet(_masterBook
-					.getSheetIndex(sheetName)));
+			int sheetIndex = _masterBook.getSheetIndex(sheetName);
+			result = new ForkedEvaluationSheet(_masterBook.getSheet(sheetIndex), sheetIndex, _updatedCells);
 			_sharedSheetsByName.put(sheetName, result);
 		}
 		return result;
 	}
 
 	public void copyUpdatedCells(Workbook workbook) {
-        String[] sheetNames = new String[_sharedSheetsByName.size()];
-        _sharedSheetsByName.keySet().toArray(sheetNames);
-		for (String sheetName : sheetNames) {
-			ForkedEvaluationSheet sheet = _sharedSheetsByName.get(sheetName);
-			sheet.copyUpdatedCells(workbook.getSheet(sheetName));
+		for (int i = 0; i < _updatedCells.size(); i++) {
+			int sheetIndex = ForkedCellMap.getSheetIndex(_updatedCells.getKey(i));
+			Sheet sheet = workbook.getSheet(_masterBook.getSheetName(sheetIndex));
+			ForkedEvaluationCell srcCell = _updatedCells.getCell(i);
+			Row row = sheet.getRow(srcCell.getRowIndex());
+			if (row == null) {
+				row = sheet.createRow(srcCell.getRowIndex());
+			}
+			Cell destCell = row.getCell(srcCell.getColumnIndex());
+			if (destCell == null) {
+				destCell = row.createCell(srcCell.getColumnIndex());
+			}
+			srcCell.copyValue(destCell);
 		}
 	}
 
@@ -47,10 +47,29 @@ public final class ForkedEvaluator {
 
 	private WorkbookEvaluator _evaluator;
 	private ForkedEvaluationWorkbook _sewb;
+	private final IStabilityClassifier _stabilityClassifier;
+	private final UDFFinder _udfFinder;
+	/** set once this evaluator has been forked, its cells cannot be updated any more */
+	private volatile boolean _forked;
+	/** read-only evaluator whose results are reused by the forks, <code>null</code> before the first fork */
+	private WorkbookEvaluator _sharedEvaluator;
+	private ForkedEvaluationWorkbook _sharedWorkbook;
+	/** whether formulas have been evaluated since the shared evaluator was created */
+	private boolean _evaluatedSinceFork;
 
 	private ForkedEvaluator(EvaluationWorkbook masterWorkbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
 		_sewb = new ForkedEvaluationWorkbook(masterWorkbook);
 		_evaluator = new WorkbookEvaluator(_sewb, stabilityClassifier, udfFinder);
+		_stabilityClassifier = stabilityClassifier;
+		_udfFinder = udfFinder;
+	}
+	private ForkedEvaluator(ForkedEvaluationWorkbook sewb, WorkbookEvaluator baseEvaluator,
+			IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
+		_sewb = sewb;
+		_evaluator = new WorkbookEvaluator(_sewb, stabilityClassifier, udfFinder);
+		_evaluator.setBaseEvaluator(baseEvaluator);
+		_stabilityClassifier = stabilityClassifier;
+		_udfFinder = udfFinder;
 	}
 	private static EvaluationWorkbook createEvaluationWorkbook(Workbook wb) {
 		if (wb instanceof HSSFWorkbook) {
@@ -74,14 +93,53 @@ public final class ForkedEvaluator {
 	public static ForkedEvaluator create(Workbook wb, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
 		return new ForkedEvaluator(createEvaluationWorkbook(wb), stabilityClassifier, udfFinder);
 	}
+	/**
+	 * Creates an evaluator for any kind of master workbook, for example
+	 * <tt>XSSFEvaluationWorkbook.create(xssfWorkbook)</tt>, or a {@link SharedEvaluationWorkbook}
+	 * when evaluators for the same master workbook run on different threads.
+	 *
+	 * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
+	 */
+	public static ForkedEvaluator create(EvaluationWorkbook masterWorkbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
+		return new ForkedEvaluator(masterWorkbook, stabilityClassifier, udfFinder);
+	}
+
+	/**
+	 * Creates an evaluator which starts with the cells updated in this evaluator and reuses the
+	 * results of this evaluator for all formula cells which do not depend on cells updated in the
+	 * new evaluator. This way many variations of one model (e.g. scenarios or Monte Carlo runs)
+	 * only recalculate the formulas affected by their inputs.<br/>
+	 *
+	 * The updated cells are shared until they are changed in the new evaluator. After this call
+	 * the cells of this evaluator cannot be updated any more. Only the formulas evaluated before
+	 * this call are reused, their results become read-only so the new evaluators may be used on
+	 * different threads. This evaluator continues with an evaluator of its own which reuses them
+	 * as well.
+	 */
+	public synchronized ForkedEvaluator fork() {
+		_forked = true;
+		if (_sharedEvaluator == null || _evaluatedSinceFork) {
+			_sharedEvaluator = _evaluator;
+			_sharedWorkbook = _sewb;
+			_sewb = _sharedWorkbook.fork();
+			_evaluator = new WorkbookEvaluator(_sewb, _stabilityClassifier, _udfFinder);
+			_evaluator.setBaseEvaluator(_sharedEvaluator);
+			_evaluatedSinceFork = false;
+		}
+		return new ForkedEvaluator(_sharedWorkbook.fork(), _sharedEvaluator, _stabilityClassifier, _udfFinder);
+	}
 
 	/**
 	 * Sets the specified cell to the supplied <tt>value</tt>
 	 * @param sheetName the name of the sheet containing the cell
 	 * @param rowIndex zero based
 	 * @param columnIndex zero based
+	 * @throws IllegalStateException if this evaluator has been forked
 	 */
 	public void updateCell(String sheetName, int rowIndex, int columnIndex, ValueEval value) {
+		if (_forked) {
+			throw new IllegalStateException("Cells cannot be updated after the evaluator has been forked");
+		}
 
 		ForkedEvaluationCell cell = _sewb.getOrCreateUpdatableCell(sheetName, rowIndex, columnIndex);
 		cell.setValue(value);
@@ -110,23 +168,27 @@ public final class ForkedEvaluator {
 	 * @return <code>null</code> if the supplied cell is <code>null</code> or blank
 	 */
 	public ValueEval evaluate(String sheetName, int rowIndex, int columnIndex) {
-		EvaluationCell cell = _sewb.getEvaluationCell(sheetName, rowIndex, columnIndex);
+		// this evaluator may be forked on other threads at the same time
+		synchronized (this) {
+			EvaluationCell cell = _sewb.getEvaluationCell(sheetName, rowIndex, columnIndex);
 
-		switch (cell.getCellType()) {
-			case Cell.CELL_TYPE_BOOLEAN:
-				return BoolEval.valueOf(cell.getBooleanCellValue());
-			case Cell.CELL_TYPE_ERROR:
-				return ErrorEval.valueOf(cell.getErrorCellValue());
-			case Cell.CELL_TYPE_FORMULA:
-				return _evaluator.evaluate(cell);
-			case Cell.CELL_TYPE_NUMERIC:
-				return new NumberEval(cell.getNumericCellValue());
-			case Cell.CELL_TYPE_STRING:
-				return new StringEval(cell.getStringCellValue());
-			case Cell.CELL_TYPE_BLANK:
-				return null;
+			switch (cell.getCellType()) {
+				case Cell.CELL_TYPE_BOOLEAN:
+					return BoolEval.valueOf(cell.getBooleanCellValue());
+				case Cell.CELL_TYPE_ERROR:
+					return ErrorEval.valueOf(cell.getErrorCellValue());
+				case Cell.CELL_TYPE_FORMULA:
+					_evaluatedSinceFork = true;
+					return _evaluator.evaluate(cell);
+				case Cell.CELL_TYPE_NUMERIC:
+					return new NumberEval(cell.getNumericCellValue());
+				case Cell.CELL_TYPE_STRING:
+					return new StringEval(cell.getStringCellValue());
+				case Cell.CELL_TYPE_BLANK:
+					return null;
+			}
+			throw new IllegalStateException("Bad cell type (" + cell.getCellType() + ")");
 		}
-		throw new IllegalStateException("Bad cell type (" + cell.getCellType() + ")");
 	}
 	/**
 	 * Coordinates several formula evaluators together so that formulas that involve external
@@ -0,0 +1,195 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationName;
+import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.udf.AggregatingUDFFinder;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+
+/**
+ * A master workbook which can be shared by {@link ForkedEvaluator}s running on different
+ * threads, for example one evaluator per request of a server that evaluates a template workbook
+ * with request specific input values.<p/>
+ *
+ * The formula tokens of each cell, the names and the sheets are read from the wrapped workbook
+ * once and then shared by all evaluators. Each {@link ForkedEvaluator} still keeps its own cache
+ * of evaluated values and its own updated cells. The wrapped workbook must not be modified while
+ * it is shared.<p/>
+ *
+ * Typical usage:
+ * <pre>
+ * SharedEvaluationWorkbook master = new SharedEvaluationWorkbook(XSSFEvaluationWorkbook.create(template));
+ * // on each thread
+ * ForkedEvaluator evaluator = ForkedEvaluator.create(master, null, null);
+ * evaluator.updateCell("Inputs", 0, 0, new NumberEval(value));
+ * ValueEval result = evaluator.evaluate("Calculations", 0, 0);
+ * </pre>
+ */
+public final class SharedEvaluationWorkbook implements EvaluationWorkbook {
+
+	private final EvaluationWorkbook _masterBook;
+	private final ConcurrentMap<Integer, EvaluationSheet> _sheets;
+	private final ConcurrentMap<Integer, EvaluationName> _namesByIndex;
+	/** formula tokens by the identity key of their cell */
+	private final ConcurrentMap<Object, Ptg[]> _formulaTokens;
+
+	public SharedEvaluationWorkbook(EvaluationWorkbook master) {
+		_masterBook = master;
+		_sheets = new ConcurrentHashMap<Integer, EvaluationSheet>();
+		_namesByIndex = new ConcurrentHashMap<Integer, EvaluationName>();
+		_formulaTokens = new ConcurrentHashMap<Object, Ptg[]>();
+	}
+
+	public EvaluationSheet getSheet(int sheetIndex) {
+		Integer key = Integer.valueOf(sheetIndex);
+		EvaluationSheet result = _sheets.get(key);
+		if (result == null) {
+			// the master workbook may read the sheet on first access, which must not run concurrently
+			synchronized (_sheets) {
+				result = _sheets.get(key);
+				if (result == null) {
+					result = _masterBook.getSheet(sheetIndex);
+					_sheets.put(key, result);
+				}
+			}
+		}
+		return result;
+	}
+
+	public Ptg[] getFormulaTokens(EvaluationCell cell) {
+		Object key = cell.getIdentityKey();
+		Ptg[] result = _formulaTokens.get(key);
+		if (result == null) {
+			result = _masterBook.getFormulaTokens(cell);
+			_formulaTokens.put(key, result);
+		}
+		return result;
+	}
+
+	public EvaluationName getName(NamePtg namePtg) {
+		Integer key = Integer.valueOf(namePtg.getIndex());
+		EvaluationName result = _namesByIndex.get(key);
+		if (result == null) {
+			result = new SharedName(_masterBook.getName(namePtg));
+			_namesByIndex.put(key, result);
+		}
+		return result;
+	}
+
+	public EvaluationName getName(String name, int sheetIndex) {
+		return _masterBook.getName(name, sheetIndex);
+	}
+
+	public int getSheetIndex(EvaluationSheet sheet) {
+		return _masterBook.getSheetIndex(sheet);
+	}
+
+	public int getSheetIndex(String sheetName) {
+		return _masterBook.getSheetIndex(sheetName);
+	}
+
+	public String getSheetName(int sheetIndex) {
+		return _masterBook.getSheetName(sheetIndex);
+	}
+
+	public ExternalSheet getExternalSheet(int externSheetIndex) {
+		return _masterBook.getExternalSheet(externSheetIndex);
+	}
+
+	public ExternalSheet getExternalSheet(String firstSheetName, String lastSheetName, int externalWorkbookNumber) {
+		return _masterBook.getExternalSheet(firstSheetName, lastSheetName, externalWorkbookNumber);
+	}
+
+	public int convertFromExternSheetIndex(int externSheetIndex) {
+		return _masterBook.convertFromExternSheetIndex(externSheetIndex);
+	}
+
+	public ExternalName getExternalName(int externSheetIndex, int externNameIndex) {
+		return _masterBook.getExternalName(externSheetIndex, externNameIndex);
+	}
+
+	public ExternalName getExternalName(String nameName, String sheetName, int externalWorkbookNumber) {
+		return _masterBook.getExternalName(nameName, sheetName, externalWorkbookNumber);
+	}
+
+	public String resolveNameXText(NameXPtg ptg) {
+		return _masterBook.resolveNameXText(ptg);
+	}
+
+	/**
+	 * @return a new finder for every caller, delegating to the one of the master workbook, so
+	 *  that the UDF finder an evaluator adds to it is never added to the shared one
+	 */
+	public UDFFinder getUDFFinder() {
+		UDFFinder masterFinder = _masterBook.getUDFFinder();
+		if (masterFinder == null) {
+			return new AggregatingUDFFinder();
+		}
+		return new AggregatingUDFFinder(masterFinder);
+	}
+
+	/**
+	 * Keeps the definition of a name, which would otherwise be decoded or parsed on each use
+	 */
+	private static final class SharedName implements EvaluationName {
+		private final EvaluationName _masterName;
+		private volatile Ptg[] _nameDefinition;
+
+		public SharedName(EvaluationName masterName) {
+			_masterName = masterName;
+		}
+
+		public String getNameText() {
+			return _masterName.getNameText();
+		}
+
+		public boolean isFunctionName() {
+			return _masterName.isFunctionName();
+		}
+
+		public boolean hasFormula() {
+			return _masterName.hasFormula();
+		}
+
+		public Ptg[] getNameDefinition() {
+			Ptg[] result = _nameDefinition;
+			if (result == null) {
+				result = _masterName.getNameDefinition();
+				_nameDefinition = result;
+			}
+			return result;
+		}
+
+		public boolean isRange() {
+			return _masterName.isRange();
+		}
+
+		public NamePtg createPtg() {
+			return _masterName.createPtg();
+		}
+	}
+}
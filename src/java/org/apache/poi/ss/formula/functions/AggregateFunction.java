@@ -169,6 +169,11 @@ public abstract class AggregateFunction extends MultiOperandNumericFunction {
                 return arg.evaluate(values);
             }
 
+            @Override
+            protected Accumulator createAccumulator() {
+                return arg.createAccumulator();
+            }
+
             /**
              *  ignore nested subtotals.
              */
@@ -192,6 +197,23 @@ public abstract class AggregateFunction extends MultiOperandNumericFunction {
 			}
 			return MathX.average(values);
 		}
+		@Override
+		protected Accumulator createAccumulator() {
+			return new Accumulator() {
+				private double _sum;
+				private int _count;
+				public void add(double value) {
+					_sum += value;
+					_count++;
+				}
+				public double getResult() throws EvaluationException {
+					if (_count < 1) {
+						throw new EvaluationException(ErrorEval.DIV_ZERO);
+					}
+					return _sum / _count;
+				}
+			};
+		}
 	};
 	public static final Function DEVSQ = new AggregateFunction() {
 		protected double evaluate(double[] values) {
@@ -203,6 +225,20 @@ public abstract class AggregateFunction extends MultiOperandNumericFunction {
 		protected double evaluate(double[] values) {
 			return values.length > 0 ? MathX.max(values) : 0;
 		}
+		@Override
+		protected Accumulator createAccumulator() {
+			return new Accumulator() {
+				private double _max = Double.NEGATIVE_INFINITY;
+				private boolean _isEmpty = true;
+				public void add(double value) {
+					_max = Math.max(_max, value);
+					_isEmpty = false;
+				}
+				public double getResult() {
+					return _isEmpty ? 0 : _max;
+				}
+			};
+		}
 	};
 	public static final Function MEDIAN = new AggregateFunction() {
 		protected double evaluate(double[] values) {
@@ -213,6 +249,20 @@ public abstract class AggregateFunction extends MultiOperandNumericFunction {
 		protected double evaluate(double[] values) {
 			return values.length > 0 ? MathX.min(values) : 0;
 		}
+		@Override
+		protected Accumulator createAccumulator() {
+			return new Accumulator() {
+				private double _min = Double.POSITIVE_INFINITY;
+				private boolean _isEmpty = true;
+				public void add(double value) {
+					_min = Math.min(_min, value);
+					_isEmpty = false;
+				}
+				public double getResult() {
+					return _isEmpty ? 0 : _min;
+				}
+			};
+		}
 	};
 	
 	public static final Function PERCENTILE = new Percentile();
@@ -221,6 +271,20 @@ public abstract class AggregateFunction extends MultiOperandNumericFunction {
 		protected double evaluate(double[] values) {
 			return MathX.product(values);
 		}
+		@Override
+		protected Accumulator createAccumulator() {
+			return new Accumulator() {
+				private double _product = 1;
+				private boolean _isEmpty = true;
+				public void add(double value) {
+					_product *= value;
+					_isEmpty = false;
+				}
+				public double getResult() {
+					return _isEmpty ? 0 : _product;
+				}
+			};
+		}
 	};
 	public static final Function SMALL = new LargeSmall(false);
 	public static final Function STDEV = new AggregateFunction() {
@@ -235,11 +299,35 @@ public abstract class AggregateFunction extends MultiOperandNumericFunction {
 		protected double evaluate(double[] values) {
 			return MathX.sum(values);
 		}
+		@Override
+		protected Accumulator createAccumulator() {
+			return new Accumulator() {
+				private double _sum;
+				public void add(double value) {
+					_sum += value;
+				}
+				public double getResult() {
+					return _sum;
+				}
+			};
+		}
 	};
 	public static final Function SUMSQ = new AggregateFunction() {
 		protected double evaluate(double[] values) {
 			return MathX.sumsq(values);
 		}
+		@Override
+		protected Accumulator createAccumulator() {
+			return new Accumulator() {
+				private double _sumsq;
+				public void add(double value) {
+					_sumsq += value*value;
+				}
+				public double getResult() {
+					return _sumsq;
+				}
+			};
+		}
 	};
     public static final Function VAR = new AggregateFunction() {
         protected double evaluate(double[] values) throws EvaluationException {
@@ -17,6 +17,10 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import java.util.Arrays;
+
+import org.apache.poi.ss.formula.CriteriaIndex;
+import org.apache.poi.ss.formula.CriteriaIndexProvider;
 import org.apache.poi.ss.formula.ThreeDEval;
 import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.RefEval;
@@ -42,11 +46,69 @@ final class CountUtils {
     public interface I_MatchAreaPredicate extends I_MatchPredicate {
         boolean matches(TwoDEval x, int rowIndex, int columnIndex);
     }
+    /**
+     * A criteria which can look up the matching cells in a {@link CriteriaIndex}.
+     */
+    public interface I_IndexedMatchPredicate extends I_MatchPredicate {
+        /**
+         * @return the positions of the matching cells in ascending order, <code>null</code>
+         *  if the index cannot be used for this criteria
+         */
+        int[] findMatches(CriteriaIndex index);
+    }
+
+    /**
+     * Uses the cached index of the area, so that its cells are only read once for all
+     * criteria evaluated against it.
+     *
+     * @return the positions (row by row) of the cells of the area which match the criteria,
+     *  or <code>null</code> if there is no index for the area
+     */
+    public static int[] findMatchingCells(ValueEval areaEval, I_MatchPredicate criteriaPredicate) {
+        if (criteriaPredicate instanceof I_MatchAreaPredicate) {
+            // needs the area itself
+            return null;
+        }
+        CriteriaIndex index = getCriteriaIndex(areaEval);
+        if (index == null) {
+            return null;
+        }
+        if (criteriaPredicate instanceof I_IndexedMatchPredicate) {
+            int[] result = ((I_IndexedMatchPredicate) criteriaPredicate).findMatches(index);
+            if (result != null) {
+                return result;
+            }
+        }
+        int size = index.getSize();
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (criteriaPredicate.matches(index.getValue(i))) {
+                result[count++] = i;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @return the cached index of the area, or <code>null</code> if there is none
+     */
+    public static CriteriaIndex getCriteriaIndex(ValueEval areaEval) {
+        if (areaEval instanceof CriteriaIndexProvider) {
+            return ((CriteriaIndexProvider) areaEval).getCriteriaIndex();
+        }
+        return null;
+    }
 
     /**
      * @return the number of evaluated cells in the range that match the specified criteria
      */
     public static int countMatchingCellsInArea(ThreeDEval areaEval, I_MatchPredicate criteriaPredicate) {
+        int[] matches = findMatchingCells(areaEval, criteriaPredicate);
+        if (matches != null) {
+            return matches.length;
+        }
+
         int result = 0;
 
         for (int sIx=areaEval.getFirstSheetIndex(); sIx <= areaEval.getLastSheetIndex(); sIx++) {
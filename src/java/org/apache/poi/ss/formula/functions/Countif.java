@@ -19,6 +19,8 @@ package org.apache.poi.ss.formula.functions;
 
 import java.util.regex.Pattern;
 
+import org.apache.poi.ss.formula.CriteriaIndex;
+import org.apache.poi.ss.formula.LookupIndex;
 import org.apache.poi.ss.formula.ThreeDEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
@@ -29,6 +31,7 @@ import org.apache.poi.ss.formula.eval.OperandResolver;
 import org.apache.poi.ss.formula.eval.RefEval;
 import org.apache.poi.ss.formula.eval.StringEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.functions.CountUtils.I_IndexedMatchPredicate;
 import org.apache.poi.ss.formula.functions.CountUtils.I_MatchPredicate;
 import org.apache.poi.ss.usermodel.FormulaError;
 
@@ -147,7 +150,7 @@ public final class Countif extends Fixed2ArgFunction {
         }
     }
 
-    private static abstract class MatcherBase implements I_MatchPredicate {
+    private static abstract class MatcherBase implements I_IndexedMatchPredicate {
         private final CmpOp _operator;
 
         MatcherBase(CmpOp operator) {
@@ -172,6 +175,13 @@ public final class Countif extends Fixed2ArgFunction {
             return sb.toString();
         }
         protected abstract String getValueText();
+
+        /**
+         * By default the criteria is checked against each cell of the index
+         */
+        public int[] findMatches(CriteriaIndex index) {
+            return null;
+        }
     }
 
     private static final class NumberMatcher extends MatcherBase {
@@ -228,6 +238,21 @@ public final class Countif extends Fixed2ArgFunction {
             }
             return evaluate(Double.compare(testValue, _value));
         }
+
+        @Override
+        public int[] findMatches(CriteriaIndex index) {
+            switch (getCode()) {
+                case CmpOp.NONE:
+                case CmpOp.EQ:
+                    return CriteriaIndex.union(index.findEqual(Double.valueOf(_value)),
+                            index.findNumericStrings(_value));
+                case CmpOp.LT: return index.findNumbersLessThan(_value, false);
+                case CmpOp.LE: return index.findNumbersLessThan(_value, true);
+                case CmpOp.GT: return index.findNumbersGreaterThan(_value, false);
+                case CmpOp.GE: return index.findNumbersGreaterThan(_value, true);
+            }
+            return null;
+        }
     }
     private static final class BooleanMatcher extends MatcherBase {
 
@@ -286,6 +311,16 @@ public final class Countif extends Fixed2ArgFunction {
             }
             return evaluate(testValue - _value);
         }
+
+        @Override
+        public int[] findMatches(CriteriaIndex index) {
+            switch (getCode()) {
+                case CmpOp.NONE:
+                case CmpOp.EQ:
+                    return index.findEqual(Boolean.valueOf(_value == 1));
+            }
+            return null;
+        }
     }
     public static final class ErrorMatcher extends MatcherBase {
 
@@ -307,6 +342,16 @@ public final class Countif extends Fixed2ArgFunction {
             }
             return false;
         }
+
+        @Override
+        public int[] findMatches(CriteriaIndex index) {
+            switch (getCode()) {
+                case CmpOp.NONE:
+                case CmpOp.EQ:
+                    return index.findEqual(Integer.valueOf(_value));
+            }
+            return null;
+        }
         
         public int getValue() {
             return _value;
@@ -377,6 +422,26 @@ public final class Countif extends Fixed2ArgFunction {
             // for example, the string "apples" and the string "APPLES" will match the same cells.
             return evaluate(testedValue.compareToIgnoreCase(_value));
         }
+
+        @Override
+        public int[] findMatches(CriteriaIndex index) {
+            if (_pattern != null) {
+                return null;
+            }
+            switch (getCode()) {
+                case CmpOp.NONE:
+                    if (_value.length() == 0) {
+                        return CriteriaIndex.union(index.findBlanks(), index.findEqual(""));
+                    }
+                    return index.findEqual(LookupIndex.toKey(_value));
+                case CmpOp.EQ:
+                    if (_value.length() == 0) {
+                        return index.findBlanks();
+                    }
+                    return index.findEqual(LookupIndex.toKey(_value));
+            }
+            return null;
+        }
         /**
          * Translates Excel countif wildcard strings into java regex strings
          * @return <code>null</code> if the specified value contains no special wildcard characters.
@@ -21,7 +21,8 @@ import org.apache.poi.ss.formula.OperationEvaluationContext;
 import org.apache.poi.ss.formula.eval.*;
 
 import java.math.BigInteger;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implementation for Excel FACTDOUBLE() function.<p/>
@@ -45,8 +46,8 @@ public class FactDouble extends Fixed1ArgFunction implements FreeRefFunction {
 
     public static final FreeRefFunction instance = new FactDouble();
 
-    //Caching of previously calculated factorial for speed
-    static HashMap<Integer, BigInteger> cache = new HashMap<Integer, BigInteger>();
+    //Caching of previously calculated factorial for speed, shared by evaluators on different threads
+    static Map<Integer, BigInteger> cache = new ConcurrentHashMap<Integer, BigInteger>();
 
     public ValueEval evaluate(int srcRowIndex, int srcColumnIndex, ValueEval numberVE) {
         int number;
@@ -68,11 +69,12 @@ public class FactDouble extends Fixed1ArgFunction implements FreeRefFunction {
             return BigInteger.ONE;
         }
 
-        if (cache.containsKey(n))  {
-            return cache.get(n);
+        BigInteger result = cache.get(n);
+        if (result != null)  {
+            return result;
         }
 
-        BigInteger result = BigInteger.valueOf(n).multiply(factorial(n - 2));
+        result = BigInteger.valueOf(n).multiply(factorial(n - 2));
         cache.put(n, result);
         return result;
     }
@@ -20,6 +20,8 @@ package org.apache.poi.ss.formula.functions;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.poi.ss.formula.LookupIndex;
+import org.apache.poi.ss.formula.LookupIndexProvider;
 import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
@@ -73,6 +75,12 @@ final class LookupUtils {
 		public int getSize() {
 			return _size;
 		}
+		public LookupIndex getLookupIndex() {
+			if (_tableArray instanceof LookupIndexProvider) {
+				return ((LookupIndexProvider) _tableArray).getRowLookupIndex(_rowIndex);
+			}
+			return null;
+		}
 	}
 
 	private static final class ColumnVector implements ValueVector {
@@ -102,6 +110,12 @@ final class LookupUtils {
 		public int getSize() {
 			return _size;
 		}
+		public LookupIndex getLookupIndex() {
+			if (_tableArray instanceof LookupIndexProvider) {
+				return ((LookupIndexProvider) _tableArray).getColumnLookupIndex(_columnIndex);
+			}
+			return null;
+		}
 	}
 
     private static final class SheetVector implements ValueVector {
@@ -274,6 +288,11 @@ final class LookupUtils {
 			return sb.toString();
 		}
 		protected abstract CompareResult compareSameType(ValueEval other);
+		/**
+		 * @return the key of the target value in a {@link LookupIndex}, <code>null</code> if
+		 *  matching values cannot be found with an index
+		 */
+		protected abstract Object getIndexKey();
 		/** used only for debug purposes */
 		protected abstract String getValueAsString();
 	}
@@ -310,6 +329,9 @@ final class LookupUtils {
 
             return CompareResult.valueOf(_value.compareToIgnoreCase(stringValue));
 		}
+		protected Object getIndexKey() {
+			return _wildCardPattern == null ? LookupIndex.toKey(_value) : null;
+		}
 		protected String getValueAsString() {
 			return _value;
 		}
@@ -325,6 +347,9 @@ final class LookupUtils {
 			NumberEval ne = (NumberEval) other;
 			return CompareResult.valueOf(Double.compare(_value, ne.getNumberValue()));
 		}
+		protected Object getIndexKey() {
+			return Double.valueOf(_value);
+		}
 		protected String getValueAsString() {
 			return String.valueOf(_value);
 		}
@@ -348,6 +373,9 @@ final class LookupUtils {
 			}
 			return CompareResult.LESS_THAN;
 		}
+		protected Object getIndexKey() {
+			return Boolean.valueOf(_value);
+		}
 		protected String getValueAsString() {
 			return String.valueOf(_value);
 		}
@@ -500,7 +528,23 @@ final class LookupUtils {
 	 * 	tableArray. For HLOOKUP this is the first row of the tableArray.
 	 * @return zero based index into the vector, -1 if value cannot be found
 	 */
-	private static int lookupIndexOfExactValue(LookupValueComparer lookupComparer, ValueVector vector) {
+	/* package */ static int lookupIndexOfExactValue(LookupValueComparer lookupComparer, ValueVector vector) {
+
+		// rows and columns of a sheet are indexed by the evaluator, see LookupIndex
+		if (lookupComparer instanceof LookupValueComparerBase) {
+			Object key = ((LookupValueComparerBase) lookupComparer).getIndexKey();
+			LookupIndex index = null;
+			if (key == null) {
+				// wildcard pattern
+			} else if (vector instanceof ColumnVector) {
+				index = ((ColumnVector) vector).getLookupIndex();
+			} else if (vector instanceof RowVector) {
+				index = ((RowVector) vector).getLookupIndex();
+			}
+			if (index != null) {
+				return index.indexOf(key);
+			}
+		}
 
 		// find first occurrence of lookup value
 		int size = vector.getSize();
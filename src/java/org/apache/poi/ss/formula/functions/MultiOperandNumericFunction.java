@@ -47,7 +47,22 @@ public abstract class MultiOperandNumericFunction implements Function {
 
 	static final double[] EMPTY_DOUBLE_ARRAY = { };
 
-	private static class DoubleList {
+	/**
+	 * Receives the numbers collected from the operands one at a time, so that simple
+	 * aggregates don't need to keep all values in an array.
+	 *
+	 * @see MultiOperandNumericFunction#createAccumulator()
+	 */
+	protected static abstract class Accumulator {
+		public abstract void add(double value);
+
+		/**
+		 * @return the result for the numbers added so far
+		 */
+		public abstract double getResult() throws EvaluationException;
+	}
+
+	private static class DoubleList extends Accumulator {
 		private double[] _array;
 		private int _count;
 
@@ -79,6 +94,10 @@ public abstract class MultiOperandNumericFunction implements Function {
 			_array[_count] = value;
 			_count++;
 		}
+
+		public double getResult() {
+			throw new IllegalStateException("should not be called");
+		}
 	}
 
 	private static final int DEFAULT_MAX_NUM_OPERANDS = 30;
@@ -87,8 +106,14 @@ public abstract class MultiOperandNumericFunction implements Function {
 
 		double d;
 		try {
-			double[] values = getNumberArray(args);
-			d = evaluate(values);
+			Accumulator accumulator = createAccumulator();
+			if (accumulator == null) {
+				double[] values = getNumberArray(args);
+				d = evaluate(values);
+			} else {
+				collectOperands(args, accumulator);
+				d = accumulator.getResult();
+			}
 		} catch (EvaluationException e) {
 			return e.getErrorEval();
 		}
@@ -101,6 +126,16 @@ public abstract class MultiOperandNumericFunction implements Function {
 
 	protected abstract double evaluate(double[] values) throws EvaluationException;
 
+	/**
+	 * Subclasses which can compute their result from one number at a time may return an
+	 * {@link Accumulator}, which is then used instead of {@link #evaluate(double[])}.
+	 *
+	 * @return a new accumulator for one evaluation, <code>null</code> by default
+	 */
+	protected Accumulator createAccumulator() {
+		return null;
+	}
+
 	/**
 	 * Maximum number of operands accepted by this function.
 	 * Subclasses may override to change default value.
@@ -119,15 +154,18 @@ public abstract class MultiOperandNumericFunction implements Function {
 	 * @return never <code>null</code>
 	 */
 	protected final double[] getNumberArray(ValueEval[] operands) throws EvaluationException {
+		DoubleList retval = new DoubleList();
+		collectOperands(operands, retval);
+		return retval.toArray();
+	}
+
+	private void collectOperands(ValueEval[] operands, Accumulator temp) throws EvaluationException {
 		if (operands.length > getMaxNumOperands()) {
 			throw EvaluationException.invalidValue();
 		}
-		DoubleList retval = new DoubleList();
-
 		for (int i=0, iSize=operands.length; i<iSize; i++) {
-			collectValues(operands[i], retval);
+			collectValues(operands[i], temp);
 		}
-		return retval.toArray();
 	}
 
     /**
@@ -140,7 +178,7 @@ public abstract class MultiOperandNumericFunction implements Function {
 	/**
 	 * Collects values from a single argument
 	 */
-	private void collectValues(ValueEval operand, DoubleList temp) throws EvaluationException {
+	private void collectValues(ValueEval operand, Accumulator temp) throws EvaluationException {
         if (operand instanceof ThreeDEval) {
             ThreeDEval ae = (ThreeDEval) operand;
             for (int sIx=ae.getFirstSheetIndex(); sIx <= ae.getLastSheetIndex(); sIx++) {
@@ -178,7 +216,7 @@ public abstract class MultiOperandNumericFunction implements Function {
 		}
 		collectValue(operand, false, temp);
 	}
-	private void collectValue(ValueEval ve, boolean isViaReference, DoubleList temp)  throws EvaluationException {
+	private void collectValue(ValueEval ve, boolean isViaReference, Accumulator temp)  throws EvaluationException {
 		if (ve == null) {
 			throw new IllegalArgumentException("ve must not be null");
 		}
@@ -17,6 +17,7 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import org.apache.poi.ss.formula.CriteriaIndex;
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
 import org.apache.poi.ss.formula.eval.EvaluationException;
@@ -83,6 +84,11 @@ public final class Sumif extends Var2or3ArgFunction {
 		int height=aeRange.getHeight();
 		int width= aeRange.getWidth();
 
+		int[] matches = CountUtils.findMatchingCells(aeRange, mp);
+		if (matches != null) {
+			return sumPositions(matches, width, aeSum);
+		}
+
 		double result = 0.0;
 		for (int r=0; r<height; r++) {
 			for (int c=0; c<width; c++) {
@@ -106,6 +112,26 @@ public final class Sumif extends Var2or3ArgFunction {
 		return 0.0;
 	}
 
+	/**
+	 * Sums the cells of <code>aeSum</code> at the given positions (row by row)
+	 */
+	static double sumPositions(int[] positions, int width, AreaEval aeSum) {
+		CriteriaIndex sumIndex = CountUtils.getCriteriaIndex(aeSum);
+		double result = 0.0;
+		for (int position : positions) {
+			ValueEval addend;
+			if (sumIndex != null) {
+				addend = sumIndex.getValue(position);
+			} else {
+				addend = aeSum.getRelativeValue(position / width, position % width);
+			}
+			if (addend instanceof NumberEval) {
+				result += ((NumberEval)addend).getNumberValue();
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * @return a range of the same dimensions as aeRange using eval to define the top left corner.
 	 * @throws EvaluationException if eval is not a reference
@@ -19,6 +19,7 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import org.apache.poi.ss.formula.CriteriaIndex;
 import org.apache.poi.ss.formula.OperationEvaluationContext;
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -124,6 +125,11 @@ public final class Sumifs implements FreeRefFunction {
         int height = aeSum.getHeight();
         int width = aeSum.getWidth();
 
+        int[] candidates = findIndexedMatches(ranges, predicates);
+        if (candidates != null) {
+            return Sumif.sumPositions(candidates, width, aeSum);
+        }
+
         double result = 0.0;
         for (int r = 0; r < height; r++) {
             for (int c = 0; c < width; c++) {
@@ -148,6 +154,22 @@ public final class Sumifs implements FreeRefFunction {
         return result;
     }
 
+    /**
+     * @return the positions of the cells matching all criteria, or <code>null</code>
+     *  if a criteria range has no index
+     */
+    private static int[] findIndexedMatches(AreaEval[] ranges, I_MatchPredicate[] predicates) {
+        int[] result = null;
+        for (int i = 0; i < ranges.length; i++) {
+            int[] matches = CountUtils.findMatchingCells(ranges[i], predicates[i]);
+            if (matches == null) {
+                return null;
+            }
+            result = result == null ? matches : CriteriaIndex.intersect(result, matches);
+        }
+        return result;
+    }
+
 	private static double accumulate(AreaEval aeSum, int relRowIndex,
 			int relColIndex) {
 
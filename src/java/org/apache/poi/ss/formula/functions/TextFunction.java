@@ -324,7 +324,11 @@ public abstract class TextFunction implements Function {
 			
 			try {
             // Ask DataFormatter to handle the String for us
-			   String formattedStr = formatter.formatRawCellContents(s0, -1, s1);
+			   String formattedStr;
+			   synchronized (formatter) {
+				   // the formatter caches formats, evaluators on other threads may use it as well
+				   formattedStr = formatter.formatRawCellContents(s0, -1, s1);
+			   }
 				return new StringEval(formattedStr);
 			} catch (Exception e) {
 				return ErrorEval.VALUE_INVALID;
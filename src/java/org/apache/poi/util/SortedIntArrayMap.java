@@ -0,0 +1,230 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.util;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link SortedIntMap} which stores the keys in a primitive array instead of
+ * boxing them into map entries.
+ * <p>
+ * The keys and values are kept in two parallel arrays sorted by key, so
+ * lookups are binary searches and appending a key larger than all existing
+ * ones is amortized constant time. Inserting or removing in the middle
+ * shifts the following entries. Compared to a
+ * {@link java.util.TreeMap TreeMap&lt;Integer,V&gt;} this saves the entry and
+ * Integer objects, i.e. most of the per-entry memory.
+ * </p>
+ *
+ * @param <V> the type of the values
+ */
+@Internal
+public class SortedIntArrayMap<V> extends SortedIntMap<V> {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private int[] _keys;
+    private Object[] _values;
+    private int _size;
+    private int _modCount;
+
+    public SortedIntArrayMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SortedIntArrayMap(int initialCapacity) {
+        _keys = new int[Math.max(initialCapacity, 1)];
+        _values = new Object[_keys.length];
+    }
+
+    @Override
+    public int size() {
+        return _size;
+    }
+
+    private int indexOf(int key) {
+        // fast path for the common case of accessing the last entry
+        if (_size > 0 && _keys[_size - 1] == key) {
+            return _size - 1;
+        }
+        return Arrays.binarySearch(_keys, 0, _size, key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int idx = indexOf(key);
+        return idx < 0 ? null : (V)_values[idx];
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        int idx;
+        if (_size == 0 || key > _keys[_size - 1]) {
+            idx = -(_size + 1);
+        } else {
+            idx = indexOf(key);
+        }
+        if (idx >= 0) {
+            V prev = (V)_values[idx];
+            _values[idx] = value;
+            return prev;
+        }
+        idx = -(idx + 1);
+        if (_size == _keys.length) {
+            int capacity = _keys.length * 2;
+            _keys = Arrays.copyOf(_keys, capacity);
+            _values = Arrays.copyOf(_values, capacity);
+        }
+        if (idx < _size) {
+            System.arraycopy(_keys, idx, _keys, idx + 1, _size - idx);
+            System.arraycopy(_values, idx, _values, idx + 1, _size - idx);
+        }
+        _keys[idx] = key;
+        _values[idx] = value;
+        _size++;
+        _modCount++;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int idx = indexOf(key);
+        if (idx < 0) {
+            return null;
+        }
+        V prev = (V)_values[idx];
+        removeAt(idx);
+        return prev;
+    }
+
+    private void removeAt(int idx) {
+        int moved = _size - idx - 1;
+        if (moved > 0) {
+            System.arraycopy(_keys, idx + 1, _keys, idx, moved);
+            System.arraycopy(_values, idx + 1, _values, idx, moved);
+        }
+        _size--;
+        _values[_size] = null;
+        _modCount++;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(_values, 0, _size, null);
+        _size = 0;
+        _modCount++;
+    }
+
+    @Override
+    public int firstKey() {
+        if (_size == 0) {
+            throw new NoSuchElementException();
+        }
+        return _keys[0];
+    }
+
+    @Override
+    public int lastKey() {
+        if (_size == 0) {
+            throw new NoSuchElementException();
+        }
+        return _keys[_size - 1];
+    }
+
+    @Override
+    public int headSize(int key) {
+        int idx = indexOf(key);
+        return idx < 0 ? -(idx + 1) : idx;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> values(int fromKey, int toKey) {
+        int from = headSize(fromKey);
+        int to = Math.max(from, headSize(toKey));
+        List<V> list = new ArrayList<V>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add((V)_values[i]);
+        }
+        return list;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return _size;
+            }
+        };
+    }
+
+    private class ValueIterator implements Iterator<V> {
+        private int _next = 0;
+        private int _last = -1;
+        private int _expectedModCount = _modCount;
+
+        public boolean hasNext() {
+            return _next < _size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (_modCount != _expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (_next >= _size) {
+                throw new NoSuchElementException();
+            }
+            _last = _next++;
+            return (V)_values[_last];
+        }
+
+        public void remove() {
+            if (_last < 0) {
+                throw new IllegalStateException();
+            }
+            if (_modCount != _expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(_last);
+            _next = _last;
+            _last = -1;
+            _expectedModCount = _modCount;
+        }
+    }
+}
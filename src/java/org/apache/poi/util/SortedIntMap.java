@@ -0,0 +1,98 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from int keys to objects, ordered by the keys.
+ * <p>
+ * {@link SortedIntTreeMap} keeps the entries in a {@link java.util.TreeMap},
+ * {@link SortedIntArrayMap} keeps them in primitive arrays, which uses less
+ * memory for maps which are mostly filled in key order.
+ * </p>
+ *
+ * @param <V> the type of the values
+ */
+@Internal
+public abstract class SortedIntMap<V> {
+
+    /**
+     * @return the number of entries in this map
+     */
+    public abstract int size();
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the value for the given key or <code>null</code> if there is none
+     */
+    public abstract V get(int key);
+
+    public abstract boolean containsKey(int key);
+
+    /**
+     * Associates the value with the key, replacing any previous value.
+     *
+     * @return the previous value for the key or <code>null</code> if there was none
+     */
+    public abstract V put(int key, V value);
+
+    /**
+     * Removes the entry for the given key.
+     *
+     * @return the removed value or <code>null</code> if there was none
+     */
+    public abstract V remove(int key);
+
+    public abstract void clear();
+
+    /**
+     * @return the lowest key
+     * @throws NoSuchElementException if this map is empty
+     */
+    public abstract int firstKey();
+
+    /**
+     * @return the highest key
+     * @throws NoSuchElementException if this map is empty
+     */
+    public abstract int lastKey();
+
+    /**
+     * @return the number of keys which are less than the given key
+     */
+    public abstract int headSize(int key);
+
+    /**
+     * @param fromKey the lowest key, inclusive
+     * @param toKey the highest key, exclusive
+     * @return a new list with the values of the keys in the given range in ascending key order
+     */
+    public abstract List<V> values(int fromKey, int toKey);
+
+    /**
+     * @return a view of the values in ascending key order. The iterator of the
+     *  view supports removal, otherwise the map must not be modified while iterating.
+     */
+    public abstract Collection<V> values();
+}
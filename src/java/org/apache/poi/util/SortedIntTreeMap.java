@@ -0,0 +1,91 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * A {@link SortedIntMap} backed by a {@link TreeMap}, boxing the keys.
+ *
+ * @param <V> the type of the values
+ */
+@Internal
+public class SortedIntTreeMap<V> extends SortedIntMap<V> {
+    private final TreeMap<Integer, V> _map = new TreeMap<Integer, V>();
+
+    @Override
+    public int size() {
+        return _map.size();
+    }
+
+    @Override
+    public V get(int key) {
+        return _map.get(key);
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return _map.containsKey(key);
+    }
+
+    @Override
+    public V put(int key, V value) {
+        return _map.put(key, value);
+    }
+
+    @Override
+    public V remove(int key) {
+        return _map.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        _map.clear();
+    }
+
+    @Override
+    public int firstKey() {
+        return _map.firstKey();
+    }
+
+    @Override
+    public int lastKey() {
+        return _map.lastKey();
+    }
+
+    @Override
+    public int headSize(int key) {
+        return _map.headMap(key).size();
+    }
+
+    @Override
+    public List<V> values(int fromKey, int toKey) {
+        if (fromKey >= toKey) {
+            return new ArrayList<V>(0);
+        }
+        return new ArrayList<V>(_map.subMap(fromKey, toKey).values());
+    }
+
+    @Override
+    public Collection<V> values() {
+        return _map.values();
+    }
+}
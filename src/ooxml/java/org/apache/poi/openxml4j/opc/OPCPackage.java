@@ -292,7 +292,27 @@ public abstract class OPCPackage implements RelationshipSource, Closeable {
 	 */
 	public static OPCPackage open(InputStream in) throws InvalidFormatException,
 			IOException {
-		OPCPackage pack = new ZipPackage(in, PackageAccess.READ_WRITE);
+		return open(in, false);
+	}
+
+	/**
+	 * Open a package, optionally through a temporary file.
+	 *
+	 * When <code>useTempFile</code> is set, the stream is first copied into
+	 * a temporary file, which is then read as a zip file. The parts are then
+	 * only inflated as they are read, instead of all of them being inflated
+	 * into memory while opening the package. The temporary file is deleted
+	 * when the package is closed or reverted.
+	 *
+	 * @param in
+	 *            The InputStream to read the package from
+	 * @param useTempFile
+	 *            whether to read the stream through a temporary file
+	 * @return A PackageBase object
+	 */
+	public static OPCPackage open(InputStream in, boolean useTempFile) throws InvalidFormatException,
+			IOException {
+		OPCPackage pack = new ZipPackage(in, PackageAccess.READ_WRITE, useTempFile);
 		if (pack.partList == null) {
 			pack.getParts();
 		}
@@ -19,11 +19,13 @@ package org.apache.poi.openxml4j.opc;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Enumeration;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
@@ -44,6 +46,7 @@ import org.apache.poi.openxml4j.util.ZipEntrySource;
 import org.apache.poi.openxml4j.util.ZipFileZipEntrySource;
 import org.apache.poi.openxml4j.util.ZipInputStreamZipEntrySource;
 import org.apache.poi.openxml4j.util.ZipSecureFile.ThresholdInputStream;
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
 import org.apache.poi.util.TempFile;
@@ -61,6 +64,12 @@ public final class ZipPackage extends Package {
      */
     private final ZipEntrySource zipArchive;
 
+    /**
+     * Whether the zip archive has to be closed when the package is,
+     *  as it is held in a temporary file
+     */
+    private boolean closeArchiveOnClose;
+
     /**
      * Constructor. Creates a new, empty ZipPackage.
      */
@@ -88,10 +97,70 @@ public final class ZipPackage extends Package {
      *             ZipInputStream.
      */
     ZipPackage(InputStream in, PackageAccess access) throws IOException {
+        this(in, access, false);
+    }
+
+    /**
+     * Constructor. Opens a Zip based Open XML document from
+     *  an InputStream, optionally through a temporary file.
+     *
+     * @param in
+     *            Zip input stream to load.
+     * @param access
+     *            The package access mode.
+     * @param useTempFile
+     *            whether to copy the stream into a temporary file, which is
+     *            then read as a zip file and deleted when the package is closed
+     */
+    ZipPackage(InputStream in, PackageAccess access, boolean useTempFile) throws IOException {
         super(access);
-        @SuppressWarnings("resource")
-        ThresholdInputStream zis = ZipHelper.openZipStream(in);
-        this.zipArchive = new ZipInputStreamZipEntrySource(zis);
+        if (useTempFile) {
+            this.zipArchive = openThroughTempFile(in);
+            this.closeArchiveOnClose = true;
+        } else {
+            @SuppressWarnings("resource")
+            ThresholdInputStream zis = ZipHelper.openZipStream(in);
+            this.zipArchive = new ZipInputStreamZipEntrySource(zis);
+        }
+    }
+
+    /**
+     * Copies the stream into a temporary file, and opens that as a zip file,
+     *  which is deleted again once it is closed.
+     */
+    @SuppressWarnings("resource")
+    private static ZipEntrySource openThroughTempFile(InputStream in) throws IOException {
+        File tempFile = TempFile.createTempFile("poi-package", ".zip");
+        boolean deletedOnClose = false;
+        try {
+            FileOutputStream out = new FileOutputStream(tempFile);
+            try {
+                IOUtils.copy(in, out);
+            } finally {
+                out.close();
+                in.close();
+            }
+
+            try {
+                ZipFile zipFile = ZipHelper.openTempZipFile(tempFile);
+                deletedOnClose = true;
+                return new ZipFileZipEntrySource(zipFile);
+            } catch (ZipException e) {
+                // same as for files, fall back to stream processing
+                logger.log(POILogger.WARN, "Error in zip stream - falling back to stream processing (i.e. ignoring zip central directory)");
+                // the entries are read into memory, so the file can be closed and deleted right away
+                FileInputStream fis = new FileInputStream(tempFile);
+                try {
+                    return new ZipInputStreamZipEntrySource(ZipHelper.openZipStream(fis));
+                } finally {
+                    fis.close();
+                }
+            }
+        } finally {
+            if (!deletedOnClose && !tempFile.delete()) {
+                logger.log(POILogger.WARN, "The temporary file: '" + tempFile.getAbsolutePath() + "' cannot be deleted");
+            }
+        }
     }
 
     /**
@@ -369,6 +438,21 @@ public final class ZipPackage extends Package {
         // Do nothing
     }
 
+    /**
+     * Closes the package as described for {@link OPCPackage#close()}, and frees
+     *  the temporary file if the package has been read through one.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (closeArchiveOnClose) {
+                this.zipArchive.close();
+            }
+        }
+    }
+
     /**
      * Close and save the package.
      *
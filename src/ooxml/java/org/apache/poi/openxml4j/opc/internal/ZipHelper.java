@@ -257,6 +257,28 @@ public final class ZipHelper {
         return new ZipSecureFile(file);
     }
 
+    /**
+     * Opens the specified temporary file as a secure zip. The file is
+     *  deleted again when the zip is closed, or right away where the
+     *  platform allows this.
+     *
+     * @param file
+     *            The temporary file to open.
+     * @return The zip archive freshly open.
+     */
+    public static ZipFile openTempZipFile(File file) throws IOException {
+        // Peek at the first few bytes to sanity check
+        FileInputStream input = new FileInputStream(file);
+        try {
+            verifyZipHeader(input);
+        } finally {
+            input.close();
+        }
+
+        // Open as a proper zip file
+        return new ZipSecureFile(file, ZipFile.OPEN_READ | ZipFile.OPEN_DELETE);
+    }
+
     /**
      * Retrieve and open as a secure zip file with the specified path.
      *
@@ -20,6 +20,7 @@ package org.apache.poi.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
@@ -79,25 +80,48 @@ public final class DocumentHelper {
     /**
      * Creates a new document builder, with sensible defaults
      */
-    public static synchronized DocumentBuilder newDocumentBuilder() {
+    public static DocumentBuilder newDocumentBuilder() {
         try {
-            DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-            documentBuilder.setEntityResolver(SAXHelper.IGNORING_ENTITY_RESOLVER);
-            documentBuilder.setErrorHandler(new DocHelperErrorHandler());
+            DocumentBuilder documentBuilder = documentBuilderFactory.get().newDocumentBuilder();
+            setDefaultHandlers(documentBuilder);
+            createdBuilders.incrementAndGet();
             return documentBuilder;
         } catch (ParserConfigurationException e) {
             throw new IllegalStateException("cannot create a DocumentBuilder", e);
         }
     }
 
-    private static final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-    static {
-        documentBuilderFactory.setNamespaceAware(true);
-        documentBuilderFactory.setValidating(false);
-        trySetSAXFeature(documentBuilderFactory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
-        trySetXercesSecurityManager(documentBuilderFactory);
+    /**
+     * Returns how many DocumentBuilders have been created so far. Once every
+     *  parsing thread has its pooled builder, this stays the same for calls
+     *  to readDocument() - a steadily growing count shows that builders
+     *  are not being reused.
+     */
+    public static long getCreatedDocumentBuilderCount() {
+        return createdBuilders.get();
     }
 
+    private static void setDefaultHandlers(DocumentBuilder documentBuilder) {
+        documentBuilder.setEntityResolver(SAXHelper.IGNORING_ENTITY_RESOLVER);
+        documentBuilder.setErrorHandler(new DocHelperErrorHandler());
+    }
+
+    // DocumentBuilderFactory isn't thread safe, so each thread gets its own
+    private static final ThreadLocal<DocumentBuilderFactory> documentBuilderFactory = new ThreadLocal<DocumentBuilderFactory>() {
+        @Override
+        protected DocumentBuilderFactory initialValue() {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setValidating(false);
+            trySetSAXFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            trySetXercesSecurityManager(factory);
+            return factory;
+        }
+    };
+
+    private static final ThreadLocal<DocumentBuilder> idleBuilder = new ThreadLocal<DocumentBuilder>();
+    private static final AtomicLong createdBuilders = new AtomicLong();
+
     private static void trySetSAXFeature(DocumentBuilderFactory dbf, String feature, boolean enabled) {
         try {
             dbf.setFeature(feature, enabled);
@@ -129,32 +153,66 @@ public final class DocumentHelper {
 
     /**
      * Parses the given stream via the default (sensible)
-     * DocumentBuilder
+     * DocumentBuilder, which is pooled per thread
      * @param inp Stream to read the XML data from
      * @return the parsed Document 
      */
     public static Document readDocument(InputStream inp) throws IOException, SAXException {
-        return newDocumentBuilder().parse(inp);
+        DocumentBuilder documentBuilder = takeDocumentBuilder();
+        Document doc = documentBuilder.parse(inp);
+        returnDocumentBuilder(documentBuilder);
+        return doc;
     }
 
     /**
      * Parses the given stream via the default (sensible)
-     * DocumentBuilder
+     * DocumentBuilder, which is pooled per thread
      * @param inp sax source to read the XML data from
      * @return the parsed Document 
      */
     public static Document readDocument(InputSource inp) throws IOException, SAXException {
-        return newDocumentBuilder().parse(inp);
+        DocumentBuilder documentBuilder = takeDocumentBuilder();
+        Document doc = documentBuilder.parse(inp);
+        returnDocumentBuilder(documentBuilder);
+        return doc;
+    }
+
+    /**
+     * Takes the idle builder of this thread, or creates a new one if there is
+     *  none, e.g. as it is in use further up the stack
+     */
+    private static DocumentBuilder takeDocumentBuilder() {
+        DocumentBuilder documentBuilder = idleBuilder.get();
+        if (documentBuilder == null) {
+            return newDocumentBuilder();
+        }
+        idleBuilder.set(null);
+        return documentBuilder;
+    }
+
+    /**
+     * Resets a builder which has parsed without errors and makes it
+     *  the idle builder of this thread
+     */
+    private static void returnDocumentBuilder(DocumentBuilder documentBuilder) {
+        documentBuilder.reset();
+        setDefaultHandlers(documentBuilder);
+        idleBuilder.set(documentBuilder);
     }
 
     // must only be used to create empty documents, do not use it for parsing!
-    private static final DocumentBuilder documentBuilderSingleton = newDocumentBuilder();
+    private static final ThreadLocal<DocumentBuilder> emptyDocumentBuilder = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            return newDocumentBuilder();
+        }
+    };
 
     /**
      * Creates a new DOM Document
      */
-    public static synchronized Document createDocument() {
-        return documentBuilderSingleton.newDocument();
+    public static Document createDocument() {
+        return emptyDocumentBuilder.get().newDocument();
     }
 
     /**
@@ -20,15 +20,18 @@ package org.apache.poi.util;
 import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
 
+import org.xml.sax.ContentHandler;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 
 /**
@@ -42,13 +45,51 @@ public final class SAXHelper {
     /**
      * Creates a new SAX XMLReader, with sensible defaults
      */
-    public static synchronized XMLReader newXMLReader() throws SAXException, ParserConfigurationException {
-        XMLReader xmlReader = saxFactory.newSAXParser().getXMLReader();
+    public static XMLReader newXMLReader() throws SAXException, ParserConfigurationException {
+        XMLReader xmlReader = saxFactory.get().newSAXParser().getXMLReader();
         xmlReader.setEntityResolver(IGNORING_ENTITY_RESOLVER);
         trySetSAXFeature(xmlReader, XMLConstants.FEATURE_SECURE_PROCESSING, true);
         trySetXercesSecurityManager(xmlReader);
+        createdReaders.incrementAndGet();
         return xmlReader;
     }
+
+    /**
+     * Parses the given source into the given handler, with an XMLReader
+     *  with the same defaults as {@link #newXMLReader()}. The reader is
+     *  pooled per thread and reused by the next parse once this one is
+     *  done, nested parses get a reader of their own.
+     *
+     * @param source the XML data to parse
+     * @param handler the handler receiving the SAX events
+     */
+    public static void parse(InputSource source, ContentHandler handler)
+    throws IOException, SAXException, ParserConfigurationException {
+        XMLReader xmlReader = idleReader.get();
+        if (xmlReader == null) {
+            xmlReader = newXMLReader();
+        } else {
+            idleReader.set(null);
+        }
+
+        xmlReader.setContentHandler(handler);
+        xmlReader.parse(source);
+
+        // Only hand the reader on if the parse went fine, and
+        //  don't keep the handler reachable from the pool
+        xmlReader.setContentHandler(NO_OP_HANDLER);
+        idleReader.set(xmlReader);
+    }
+
+    /**
+     * Returns how many XMLReaders have been created so far. Once every
+     *  parsing thread has its pooled reader, this stays the same for calls
+     *  to {@link #parse(InputSource, ContentHandler)} - a steadily growing
+     *  count shows that readers are not being reused.
+     */
+    public static long getCreatedXMLReaderCount() {
+        return createdReaders.get();
+    }
     
     static final EntityResolver IGNORING_ENTITY_RESOLVER = new EntityResolver() {
         @Override
@@ -58,12 +99,21 @@ public final class SAXHelper {
         }
     };
     
-    private static final SAXParserFactory saxFactory;
-    static {
-        saxFactory = SAXParserFactory.newInstance();
-        saxFactory.setValidating(false);
-        saxFactory.setNamespaceAware(true);
-    }
+    private static final ContentHandler NO_OP_HANDLER = new DefaultHandler();
+
+    // SAXParserFactory isn't thread safe, so each thread gets its own
+    private static final ThreadLocal<SAXParserFactory> saxFactory = new ThreadLocal<SAXParserFactory>() {
+        @Override
+        protected SAXParserFactory initialValue() {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setValidating(false);
+            factory.setNamespaceAware(true);
+            return factory;
+        }
+    };
+
+    private static final ThreadLocal<XMLReader> idleReader = new ThreadLocal<XMLReader>();
+    private static final AtomicLong createdReaders = new AtomicLong();
             
     private static void trySetSAXFeature(XMLReader xmlReader, String feature, boolean enabled) {
         try {
@@ -33,7 +33,6 @@ import org.apache.poi.xssf.usermodel.XSSFRelation;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
 /**
@@ -103,14 +102,7 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
      */
     public ReadOnlySharedStringsTable(OPCPackage pkg)
             throws IOException, SAXException {
-        ArrayList<PackagePart> parts =
-                pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
-
-        // Some workbooks have no shared strings table.
-        if (parts.size() > 0) {
-            PackagePart sstPart = parts.get(0);
-            readFrom(sstPart.getInputStream());
-        }
+        readFrom(pkg);
     }
 
     /**
@@ -130,6 +122,26 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
     throws IOException, SAXException {
         this(part);
     }
+
+    /**
+     * For subclasses, which read the strings themselves once they are set up
+     */
+    ReadOnlySharedStringsTable() {
+    }
+
+    /**
+     * Read the shared strings table of the package, if it has one.
+     */
+    void readFrom(OPCPackage pkg) throws IOException, SAXException {
+        ArrayList<PackagePart> parts =
+                pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+
+        // Some workbooks have no shared strings table.
+        if (parts.size() > 0) {
+            PackagePart sstPart = parts.get(0);
+            readFrom(sstPart.getInputStream());
+        }
+    }
     
     /**
      * Read this shared strings table from an XML file.
@@ -143,9 +155,7 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
         if (is.available() > 0) {
             InputSource sheetSource = new InputSource(is);
             try {
-                XMLReader sheetParser = SAXHelper.newXMLReader();
-                sheetParser.setContentHandler(this);
-                sheetParser.parse(sheetSource);
+                SAXHelper.parse(sheetSource, this);
             } catch(ParserConfigurationException e) {
                 throw new RuntimeException("SAX parser appears to be broken - " + e.getMessage());
             }
@@ -188,6 +198,22 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
         return strings;
     }
 
+    /**
+     * Called when the table starts, before any of the strings are added
+     *
+     * @param expectedUniqueCount the number of unique strings the table claims to have
+     */
+    void startStrings(int expectedUniqueCount) {
+        this.strings = new ArrayList<String>(expectedUniqueCount);
+    }
+
+    /**
+     * Called for each string of the table, in order
+     */
+    void addString(String str) {
+        strings.add(str);
+    }
+
     //// ContentHandler methods ////
 
     private StringBuffer characters;
@@ -205,7 +231,7 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
             String uniqueCount = attributes.getValue("uniqueCount");
             if(uniqueCount != null) this.uniqueCount = Integer.parseInt(uniqueCount);
 
-            this.strings = new ArrayList<String>(this.uniqueCount);
+            startStrings(this.uniqueCount);
 
             characters = new StringBuffer();
         } else if ("si".equals(localName)) {
@@ -222,7 +248,7 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
         }
         
         if ("si".equals(localName)) {
-            strings.add(characters.toString());
+            addString(characters.toString());
         } else if ("t".equals(localName)) {
            tIsOpen = false;
         }
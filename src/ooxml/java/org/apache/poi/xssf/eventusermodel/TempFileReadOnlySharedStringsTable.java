@@ -0,0 +1,340 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.POIXMLException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+import org.apache.poi.util.StringUtil;
+import org.apache.poi.util.SuppressForbidden;
+import org.apache.poi.util.TempFile;
+import org.xml.sax.SAXException;
+
+/**
+ * A {@link ReadOnlySharedStringsTable} which keeps the strings in a temp
+ *  file instead of on the heap, for workbooks with very many unique strings.
+ * <p>
+ * While the table is parsed, the strings are appended UTF-8 encoded to a
+ *  data file, and the offset of each string to an index file. Both files are
+ *  then memory mapped, and {@link #getEntryAt(int)} decodes the strings on
+ *  demand. Only a small LRU cache of recently used strings is kept in memory,
+ *  so the heap usage doesn't depend on the number of strings.
+ * <p>
+ * The table has to be closed once done with, to release the temp files.
+ */
+public class TempFileReadOnlySharedStringsTable extends ReadOnlySharedStringsTable implements Closeable {
+    private static final POILogger logger = POILogFactory.getLogger(TempFileReadOnlySharedStringsTable.class);
+
+    /**
+     * The default number of strings kept in the in-memory LRU cache
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    // the data file is mapped in segments, as a single mapping is limited to 2GB
+    private static final int SEGMENT_SHIFT = 30;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+    private final File _dataFile;
+    private final File _indexFile;
+    private OutputStream _dataOut;
+    private DataOutputStream _indexOut;
+    private long _dataLength;
+    private int _size;
+
+    private ByteBuffer[] _data;
+    private LongBuffer _index;
+    private byte[] _entryBuffer = new byte[256];
+    // the mapped buffers aren't released when the channel is closed, so they
+    //  are unmapped on close(), as FileBackedDataSource does
+    private final List<ByteBuffer> _buffersToClean = new ArrayList<ByteBuffer>();
+
+    private final Map<Integer, String> _cache;
+
+    /**
+     * @param pkg the package to read the shared strings table of
+     */
+    public TempFileReadOnlySharedStringsTable(OPCPackage pkg) throws IOException, SAXException {
+        this(pkg, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param pkg the package to read the shared strings table of
+     * @param cacheSize the number of recently used strings kept in memory
+     */
+    public TempFileReadOnlySharedStringsTable(OPCPackage pkg, int cacheSize) throws IOException, SAXException {
+        this(cacheSize);
+        try {
+            readFrom(pkg);
+            mapFiles();
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (SAXException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param part the shared strings part
+     * @param cacheSize the number of recently used strings kept in memory
+     */
+    public TempFileReadOnlySharedStringsTable(PackagePart part, int cacheSize) throws IOException, SAXException {
+        this(cacheSize);
+        try {
+            readFrom(part.getInputStream());
+            mapFiles();
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (SAXException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private TempFileReadOnlySharedStringsTable(final int cacheSize) throws IOException {
+        super();
+        _cache = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        _dataFile = TempFile.createTempFile("poi-sst", ".dat");
+        _dataOut = new BufferedOutputStream(new FileOutputStream(_dataFile));
+        _indexFile = TempFile.createTempFile("poi-sst", ".idx");
+        _indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_indexFile)));
+    }
+
+    /**
+     * Read this shared strings table from an XML file. The table is only
+     *  read once, while it is constructed.
+     */
+    @Override
+    public void readFrom(InputStream is) throws IOException, SAXException {
+        if (_dataOut == null) {
+            throw new IllegalStateException("The shared strings have already been read");
+        }
+        super.readFrom(is);
+    }
+
+    @Override
+    void startStrings(int expectedUniqueCount) {
+        // the strings go to the temp files
+    }
+
+    @Override
+    void addString(String str) {
+        byte[] bytes = str.getBytes(StringUtil.UTF8);
+        try {
+            _indexOut.writeLong(_dataLength);
+            _dataOut.write(bytes);
+        } catch (IOException e) {
+            throw new POIXMLException(e);
+        }
+        _dataLength += bytes.length;
+        _size++;
+    }
+
+    /**
+     * Finishes the files and maps them for reading
+     */
+    private void mapFiles() throws IOException {
+        // the end of the last string
+        _indexOut.writeLong(_dataLength);
+        _indexOut.close();
+        _indexOut = null;
+        _dataOut.close();
+        _dataOut = null;
+
+        RandomAccessFile index = new RandomAccessFile(_indexFile, "r");
+        try {
+            FileChannel channel = index.getChannel();
+            ByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            _buffersToClean.add(mapping);
+            _index = mapping.asLongBuffer();
+        } finally {
+            index.close();
+        }
+
+        RandomAccessFile data = new RandomAccessFile(_dataFile, "r");
+        try {
+            FileChannel channel = data.getChannel();
+            _data = new ByteBuffer[(int)((_dataLength + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < _data.length; i++) {
+                long position = (long)i << SEGMENT_SHIFT;
+                _data[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(SEGMENT_SIZE, _dataLength - position));
+                _buffersToClean.add(_data[i]);
+            }
+        } finally {
+            data.close();
+        }
+    }
+
+    /**
+     * Returns the number of strings in the table, which may differ from
+     *  {@link #getUniqueCount()} if the table doesn't state it correctly.
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Return the string at a given index.
+     * Formatting is ignored.
+     *
+     * @param idx index of item to return.
+     * @return the item at the specified position in this Shared String table.
+     */
+    @Override
+    public synchronized String getEntryAt(int idx) {
+        if (idx < 0 || idx >= _size) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + _size);
+        }
+        if (_index == null) {
+            throw new IllegalStateException("The shared strings table is closed");
+        }
+        Integer key = Integer.valueOf(idx);
+        String str = _cache.get(key);
+        if (str == null) {
+            long start = _index.get(idx);
+            int len = (int)(_index.get(idx + 1) - start);
+            if (_entryBuffer.length < len) {
+                _entryBuffer = new byte[Math.max(len, _entryBuffer.length * 2)];
+            }
+            readData(start, _entryBuffer, len);
+            str = new String(_entryBuffer, 0, len, StringUtil.UTF8);
+            _cache.put(key, str);
+        }
+        return str;
+    }
+
+    private void readData(long position, byte[] buf, int len) {
+        int read = 0;
+        while (read < len) {
+            long pos = position + read;
+            ByteBuffer segment = _data[(int)(pos >>> SEGMENT_SHIFT)].duplicate();
+            segment.position((int)(pos & (SEGMENT_SIZE - 1)));
+            int chunk = Math.min(len - read, segment.remaining());
+            segment.get(buf, read, chunk);
+            read += chunk;
+        }
+    }
+
+    /**
+     * Provide access to the strings of this table, which are decoded
+     *  on each access.
+     *
+     * @return a read only list of the strings of this table
+     */
+    @Override
+    public List<String> getItems() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return getEntryAt(index);
+            }
+
+            @Override
+            public int size() {
+                return _size;
+            }
+        };
+    }
+
+    /**
+     * Releases the mapped files and deletes them
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        _index = null;
+        _data = null;
+        _cache.clear();
+        for (ByteBuffer buffer : _buffersToClean) {
+            unmap(buffer);
+        }
+        _buffersToClean.clear();
+        try {
+            if (_indexOut != null) {
+                _indexOut.close();
+                _indexOut = null;
+            }
+        } finally {
+            if (_dataOut != null) {
+                _dataOut.close();
+                _dataOut = null;
+            }
+        }
+        deleteTempFile(_indexFile);
+        deleteTempFile(_dataFile);
+    }
+
+    private static void deleteTempFile(File file) {
+        // if unmapping failed, the file can't be deleted on all platforms
+        //  until the buffers are garbage collected, so retry on exit
+        if (file.exists() && !file.delete()) {
+            logger.log(POILogger.WARN, "Can't delete temporary file: " + file);
+            file.deleteOnExit();
+        }
+    }
+
+    // need to use reflection to avoid depending on the sun.nio internal API
+    private static void unmap(final ByteBuffer buffer) {
+        AccessController.doPrivileged(new PrivilegedAction<Void>() {
+            @Override
+            @SuppressForbidden("Java 9 Jigsaw whitelists access to sun.misc.Cleaner, so setAccessible works")
+            public Void run() {
+                try {
+                    final Method getCleanerMethod = buffer.getClass().getMethod("cleaner");
+                    getCleanerMethod.setAccessible(true);
+                    final Object cleaner = getCleanerMethod.invoke(buffer);
+                    if (cleaner != null) {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
+                } catch (Exception e) {
+                    logger.log(POILogger.WARN, "Unable to unmap memory mapped ByteBuffer.", e);
+                }
+                return null; // Void
+            }
+        });
+    }
+}
@@ -78,6 +78,8 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
     * Where our text is going
     */
    private final SheetContentsHandler output;
+   // Set if the raw values are wanted instead of formatted ones
+   private final RawSheetContentsHandler rawOutput;
 
    // Set when V start element is seen
    private boolean vIsOpen;
@@ -101,6 +103,12 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
    private String cellRef;
    private boolean formulasNotResults;
 
+   // Only tracked for raw values
+   private int cellColumn;
+   private int nextColumn;
+   private int cellStyleIndex;
+   private boolean stringFormulaResult;
+
    // Gathers characters as they are seen.
    private StringBuffer value = new StringBuffer();
    private StringBuffer formula = new StringBuffer();
@@ -125,6 +133,8 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        this.commentsTable = comments;
        this.sharedStringsTable = strings;
        this.output = sheetContentsHandler;
+       this.rawOutput = (sheetContentsHandler instanceof RawSheetContentsHandler)
+               ? (RawSheetContentsHandler)sheetContentsHandler : null;
        this.formulasNotResults = formulasNotResults;
        this.nextDataType = xssfDataType.NUMBER;
        this.formatter = dataFormatter;
@@ -251,6 +261,7 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
            } else {
                rowNum = nextRowNum;
            }
+           nextColumn = 0;
            output.startRow(rowNum);
        }
        // c => cell
@@ -272,7 +283,14 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
                nextDataType = xssfDataType.SST_STRING;
            else if ("str".equals(cellType))
                nextDataType = xssfDataType.FORMULA;
-           else {
+
+           if (rawOutput != null) {
+               // Raw values only need the indexes, no styles or formats
+               cellColumn = (cellRef != null) ? parseColumn(cellRef) : nextColumn;
+               nextColumn = cellColumn + 1;
+               cellStyleIndex = (cellStyleStr != null) ? Integer.parseInt(cellStyleStr) : 0;
+               stringFormulaResult = "str".equals(cellType);
+           } else if (nextDataType == xssfDataType.NUMBER) {
                // Number, but almost certainly with a special style or format
                XSSFCellStyle style = null;
                if (stylesTable != null) {
@@ -304,7 +322,17 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        String thisStr = null;
 
        // v => contents of a cell
-       if (isTextTag(localName)) {
+       if (isTextTag(localName) && rawOutput != null) {
+           vIsOpen = false;
+
+           // Handle any comments of empty cells before this one
+           checkForEmptyCellComments(EmptyCellCommentsCheckType.CELL);
+           outputRawCell();
+           XSSFComment comment = commentsTable != null ? commentsTable.findCellComment(new CellAddress(cellRef)) : null;
+           if (comment != null) {
+               output.cell(cellRef, null, comment);
+           }
+       } else if (isTextTag(localName)) {
            vIsOpen = false;
            
            // Process the value contents as required, now we have it all
@@ -406,6 +434,83 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
        }
    }
 
+   /**
+    * Output the raw value of the cell just finished
+    */
+   private void outputRawCell() {
+       switch (nextDataType) {
+           case BOOLEAN:
+               rawOutput.booleanCell(rowNum, cellColumn, value.length() > 0 && value.charAt(0) != '0', cellStyleIndex);
+               break;
+
+           case ERROR:
+               rawOutput.errorCell(rowNum, cellColumn, value.toString(), cellStyleIndex);
+               break;
+
+           case FORMULA:
+               if (formulasNotResults) {
+                   rawOutput.textCell(rowNum, cellColumn, formula, cellStyleIndex);
+               } else if (stringFormulaResult) {
+                   rawOutput.textCell(rowNum, cellColumn, value, cellStyleIndex);
+               } else if (value.length() > 0) {
+                   rawOutput.numericCell(rowNum, cellColumn, Double.parseDouble(value.toString()), cellStyleIndex);
+               }
+               break;
+
+           case INLINE_STRING:
+               rawOutput.textCell(rowNum, cellColumn, value, cellStyleIndex);
+               break;
+
+           case SST_STRING:
+               try {
+                   rawOutput.sharedStringCell(rowNum, cellColumn, parseIndex(value), cellStyleIndex);
+               }
+               catch (NumberFormatException ex) {
+                   logger.log(POILogger.ERROR, "Failed to parse SST index '" + value, ex);
+               }
+               break;
+
+           case NUMBER:
+               if (value.length() > 0) {
+                   rawOutput.numericCell(rowNum, cellColumn, Double.parseDouble(value.toString()), cellStyleIndex);
+               }
+               break;
+       }
+   }
+
+   /**
+    * Returns the zero based column of a cell reference like "AB12"
+    */
+   private static int parseColumn(String ref) {
+       int column = 0;
+       for (int i = 0; i < ref.length(); i++) {
+           char ch = ref.charAt(i);
+           if (ch < 'A' || ch > 'Z') {
+               break;
+           }
+           column = column * 26 + (ch - 'A' + 1);
+       }
+       return column - 1;
+   }
+
+   /**
+    * Parses a non-negative index without creating a String first
+    */
+   private static int parseIndex(CharSequence chars) {
+       if (chars.length() == 0) {
+           throw new NumberFormatException("Empty index");
+       }
+       int index = 0;
+       for (int i = 0; i < chars.length(); i++) {
+           char ch = chars.charAt(i);
+           if (ch < '0' || ch > '9') {
+               throw new NumberFormatException("Invalid index: " + chars);
+           }
+           index = index * 10 + (ch - '0');
+       }
+       return index;
+   }
+
    /**
     * Captures characters only if a suitable element is open.
     * Originally was just "v"; extended for inlineStr also.
@@ -510,4 +615,31 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
       /** A header or footer has been encountered */
       public void headerFooter(String text, boolean isHeader, String tagName);
    }
+
+   /**
+    * Implement this instead of {@link SheetContentsHandler} to get the raw
+    *  values of the cells, without the cost of formatting them.
+    * <p>
+    * The cells are passed to the typed methods below instead of
+    *  {@link #cell(String, String, XSSFComment)}, with the (zero based)
+    *  row and column and the index of the cell style, which can be used
+    *  to format the value if needed. Formula cells are passed with their
+    *  cached result, or as text if formulas are wanted instead of results.
+    *  <code>cell()</code> is only called for comments, with a null value.
+    */
+   public interface RawSheetContentsHandler extends SheetContentsHandler {
+      /** A number, which may be a date depending on the cell style */
+      public void numericCell(int rowNum, int column, double value, int styleIndex);
+      /** A string with the given index in the shared strings table */
+      public void sharedStringCell(int rowNum, int column, int sharedStringIndex, int styleIndex);
+      /**
+       * An inline string, a string formula result, or a formula. The
+       *  text may be reused once this returns, so copy it if it is kept.
+       */
+      public void textCell(int rowNum, int column, CharSequence text, int styleIndex);
+      /** A boolean */
+      public void booleanCell(int rowNum, int column, boolean value, int styleIndex);
+      /** An error, such as #DIV/0! */
+      public void errorCell(int rowNum, int column, String error, int styleIndex);
+   }
 }
@@ -0,0 +1,379 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Comment;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Hyperlink;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+/**
+ * A read-only cell, as returned by {@link XSSFStreamingSheetReader}.
+ * <p>
+ * The values are typed the same way as for {@link org.apache.poi.xssf.usermodel.XSSFCell},
+ *  formula cells return their cached results. Comments and hyperlinks aren't
+ *  read, and the methods changing the cell throw an {@link UnsupportedOperationException},
+ *  as does {@link #getSheet()}.
+ */
+public final class XSSFStreamingCell implements Cell {
+    private final Row row;
+    private final int column;
+    private final int cellType;
+    private final int valueType;
+    private final String value;
+    private final boolean sharedString;
+    private final String formula;
+    private final String arrayRange;
+    private final int styleIndex;
+    private final ReadOnlySharedStringsTable sharedStringsTable;
+    private final StylesTable stylesTable;
+    private final boolean date1904;
+
+    XSSFStreamingCell(Row row, int column, int cellType, int valueType, String value,
+            boolean sharedString, String formula, String arrayRange, int styleIndex,
+            ReadOnlySharedStringsTable sharedStringsTable, StylesTable stylesTable, boolean date1904) {
+        this.row = row;
+        this.column = column;
+        this.cellType = cellType;
+        this.valueType = valueType;
+        this.value = value;
+        this.sharedString = sharedString;
+        this.formula = formula;
+        this.arrayRange = arrayRange;
+        this.styleIndex = styleIndex;
+        this.sharedStringsTable = sharedStringsTable;
+        this.stylesTable = stylesTable;
+        this.date1904 = date1904;
+    }
+
+    /**
+     * Creates a blank cell
+     */
+    XSSFStreamingCell(Row row, int column, StylesTable stylesTable) {
+        this(row, column, CELL_TYPE_BLANK, CELL_TYPE_BLANK, null, false, null, null, -1, null, stylesTable, false);
+    }
+
+    @Override
+    public int getColumnIndex() {
+        return column;
+    }
+
+    @Override
+    public int getRowIndex() {
+        return row.getRowNum();
+    }
+
+    @Override
+    public Row getRow() {
+        return row;
+    }
+
+    @Override
+    public CellAddress getAddress() {
+        return new CellAddress(getRowIndex(), column);
+    }
+
+    @Override
+    public int getCellType() {
+        return cellType;
+    }
+
+    @Override
+    public int getCachedFormulaResultType() {
+        if (cellType != CELL_TYPE_FORMULA) {
+            throw new IllegalStateException("Only formula cells have cached results");
+        }
+        return valueType;
+    }
+
+    /**
+     * Returns the formula as it is stored in the sheet. Cells using a shared
+     *  formula which is defined in another cell only store an empty string.
+     */
+    @Override
+    public String getCellFormula() {
+        if (cellType != CELL_TYPE_FORMULA) throw typeMismatch(CELL_TYPE_FORMULA, cellType, false);
+        return formula;
+    }
+
+    @Override
+    public double getNumericCellValue() {
+        if (cellType == CELL_TYPE_BLANK) {
+            return 0.0;
+        }
+        checkValueType(CELL_TYPE_NUMERIC);
+        if (value == null || value.length() == 0) {
+            return 0.0;
+        }
+        return Double.parseDouble(value);
+    }
+
+    @Override
+    public Date getDateCellValue() {
+        if (cellType == CELL_TYPE_BLANK) {
+            return null;
+        }
+        return DateUtil.getJavaDate(getNumericCellValue(), date1904);
+    }
+
+    /**
+     * Returns the index of the string in the shared strings table, without
+     *  looking the string up.
+     *
+     * @return the shared string index, or -1 if the cell doesn't hold a shared string
+     */
+    public int getSharedStringIndex() {
+        if (!sharedString || value == null) {
+            return -1;
+        }
+        return Integer.parseInt(value);
+    }
+
+    @Override
+    public RichTextString getRichStringCellValue() {
+        if (cellType == CELL_TYPE_BLANK) {
+            return new XSSFRichTextString("");
+        }
+        checkValueType(CELL_TYPE_STRING);
+        String str = value;
+        if (sharedString) {
+            if (sharedStringsTable == null) {
+                throw new IllegalStateException("Cell " + getAddress() + " refers to a shared string, but there is no shared strings table");
+            }
+            str = sharedStringsTable.getEntryAt(getSharedStringIndex());
+        }
+        return new XSSFRichTextString(str == null ? "" : str);
+    }
+
+    @Override
+    public String getStringCellValue() {
+        return getRichStringCellValue().getString();
+    }
+
+    @Override
+    public boolean getBooleanCellValue() {
+        if (cellType == CELL_TYPE_BLANK) {
+            return false;
+        }
+        checkValueType(CELL_TYPE_BOOLEAN);
+        return value != null && (value.equals("1") || value.equalsIgnoreCase("true"));
+    }
+
+    @Override
+    public byte getErrorCellValue() {
+        if (cellType == CELL_TYPE_BLANK) {
+            return 0;
+        }
+        checkValueType(CELL_TYPE_ERROR);
+        if (value == null || value.length() == 0) {
+            return 0;
+        }
+        return FormulaError.forString(value).getCode();
+    }
+
+    @Override
+    public CellStyle getCellStyle() {
+        if (stylesTable == null) {
+            return null;
+        }
+        if (styleIndex != -1) {
+            return stylesTable.getStyleAt(styleIndex);
+        }
+        return stylesTable.getNumCellStyles() > 0 ? stylesTable.getStyleAt(0) : null;
+    }
+
+    /**
+     * Comments aren't read, so this always returns <code>null</code>
+     */
+    @Override
+    public Comment getCellComment() {
+        return null;
+    }
+
+    /**
+     * Hyperlinks aren't read, so this always returns <code>null</code>
+     */
+    @Override
+    public Hyperlink getHyperlink() {
+        return null;
+    }
+
+    /**
+     * Only the first cell of an array formula knows about it, so this
+     *  is only <code>true</code> for that cell.
+     */
+    @Override
+    public boolean isPartOfArrayFormulaGroup() {
+        return arrayRange != null;
+    }
+
+    @Override
+    public CellRangeAddress getArrayFormulaRange() {
+        if (arrayRange == null) {
+            String ref = new CellReference(this).formatAsString();
+            throw new IllegalStateException("Cell " + ref + " is not part of an array formula.");
+        }
+        return CellRangeAddress.valueOf(arrayRange);
+    }
+
+    /**
+     * Returns a string representation of the cell, like for
+     *  {@link org.apache.poi.xssf.usermodel.XSSFCell}, except
+     *  that dates are returned as numbers.
+     */
+    @Override
+    public String toString() {
+        switch (cellType) {
+            case CELL_TYPE_BLANK:
+                return "";
+            case CELL_TYPE_BOOLEAN:
+                return getBooleanCellValue() ? "TRUE" : "FALSE";
+            case CELL_TYPE_ERROR:
+                return ErrorEval.getText(getErrorCellValue());
+            case CELL_TYPE_FORMULA:
+                return getCellFormula();
+            case CELL_TYPE_NUMERIC:
+                return Double.toString(getNumericCellValue());
+            case CELL_TYPE_STRING:
+                return getStringCellValue();
+            default:
+                return "Unknown Cell Type: " + cellType;
+        }
+    }
+
+    @Override
+    public Sheet getSheet() {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setCellType(int cellType) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setCellValue(double value) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setCellValue(Date value) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setCellValue(Calendar value) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setCellValue(RichTextString value) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setCellValue(String value) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setCellValue(boolean value) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setCellFormula(String formula) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setCellErrorValue(byte value) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setCellStyle(CellStyle style) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setAsActiveCell() {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setCellComment(Comment comment) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void removeCellComment() {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void setHyperlink(Hyperlink link) {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    @Override
+    public void removeHyperlink() {
+        throw XSSFStreamingRow.readOnly();
+    }
+
+    private void checkValueType(int expectedTypeCode) {
+        if (valueType != expectedTypeCode) {
+            throw typeMismatch(expectedTypeCode, valueType, cellType == CELL_TYPE_FORMULA);
+        }
+    }
+
+    private static String getCellTypeName(int cellTypeCode) {
+        switch (cellTypeCode) {
+            case CELL_TYPE_BLANK:   return "blank";
+            case CELL_TYPE_STRING:  return "text";
+            case CELL_TYPE_BOOLEAN: return "boolean";
+            case CELL_TYPE_ERROR:   return "error";
+            case CELL_TYPE_NUMERIC: return "numeric";
+            case CELL_TYPE_FORMULA: return "formula";
+        }
+        return "#unknown cell type (" + cellTypeCode + ")#";
+    }
+
+    /**
+     * Used to help format error messages
+     */
+    private static RuntimeException typeMismatch(int expectedTypeCode, int actualTypeCode, boolean isFormulaCell) {
+        String msg = "Cannot get a "
+            + getCellTypeName(expectedTypeCode) + " value from a "
+            + getCellTypeName(actualTypeCode) + " " + (isFormulaCell ? "formula " : "") + "cell";
+        return new IllegalStateException(msg);
+    }
+}
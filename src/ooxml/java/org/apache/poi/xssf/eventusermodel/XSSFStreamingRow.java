@@ -0,0 +1,210 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.model.StylesTable;
+
+/**
+ * A read-only row, as returned by {@link XSSFStreamingSheetReader}.
+ * <p>
+ * All the methods changing the row throw an {@link UnsupportedOperationException},
+ *  as does {@link #getSheet()}, as the sheet is never loaded.
+ */
+public final class XSSFStreamingRow implements Row {
+    private final int rowNum;
+    private final float heightInPoints;
+    private final boolean hidden;
+    private final int outlineLevel;
+    private final int styleIndex;
+    private final StylesTable stylesTable;
+    private final SortedMap<Integer, Cell> cells = new TreeMap<Integer, Cell>();
+
+    XSSFStreamingRow(int rowNum, float heightInPoints, boolean hidden, int outlineLevel,
+            int styleIndex, StylesTable stylesTable) {
+        this.rowNum = rowNum;
+        this.heightInPoints = heightInPoints;
+        this.hidden = hidden;
+        this.outlineLevel = outlineLevel;
+        this.styleIndex = styleIndex;
+        this.stylesTable = stylesTable;
+    }
+
+    void addCell(Cell cell) {
+        cells.put(cell.getColumnIndex(), cell);
+    }
+
+    @Override
+    public int getRowNum() {
+        return rowNum;
+    }
+
+    @Override
+    public Cell getCell(int cellnum) {
+        return getCell(cellnum, RETURN_NULL_AND_BLANK);
+    }
+
+    @Override
+    public Cell getCell(int cellnum, MissingCellPolicy policy) {
+        if(cellnum < 0) throw new IllegalArgumentException("Cell index must be >= 0");
+
+        Cell cell = cells.get(cellnum);
+        if(policy == RETURN_NULL_AND_BLANK) {
+            return cell;
+        }
+        if(policy == RETURN_BLANK_AS_NULL) {
+            if(cell == null) return cell;
+            if(cell.getCellType() == Cell.CELL_TYPE_BLANK) {
+                return null;
+            }
+            return cell;
+        }
+        if(policy == CREATE_NULL_AS_BLANK) {
+            if(cell == null) {
+                // a blank view, which isn't added to the row
+                return new XSSFStreamingCell(this, cellnum, stylesTable);
+            }
+            return cell;
+        }
+        throw new IllegalArgumentException("Illegal policy " + policy + " (" + policy.id + ")");
+    }
+
+    /**
+     * @return the first column with a cell, or -1 if the row has no cells
+     */
+    @Override
+    public short getFirstCellNum() {
+        return (short)(cells.isEmpty() ? -1 : cells.firstKey());
+    }
+
+    /**
+     * @return one more than the last column with a cell, or -1 if the row has no cells
+     */
+    @Override
+    public short getLastCellNum() {
+        return (short)(cells.isEmpty() ? -1 : cells.lastKey() + 1);
+    }
+
+    @Override
+    public int getPhysicalNumberOfCells() {
+        return cells.size();
+    }
+
+    @Override
+    public boolean getZeroHeight() {
+        return hidden;
+    }
+
+    /**
+     * @return the height in twips, or -1 if the row doesn't set its height
+     */
+    @Override
+    public short getHeight() {
+        return (short)(heightInPoints == -1 ? -1 : heightInPoints * 20);
+    }
+
+    /**
+     * @return the height in points, or -1 if the row doesn't set its height
+     */
+    @Override
+    public float getHeightInPoints() {
+        return heightInPoints;
+    }
+
+    @Override
+    public boolean isFormatted() {
+        return styleIndex != -1;
+    }
+
+    @Override
+    public CellStyle getRowStyle() {
+        if (styleIndex == -1 || stylesTable == null) return null;
+        return stylesTable.getStyleAt(styleIndex);
+    }
+
+    @Override
+    public int getOutlineLevel() {
+        return outlineLevel;
+    }
+
+    @Override
+    public Iterator<Cell> cellIterator() {
+        return Collections.unmodifiableCollection(cells.values()).iterator();
+    }
+
+    @Override
+    public Iterator<Cell> iterator() {
+        return cellIterator();
+    }
+
+    @Override
+    public Sheet getSheet() {
+        throw readOnly();
+    }
+
+    @Override
+    public Cell createCell(int column) {
+        throw readOnly();
+    }
+
+    @Override
+    public Cell createCell(int column, int type) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeCell(Cell cell) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setRowNum(int rowNum) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setHeight(short height) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setZeroHeight(boolean zHeight) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setHeightInPoints(float height) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setRowStyle(CellStyle style) {
+        throw readOnly();
+    }
+
+    static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Streamed rows are read-only");
+    }
+}
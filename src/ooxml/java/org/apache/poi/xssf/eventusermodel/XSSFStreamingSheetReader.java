@@ -0,0 +1,278 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.POIXMLException;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.model.StylesTable;
+
+/**
+ * A pull based, read-only streaming reader for the data of a single sheet,
+ *  as returned by {@link XSSFReader#getSheetsData()}.
+ * <p>
+ * The rows are returned one at a time as {@link Row}s with {@link Cell}s,
+ *  so code written against the usermodel interfaces can read large sheets
+ *  in constant memory. Only the row just returned is held in memory, and
+ *  the rows can't be modified. String values are taken from the shared
+ *  strings table and the numbers are only parsed once asked for.
+ * <p>
+ * Rows which aren't stored in the sheet, i.e. empty ones, are skipped.
+ */
+public class XSSFStreamingSheetReader implements Iterator<Row>, Closeable {
+    private final InputStream sheetInputStream;
+    private final XMLStreamReader xmlReader;
+    private final ReadOnlySharedStringsTable sharedStringsTable;
+    private final StylesTable stylesTable;
+    private final boolean date1904;
+
+    private XSSFStreamingRow nextRow;
+    private boolean sheetDataDone;
+    // some sheets do not have rowNums, Excel can read them so we should try to handle them correctly as well
+    private int nextRowNum;
+
+    /**
+     * Creates a reader for a sheet of a workbook using the 1900 date system
+     *
+     * @param sheetInputStream the sheet part
+     * @param strings the shared strings of the workbook, may be <code>null</code> if it has none
+     * @param styles the styles of the workbook, may be <code>null</code>
+     */
+    public XSSFStreamingSheetReader(InputStream sheetInputStream,
+            ReadOnlySharedStringsTable strings, StylesTable styles) throws XMLStreamException {
+        this(sheetInputStream, strings, styles, false);
+    }
+
+    /**
+     * Creates a reader for a sheet of a workbook
+     *
+     * @param sheetInputStream the sheet part
+     * @param strings the shared strings of the workbook, may be <code>null</code> if it has none
+     * @param styles the styles of the workbook, may be <code>null</code>
+     * @param date1904 whether the workbook uses the 1904 date system
+     */
+    public XSSFStreamingSheetReader(InputStream sheetInputStream,
+            ReadOnlySharedStringsTable strings, StylesTable styles, boolean date1904) throws XMLStreamException {
+        this.sheetInputStream = sheetInputStream;
+        this.sharedStringsTable = strings;
+        this.stylesTable = styles;
+        this.date1904 = date1904;
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        this.xmlReader = factory.createXMLStreamReader(sheetInputStream);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextRow == null && !sheetDataDone) {
+            try {
+                nextRow = readRow();
+            } catch (XMLStreamException e) {
+                throw new POIXMLException("Unable to read the sheet data", e);
+            }
+            sheetDataDone = (nextRow == null);
+        }
+        return nextRow != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = nextRow;
+        nextRow = null;
+        return row;
+    }
+
+    /**
+     * Unsupported, the sheet is read-only
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("The sheet is read-only");
+    }
+
+    /**
+     * Closes the reader and the sheet stream
+     */
+    @Override
+    public void close() throws IOException {
+        sheetDataDone = true;
+        nextRow = null;
+        try {
+            xmlReader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage());
+        } finally {
+            sheetInputStream.close();
+        }
+    }
+
+    /**
+     * Moves to the next row start element, and reads the row up to its end element.
+     *  Returns <code>null</code> once the sheet data is done.
+     */
+    private XSSFStreamingRow readRow() throws XMLStreamException {
+        while (xmlReader.hasNext()) {
+            int event = xmlReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT && isSpreadsheetElement("row")) {
+                return parseRow();
+            }
+            if (event == XMLStreamConstants.END_ELEMENT && isSpreadsheetElement("sheetData")) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private XSSFStreamingRow parseRow() throws XMLStreamException {
+        String rowNumStr = getAttribute("r");
+        int rowNum = (rowNumStr != null) ? Integer.parseInt(rowNumStr) - 1 : nextRowNum;
+        nextRowNum = rowNum + 1;
+
+        String ht = getAttribute("ht");
+        String outlineLevel = getAttribute("outlineLevel");
+        String style = getAttribute("s");
+        XSSFStreamingRow row = new XSSFStreamingRow(rowNum,
+                (ht != null) ? Float.parseFloat(ht) : -1,
+                isTrue(getAttribute("hidden")),
+                (outlineLevel != null) ? Integer.parseInt(outlineLevel) : 0,
+                (isTrue(getAttribute("customFormat")) && style != null) ? Integer.parseInt(style) : -1,
+                stylesTable);
+
+        int nextColumn = 0;
+        while (xmlReader.hasNext()) {
+            int event = xmlReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT && isSpreadsheetElement("c")) {
+                XSSFStreamingCell cell = parseCell(row, nextColumn);
+                row.addCell(cell);
+                nextColumn = cell.getColumnIndex() + 1;
+            } else if (event == XMLStreamConstants.END_ELEMENT && isSpreadsheetElement("row")) {
+                break;
+            }
+        }
+        return row;
+    }
+
+    private XSSFStreamingCell parseCell(XSSFStreamingRow row, int nextColumn) throws XMLStreamException {
+        String ref = getAttribute("r");
+        int column = (ref != null) ? new CellReference(ref).getCol() : nextColumn;
+        String type = getAttribute("t");
+        String style = getAttribute("s");
+
+        String value = null;
+        String formula = null;
+        String arrayRange = null;
+        StringBuilder inlineString = null;
+        while (xmlReader.hasNext()) {
+            int event = xmlReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (!NS_SPREADSHEETML.equals(xmlReader.getNamespaceURI())) {
+                    continue;
+                }
+                String localName = xmlReader.getLocalName();
+                if ("v".equals(localName)) {
+                    value = xmlReader.getElementText();
+                } else if ("f".equals(localName)) {
+                    if ("array".equals(getAttribute("t"))) {
+                        arrayRange = getAttribute("ref");
+                    }
+                    formula = xmlReader.getElementText();
+                } else if ("is".equals(localName)) {
+                    inlineString = new StringBuilder();
+                } else if ("rPh".equals(localName)) {
+                    // phonetic runs aren't part of the text
+                    skipElement();
+                } else if ("t".equals(localName) && inlineString != null) {
+                    inlineString.append(xmlReader.getElementText());
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && isSpreadsheetElement("c")) {
+                break;
+            }
+        }
+
+        int cellType;
+        int valueType;
+        if (inlineString != null) {
+            valueType = Cell.CELL_TYPE_STRING;
+            value = inlineString.toString();
+        } else if ("s".equals(type) || "str".equals(type)) {
+            valueType = Cell.CELL_TYPE_STRING;
+        } else if ("b".equals(type)) {
+            valueType = Cell.CELL_TYPE_BOOLEAN;
+        } else if ("e".equals(type)) {
+            valueType = Cell.CELL_TYPE_ERROR;
+        } else {
+            valueType = Cell.CELL_TYPE_NUMERIC;
+        }
+        if (formula != null) {
+            cellType = Cell.CELL_TYPE_FORMULA;
+        } else if (value == null) {
+            cellType = Cell.CELL_TYPE_BLANK;
+        } else {
+            cellType = valueType;
+        }
+
+        return new XSSFStreamingCell(row, column, cellType, valueType,
+                value, "s".equals(type) && inlineString == null, formula, arrayRange,
+                (style != null) ? Integer.parseInt(style) : -1,
+                sharedStringsTable, stylesTable, date1904);
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && xmlReader.hasNext()) {
+            int event = xmlReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private boolean isSpreadsheetElement(String localName) {
+        return localName.equals(xmlReader.getLocalName())
+                && NS_SPREADSHEETML.equals(xmlReader.getNamespaceURI());
+    }
+
+    private String getAttribute(String localName) {
+        return xmlReader.getAttributeValue(null, localName);
+    }
+
+    private static boolean isTrue(String value) {
+        return "1".equals(value) || "true".equals(value);
+    }
+}
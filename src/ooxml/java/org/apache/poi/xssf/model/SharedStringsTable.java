@@ -32,6 +32,7 @@ import java.util.Map;
 import org.apache.poi.POIXMLDocumentPart;
 import org.apache.poi.openxml4j.opc.PackagePart;
 import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
 import org.apache.xmlbeans.XmlException;
 import org.apache.xmlbeans.XmlOptions;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRst;
@@ -200,6 +201,17 @@ public class SharedStringsTable extends POIXMLDocumentPart {
         strings.add(newSt);
         return idx;
     }
+
+    /**
+     * Add a plain text entry, without formatting, to this Shared String table.
+     * If the table already contains this text, its index is returned.
+     *
+     * @param text the text to add
+     * @return index the index of added entry
+     */
+    public int addString(String text) {
+        return addEntry(new XSSFRichTextString(text).getCTRst());
+    }
     /**
      * Provide low-level access to the underlying array of CTRst beans
      *
@@ -0,0 +1,95 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+
+import org.apache.poi.xssf.model.SharedStringsTable;
+
+/**
+ * Sheet writer which keeps the sheet data in memory instead of a temp file.
+ * <p>
+ * The data is stored uncompressed in fixed size chunks, by default as direct
+ * (off-heap) {@link java.nio.ByteBuffer}s, so it does not count against the
+ * java heap and no file system access is needed. Direct buffers are limited by
+ * the <code>-XX:MaxDirectMemorySize</code> setting of the JVM.
+ * </p>
+ */
+public class ByteBufferSheetDataWriter extends SheetDataWriter {
+    /**
+     * The default size of the chunks the sheet data is stored in
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final ChunkedBufferStore _store;
+
+    public ByteBufferSheetDataWriter() throws IOException {
+        this(null);
+    }
+
+    /**
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     */
+    public ByteBufferSheetDataWriter(SharedStringsTable sharedStringsTable) throws IOException {
+        this(sharedStringsTable, DEFAULT_CHUNK_SIZE, true);
+    }
+
+    /**
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     * @param chunkSize the size of each chunk in bytes
+     * @param direct whether to allocate the chunks off-heap
+     */
+    public ByteBufferSheetDataWriter(SharedStringsTable sharedStringsTable, int chunkSize, boolean direct) throws IOException {
+        this(sharedStringsTable, new ChunkedBufferStore(chunkSize, direct));
+    }
+
+    private ByteBufferSheetDataWriter(SharedStringsTable sharedStringsTable, ChunkedBufferStore store) throws IOException {
+        super(new BufferedWriter(new OutputStreamWriter(store.getOutputStream(), "UTF-8")), sharedStringsTable);
+        _store = store;
+    }
+
+    /**
+     * @return the number of bytes of sheet data stored in memory
+     */
+    @Override
+    public long getBytesUsed() {
+        return _store.getSize();
+    }
+
+    /**
+     * @return a stream to read the sheet data kept in memory
+     */
+    @Override
+    public InputStream getWorksheetXMLInputStream() throws IOException {
+        return _store.getInputStream();
+    }
+
+    @Override
+    boolean dispose() throws IOException {
+        try {
+            return super.dispose();
+        } finally {
+            _store.clear();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append-only byte store made of fixed size {@link ByteBuffer} chunks,
+ * used by the in-memory sheet data writers instead of a temp file.
+ * <p>
+ * Chunks are allocated on demand, either on the heap or as direct
+ * (off-heap) buffers, so that the store never has to copy data to grow.
+ * </p>
+ */
+class ChunkedBufferStore {
+    private final int _chunkSize;
+    private final boolean _direct;
+    private final List<ByteBuffer> _chunks = new ArrayList<ByteBuffer>();
+    private long _size;
+
+    /**
+     * @param chunkSize the size of each chunk in bytes
+     * @param direct whether to allocate direct (off-heap) buffers
+     */
+    ChunkedBufferStore(int chunkSize, boolean direct) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be greater than 0");
+        }
+        _chunkSize = chunkSize;
+        _direct = direct;
+    }
+
+    /**
+     * @return the number of bytes written to this store
+     */
+    long getSize() {
+        return _size;
+    }
+
+    /**
+     * @return the number of bytes allocated for the chunks of this store
+     */
+    long getCapacity() {
+        return (long)_chunks.size() * _chunkSize;
+    }
+
+    /**
+     * Releases all chunks. Direct buffers are freed once they are garbage collected.
+     */
+    void clear() {
+        _chunks.clear();
+        _size = 0;
+    }
+
+    private ByteBuffer currentChunk() {
+        ByteBuffer chunk = _chunks.isEmpty() ? null : _chunks.get(_chunks.size() - 1);
+        if (chunk == null || !chunk.hasRemaining()) {
+            chunk = _direct ? ByteBuffer.allocateDirect(_chunkSize) : ByteBuffer.allocate(_chunkSize);
+            _chunks.add(chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * @return a stream appending to this store
+     */
+    OutputStream getOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                currentChunk().put((byte)b);
+                _size++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    ByteBuffer chunk = currentChunk();
+                    int count = Math.min(len, chunk.remaining());
+                    chunk.put(b, off, count);
+                    off += count;
+                    len -= count;
+                    _size += count;
+                }
+            }
+        };
+    }
+
+    /**
+     * @return a stream reading the bytes written to this store so far
+     */
+    InputStream getInputStream() {
+        return new InputStream() {
+            private int _chunkIndex = 0;
+            private ByteBuffer _chunk;
+
+            private ByteBuffer nextChunk() {
+                while (_chunk == null || !_chunk.hasRemaining()) {
+                    if (_chunkIndex >= _chunks.size()) {
+                        return null;
+                    }
+                    // duplicate so that reading doesn't modify the positions used for writing
+                    _chunk = _chunks.get(_chunkIndex++).duplicate();
+                    _chunk.flip();
+                }
+                return _chunk;
+            }
+
+            @Override
+            public int read() throws IOException {
+                ByteBuffer chunk = nextChunk();
+                return chunk == null ? -1 : chunk.get() & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                ByteBuffer chunk = nextChunk();
+                if (chunk == null) {
+                    return -1;
+                }
+                int count = Math.min(len, chunk.remaining());
+                chunk.get(b, off, count);
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.poi.xssf.model.SharedStringsTable;
+
+/**
+ * Sheet writer which keeps the sheet data deflate-compressed in memory
+ * instead of a temp file.
+ * <p>
+ * This is the in-memory counterpart of {@link GZIPSheetDataWriter}: the
+ * compressed data is kept in heap chunks, which usually takes a fraction of
+ * the memory of the uncompressed sheet XML, at the cost of compressing it.
+ * </p>
+ */
+public class DeflateSheetDataWriter extends SheetDataWriter {
+    private final ChunkedBufferStore _store;
+    private final Deflater _deflater;
+
+    public DeflateSheetDataWriter() throws IOException {
+        this(null);
+    }
+
+    /**
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     */
+    public DeflateSheetDataWriter(SharedStringsTable sharedStringsTable) throws IOException {
+        this(sharedStringsTable, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     * @param compressionLevel the compression level (0-9), see {@link Deflater}
+     */
+    public DeflateSheetDataWriter(SharedStringsTable sharedStringsTable, int compressionLevel) throws IOException {
+        this(sharedStringsTable, new Deflater(compressionLevel),
+                new ChunkedBufferStore(ByteBufferSheetDataWriter.DEFAULT_CHUNK_SIZE, false));
+    }
+
+    private DeflateSheetDataWriter(SharedStringsTable sharedStringsTable, Deflater deflater, ChunkedBufferStore store) throws IOException {
+        super(new OutputStreamWriter(new DeflaterOutputStream(store.getOutputStream(), deflater), "UTF-8"),
+                sharedStringsTable);
+        _store = store;
+        _deflater = deflater;
+    }
+
+    /**
+     * flush and close the data writer and release the native resources of the compressor.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            _deflater.end();
+        }
+    }
+
+    /**
+     * @return the number of bytes of compressed sheet data stored in memory
+     */
+    @Override
+    public long getBytesUsed() {
+        return _store.getSize();
+    }
+
+    /**
+     * @return an InflaterInputStream to read the compressed sheet data
+     */
+    @Override
+    public InputStream getWorksheetXMLInputStream() throws IOException {
+        return new InflaterInputStream(_store.getInputStream());
+    }
+
+    @Override
+    boolean dispose() throws IOException {
+        try {
+            return super.dispose();
+        } finally {
+            _deflater.end();
+            _store.clear();
+        }
+    }
+}
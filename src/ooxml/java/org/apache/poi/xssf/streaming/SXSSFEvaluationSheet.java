@@ -47,4 +47,7 @@ final class SXSSFEvaluationSheet implements EvaluationSheet {
         }
         return new SXSSFEvaluationCell(cell, this);
     }
+    public int getLastRowNum() {
+        return _xs.getLastRowNum();
+    }
 }
@@ -17,25 +17,27 @@
 
 package org.apache.poi.xssf.streaming;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.util.Enumeration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.poi.openxml4j.opc.OPCPackage;
-import org.apache.poi.openxml4j.opc.internal.ZipHelper;
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.udf.UDFFinder;
 import org.apache.poi.ss.usermodel.CellStyle;
@@ -50,7 +52,6 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.util.NotImplemented;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
-import org.apache.poi.util.TempFile;
 import org.apache.poi.xssf.model.SharedStringsTable;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -104,11 +105,21 @@ public class SXSSFWorkbook implements Workbook {
      */
     private boolean _compressTmpFiles = false;
 
+    /**
+     * creates the writers for the sheet data, null if temp files are used
+     */
+    private final SheetDataWriterFactory _sheetDataWriterFactory;
+
     /**
      * shared string table - a cache of strings in this workbook
      */
     private final SharedStringsTable _sharedStringSource;
 
+    /**
+     * the shared string table if it is kept in temp files, otherwise null
+     */
+    private final TempFileSharedStringsTable _tempFileSharedStrings;
+
     /**
      * Construct a new workbook with default row window size
      */
@@ -229,17 +240,82 @@ public class SXSSFWorkbook implements Workbook {
      * @param useSharedStringsTable whether to use a shared strings table
      */
     public SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles, boolean useSharedStringsTable){
+        this(workbook, rowAccessWindowSize, compressTmpFiles, useSharedStringsTable, false, null);
+    }
+
+    /**
+     * Constructs an workbook from an existing workbook, optionally keeping the
+     * shared strings table in temp files.
+     * <p>
+     * With <code>tempFileSharedStrings</code> the unique strings are stored in a
+     * {@link TempFileSharedStringsTable} instead of on the heap, so a shared
+     * strings table can be used for workbooks with any number of distinct strings.
+     * The strings of the template workbook, if any, are copied into the table.
+     * The sliding window of rows works the same as described for
+     * {@link #SXSSFWorkbook(XSSFWorkbook, int, boolean, boolean)}.
+     * </p>
+     *
+     * @param workbook  the template workbook
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out, see above.
+     * @param compressTmpFiles whether to use gzip compression for temporary files
+     * @param useSharedStringsTable whether to use a shared strings table
+     * @param tempFileSharedStrings whether to keep the shared strings table in temp files,
+     *  only used if <code>useSharedStringsTable</code> is true
+     */
+    public SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles, boolean useSharedStringsTable, boolean tempFileSharedStrings){
+        this(workbook, rowAccessWindowSize, compressTmpFiles, useSharedStringsTable, tempFileSharedStrings, null);
+    }
+
+    /**
+     * Constructs an workbook from an existing workbook, storing the flushed
+     * rows of each sheet with a writer created by the given factory.
+     * <p>
+     * This allows to keep the sheet data in memory instead of temp files,
+     * e.g. with {@link ByteBufferSheetDataWriter} or {@link DeflateSheetDataWriter},
+     * see {@link SheetDataWriterFactory}. The sliding window of rows works the same
+     * as described for {@link #SXSSFWorkbook(XSSFWorkbook, int, boolean, boolean)}.
+     * </p>
+     *
+     * @param workbook  the template workbook
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out, see above.
+     * @param useSharedStringsTable whether to use a shared strings table
+     * @param sheetDataWriterFactory creates the writer for the flushed rows of each sheet
+     */
+    public SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean useSharedStringsTable, SheetDataWriterFactory sheetDataWriterFactory){
+        this(workbook, rowAccessWindowSize, false, useSharedStringsTable, false, sheetDataWriterFactory);
+    }
+
+    private SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles,
+            boolean useSharedStringsTable, boolean tempFileSharedStrings, SheetDataWriterFactory sheetDataWriterFactory){
         setRandomAccessWindowSize(rowAccessWindowSize);
+        _sheetDataWriterFactory = sheetDataWriterFactory;
         setCompressTempFiles(compressTmpFiles);
-        if (workbook == null)
+        _wb = workbook == null ? new XSSFWorkbook() : workbook;
+        if (!useSharedStringsTable)
         {
-            _wb=new XSSFWorkbook();
-            _sharedStringSource = useSharedStringsTable ? _wb.getSharedStringSource() : null;
+            _tempFileSharedStrings = null;
+            _sharedStringSource = null;
+        }
+        else if (tempFileSharedStrings)
+        {
+            try
+            {
+                _tempFileSharedStrings = new TempFileSharedStringsTable(_wb.getSharedStringSource(),
+                        TempFileSharedStringsTable.DEFAULT_CACHE_SIZE);
+            }
+            catch (IOException ioe)
+            {
+                throw new RuntimeException(ioe);
+            }
+            _sharedStringSource = _tempFileSharedStrings;
         }
         else
         {
-            _wb=workbook;
-            _sharedStringSource = useSharedStringsTable ? _wb.getSharedStringSource() : null;
+            _tempFileSharedStrings = null;
+            _sharedStringSource = _wb.getSharedStringSource();
+        }
+        if (workbook != null)
+        {
             for ( int i = 0; i < _wb.getNumberOfSheets(); i++ )
             {
                 XSSFSheet sheet = _wb.getSheetAt( i );
@@ -298,6 +374,10 @@ public class SXSSFWorkbook implements Workbook {
      * <p>
      *     Please note the the "compress" option may cause performance penalty.
      * </p>
+     * <p>
+     *     This option has no effect if a {@link SheetDataWriterFactory} was
+     *     given when constructing the workbook.
+     * </p>
      * @param compress whether to compress temp files
      */
     public void setCompressTempFiles(boolean compress){
@@ -305,6 +385,10 @@ public class SXSSFWorkbook implements Workbook {
     }
 
     SheetDataWriter createSheetDataWriter() throws IOException {
+        if(_sheetDataWriterFactory != null) {
+            return _sheetDataWriterFactory.createSheetDataWriter(_sharedStringSource);
+        }
+
         if(_compressTmpFiles) {
             return new GZIPSheetDataWriter(_sharedStringSource);
         }
@@ -344,6 +428,12 @@ public class SXSSFWorkbook implements Workbook {
         _xFromSxHash.remove(xSheet);
     }
 
+    private boolean isSharedStringsEntry(String entryName)
+    {
+        SharedStringsTable sst = _wb.getSharedStringSource();
+        return sst != null && entryName.equals(sst.getPackagePart().getPartName().getName().substring(1));
+    }
+
     private XSSFSheet getSheetFromZipEntryName(String sheetRef)
     {
         for(XSSFSheet sheet : _sxFromXHash.values())
@@ -353,51 +443,76 @@ public class SXSSFWorkbook implements Workbook {
         return null;
     }
 
-    private void injectData(File zipfile, OutputStream out) throws IOException 
+    /**
+     * A zip output stream which replaces the (empty) sheetData of the worksheet
+     * parts written by the underlying XSSFWorkbook with the rows previously
+     * flushed by the corresponding SXSSFSheet.
+     *
+     * The worksheet part written by XSSF only holds the sheet header and
+     * footer, so it is buffered in memory until its entry is closed and then
+     * merged with the sheet data, avoiding an intermediate template file.
+     */
+    private class SheetInjectingZipOutputStream extends ZipOutputStream
     {
-        ZipFile zip = ZipHelper.openZipFile(zipfile);
-        try
+        private XSSFSheet _currentSheet;
+        private ByteArrayOutputStream _currentSheetTemplate;
+        private boolean _replaceSharedStrings;
+
+        SheetInjectingZipOutputStream(OutputStream out)
         {
-            ZipOutputStream zos = new ZipOutputStream(out);
-            try
-            {
-                Enumeration<? extends ZipEntry> en = zip.entries();
-                while (en.hasMoreElements()) 
-                {
-                    ZipEntry ze = en.nextElement();
-                    zos.putNextEntry(new ZipEntry(ze.getName()));
-                    InputStream is = zip.getInputStream(ze);
-                    XSSFSheet xSheet=getSheetFromZipEntryName(ze.getName());
-                    if(xSheet!=null)
-                    {
-                        SXSSFSheet sxSheet=getSXSSFSheet(xSheet);
-                        InputStream xis = sxSheet.getWorksheetXMLInputStream();
-                        try
-                        {
-                            copyStreamAndInjectWorksheet(is,zos,xis);
-                        }
-                        finally
-                        {
-                            xis.close();
-                        }
-                    }
-                    else
-                    {
-                        copyStream(is, zos);
-                    }
-                    is.close();
-                }
+            super(out);
+        }
+
+        @Override
+        public void putNextEntry(ZipEntry e) throws IOException
+        {
+            super.putNextEntry(e);
+            _currentSheet = getSheetFromZipEntryName(e.getName());
+            if (_currentSheet != null) {
+                _currentSheetTemplate = new ByteArrayOutputStream();
             }
-            finally
-            {
-                zos.close();
+            _replaceSharedStrings = _tempFileSharedStrings != null
+                    && isSharedStringsEntry(e.getName());
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            if (_currentSheetTemplate != null) {
+                _currentSheetTemplate.write(b, off, len);
+            } else if (_replaceSharedStrings) {
+                // drop the table of the XSSFWorkbook, the strings are written on closeEntry()
+            } else {
+                super.write(b, off, len);
             }
         }
-        finally
+
+        @Override
+        public void closeEntry() throws IOException
         {
-            zip.close();
+            if (_currentSheetTemplate != null) {
+                InputStream is = new ByteArrayInputStream(_currentSheetTemplate.toByteArray());
+                _currentSheetTemplate = null;
+                SXSSFSheet sxSheet = getSXSSFSheet(_currentSheet);
+                _currentSheet = null;
+                InputStream xis = sxSheet.getWorksheetXMLInputStream();
+                try
+                {
+                    copyStreamAndInjectWorksheet(is,this,xis);
+                }
+                finally
+                {
+                    xis.close();
+                }
+            }
+            if (_replaceSharedStrings) {
+                _replaceSharedStrings = false;
+                _sharedStringSource.writeTo(this);
+            }
+            super.closeEntry();
         }
     }
+
     private static void copyStream(InputStream in, OutputStream out) throws IOException {
         byte[] chunk = new byte[1024];
         int count;
@@ -915,28 +1030,92 @@ public class SXSSFWorkbook implements Workbook {
     		sheet.flushRows();
     	}
     	
-        //Save the template
-        File tmplFile = TempFile.createTempFile("poi-sxssf-template", ".xlsx");
-        try
+        writeTemplateAndInjectData(stream);
+    }
+
+    /**
+     * Write out this workbook to an Outputstream, flushing the remaining rows
+     * of all sheets concurrently.
+     * <p>
+     * Each sheet is flushed to its temporary sheet data writer in a separate
+     * task on the given executor, so that generating the sheet XML
+     * (and compressing it, see {@link #setCompressTempFiles(boolean)}) for
+     * workbooks with many sheets can use several cores. Assembling the zip
+     * package is still done on the calling thread once all sheets are flushed.
+     * </p>
+     * <p>
+     * The workbook must not be modified by other threads while this method runs.
+     * The executor is not shut down by this method.
+     * </p>
+     *
+     * @param stream - the java OutputStream you wish to write to
+     * @param executor - the executor to run the per-sheet flush tasks on
+     * @exception IOException if anything can't be written.
+     */
+    public void write(OutputStream stream, Executor executor) throws IOException
+    {
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(_xFromSxHash.size());
+        for (final SXSSFSheet sheet : _xFromSxHash.values())
         {
-            FileOutputStream os = new FileOutputStream(tmplFile);
-            try
-            {
-                _wb.write(os);
-            }
-            finally
+            FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+                public Void call() throws IOException {
+                    sheet.flushRows();
+                    return null;
+                }
+            });
+            executor.execute(task);
+            tasks.add(task);
+        }
+
+        // wait for all tasks, even if one of them failed, so that no writer is
+        // still in use when the exception is reported
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (FutureTask<Void> task : tasks)
+        {
+            while (true)
             {
-                os.close();
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    break;
+                }
             }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof IOException) {
+            throw (IOException)failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException)failure;
+        } else if (failure instanceof Error) {
+            throw (Error)failure;
+        } else if (failure != null) {
+            throw new IOException("Could not flush sheet data", failure);
+        }
+
+        writeTemplateAndInjectData(stream);
+    }
 
-            //Substitute the template entries with the generated sheet data files
-            injectData(tmplFile, stream);
+    private void writeTemplateAndInjectData(OutputStream stream) throws IOException
+    {
+        // Write the template parts straight into the target stream, the
+        // worksheet entries get their generated sheet data injected on the fly
+        ZipOutputStream zos = new SheetInjectingZipOutputStream(stream);
+        try
+        {
+            _wb.write(zos);
         }
         finally
         {
-            if(!tmplFile.delete()) {
-                throw new IOException("Could not delete temporary file after processing: " + tmplFile);
-            }
+            zos.close();
         }
     }
     
@@ -957,6 +1136,15 @@ public class SXSSFWorkbook implements Workbook {
                 success = false;
             }
         }
+        if (_tempFileSharedStrings != null)
+        {
+            try {
+                success = _tempFileSharedStrings.dispose() && success;
+            } catch (IOException e) {
+                logger.log(POILogger.WARN, e);
+                success = false;
+            }
+        }
         return success;
     }
 
@@ -29,6 +29,7 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.Iterator;
 
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.FormulaError;
@@ -38,7 +39,6 @@ import org.apache.poi.util.POILogger;
 import org.apache.poi.util.TempFile;
 import org.apache.poi.xssf.model.SharedStringsTable;
 import org.apache.poi.xssf.usermodel.XSSFRichTextString;
-import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
 
 /**
  * Initially copied from BigGridDemo "SpreadsheetWriter".
@@ -48,7 +48,13 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
  */
 public class SheetDataWriter {
     private static final POILogger logger = POILogFactory.getLogger(SheetDataWriter.class);
-    
+
+    /**
+     * Column names ("A", "B", ..., "XFD"), filled on first use so that cell
+     * references can be written without creating Strings for every cell
+     */
+    private static final String[] COLUMN_NAMES = new String[SpreadsheetVersion.EXCEL2007.getMaxColumns()];
+
     private final File _fd;
     private final Writer _out;
     private int _rownum;
@@ -57,6 +63,15 @@ public class SheetDataWriter {
     private int _numberOfCellsOfLastFlushedRow; // meaningful only of _numberOfFlushedRows>0
     private int _numberLastFlushedRow = -1; // meaningful only of _numberOfFlushedRows>0
 
+    /**
+     * Output buffer in front of the writer. The XML of a row is written into it
+     *  in many small pieces, which then reach the writer in one call per row.
+     */
+    private final char[] _buffer = new char[8192];
+    private int _bufferPos;
+    // reused to format doubles, see writeNumber(double)
+    private final StringBuilder _doubleBuilder = new StringBuilder(32);
+
     /**
      * Table of strings shared across this workbook.
      * If two cells contain the same string, then the cell value is the same index into SharedStringsTable
@@ -72,6 +87,20 @@ public class SheetDataWriter {
         this();
         this._sharedStringSource = sharedStringsTable;
     }
+
+    /**
+     * Create a sheet data writer which is not backed by a temp file, but
+     * writes to the given writer instead. Subclasses using this constructor
+     * must override {@link #getWorksheetXMLInputStream()} and {@link #getBytesUsed()}.
+     *
+     * @param writer the writer to write the sheet data to
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     */
+    protected SheetDataWriter(Writer writer, SharedStringsTable sharedStringsTable) {
+        _fd = null;
+        _out = writer;
+        this._sharedStringSource = sharedStringsTable;
+    }
     /**
      * Create a temp file to write sheet data. 
      * By default, temp files are created in the default temporary-file directory
@@ -98,6 +127,7 @@ public class SheetDataWriter {
      * This method <em>must</em> be invoked before calling {@link #getWorksheetXMLInputStream()}
      */
     public void close() throws IOException{
+        flushBuffer();
         _out.flush();
         _out.close();
     }
@@ -105,6 +135,14 @@ public class SheetDataWriter {
     File getTempFile(){
         return _fd;
     }
+
+    /**
+     * @return the number of bytes of sheet data held by the backing store,
+     *  i.e. the size of the temp file for the default implementation
+     */
+    public long getBytesUsed() {
+        return _fd.length();
+    }
     
     /**
      * @return a stream to read temp file with the sheet data
@@ -132,7 +170,7 @@ public class SheetDataWriter {
 
     @Override
     protected void finalize() throws Throwable {
-        if (!_fd.delete()) {
+        if (_fd != null && !_fd.delete()) {
             logger.log(POILogger.ERROR, "Can't delete temporary encryption file: "+_fd);
         }
 
@@ -161,62 +199,78 @@ public class SheetDataWriter {
     }
 
     void beginRow(int rownum, SXSSFRow row) throws IOException {
-        _out.write("<row r=\"" + (rownum + 1) + "\"");
-        if (row.hasCustomHeight())
-            _out.write(" customHeight=\"true\"  ht=\"" + row.getHeightInPoints() + "\"");
+        write("<row r=\"");
+        writeNumber(rownum + 1);
+        write('"');
+        if (row.hasCustomHeight()) {
+            write(" customHeight=\"true\"  ht=\"");
+            writeNumber(row.getHeightInPoints());
+            write('"');
+        }
         if (row.getZeroHeight())
-            _out.write(" hidden=\"true\"");
+            write(" hidden=\"true\"");
         if (row.isFormatted()) {
-            _out.write(" s=\"" + row.getRowStyleIndex() + "\"");
-            _out.write(" customFormat=\"1\"");
+            write(" s=\"");
+            writeNumber(row.getRowStyleIndex());
+            write('"');
+            write(" customFormat=\"1\"");
         }
         if (row.getOutlineLevel() != 0) {
-            _out.write(" outlineLevel=\"" + row.getOutlineLevel() + "\"");
+            write(" outlineLevel=\"");
+            writeNumber(row.getOutlineLevel());
+            write('"');
         }
         if(row.getHidden() != null) {
-            _out.write(" hidden=\"" + (row.getHidden() ? "1" : "0") + "\"");
+            write(row.getHidden() ? " hidden=\"1\"" : " hidden=\"0\"");
         }
         if(row.getCollapsed() != null) {
-            _out.write(" collapsed=\"" + (row.getCollapsed() ? "1" : "0") + "\"");
+            write(row.getCollapsed() ? " collapsed=\"1\"" : " collapsed=\"0\"");
         }
         
-        _out.write(">\n");
+        write(">\n");
         this._rownum = rownum;
     }
 
     void endRow() throws IOException {
-        _out.write("</row>\n");
+        write("</row>\n");
+        flushBuffer();
     }
 
     public void writeCell(int columnIndex, Cell cell) throws IOException {
         if (cell == null) {
             return;
         }
-        String ref = new CellReference(_rownum, columnIndex).formatAsString();
-        _out.write("<c r=\"" + ref + "\"");
+        write("<c r=\"");
+        write(getColumnName(columnIndex));
+        writeNumber(_rownum + 1);
+        write('"');
         CellStyle cellStyle = cell.getCellStyle();
         if (cellStyle.getIndex() != 0) {
             // need to convert the short to unsigned short as the indexes can be up to 64k
             // ideally we would use int for this index, but that would need changes to some more 
             // APIs
-            _out.write(" s=\"" + (cellStyle.getIndex() & 0xffff) + "\"");
+            write(" s=\"");
+            writeNumber(cellStyle.getIndex() & 0xffff);
+            write('"');
         }
         int cellType = cell.getCellType();
         switch (cellType) {
             case Cell.CELL_TYPE_BLANK: {
-                _out.write(">");
+                write(">");
                 break;
             }
             case Cell.CELL_TYPE_FORMULA: {
-                _out.write(">");
-                _out.write("<f>");
+                write(">");
+                write("<f>");
                 outputQuotedString(cell.getCellFormula());
-                _out.write("</f>");
+                write("</f>");
                 switch (cell.getCachedFormulaResultType()) {
                     case Cell.CELL_TYPE_NUMERIC:
                         double nval = cell.getNumericCellValue();
                         if (!Double.isNaN(nval)) {
-                            _out.write("<v>" + nval + "</v>");
+                            write("<v>");
+                            writeNumber(nval);
+                            write("</v>");
                         }
                         break;
                     default:
@@ -226,47 +280,165 @@ public class SheetDataWriter {
             }
             case Cell.CELL_TYPE_STRING: {
                 if (_sharedStringSource != null) {
-                    XSSFRichTextString rt = new XSSFRichTextString(cell.getStringCellValue());
-                    int sRef = _sharedStringSource.addEntry(rt.getCTRst());
+                    int sRef;
+                    // sheets may be flushed concurrently, see SXSSFWorkbook#write(OutputStream, Executor)
+                    synchronized (_sharedStringSource) {
+                        sRef = _sharedStringSource.addString(cell.getStringCellValue());
+                    }
 
-                    _out.write(" t=\"" + STCellType.S.toString() + "\">");
-                    _out.write("<v>");
-                    _out.write(String.valueOf(sRef));
-                    _out.write("</v>");
+                    write(" t=\"s\">");
+                    write("<v>");
+                    writeNumber(sRef);
+                    write("</v>");
                 } else {
-                    _out.write(" t=\"inlineStr\">");
-                    _out.write("<is><t");
+                    write(" t=\"inlineStr\">");
+                    write("<is><t");
                     if (hasLeadingTrailingSpaces(cell.getStringCellValue())) {
-                        _out.write(" xml:space=\"preserve\"");
+                        write(" xml:space=\"preserve\"");
                     }
-                    _out.write(">");
+                    write(">");
                     outputQuotedString(cell.getStringCellValue());
-                    _out.write("</t></is>");
+                    write("</t></is>");
                 }
                 break;
             }
             case Cell.CELL_TYPE_NUMERIC: {
-                _out.write(" t=\"n\">");
-                _out.write("<v>" + cell.getNumericCellValue() + "</v>");
+                write(" t=\"n\">");
+                write("<v>");
+                writeNumber(cell.getNumericCellValue());
+                write("</v>");
                 break;
             }
             case Cell.CELL_TYPE_BOOLEAN: {
-                _out.write(" t=\"b\">");
-                _out.write("<v>" + (cell.getBooleanCellValue() ? "1" : "0") + "</v>");
+                write(" t=\"b\">");
+                write(cell.getBooleanCellValue() ? "<v>1</v>" : "<v>0</v>");
                 break;
             }
             case Cell.CELL_TYPE_ERROR: {
                 FormulaError error = FormulaError.forInt(cell.getErrorCellValue());
 
-                _out.write(" t=\"e\">");
-                _out.write("<v>" + error.getString() + "</v>");
+                write(" t=\"e\">");
+                write("<v>");
+                write(error.getString());
+                write("</v>");
                 break;
             }
             default: {
                 throw new IllegalStateException("Invalid cell type: " + cellType);
             }
         }
-        _out.write("</c>");
+        write("</c>");
+    }
+
+    private static String getColumnName(int columnIndex) {
+        if (columnIndex >= COLUMN_NAMES.length) {
+            return CellReference.convertNumToColString(columnIndex);
+        }
+        // racing threads may both compute the name, which is harmless
+        String name = COLUMN_NAMES[columnIndex];
+        if (name == null) {
+            name = CellReference.convertNumToColString(columnIndex);
+            COLUMN_NAMES[columnIndex] = name;
+        }
+        return name;
+    }
+
+    private void write(String str) throws IOException {
+        write(str, 0, str.length());
+    }
+
+    private void write(String str, int off, int len) throws IOException {
+        if (len > _buffer.length - _bufferPos) {
+            flushBuffer();
+            if (len > _buffer.length) {
+                _out.write(str, off, len);
+                return;
+            }
+        }
+        str.getChars(off, off + len, _buffer, _bufferPos);
+        _bufferPos += len;
+    }
+
+    private void write(char c) throws IOException {
+        if (_bufferPos == _buffer.length) {
+            flushBuffer();
+        }
+        _buffer[_bufferPos++] = c;
+    }
+
+    /**
+     * Pass the buffered output on to the writer
+     */
+    private void flushBuffer() throws IOException {
+        if (_bufferPos > 0) {
+            _out.write(_buffer, 0, _bufferPos);
+            _bufferPos = 0;
+        }
+    }
+
+    /**
+     * Write the decimal representation of the given value straight into the output buffer
+     */
+    void writeNumber(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            write(Long.toString(value));
+            return;
+        }
+        // at most 19 digits and the sign
+        if (_buffer.length - _bufferPos < 20) {
+            flushBuffer();
+        }
+        long remain = Math.abs(value);
+        int digits = 1;
+        for (long limit = 10; digits < 19 && remain >= limit; limit *= 10) {
+            digits++;
+        }
+        if (value < 0) {
+            _buffer[_bufferPos++] = '-';
+        }
+        int pos = _bufferPos + digits;
+        _bufferPos = pos;
+        do {
+            _buffer[--pos] = (char)('0' + (int)(remain % 10));
+            remain /= 10;
+        } while (remain != 0);
+    }
+
+    /**
+     * Write the given value in the same format as {@link Double#toString(double)},
+     * straight into the output buffer.
+     */
+    void writeNumber(double value) throws IOException {
+        // Double.toString() renders these as the integer part followed by ".0",
+        // larger values use the computerized scientific notation.
+        // The check for 1/value excludes negative zero which prints as "-0.0".
+        if (value > -1e7 && value < 1e7 && value == (long)value && (value != 0 || 1/value > 0)) {
+            writeNumber((long)value);
+            write(".0");
+        } else {
+            // StringBuilder.append(double) formats like Double.toString(), but without creating a String
+            _doubleBuilder.setLength(0);
+            _doubleBuilder.append(value);
+            writeBuilder(_doubleBuilder);
+        }
+    }
+
+    /**
+     * Write the given value in the same format as {@link Float#toString(float)}
+     */
+    private void writeNumber(float value) throws IOException {
+        _doubleBuilder.setLength(0);
+        _doubleBuilder.append(value);
+        writeBuilder(_doubleBuilder);
+    }
+
+    private void writeBuilder(StringBuilder sb) throws IOException {
+        int len = sb.length();
+        if (_buffer.length - _bufferPos < len) {
+            flushBuffer();
+        }
+        sb.getChars(0, len, _buffer, _bufferPos);
+        _bufferPos += len;
     }
 
 
@@ -289,61 +461,60 @@ public class SheetDataWriter {
             return;
         }
 
-        char[] chars = s.toCharArray();
-        int last = 0;
         int length = s.length();
+        int last = 0;
         for (int counter = 0; counter < length; counter++) {
-            char c = chars[counter];
+            char c = s.charAt(counter);
             switch (c) {
                 case '<':
                     if (counter > last) {
-                        _out.write(chars, last, counter - last);
+                        write(s, last, counter - last);
                     }
                     last = counter + 1;
-                    _out.write("&lt;");
+                    write("&lt;");
                     break;
                 case '>':
                     if (counter > last) {
-                        _out.write(chars, last, counter - last);
+                        write(s, last, counter - last);
                     }
                     last = counter + 1;
-                    _out.write("&gt;");
+                    write("&gt;");
                     break;
                 case '&':
                     if (counter > last) {
-                        _out.write(chars, last, counter - last);
+                        write(s, last, counter - last);
                     }
                     last = counter + 1;
-                    _out.write("&amp;");
+                    write("&amp;");
                     break;
                 case '"':
                     if (counter > last) {
-                        _out.write(chars, last, counter - last);
+                        write(s, last, counter - last);
                     }
                     last = counter + 1;
-                    _out.write("&quot;");
+                    write("&quot;");
                     break;
                 // Special characters
                 case '\n':
                 case '\r':
                     if (counter > last) {
-                        _out.write(chars, last, counter - last);
+                        write(s, last, counter - last);
                     }
-                    _out.write("&#xa;");
+                    write("&#xa;");
                     last = counter + 1;
                     break;
                 case '\t':
                     if (counter > last) {
-                        _out.write(chars, last, counter - last);
+                        write(s, last, counter - last);
                     }
-                    _out.write("&#x9;");
+                    write("&#x9;");
                     last = counter + 1;
                     break;
                 case 0xa0:
                     if (counter > last) {
-                        _out.write(chars, last, counter - last);
+                        write(s, last, counter - last);
                     }
-                    _out.write("&#xa0;");
+                    write("&#xa0;");
                     last = counter + 1;
                     break;
                 default:
@@ -352,27 +523,27 @@ public class SheetDataWriter {
                     if( c < ' ' || Character.isLowSurrogate(c) || Character.isHighSurrogate(c) ||
                             ('\uFFFE' <= c && c <= '\uFFFF')) {
                         if (counter > last) {
-                            _out.write(chars, last, counter - last);
+                            write(s, last, counter - last);
                         }
-                        _out.write('?');
+                        write('?');
                         last = counter + 1;
                     }
                     else if (c > 127) {
                         if (counter > last) {
-                            _out.write(chars, last, counter - last);
+                            write(s, last, counter - last);
                         }
                         last = counter + 1;
                         // If the character is outside of ascii, write the
                         // numeric value.
-                        _out.write("&#");
-                        _out.write(String.valueOf((int) c));
-                        _out.write(";");
+                        write("&#");
+                        writeNumber(c);
+                        write(";");
                     }
                     break;
             }
         }
         if (last < length) {
-            _out.write(chars, last, length - last);
+            write(s, last, length - last);
         }
     }
 
@@ -383,9 +554,10 @@ public class SheetDataWriter {
     boolean dispose() throws IOException {
         final boolean ret;
         try {
+            _bufferPos = 0;
             _out.close();
         } finally {
-            ret = _fd.delete();
+            ret = _fd == null || _fd.delete();
         }
         return ret;
     }
@@ -0,0 +1,43 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+
+import org.apache.poi.xssf.model.SharedStringsTable;
+
+/**
+ * Creates the {@link SheetDataWriter} which stores the flushed rows of a
+ * {@link SXSSFSheet} until the workbook is written.
+ * <p>
+ * By default sheet data is written to temp files, see {@link SheetDataWriter}
+ * and {@link GZIPSheetDataWriter}. Pass an implementation of this interface
+ * to {@link SXSSFWorkbook#SXSSFWorkbook(org.apache.poi.xssf.usermodel.XSSFWorkbook, int, boolean, SheetDataWriterFactory)}
+ * to use a different backend, e.g. {@link ByteBufferSheetDataWriter} or
+ * {@link DeflateSheetDataWriter} to avoid the file system altogether.
+ * </p>
+ */
+public interface SheetDataWriterFactory {
+    /**
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     * @return a new writer for the data of one sheet
+     */
+    SheetDataWriter createSheetDataWriter(SharedStringsTable sharedStringsTable) throws IOException;
+}
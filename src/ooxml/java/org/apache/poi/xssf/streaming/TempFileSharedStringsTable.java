@@ -0,0 +1,556 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.apache.poi.POIXMLException;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+import org.apache.poi.util.StringUtil;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRst;
+
+/**
+ * Shared strings table for SXSSF which keeps the strings in temp files
+ * instead of on the heap.
+ * <p>
+ * The unique strings are appended to a data file in the order they are
+ * added and the position of each string is recorded in an index file. The
+ * lookup from string to index is done through a hash table with a fixed
+ * number of buckets on the heap. Each bucket keeps the last string added to
+ * it, and the index file links each string to the previous one in its
+ * bucket together with its hash, so a lookup only reads the data file when
+ * the hashes match. Besides the buckets only the write buffers of both files
+ * and a small LRU cache of recently added strings are kept in memory, so the
+ * memory used does not grow with the number of strings.
+ * </p>
+ * <p>
+ * When the workbook is written, the sharedStrings.xml part is streamed from
+ * the data file, see {@link #writeTo(OutputStream)}.
+ * </p>
+ */
+public class TempFileSharedStringsTable extends SharedStringsTable {
+    private static final POILogger logger = POILogFactory.getLogger(TempFileSharedStringsTable.class);
+
+    /**
+     * The default number of strings kept in the in-memory LRU cache
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private static final int DEFAULT_HASH_BUCKETS = 1 << 16;
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    // offset in the data file, hash and the index of the previous entry in the bucket (+1)
+    private static final int INDEX_RECORD_SIZE = 16;
+
+    // the kind of the stored entries
+    private static final byte PLAIN_TEXT = 0;
+    private static final byte RICH_TEXT = 1;
+
+    // formatted entries are stored as serialized <si> elements
+    private final static XmlOptions options = new XmlOptions();
+    static {
+        options.setSaveSyntheticDocumentElement(new QName(NS_SPREADSHEETML, "si"));
+        options.setUseDefaultNamespace();
+        options.setSaveAggressiveNamespaces();
+    }
+
+    // parse a stored <si> element into a CTRst instead of a document
+    private final static XmlOptions parseOptions = new XmlOptions();
+    static {
+        parseOptions.setLoadReplaceDocumentElement(null);
+    }
+
+    private final AppendOnlyFile _data;
+    private final AppendOnlyFile _index;
+
+    // the last entry added to each bucket, 0 marks an empty bucket so the index is stored off by one
+    private final int[] _buckets;
+
+    private final Map<String, Integer> _cache;
+
+    private final byte[] _scratch = new byte[INDEX_RECORD_SIZE];
+    private byte[] _entryBuffer = new byte[256];
+
+    private int _count;
+    private int _uniqueCount;
+    private boolean _disposed;
+
+    public TempFileSharedStringsTable() throws IOException {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize the number of recently added strings kept in memory
+     */
+    public TempFileSharedStringsTable(int cacheSize) throws IOException {
+        this(cacheSize, DEFAULT_HASH_BUCKETS, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param cacheSize the number of recently added strings kept in memory
+     * @param hashBuckets the number of hash buckets, a power of two
+     * @param bufferSize the size of the write buffer of each temp file
+     */
+    TempFileSharedStringsTable(final int cacheSize, int hashBuckets, int bufferSize) throws IOException {
+        super();
+        _cache = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        _data = new AppendOnlyFile(".dat", bufferSize);
+        _index = new AppendOnlyFile(".idx", bufferSize);
+        _buckets = new int[hashBuckets];
+    }
+
+    /**
+     * Create a table which starts with the entries of the given table, e.g.
+     * the shared strings of a template workbook.
+     *
+     * @param template the table to copy the entries from
+     * @param cacheSize the number of recently added strings kept in memory
+     */
+    public TempFileSharedStringsTable(SharedStringsTable template, int cacheSize) throws IOException {
+        this(cacheSize);
+        for (CTRst st : template.getItems()) {
+            addEntry(st);
+        }
+        _count = template.getCount();
+    }
+
+    private static boolean isPlainText(CTRst st) {
+        return st.isSetT() && st.sizeOfRArray() == 0 && st.sizeOfRPhArray() == 0 && !st.isSetPhoneticPr();
+    }
+
+    /**
+     * Return a string item by index. The item is read from the temp file, so
+     * modifying it has no effect on this table.
+     *
+     * @param idx index of item to return.
+     * @return the item at the specified position in this Shared String table.
+     */
+    @Override
+    public CTRst getEntryAt(int idx) {
+        if (idx < 0 || idx >= _uniqueCount) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + _uniqueCount);
+        }
+        try {
+            int len = readEntry(idx);
+            String str = new String(_entryBuffer, 1, len, StringUtil.UTF8);
+            if (_entryBuffer[0] == PLAIN_TEXT) {
+                CTRst st = CTRst.Factory.newInstance();
+                st.setT(str);
+                return st;
+            }
+            return CTRst.Factory.parse(str, parseOptions);
+        } catch (IOException e) {
+            throw new POIXMLException(e);
+        } catch (XmlException e) {
+            throw new POIXMLException(e);
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return _count;
+    }
+
+    @Override
+    public int getUniqueCount() {
+        return _uniqueCount;
+    }
+
+    /**
+     * Add an entry to this Shared String table (a new value is appened to the end).
+     *
+     * @param st the entry to add
+     * @return index the index of added entry
+     */
+    @Override
+    public int addEntry(CTRst st) {
+        if (isPlainText(st)) {
+            return addString(st.getT());
+        }
+        _count++;
+        return addEntry(RICH_TEXT, st.xmlText(options));
+    }
+
+    /**
+     * Add a plain text entry, without formatting, to this table.
+     * If the table already contains this text, its index is returned.
+     *
+     * @param text the text to add
+     * @return index the index of added entry
+     */
+    @Override
+    public int addString(String text) {
+        _count++;
+        Integer cached = _cache.get(text);
+        if (cached != null) {
+            return cached;
+        }
+        int idx = addEntry(PLAIN_TEXT, text);
+        _cache.put(text, idx);
+        return idx;
+    }
+
+    private int addEntry(byte kind, String key) {
+        byte[] bytes = key.getBytes(StringUtil.UTF8);
+        int hash = key.hashCode() * 31 + kind;
+        try {
+            int bucket = mix(hash) & (_buckets.length - 1);
+            int entry = _buckets[bucket];
+            while (entry != 0) {
+                _index.read((long)(entry - 1) * INDEX_RECORD_SIZE, _scratch, 0, INDEX_RECORD_SIZE);
+                long offset = getLong(_scratch, 0);
+                int entryHash = getInt(_scratch, 8);
+                int previous = getInt(_scratch, 12);
+                if (entryHash == hash && entryEquals(offset, kind, bytes)) {
+                    return entry - 1;
+                }
+                entry = previous;
+            }
+
+            int idx = _uniqueCount++;
+            long offset = _data.length();
+            putLong(_scratch, 0, offset);
+            putInt(_scratch, 8, hash);
+            putInt(_scratch, 12, _buckets[bucket]);
+            _index.append(_scratch, 0, INDEX_RECORD_SIZE);
+            _buckets[bucket] = idx + 1;
+
+            _scratch[0] = kind;
+            putInt(_scratch, 1, bytes.length);
+            _data.append(_scratch, 0, 5);
+            _data.append(bytes, 0, bytes.length);
+            return idx;
+        } catch (IOException e) {
+            throw new POIXMLException(e);
+        }
+    }
+
+    private boolean entryEquals(long offset, byte kind, byte[] bytes) throws IOException {
+        _data.read(offset, _scratch, 0, 5);
+        if (_scratch[0] != kind || getInt(_scratch, 1) != bytes.length) {
+            return false;
+        }
+        int len = readEntryAt(offset);
+        for (int i = 0; i < len; i++) {
+            if (_entryBuffer[i + 1] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the entry at the given index into the entry buffer,
+     * the first byte holds the kind of the entry followed by the UTF-8 bytes.
+     *
+     * @return the number of UTF-8 bytes
+     */
+    private int readEntry(int idx) throws IOException {
+        _index.read((long)idx * INDEX_RECORD_SIZE, _scratch, 0, 8);
+        return readEntryAt(getLong(_scratch, 0));
+    }
+
+    private int readEntryAt(long offset) throws IOException {
+        _data.read(offset, _scratch, 0, 5);
+        byte kind = _scratch[0];
+        int len = getInt(_scratch, 1);
+        if (_entryBuffer.length < len + 1) {
+            _entryBuffer = new byte[Math.max(len + 1, _entryBuffer.length * 2)];
+        }
+        _entryBuffer[0] = kind;
+        _data.read(offset + 5, _entryBuffer, 1, len);
+        return len;
+    }
+
+    private static int mix(int hash) {
+        // spread the bits of String.hashCode(), as the table size is a power of two
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        return hash ^ (hash >>> 7) ^ (hash >>> 4);
+    }
+
+    private static int getInt(byte[] buf, int offset) {
+        return ((buf[offset] & 0xFF) << 24) | ((buf[offset + 1] & 0xFF) << 16)
+                | ((buf[offset + 2] & 0xFF) << 8) | (buf[offset + 3] & 0xFF);
+    }
+
+    private static void putInt(byte[] buf, int offset, int value) {
+        buf[offset] = (byte)(value >>> 24);
+        buf[offset + 1] = (byte)(value >>> 16);
+        buf[offset + 2] = (byte)(value >>> 8);
+        buf[offset + 3] = (byte)value;
+    }
+
+    private static long getLong(byte[] buf, int offset) {
+        return ((long)getInt(buf, offset) << 32) | (getInt(buf, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private static void putLong(byte[] buf, int offset, long value) {
+        putInt(buf, offset, (int)(value >>> 32));
+        putInt(buf, offset + 4, (int)value);
+    }
+
+    /**
+     * Provide access to the entries of this table. The entries are read from
+     * the temp file on each access.
+     *
+     * @return a read only list of the CTRst beans of this table
+     */
+    @Override
+    public List<CTRst> getItems() {
+        return new AbstractList<CTRst>() {
+            @Override
+            public CTRst get(int index) {
+                return getEntryAt(index);
+            }
+
+            @Override
+            public int size() {
+                return _uniqueCount;
+            }
+        };
+    }
+
+    /**
+     * Write this table out as XML. The entries are streamed from the temp
+     * file, so only one entry is held in memory at a time.
+     *
+     * @param out The stream to write to, it is flushed but not closed.
+     * @throws IOException if an error occurs while writing.
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        writer.write("<sst xmlns=\"" + NS_SPREADSHEETML + "\" count=\"" + _count
+                + "\" uniqueCount=\"" + _uniqueCount + "\">");
+        _data.flush();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(_data.getFile())));
+        try {
+            byte[] buf = new byte[256];
+            for (int i = 0; i < _uniqueCount; i++) {
+                byte kind = in.readByte();
+                int len = in.readInt();
+                if (buf.length < len) {
+                    buf = new byte[Math.max(len, buf.length * 2)];
+                }
+                in.readFully(buf, 0, len);
+                String str = new String(buf, 0, len, StringUtil.UTF8);
+                if (kind == PLAIN_TEXT) {
+                    writer.write(hasLeadingTrailingSpaces(str) ? "<si><t xml:space=\"preserve\">" : "<si><t>");
+                    writeQuoted(writer, str);
+                    writer.write("</t></si>");
+                } else {
+                    writer.write(str);
+                }
+            }
+        } finally {
+            in.close();
+        }
+        writer.write("</sst>");
+        writer.flush();
+    }
+
+    private static boolean hasLeadingTrailingSpaces(String str) {
+        if (str.length() > 0) {
+            return Character.isWhitespace(str.charAt(0))
+                    || Character.isWhitespace(str.charAt(str.length() - 1));
+        }
+        return false;
+    }
+
+    private static void writeQuoted(Writer writer, String str) throws IOException {
+        int length = str.length();
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                case '\t':
+                case '\n':
+                case '\r':
+                    writer.write(c);
+                    break;
+                default:
+                    // characters which are not allowed in XML are replaced like XmlBeans does
+                    if (c < ' ' || ('\uFFFE' <= c && c <= '\uFFFF')) {
+                        writer.write('?');
+                    } else {
+                        writer.write(c);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Not supported, the table is written through {@link SXSSFWorkbook#write(OutputStream)}.
+     */
+    @Override
+    protected void commit() throws IOException {
+        throw new IllegalStateException("TempFileSharedStringsTable is not part of a package");
+    }
+
+    /**
+     * Closes and deletes the temp files backing this table.
+     * Calling this method will render the table unusable.
+     *
+     * @return true if all temp files were deleted successfully.
+     */
+    public boolean dispose() throws IOException {
+        _cache.clear();
+        _disposed = true;
+        boolean success;
+        try {
+            _data.close();
+            _index.close();
+        } finally {
+            success = _data.getFile().delete();
+            success = _index.getFile().delete() && success;
+        }
+        return success;
+    }
+
+    /**
+     * Deletes the temp files if the table was not disposed
+     */
+    @Override
+    protected void finalize() throws Throwable {
+        if (!_disposed) {
+            try {
+                _data.close();
+                _index.close();
+            } finally {
+                if (!_data.getFile().delete()) {
+                    logger.log(POILogger.ERROR, "Can't delete temporary file: " + _data.getFile());
+                }
+                if (!_index.getFile().delete()) {
+                    logger.log(POILogger.ERROR, "Can't delete temporary file: " + _index.getFile());
+                }
+            }
+        }
+
+        super.finalize();
+    }
+
+    /**
+     * A temp file which is only appended to. The appended bytes are kept in
+     * a buffer, from which they are also read, until it is full.
+     */
+    private static final class AppendOnlyFile {
+        private final File _file;
+        private final RandomAccessFile _raf;
+        private final byte[] _buffer;
+        private int _bufferLength;
+        // the number of bytes written to the file, the buffered bytes follow them
+        private long _fileLength;
+
+        AppendOnlyFile(String suffix, int bufferSize) throws IOException {
+            _file = TempFile.createTempFile("poi-sxssf-sst", suffix);
+            _raf = new RandomAccessFile(_file, "rw");
+            _buffer = new byte[bufferSize];
+        }
+
+        File getFile() {
+            return _file;
+        }
+
+        long length() {
+            return _fileLength + _bufferLength;
+        }
+
+        void append(byte[] b, int off, int len) throws IOException {
+            if (_bufferLength + len > _buffer.length) {
+                flush();
+                if (len > _buffer.length) {
+                    _raf.seek(_fileLength);
+                    _raf.write(b, off, len);
+                    _fileLength += len;
+                    return;
+                }
+            }
+            System.arraycopy(b, off, _buffer, _bufferLength, len);
+            _bufferLength += len;
+        }
+
+        void read(long pos, byte[] b, int off, int len) throws IOException {
+            if (pos < _fileLength) {
+                int fromFile = (int)Math.min(len, _fileLength - pos);
+                _raf.seek(pos);
+                _raf.readFully(b, off, fromFile);
+                pos += fromFile;
+                off += fromFile;
+                len -= fromFile;
+            }
+            if (len > 0) {
+                System.arraycopy(_buffer, (int)(pos - _fileLength), b, off, len);
+            }
+        }
+
+        void flush() throws IOException {
+            if (_bufferLength > 0) {
+                _raf.seek(_fileLength);
+                _raf.write(_buffer, 0, _bufferLength);
+                _fileLength += _bufferLength;
+                _bufferLength = 0;
+            }
+        }
+
+        void close() throws IOException {
+            _raf.close();
+        }
+    }
+}
@@ -17,10 +17,16 @@
 
 package org.apache.poi.xssf.usermodel;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.apache.poi.ss.formula.CollaboratingWorkbooksEnvironment;
 import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.FormulaDependencyGraph;
+import org.apache.poi.ss.formula.ParallelFormulaEvaluator;
 import org.apache.poi.ss.formula.WorkbookEvaluator;
 import org.apache.poi.ss.formula.WorkbookEvaluatorProvider;
 import org.apache.poi.ss.formula.eval.BoolEval;
@@ -31,12 +37,19 @@ import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellValue;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
 
 /**
  * Internal POI use only - parent of XSSF and SXSSF formula evaluators
  */
 public abstract class BaseXSSFFormulaEvaluator implements FormulaEvaluator, WorkbookEvaluatorProvider {
     private WorkbookEvaluator _bookEvaluator;
+    /** dependencies of the formula cells for {@link #recalculate(Workbook, Collection)}, built on demand */
+    private FormulaDependencyGraph _dependencyGraph;
+    private List<Cell> _graphCells;
 
     protected BaseXSSFFormulaEvaluator(WorkbookEvaluator bookEvaluator) {
         _bookEvaluator = bookEvaluator;
@@ -50,15 +63,34 @@ public abstract class BaseXSSFFormulaEvaluator implements FormulaEvaluator, Work
      */
     public void clearAllCachedResultValues() {
         _bookEvaluator.clearAllCachedResultValues();
+        _dependencyGraph = null;
     }
     public void notifySetFormula(Cell cell) {
         _bookEvaluator.notifyUpdateCell(new XSSFEvaluationCell((XSSFCell)cell));
+        _dependencyGraph = null;
     }
     public void notifyDeleteCell(Cell cell) {
         _bookEvaluator.notifyDeleteCell(new XSSFEvaluationCell((XSSFCell)cell));
+        _dependencyGraph = null;
     }
     public void notifyUpdateCell(Cell cell) {
         _bookEvaluator.notifyUpdateCell(new XSSFEvaluationCell((XSSFCell)cell));
+        checkDependencyGraph(cell);
+    }
+
+    /**
+     * Drops the dependency graph if the given cell became a formula cell or stopped being one
+     */
+    private void checkDependencyGraph(Cell cell) {
+        if (_dependencyGraph == null) {
+            return;
+        }
+        Sheet sheet = cell.getSheet();
+        int sheetIndex = sheet.getWorkbook().getSheetIndex(sheet);
+        boolean inGraph = _dependencyGraph.indexOf(sheetIndex, cell.getRowIndex(), cell.getColumnIndex()) >= 0;
+        if (inGraph != (cell.getCellType() == Cell.CELL_TYPE_FORMULA)) {
+            _dependencyGraph = null;
+        }
     }
 
     /**
@@ -186,7 +218,10 @@ public abstract class BaseXSSFFormulaEvaluator implements FormulaEvaluator, Work
      */
     private CellValue evaluateFormulaCellValue(Cell cell) {
         EvaluationCell evalCell = toEvaluationCell(cell);
-        ValueEval eval = _bookEvaluator.evaluate(evalCell);
+        return toCellValue(_bookEvaluator.evaluate(evalCell));
+    }
+
+    private static CellValue toCellValue(ValueEval eval) {
         if (eval instanceof NumberEval) {
             NumberEval ne = (NumberEval) eval;
             return new CellValue(ne.getNumberValue());
@@ -205,6 +240,59 @@ public abstract class BaseXSSFFormulaEvaluator implements FormulaEvaluator, Work
         throw new RuntimeException("Unexpected eval class (" + eval.getClass().getName() + ")");
     }
 
+    /**
+     * Evaluates all formula cells of the given workbook concurrently, see
+     *  {@link ParallelFormulaEvaluator}. The workbook must not be modified
+     *  until this method returns.
+     */
+    protected void evaluateAllFormulaCells(Workbook wb, Executor executor) {
+        FormulaDependencyGraph graph = getDependencyGraph(wb);
+        ValueEval[] results = new ParallelFormulaEvaluator(_bookEvaluator, executor).evaluate(graph);
+        for (int i = 0; i < results.length; i++) {
+            setCellValue(_graphCells.get(i), toCellValue(results[i]));
+        }
+    }
+
+    /**
+     * Re-evaluates the formula cells of the given workbook which are affected by the
+     *  given changed cells, see {@link FormulaDependencyGraph#getDirtyCells(Collection)}.
+     *  The dependency graph is kept until a formula is changed.
+     */
+    protected void recalculate(Workbook wb, Collection<? extends Cell> changedCells) {
+        List<CellReference> refs = new ArrayList<CellReference>(changedCells.size());
+        for (Cell cell : changedCells) {
+            notifyUpdateCell(cell);
+            refs.add(new CellReference(cell.getSheet().getSheetName(), cell.getRowIndex(), cell.getColumnIndex(), false, false));
+        }
+        FormulaDependencyGraph graph = getDependencyGraph(wb);
+        for (int index : graph.getDirtyCells(refs)) {
+            Cell cell = _graphCells.get(index);
+            setCellValue(cell, toCellValue(_bookEvaluator.evaluate(toEvaluationCell(cell))));
+        }
+    }
+
+    private FormulaDependencyGraph getDependencyGraph(Workbook wb) {
+        if (_dependencyGraph == null) {
+            List<Cell> cells = new ArrayList<Cell>();
+            for (Sheet sheet : wb) {
+                for (Row r : sheet) {
+                    for (Cell c : r) {
+                        if (c.getCellType() == Cell.CELL_TYPE_FORMULA) {
+                            cells.add(c);
+                        }
+                    }
+                }
+            }
+            EvaluationCell[] evalCells = new EvaluationCell[cells.size()];
+            for (int i = 0; i < evalCells.length; i++) {
+                evalCells[i] = toEvaluationCell(cells.get(i));
+            }
+            _dependencyGraph = new FormulaDependencyGraph(_bookEvaluator, evalCells);
+            _graphCells = cells;
+        }
+        return _dependencyGraph;
+    }
+
     public void setupReferencedWorkbooks(Map<String, FormulaEvaluator> evaluators) {
         CollaboratingWorkbooksEnvironment.setupFormulaEvaluator(evaluators);
     }
@@ -218,6 +306,17 @@ public abstract class BaseXSSFFormulaEvaluator implements FormulaEvaluator, Work
         _bookEvaluator.setIgnoreMissingWorkbooks(ignore);
     }
 
+    /**
+     * Whether formula cells should be compiled on their first evaluation, so that repeated
+     * recalculations don't interpret the formula tokens again. Changed formulas must be reported
+     * with {@link #notifySetFormula(Cell)} or {@link #clearAllCachedResultValues()}.
+     *
+     * @param value whether to compile formulas, <code>false</code> by default
+     */
+    public void setCompileFormulas(boolean value){
+        _bookEvaluator.setCompileFormulas(value);
+    }
+
     /** {@inheritDoc} */
     public void setDebugEvaluationOutputForNextEval(boolean value){
         _bookEvaluator.setDebugEvaluationOutputForNextEval(value);
@@ -45,4 +45,7 @@ final class XSSFEvaluationSheet implements EvaluationSheet {
 		}
 		return new XSSFEvaluationCell(cell, this);
 	}
+	public int getLastRowNum() {
+		return _xs.getLastRowNum();
+	}
 }
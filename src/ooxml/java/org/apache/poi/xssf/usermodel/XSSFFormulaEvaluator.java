@@ -17,6 +17,9 @@
 
 package org.apache.poi.xssf.usermodel;
 
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
 import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.IStabilityClassifier;
@@ -105,6 +108,32 @@ public final class XSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
         HSSFFormulaEvaluator.evaluateAllFormulaCells(_book);
     }
 
+    /**
+     * Evaluates all formula cells of the workbook like {@link #evaluateAll()}, but
+     *  spreads the work over the given executor. The formula cells are grouped into
+     *  levels of cells which do not depend on each other, each level is evaluated
+     *  concurrently. The workbook must not be modified until this method returns.
+     *
+     * @param executor runs the evaluation tasks, e.g. a fixed size thread pool
+     */
+    public void evaluateAll(Executor executor) {
+        evaluateAllFormulaCells(_book, executor);
+    }
+
+    /**
+     * Re-evaluates only the formula cells which are affected by the given changed cells and
+     *  saves their results, like {@link #evaluateFormulaCell(Cell)} does. The dependencies of
+     *  the formula cells are kept between calls and only rebuilt after a formula has been
+     *  changed, which has to be reported with {@link #notifySetFormula(Cell)}.
+     * Formula cells with references which are only known after evaluating them (INDIRECT,
+     *  OFFSET, external names) and circular references are always re-evaluated.
+     *
+     * @param changedCells the cells whose values or formulas were changed
+     */
+    public void recalculate(Collection<? extends Cell> changedCells) {
+        recalculate(_book, changedCells);
+    }
+
     /**
      * Turns a XSSFCell into a XSSFEvaluationCell
      */
@@ -20,7 +20,6 @@ package org.apache.poi.xssf.usermodel;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.apache.poi.ss.formula.FormulaShifter;
 import org.apache.poi.ss.SpreadsheetVersion;
@@ -32,6 +31,9 @@ import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.util.Beta;
 import org.apache.poi.util.Internal;
+import org.apache.poi.util.SortedIntArrayMap;
+import org.apache.poi.util.SortedIntMap;
+import org.apache.poi.util.SortedIntTreeMap;
 import org.apache.poi.xssf.model.CalculationChain;
 import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.usermodel.helpers.XSSFRowShifter;
@@ -51,9 +53,10 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
 
     /**
      * Cells of this row keyed by their column indexes.
-     * The TreeMap ensures that the cells are ordered by columnIndex in the ascending order.
+     * The SortedIntMap ensures that the cells are ordered by columnIndex in the ascending order,
+     * see {@link XSSFWorkbook#setCompactRowStorage(boolean)} for how it stores them.
      */
-    private final TreeMap<Integer, XSSFCell> _cells;
+    private final SortedIntMap<XSSFCell> _cells;
 
     /**
      * the parent sheet
@@ -69,7 +72,11 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
     protected XSSFRow(CTRow row, XSSFSheet sheet) {
         _row = row;
         _sheet = sheet;
-        _cells = new TreeMap<Integer, XSSFCell>();
+        if (sheet.getWorkbook().isCompactRowStorage()) {
+            _cells = new SortedIntArrayMap<XSSFCell>();
+        } else {
+            _cells = new SortedIntTreeMap<XSSFCell>();
+        }
         for (CTCell c : row.getCArray()) {
             XSSFCell cell = new XSSFCell(this, c);
             _cells.put(cell.getColumnIndex(), cell);
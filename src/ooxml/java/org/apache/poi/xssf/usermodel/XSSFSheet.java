@@ -77,6 +77,9 @@ import org.apache.poi.util.Beta;
 import org.apache.poi.util.Internal;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
+import org.apache.poi.util.SortedIntArrayMap;
+import org.apache.poi.util.SortedIntMap;
+import org.apache.poi.util.SortedIntTreeMap;
 import org.apache.poi.xssf.model.CommentsTable;
 import org.apache.poi.xssf.usermodel.helpers.ColumnHelper;
 import org.apache.poi.xssf.usermodel.helpers.XSSFIgnoredErrorHelper;
@@ -110,7 +113,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet {
     protected CTSheet sheet;
     protected CTWorksheet worksheet;
 
-    private SortedMap<Integer, XSSFRow> _rows;
+    private SortedIntMap<XSSFRow> _rows;
     private List<XSSFHyperlink> hyperlinks;
     private ColumnHelper columnHelper;
     private CommentsTable sheetComments;
@@ -196,7 +199,11 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet {
                tables.put( rp.getRelationship().getId(), (XSSFTable)p );
             }
             if(p instanceof XSSFPivotTable) {
-                getWorkbook().getPivotTables().add((XSSFPivotTable) p);
+                List<XSSFPivotTable> pivotTables = getWorkbook().getPivotTables();
+                // already registered if the workbook deferred reading this sheet
+                if (!pivotTables.contains(p)) {
+                    pivotTables.add((XSSFPivotTable) p);
+                }
             }
         }
 
@@ -204,6 +211,14 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet {
         initHyperlinks();
     }
 
+    /**
+     * @return whether the worksheet XML of this sheet has been parsed yet,
+     *  which is deferred if the workbook reads its sheets on demand
+     */
+    boolean isDocumentRead() {
+        return worksheet != null;
+    }
+
     /**
      * Initialize worksheet data when creating a new sheet.
      */
@@ -215,8 +230,31 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet {
         hyperlinks = new ArrayList<XSSFHyperlink>();
     }
 
+    private SortedIntMap<XSSFRow> newRowMap(int initialCapacity) {
+        // new sheets are created before they are added to their workbook
+        XSSFWorkbook wb = getWorkbook();
+        if (wb != null && wb.isCompactRowStorage()) {
+            return new SortedIntArrayMap<XSSFRow>(initialCapacity);
+        }
+        return new SortedIntTreeMap<XSSFRow>();
+    }
+
+    /**
+     * Recreates the empty row storage of a new sheet once it has been added to its workbook
+     */
+    void initRowStorage() {
+        _rows = newRowMap(8);
+    }
+
+    /**
+     * @return whether the rows of this sheet are kept in the compact storage
+     */
+    boolean isCompactRowStorage() {
+        return _rows instanceof SortedIntArrayMap;
+    }
+
     private void initRows(CTWorksheet worksheetParam) {
-        _rows = new TreeMap<Integer, XSSFRow>();
+        _rows = newRowMap(8);
         tables = new TreeMap<String, XSSFTable>();
         sharedFormulas = new HashMap<Integer, CTCellFormula>();
         arrayFormulas = new ArrayList<CellRangeAddress>();
@@ -713,7 +751,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet {
             } else {
                 // get number of rows where row index < rownum
                 // --> this tells us where our row should go
-                int idx = _rows.headMap(rownum).size();
+                int idx = _rows.headSize(rownum);
                 ctRow = worksheet.getSheetData().insertNewRow(idx);
             }
         }
@@ -1406,7 +1444,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet {
             }
         }
         else {
-            rows.addAll(_rows.subMap(startRowNum, endRowNum+1).values());
+            rows.addAll(_rows.values(startRowNum, endRowNum+1));
         }
         return rows;
     }
@@ -1876,7 +1914,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet {
             row.removeCell(cell);
         }
 
-        int idx = _rows.headMap(row.getRowNum()).size();
+        int idx = _rows.headSize(row.getRowNum());
         _rows.remove(row.getRowNum());
         worksheet.getSheetData().removeRow(idx);
 
@@ -2893,7 +2931,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet {
             // check if we should remove this row as it will be overwritten by the data later
             if (shouldRemoveRow(startRow, endRow, n, rownum)) {
                 // remove row from worksheet.getSheetData row array
-                int idx = _rows.headMap(row.getRowNum()).size();
+                int idx = _rows.headSize(row.getRowNum());
                 worksheet.getSheetData().removeRow(idx);
 
                 // remove row from _rows
@@ -3009,9 +3047,11 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet {
         rowShifter.updateConditionalFormatting(shifter);
         rowShifter.updateHyperlinks(shifter);
 
-        //rebuild the _rows map
-        SortedMap<Integer, XSSFRow> map = new TreeMap<Integer, XSSFRow>();
-        for(XSSFRow r : _rows.values()) {
+        //rebuild the _rows map, sorting first so that all rows are appended in order
+        List<XSSFRow> shiftedRows = new ArrayList<XSSFRow>(_rows.values());
+        Collections.sort(shiftedRows);
+        SortedIntMap<XSSFRow> map = newRowMap(shiftedRows.size());
+        for(XSSFRow r : shiftedRows) {
             map.put(r.getRowNum(), r);
         }
         _rows = map;
@@ -3347,8 +3387,19 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet {
         }
     }
 
+    @Override
+    protected void prepareForCommit() {
+        // a sheet which was never read keeps its original content
+        if (isDocumentRead()) {
+            super.prepareForCommit();
+        }
+    }
+
     @Override
     protected void commit() throws IOException {
+        if (!isDocumentRead()) {
+            return;
+        }
         PackagePart part = getPackagePart();
         OutputStream out = part.getOutputStream();
         write(out);
@@ -210,6 +210,45 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
     private List<XSSFPivotTable> pivotTables;
     private List<CTPivotCache> pivotCaches;
 
+    /**
+     * If set, the worksheet XML of each sheet is only parsed when the sheet
+     * is first accessed instead of when the workbook is opened
+     */
+    private boolean readSheetsOnDemand;
+
+    /**
+     * Whether the rows of sheets and the cells of rows of this workbook are
+     * kept in primitive int keyed arrays instead of TreeMaps
+     */
+    private boolean compactRowStorage = false;
+
+    /**
+     * Sets whether the rows of the sheets and the cells of the rows of this
+     *  workbook which are read or created from now on are kept in arrays
+     *  sorted by their index, instead of in TreeMaps. This saves the map entry
+     *  and boxed index per row and per cell, which is most of their
+     *  bookkeeping memory, but inserting or removing rows or cells other than
+     *  at the end is slower. The default is <code>false</code>.
+     *
+     * Sheets are read when the workbook is opened, unless it was opened with
+     *  {@link #XSSFWorkbook(OPCPackage, boolean)} to read them on demand, so
+     *  that this applies to all of them.
+     *
+     * @param compact whether to use the compact row and cell storage
+     */
+    public void setCompactRowStorage(boolean compact) {
+        compactRowStorage = compact;
+    }
+
+    /**
+     * Returns whether rows and cells are kept in the compact storage.
+     *
+     * See setCompactRowStorage() for details.
+     */
+    public boolean isCompactRowStorage() {
+        return compactRowStorage;
+    }
+
 
     /**
      * Create a new SpreadsheetML workbook.
@@ -241,8 +280,27 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
      * @param pkg the OpenXML4J <code>OPC Package</code> object.
      */
     public XSSFWorkbook(OPCPackage pkg) throws IOException {
+        this(pkg, false);
+    }
+
+    /**
+     * Constructs a XSSFWorkbook object given a OpenXML4J <code>Package</code> object,
+     *  optionally deferring the parsing of the individual sheets.
+     *
+     * <p>If <code>readSheetsOnDemand</code> is set, the worksheet XML of a sheet is
+     *  only parsed when the sheet is first returned by {@link #getSheetAt(int)},
+     *  {@link #getSheet(String)} or the sheet iterators. This makes reading a few
+     *  sheets of a large workbook considerably cheaper. Sheets which were never
+     *  accessed are written back unchanged. The time taken to read each sheet
+     *  is logged at debug level.
+     *
+     * @param pkg the OpenXML4J <code>OPC Package</code> object.
+     * @param readSheetsOnDemand whether to defer parsing each sheet until it is first accessed
+     */
+    public XSSFWorkbook(OPCPackage pkg, boolean readSheetsOnDemand) throws IOException {
         super(pkg);
-        
+        this.readSheetsOnDemand = readSheetsOnDemand;
+
         beforeDocumentRead();
         
         // Build a tree of POIXMLDocumentParts, this workbook being the root
@@ -414,10 +472,38 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
             return;
         }
         sh.sheet = ctSheet;
-        sh.onDocumentRead();
+        if (readSheetsOnDemand) {
+            // register the pivot tables now, the sheet itself is read on first access
+            for (POIXMLDocumentPart p : sh.getRelations()) {
+                if (p instanceof XSSFPivotTable) {
+                    pivotTables.add((XSSFPivotTable) p);
+                }
+            }
+        } else {
+            sh.onDocumentRead();
+        }
         sheets.add(sh);
     }
 
+    /**
+     * Parses the worksheet XML of the given sheet if it was deferred when
+     *  opening the workbook
+     *
+     * @param sh the sheet to read
+     * @return the given sheet
+     */
+    private XSSFSheet readSheet(XSSFSheet sh) {
+        if (sh.isDocumentRead()) {
+            return sh;
+        }
+        long start = System.nanoTime();
+        sh.onDocumentRead();
+        long millis = (System.nanoTime() - start) / 1000000;
+        logger.log(POILogger.DEBUG, "Read sheet '", sh.getSheetName(), "' with ",
+                sh.getPhysicalNumberOfRows(), " rows in ", millis, " ms");
+        return sh;
+    }
+
     /**
      * Create a new CTWorkbook with all values set to default
      */
@@ -559,7 +645,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
      */
     public XSSFSheet cloneSheet(int sheetNum, String newName) {
         validateSheetIndex(sheetNum);
-        XSSFSheet srcSheet = sheets.get(sheetNum);
+        XSSFSheet srcSheet = readSheet(sheets.get(sheetNum));
 
         if (newName == null) {
             String srcName = srcSheet.getSheetName();
@@ -747,7 +833,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
     public XSSFSheet createSheet() {
         String sheetname = "Sheet" + (sheets.size());
         int idx = 0;
-        while(getSheet(sheetname) != null) {
+        while(containsSheet(sheetname, -1)) {
             sheetname = "Sheet" + idx;
             idx++;
         }
@@ -841,6 +927,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
         RelationPart rp = createRelationship(XSSFRelation.WORKSHEET, XSSFFactory.getInstance(), sheetNumber, false);
         XSSFSheet wrapper = rp.getDocumentPart();
         wrapper.sheet = sheet;
+        wrapper.initRowStorage();
         sheet.setId(rp.getRelationship().getId());
         sheet.setSheetId(sheetNumber);
         if (sheets.isEmpty()) wrapper.setSelected(true);
@@ -1043,7 +1130,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
     public XSSFSheet getSheet(String name) {
         for (XSSFSheet sheet : sheets) {
             if (name.equalsIgnoreCase(sheet.getSheetName())) {
-                return sheet;
+                return readSheet(sheet);
             }
         }
         return null;
@@ -1060,7 +1147,23 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
     @Override
     public XSSFSheet getSheetAt(int index) {
         validateSheetIndex(index);
-        return sheets.get(index);
+        return readSheet(sheets.get(index));
+    }
+
+    /**
+     * Returns whether the worksheet XML of the sheet at the given index has
+     *  been parsed. This is always the case unless the workbook was opened
+     *  with {@link #XSSFWorkbook(OPCPackage, boolean)} to read the sheets on
+     *  demand, then only the sheets which have been accessed are read.
+     *
+     * @param index of the sheet number (0-based physical & logical)
+     * @return whether the sheet has been read
+     * @throws IllegalArgumentException if the index is out of range (index
+     *            &lt; 0 || index &gt;= getNumberOfSheets()).
+     */
+    public boolean isSheetRead(int index) {
+        validateSheetIndex(index);
+        return sheets.get(index).isDocumentRead();
     }
 
     /**
@@ -1153,7 +1256,9 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
         }
         @Override
         public T next() throws NoSuchElementException {
-            return it.next();
+            T sheet = it.next();
+            readSheet((XSSFSheet) sheet);
+            return sheet;
         }
         /**
          * Unexpected behavior may occur if sheets are reordered after iterator
@@ -1311,7 +1416,8 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
 
         onSheetDelete(index);
 
-        XSSFSheet sheet = getSheetAt(index);
+        // a sheet which was never read is dropped without parsing it
+        XSSFSheet sheet = sheets.get(index);
         removeRelation(sheet);
         sheets.remove(index);
 
@@ -1538,7 +1644,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
     @Override
     public void setSelectedTab(int index) {
         for (int i = 0 ; i < sheets.size() ; ++i) {
-            XSSFSheet sheet = sheets.get(i);
+            XSSFSheet sheet = readSheet(sheets.get(i));
             sheet.setSelected(i == index);
         }
     }
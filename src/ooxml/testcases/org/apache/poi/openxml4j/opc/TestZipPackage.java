@@ -17,6 +17,7 @@
 
 package org.apache.poi.openxml4j.opc;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -40,6 +41,7 @@ import org.apache.poi.hssf.HSSFTestDataSamples;
 import org.apache.poi.openxml4j.OpenXML4JTestDataSamples;
 import org.apache.poi.sl.usermodel.SlideShow;
 import org.apache.poi.sl.usermodel.SlideShowFactory;
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.xssf.XSSFTestDataSamples;
@@ -177,6 +179,32 @@ public class TestZipPackage {
         ppt.close();
     }
 
+    @Test
+    public void openStreamThroughTempFile() throws Exception {
+        OPCPackage expected = OPCPackage.open(OpenXML4JTestDataSamples.openSampleStream("sample.xlsx"));
+        OPCPackage actual = OPCPackage.open(OpenXML4JTestDataSamples.openSampleStream("sample.xlsx"), true);
+        assertEquals(expected.getParts().size(), actual.getParts().size());
+        for (PackagePart part : expected.getParts()) {
+            PackagePart actualPart = actual.getPart(part.getPartName());
+            assertNotNull(part.getPartName().getName(), actualPart);
+            assertEquals(part.getContentType(), actualPart.getContentType());
+            if (ContentTypes.CORE_PROPERTIES_PART.equals(part.getContentType())) {
+                continue;
+            }
+            assertArrayEquals(part.getPartName().getName(),
+                    IOUtils.toByteArray(part.getInputStream()),
+                    IOUtils.toByteArray(actualPart.getInputStream()));
+        }
+        actual.close();
+
+        // archives with a broken central directory are still read as a stream
+        InputStream is = OpenXML4JTestDataSamples.openSampleStream("at.pzp.www_uploads_media_PP_Scheinecker-jdk6error.pptx");
+        OPCPackage pkg = OPCPackage.open(is, true);
+        assertTrue(pkg.getParts().size() > 0);
+        pkg.revert();
+        expected.revert();
+    }
+
     @Test
     public void testClosingStreamOnException() throws IOException {
         InputStream is = OpenXML4JTestDataSamples.openSampleStream("dcterms_bug_56479.zip");
@@ -0,0 +1,59 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXParseException;
+
+public final class TestDocumentHelper {
+    private static final String XML = "<a xmlns=\"urn:test\"><b/></a>";
+
+    @Test
+    public void readDocumentReusesBuilder() throws Exception {
+        Document first = read(XML);
+        long created = DocumentHelper.getCreatedDocumentBuilderCount();
+        for (int i = 0; i < 10; i++) {
+            Document doc = read(XML);
+            assertNotSame(first, doc);
+            assertEquals("urn:test", doc.getDocumentElement().getNamespaceURI());
+            assertEquals(1, doc.getElementsByTagNameNS("urn:test", "b").getLength());
+        }
+        assertEquals(created, DocumentHelper.getCreatedDocumentBuilderCount());
+    }
+
+    @Test
+    public void readAfterFailedParse() throws Exception {
+        try {
+            read("<a><b></a>");
+            fail("Mismatched tags should fail the parse");
+        } catch (SAXParseException e) {
+            // expected
+        }
+        assertEquals("a", read(XML).getDocumentElement().getLocalName());
+    }
+
+    private static Document read(String xml) throws Exception {
+        return DocumentHelper.readDocument(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    }
+}
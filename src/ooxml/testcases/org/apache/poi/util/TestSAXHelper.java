@@ -0,0 +1,74 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+public final class TestSAXHelper {
+    private static final String XML = "<a><b/><b/></a>";
+
+    @Test
+    public void parseReusesReader() throws Exception {
+        CountingHandler handler = new CountingHandler();
+        SAXHelper.parse(new InputSource(new StringReader(XML)), handler);
+        assertEquals(3, handler.elements);
+
+        long created = SAXHelper.getCreatedXMLReaderCount();
+        for (int i = 0; i < 10; i++) {
+            handler = new CountingHandler();
+            SAXHelper.parse(new InputSource(new StringReader(XML)), handler);
+            assertEquals(3, handler.elements);
+        }
+        assertEquals(created, SAXHelper.getCreatedXMLReaderCount());
+    }
+
+    @Test
+    public void nestedParse() throws Exception {
+        final CountingHandler inner = new CountingHandler();
+        CountingHandler outer = new CountingHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+                super.startElement(uri, localName, qName, attributes);
+                try {
+                    SAXHelper.parse(new InputSource(new StringReader(XML)), inner);
+                } catch (Exception e) {
+                    throw new SAXException(e);
+                }
+            }
+        };
+        SAXHelper.parse(new InputSource(new StringReader(XML)), outer);
+        assertEquals(3, outer.elements);
+        assertEquals(9, inner.elements);
+    }
+
+    private static class CountingHandler extends DefaultHandler {
+        int elements;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+            elements++;
+        }
+    }
+}
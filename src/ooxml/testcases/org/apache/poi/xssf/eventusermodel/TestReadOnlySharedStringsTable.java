@@ -60,6 +60,53 @@ public final class TestReadOnlySharedStringsTable extends TestCase {
 
 	}
     
+    public void testTempFileTable() throws Exception {
+        for (String sample : new String[] { "SampleSS.xlsx", "54084 - Greek - beyond BMP.xlsx" }) {
+            OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream(sample));
+            ReadOnlySharedStringsTable rtbl = new ReadOnlySharedStringsTable(pkg);
+            // a tiny cache, so that the strings are decoded from the mapped file again
+            TempFileReadOnlySharedStringsTable ttbl = new TempFileReadOnlySharedStringsTable(pkg, 1);
+            try {
+                assertEquals(rtbl.getCount(), ttbl.getCount());
+                assertEquals(rtbl.getUniqueCount(), ttbl.getUniqueCount());
+                assertEquals(rtbl.getItems().size(), ttbl.size());
+                for (int pass = 0; pass < 2; pass++) {
+                    for (int i = 0; i < rtbl.getItems().size(); i++) {
+                        assertEquals(rtbl.getEntryAt(i), ttbl.getEntryAt(i));
+                    }
+                }
+                assertEquals(rtbl.getItems(), ttbl.getItems());
+            } finally {
+                ttbl.close();
+            }
+            // the files are unmapped, so they mustn't be read any more
+            try {
+                ttbl.getEntryAt(0);
+                fail("The table is closed");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            ttbl.close();
+            pkg.revert();
+        }
+    }
+
+    public void testEmptyTempFileTable() throws Exception {
+        OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("noSharedStringTable.xlsx"));
+        TempFileReadOnlySharedStringsTable sst = new TempFileReadOnlySharedStringsTable(pkg);
+        assertEquals(0, sst.getCount());
+        assertEquals(0, sst.size());
+        assertTrue(sst.getItems().isEmpty());
+        try {
+            sst.getEntryAt(0);
+            fail("The table has no strings");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        sst.close();
+        pkg.revert();
+    }
+
     public void testEmptySSTOnPackageObtainedViaWorkbook() throws Exception {
         XSSFWorkbook wb = new XSSFWorkbook(_ssTests.openResourceAsStream("noSharedStringTable.xlsx"));
         OPCPackage pkg = wb.getPackage();
@@ -0,0 +1,147 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.InputStream;
+
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.RawSheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.xml.sax.InputSource;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link XSSFSheetXMLHandler}
+ */
+public final class TestXSSFSheetXMLHandler extends TestCase {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    public void testRawValues() throws Exception {
+        for (String sample : new String[] {
+                "SampleSS.xlsx", "WithVariousData.xlsx", "FormulaEvalTestData_Copy.xlsx"
+        }) {
+            checkRawValues(sample);
+        }
+    }
+
+    private static void checkRawValues(String sample) throws Exception {
+        XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook(sample);
+        OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream(sample));
+        try {
+            XSSFReader r = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = r.getStylesTable();
+            XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator)r.getSheetsData();
+            for (int sheetIdx = 0; iter.hasNext(); sheetIdx++) {
+                InputStream stream = iter.next();
+                ComparingHandler handler = new ComparingHandler(sample, wb.getSheetAt(sheetIdx), strings);
+                try {
+                    SAXHelper.parse(new InputSource(stream), new XSSFSheetXMLHandler(styles, strings, handler, false));
+                } finally {
+                    stream.close();
+                }
+                assertTrue(sample, handler.cells > 0 || wb.getSheetAt(sheetIdx).getPhysicalNumberOfRows() == 0);
+            }
+        } finally {
+            pkg.revert();
+            wb.close();
+        }
+    }
+
+    private static class ComparingHandler implements RawSheetContentsHandler {
+        private final String sample;
+        private final XSSFSheet sheet;
+        private final ReadOnlySharedStringsTable strings;
+        private int rowNum = -1;
+        int cells;
+
+        ComparingHandler(String sample, XSSFSheet sheet, ReadOnlySharedStringsTable strings) {
+            this.sample = sample;
+            this.sheet = sheet;
+            this.strings = strings;
+        }
+
+        private XSSFCell getCell(int row, int column, int styleIndex) {
+            assertEquals(rowNum, row);
+            XSSFCell cell = sheet.getRow(row).getCell(column);
+            assertNotNull(sample + " " + row + "/" + column, cell);
+            assertEquals(cell.getCellStyle().getIndex(), styleIndex);
+            cells++;
+            return cell;
+        }
+
+        private static int getValueType(Cell cell) {
+            int type = cell.getCellType();
+            return type == Cell.CELL_TYPE_FORMULA ? cell.getCachedFormulaResultType() : type;
+        }
+
+        public void numericCell(int row, int column, double value, int styleIndex) {
+            XSSFCell cell = getCell(row, column, styleIndex);
+            assertEquals(Cell.CELL_TYPE_NUMERIC, getValueType(cell));
+            assertEquals(cell.getNumericCellValue(), value, 0.0);
+        }
+
+        public void sharedStringCell(int row, int column, int sharedStringIndex, int styleIndex) {
+            XSSFCell cell = getCell(row, column, styleIndex);
+            assertEquals(Cell.CELL_TYPE_STRING, cell.getCellType());
+            assertEquals(cell.getStringCellValue(), strings.getEntryAt(sharedStringIndex));
+        }
+
+        public void textCell(int row, int column, CharSequence text, int styleIndex) {
+            XSSFCell cell = getCell(row, column, styleIndex);
+            assertEquals(Cell.CELL_TYPE_STRING, getValueType(cell));
+            assertEquals(cell.getStringCellValue(), text.toString());
+        }
+
+        public void booleanCell(int row, int column, boolean value, int styleIndex) {
+            XSSFCell cell = getCell(row, column, styleIndex);
+            assertEquals(Cell.CELL_TYPE_BOOLEAN, getValueType(cell));
+            assertEquals(cell.getBooleanCellValue(), value);
+        }
+
+        public void errorCell(int row, int column, String error, int styleIndex) {
+            XSSFCell cell = getCell(row, column, styleIndex);
+            assertEquals(Cell.CELL_TYPE_ERROR, getValueType(cell));
+            assertEquals(cell.getErrorCellValue(), FormulaError.forString(error).getCode());
+        }
+
+        public void startRow(int row) {
+            rowNum = row;
+        }
+
+        public void endRow(int row) {
+            assertEquals(rowNum, row);
+        }
+
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            fail("Only expected for comments");
+        }
+
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+        }
+    }
+}
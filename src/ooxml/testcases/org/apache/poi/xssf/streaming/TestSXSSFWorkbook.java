@@ -22,13 +22,18 @@ package org.apache.poi.xssf.streaming;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.POITestCase;
@@ -155,6 +160,43 @@ public final class TestSXSSFWorkbook extends BaseTestXWorkbook {
         xssfWorkbook.close();
     }
 
+    @Test
+    public void useTempFileSharedStringsTable() throws Exception {
+        // template with a shared string which is reused by the streamed rows
+        XSSFWorkbook template = new XSSFWorkbook();
+        template.createSheet("S1").createRow(0).createCell(0).setCellValue("template");
+
+        SXSSFWorkbook wb = new SXSSFWorkbook(template, 10, false, true, true);
+        SharedStringsTable sss = POITestCase.getFieldValue(SXSSFWorkbook.class, wb, SharedStringsTable.class, "_sharedStringSource");
+        assertTrue(sss instanceof TempFileSharedStringsTable);
+        assertEquals(1, sss.getUniqueCount());
+
+        Sheet sheet = wb.getSheetAt(0);
+        int rowNum = 2000;
+        for (int i = 1; i <= rowNum; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue("value " + i);
+            row.createCell(1).setCellValue(i % 2 == 0 ? "template" : " spaces & <markup> ");
+        }
+
+        XSSFWorkbook xssfWorkbook = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb);
+        assertEquals(rowNum + 2, sss.getUniqueCount());
+        assertEquals(2 * rowNum + 1, sss.getCount());
+        assertTrue(wb.dispose());
+
+        Sheet sheet1 = xssfWorkbook.getSheetAt(0);
+        assertEquals("template", sheet1.getRow(0).getCell(0).getStringCellValue());
+        for (int i = 1; i <= rowNum; i++) {
+            Row row = sheet1.getRow(i);
+            assertEquals("value " + i, row.getCell(0).getStringCellValue());
+            assertEquals(i % 2 == 0 ? "template" : " spaces & <markup> ", row.getCell(1).getStringCellValue());
+        }
+        assertEquals(rowNum + 2, xssfWorkbook.getSharedStringSource().getUniqueCount());
+
+        xssfWorkbook.close();
+        wb.close();
+    }
+
     @Test
     public void addToExistingWorkbook() throws IOException {
     	XSSFWorkbook xssfWb1 = new XSSFWorkbook();
@@ -306,6 +348,134 @@ public final class TestSXSSFWorkbook extends BaseTestXWorkbook {
         xwb.close();
     }
 
+    @Test
+    public void byteBufferSheetDataWriter() throws IOException {
+        assertSheetDataWriterFactory(new SheetDataWriterFactory() {
+            public SheetDataWriter createSheetDataWriter(SharedStringsTable sharedStringsTable) throws IOException {
+                // small chunks to have the data span several buffers
+                return new ByteBufferSheetDataWriter(sharedStringsTable, 1024, true);
+            }
+        });
+        assertSheetDataWriterFactory(new SheetDataWriterFactory() {
+            public SheetDataWriter createSheetDataWriter(SharedStringsTable sharedStringsTable) throws IOException {
+                return new ByteBufferSheetDataWriter(sharedStringsTable, 1024, false);
+            }
+        });
+    }
+
+    @Test
+    public void deflateSheetDataWriter() throws IOException {
+        assertSheetDataWriterFactory(new SheetDataWriterFactory() {
+            public SheetDataWriter createSheetDataWriter(SharedStringsTable sharedStringsTable) throws IOException {
+                return new DeflateSheetDataWriter(sharedStringsTable);
+            }
+        });
+    }
+
+    private static void assertSheetDataWriterFactory(SheetDataWriterFactory factory) throws IOException {
+        SXSSFWorkbook wb = new SXSSFWorkbook(null, 100, false, factory);
+        int rowNum = 1000;
+        int sheetNum = 5;
+        for(int i = 0; i < sheetNum; i++){
+            Sheet sh = wb.createSheet("sheet" + i);
+            for(int j = 0; j < rowNum; j++){
+                Row row = sh.createRow(j);
+                Cell cell1 = row.createCell(0);
+                cell1.setCellValue(new CellReference(cell1).formatAsString());
+
+                Cell cell2 = row.createCell(1);
+                cell2.setCellValue(i);
+
+                Cell cell3 = row.createCell(2);
+                cell3.setCellValue(j);
+            }
+        }
+
+        for (Sheet sheet : wb) {
+            SheetDataWriter writer = ((SXSSFSheet) sheet).getSheetDataWriter();
+            assertNull(writer.getTempFile());
+            assertTrue(writer.getBytesUsed() > 0);
+        }
+
+        XSSFWorkbook xwb = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb);
+        for(int i = 0; i < sheetNum; i++){
+            Sheet sh = xwb.getSheetAt(i);
+            assertEquals("sheet" + i, sh.getSheetName());
+            for(int j = 0; j < rowNum; j++){
+                Row row = sh.getRow(j);
+                assertNotNull("row[" + j + "]", row);
+                Cell cell1 = row.getCell(0);
+                assertEquals(new CellReference(cell1).formatAsString(), cell1.getStringCellValue());
+
+                Cell cell2 = row.getCell(1);
+                assertEquals(i, (int)cell2.getNumericCellValue());
+
+                Cell cell3 = row.getCell(2);
+                assertEquals(j, (int)cell3.getNumericCellValue());
+            }
+        }
+
+        assertTrue(wb.dispose());
+        for (Sheet sheet : wb) {
+            assertEquals(0, ((SXSSFSheet) sheet).getSheetDataWriter().getBytesUsed());
+        }
+        xwb.close();
+        wb.close();
+    }
+
+    @Test
+    public void writeWithExecutor() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (boolean useSharedStringsTable : new boolean[] { false, true }) {
+                SXSSFWorkbook wb = new SXSSFWorkbook(null, 100, false, useSharedStringsTable);
+                int rowNum = 1000;
+                int sheetNum = 8;
+                for(int i = 0; i < sheetNum; i++){
+                    Sheet sh = wb.createSheet("sheet" + i);
+                    for(int j = 0; j < rowNum; j++){
+                        Row row = sh.createRow(j);
+                        Cell cell1 = row.createCell(0);
+                        cell1.setCellValue(new CellReference(cell1).formatAsString());
+
+                        Cell cell2 = row.createCell(1);
+                        cell2.setCellValue(i);
+
+                        Cell cell3 = row.createCell(2);
+                        cell3.setCellValue(j);
+                    }
+                }
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                wb.write(out, executor);
+                XSSFWorkbook xwb = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+                assertEquals(sheetNum, xwb.getNumberOfSheets());
+                for(int i = 0; i < sheetNum; i++){
+                    Sheet sh = xwb.getSheetAt(i);
+                    assertEquals("sheet" + i, sh.getSheetName());
+                    for(int j = 0; j < rowNum; j++){
+                        Row row = sh.getRow(j);
+                        assertNotNull("row[" + j + "]", row);
+                        Cell cell1 = row.getCell(0);
+                        assertEquals(new CellReference(cell1).formatAsString(), cell1.getStringCellValue());
+
+                        Cell cell2 = row.getCell(1);
+                        assertEquals(i, (int)cell2.getNumericCellValue());
+
+                        Cell cell3 = row.getCell(2);
+                        assertEquals(j, (int)cell3.getNumericCellValue());
+                    }
+                }
+
+                assertTrue(wb.dispose());
+                xwb.close();
+                wb.close();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     protected static void assertWorkbookDispose(SXSSFWorkbook wb)
     {
         int rowNum = 1000;
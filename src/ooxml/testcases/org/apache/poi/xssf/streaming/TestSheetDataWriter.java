@@ -0,0 +1,120 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.util.IOUtils;
+import org.junit.Test;
+
+/**
+ * Tests for the XML written by {@link SheetDataWriter}
+ */
+public final class TestSheetDataWriter {
+
+    private static String getXml(SheetDataWriter writer) throws IOException {
+        writer.close();
+        InputStream is = writer.getWorksheetXMLInputStream();
+        try {
+            return new String(IOUtils.toByteArray(is), "UTF-8");
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void writeNumberMatchesDoubleToString() throws IOException {
+        double[] values = {
+            0, -0.0, 1, -1, 42, 0.5, -2.25, 1e-3, 1e-4, 9999999, -9999999, 1e7, -1e7,
+            123456789, 1e15, 1e300, 0.1 + 0.2, Math.PI, Double.MAX_VALUE, Double.MIN_VALUE,
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Long.MAX_VALUE, Long.MIN_VALUE
+        };
+        SheetDataWriter writer = new ByteBufferSheetDataWriter();
+        StringBuilder expected = new StringBuilder();
+        for (double value : values) {
+            writer.writeNumber(value);
+            expected.append(Double.toString(value)).append('|');
+            writer.outputQuotedString("|");
+        }
+        assertEquals(expected.toString(), getXml(writer));
+        writer.dispose();
+    }
+
+    @Test
+    public void writeLongNumbers() throws IOException {
+        long[] values = { 0, 1, -1, 10, 1048576, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+        SheetDataWriter writer = new ByteBufferSheetDataWriter();
+        StringBuilder expected = new StringBuilder();
+        for (long value : values) {
+            writer.writeNumber(value);
+            expected.append(value).append('|');
+            writer.outputQuotedString("|");
+        }
+        assertEquals(expected.toString(), getXml(writer));
+        writer.dispose();
+    }
+
+    @Test
+    public void outputQuotedString() throws IOException {
+        SheetDataWriter writer = new ByteBufferSheetDataWriter();
+        writer.outputQuotedString("a<b>&\"c\"\n\t\u00e9");
+        // a longer string than the initial scratch buffer, followed by a shorter one
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longText.append("text ").append(i).append(' ');
+        }
+        writer.outputQuotedString(longText.toString());
+        writer.outputQuotedString("x");
+        assertEquals("a&lt;b&gt;&amp;&quot;c&quot;&#xa;&#x9;&#233;" + longText + "x", getXml(writer));
+        writer.dispose();
+    }
+
+    @Test
+    public void writeRow() throws IOException {
+        SXSSFWorkbook wb = new SXSSFWorkbook();
+        try {
+            SXSSFSheet sheet = wb.createSheet();
+            SXSSFRow row = sheet.createRow(99);
+            row.createCell(0).setCellValue(3);
+            row.createCell(27).setCellValue(2.5);
+            row.createCell(16383).setCellValue(true);
+            Cell formula = row.createCell(2);
+            formula.setCellFormula("A100*2");
+
+            SheetDataWriter writer = new ByteBufferSheetDataWriter();
+            writer.writeRow(99, row);
+            String xml = getXml(writer);
+            assertTrue(xml, xml.startsWith("<row r=\"100\">"));
+            assertTrue(xml, xml.contains("<c r=\"A100\" t=\"n\"><v>3.0</v></c>"));
+            assertTrue(xml, xml.contains("<c r=\"AB100\" t=\"n\"><v>2.5</v></c>"));
+            assertTrue(xml, xml.contains("<c r=\"XFD100\" t=\"b\"><v>1</v></c>"));
+            assertTrue(xml, xml.contains("<c r=\"C100\"><f>A100*2</f>"));
+            writer.dispose();
+        } finally {
+            wb.dispose();
+            wb.close();
+        }
+    }
+}
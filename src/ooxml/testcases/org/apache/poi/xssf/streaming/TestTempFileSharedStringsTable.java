@@ -0,0 +1,157 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.junit.Test;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRElt;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRst;
+
+public final class TestTempFileSharedStringsTable {
+
+    @Test
+    public void addAndLookup() throws IOException {
+        // a tiny cache, so that most lookups go through the temp files
+        TempFileSharedStringsTable sst = new TempFileSharedStringsTable(4);
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, sst.addString("string " + i));
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            assertEquals(i, sst.addString("string " + i));
+        }
+        assertEquals(count, sst.getUniqueCount());
+        assertEquals(2 * count, sst.getCount());
+
+        assertEquals(count, sst.addEntry(new XSSFRichTextString("new").getCTRst()));
+        assertEquals(7, sst.addEntry(new XSSFRichTextString("string 7").getCTRst()));
+        assertEquals("string 4711", sst.getEntryAt(4711).getT());
+        assertEquals(count + 1, sst.getItems().size());
+        assertEquals("new", sst.getItems().get(count).getT());
+
+        assertTrue(sst.dispose());
+    }
+
+    @Test
+    public void hashCollisions() throws IOException {
+        TempFileSharedStringsTable sst = new TempFileSharedStringsTable(0);
+        // "Aa" and "BB" have the same hash code and length
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals(0, sst.addString("AaAa"));
+        assertEquals(1, sst.addString("BBBB"));
+        assertEquals(2, sst.addString("AaBB"));
+        assertEquals(1, sst.addString("BBBB"));
+        assertEquals(0, sst.addString("AaAa"));
+        assertEquals(3, sst.getUniqueCount());
+        assertEquals("AaBB", sst.getEntryAt(2).getT());
+
+        assertTrue(sst.dispose());
+    }
+
+    @Test
+    public void smallBucketsAndBuffers() throws IOException {
+        // long chains per bucket and entries spread over the buffers and the files
+        TempFileSharedStringsTable sst = new TempFileSharedStringsTable(0, 4, 32);
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            longText.append("longer than the buffer ");
+        }
+        int count = 500;
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, sst.addString(i % 50 == 0 ? longText + " " + i : "s" + i));
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, sst.addString(i % 50 == 0 ? longText + " " + i : "s" + i));
+        }
+        assertEquals(count, sst.getUniqueCount());
+        assertEquals("s499", sst.getEntryAt(499).getT());
+        assertEquals(longText + " 450", sst.getEntryAt(450).getT());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sst.writeTo(out);
+        assertTrue(sst.dispose());
+        SharedStringsTable read = new SharedStringsTable();
+        read.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(count, read.getUniqueCount());
+        assertEquals("s1", read.getEntryAt(1).getT());
+        assertEquals(longText + " 0", read.getEntryAt(0).getT());
+    }
+
+    @Test
+    public void richText() throws IOException {
+        TempFileSharedStringsTable sst = new TempFileSharedStringsTable();
+
+        CTRst rich = CTRst.Factory.newInstance();
+        CTRElt run = rich.addNewR();
+        run.addNewRPr().addNewB().setVal(true);
+        run.setT("bold");
+        rich.addNewR().setT(" plain");
+
+        assertEquals(0, sst.addString("bold plain"));
+        assertEquals(1, sst.addEntry(rich));
+        assertEquals(1, sst.addEntry(rich));
+        assertEquals(2, sst.getUniqueCount());
+
+        CTRst read = sst.getEntryAt(1);
+        assertEquals(2, read.sizeOfRArray());
+        assertEquals("bold", read.getRArray(0).getT());
+        assertTrue(read.getRArray(0).getRPr().getBArray(0).getVal());
+        assertEquals(" plain", read.getRArray(1).getT());
+
+        assertTrue(sst.dispose());
+    }
+
+    @Test
+    public void writeTo() throws IOException {
+        TempFileSharedStringsTable sst = new TempFileSharedStringsTable();
+        sst.addString("a");
+        sst.addString(" leading space");
+        sst.addString("<tag> & \"quote\"");
+        sst.addString("a");
+        sst.addString("\u00e9\u4e2d\ud83d\ude00");
+        CTRst rich = CTRst.Factory.newInstance();
+        rich.addNewR().setT("run1");
+        rich.addNewR().setT("run2");
+        sst.addEntry(rich);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sst.writeTo(out);
+        assertTrue(sst.dispose());
+
+        SharedStringsTable read = new SharedStringsTable();
+        read.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(6, read.getCount());
+        assertEquals(5, read.getUniqueCount());
+        assertEquals("a", new XSSFRichTextString(read.getEntryAt(0)).getString());
+        assertEquals(" leading space", new XSSFRichTextString(read.getEntryAt(1)).getString());
+        assertEquals("<tag> & \"quote\"", new XSSFRichTextString(read.getEntryAt(2)).getString());
+        assertEquals("\u00e9\u4e2d\ud83d\ude00", new XSSFRichTextString(read.getEntryAt(3)).getString());
+        assertEquals(2, read.getEntryAt(4).sizeOfRArray());
+        assertEquals("run1run2", new XSSFRichTextString(read.getEntryAt(4)).getString());
+    }
+}
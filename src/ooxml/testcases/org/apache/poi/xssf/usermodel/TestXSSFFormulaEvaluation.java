@@ -20,8 +20,11 @@ package org.apache.poi.xssf.usermodel;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.poi.hssf.HSSFTestDataSamples;
 import org.apache.poi.ss.usermodel.BaseTestFormulaEvaluator;
@@ -49,6 +52,66 @@ public final class TestXSSFFormulaEvaluation extends BaseTestFormulaEvaluator {
         baseTestSharedFormulas("shared_formulas.xlsx");
     }
 
+    @Test
+    public void evaluateAllWithExecutor() throws IOException {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        XSSFSheet data = wb.createSheet("Data");
+        XSSFSheet calc = wb.createSheet("Calc");
+        for (int i = 0; i < 300; i++) {
+            XSSFRow row = data.createRow(i);
+            row.createCell(0).setCellValue(i);
+            row.createCell(1).setCellFormula(i == 0 ? "A1" : "B" + i + "+A" + (i + 1));
+        }
+        calc.createRow(0).createCell(0).setCellFormula("Data!B300*2");
+        calc.getRow(0).createCell(1).setCellFormula("SUM(Data!B1:B300)-A1");
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            new XSSFFormulaEvaluator(wb).evaluateAll(executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(44850.0, data.getRow(299).getCell(1).getNumericCellValue(), 0.0);
+        assertEquals(89700.0, calc.getRow(0).getCell(0).getNumericCellValue(), 0.0);
+
+        XSSFWorkbook serial = XSSFTestDataSamples.writeOutAndReadBack(wb);
+        XSSFFormulaEvaluator.evaluateAllFormulaCells(serial);
+        assertEquals(serial.getSheet("Calc").getRow(0).getCell(1).getNumericCellValue(),
+                calc.getRow(0).getCell(1).getNumericCellValue(), 0.0);
+        serial.close();
+        wb.close();
+    }
+
+    @Test
+    public void recalculate() throws IOException {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        XSSFSheet sheet = wb.createSheet("Sheet1");
+        XSSFRow row = sheet.createRow(0);
+        XSSFCell input = row.createCell(0);
+        input.setCellValue(2);
+        row.createCell(1).setCellFormula("A1*2");
+        row.createCell(2).setCellFormula("SUM(A1:B1)");
+        row.createCell(3).setCellFormula("1+1");
+        XSSFFormulaEvaluator evaluator = new XSSFFormulaEvaluator(wb);
+        evaluator.evaluateAll();
+
+        // D1 does not depend on A1, its marker must survive
+        row.getCell(3).setCellValue(42);
+        input.setCellValue(5);
+        evaluator.recalculate(Collections.singleton(input));
+        assertEquals(10.0, row.getCell(1).getNumericCellValue(), 0.0);
+        assertEquals(15.0, row.getCell(2).getNumericCellValue(), 0.0);
+        assertEquals(42.0, row.getCell(3).getNumericCellValue(), 0.0);
+
+        // a new formula cell is picked up
+        row.createCell(4).setCellFormula("C1*2");
+        evaluator.notifySetFormula(row.getCell(4));
+        evaluator.recalculate(Collections.singleton(input));
+        assertEquals(30.0, row.getCell(4).getNumericCellValue(), 0.0);
+        wb.close();
+    }
+
     @Test
     public void testSharedFormulas_evaluateInCell() throws IOException {
         XSSFWorkbook wb = (XSSFWorkbook)_testDataProvider.openSampleWorkbook("49872.xlsx");
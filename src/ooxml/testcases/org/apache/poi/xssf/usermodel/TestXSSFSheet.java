@@ -27,6 +27,8 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -38,6 +40,7 @@ import java.util.Set;
 
 import org.apache.poi.POIXMLException;
 import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.poifs.crypt.CryptoFunctions;
 import org.apache.poi.poifs.crypt.HashAlgorithm;
 import org.apache.poi.ss.SpreadsheetVersion;
@@ -1949,4 +1952,40 @@ public final class TestXSSFSheet extends BaseTestXSheet {
             wb.close();
         }
     }
+
+    @Test
+    public void compactRowStorage() throws Exception {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        wb.setCompactRowStorage(true);
+        XSSFSheet sheet = wb.createSheet();
+        assertTrue(sheet.isCompactRowStorage());
+        for (int rownum : new int[] { 5, 1, 3, 7 }) {
+            XSSFRow row = sheet.createRow(rownum);
+            row.createCell(4).setCellValue(rownum + 0.4);
+            row.createCell(0).setCellValue(rownum);
+        }
+        sheet.removeRow(sheet.getRow(7));
+        sheet.shiftRows(3, 5, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        wb.write(out);
+        wb.close();
+
+        // sheets read on demand use the storage set after opening the workbook
+        XSSFWorkbook wb2 = new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(out.toByteArray())), true);
+        assertFalse(wb2.isCompactRowStorage());
+        wb2.setCompactRowStorage(true);
+        XSSFSheet sheet2 = wb2.getSheetAt(0);
+        assertTrue(sheet2.isCompactRowStorage());
+        int[] expectedRows = { 1, 4, 6 };
+        int i = 0;
+        for (Row row : sheet2) {
+            assertEquals(expectedRows[i++], row.getRowNum());
+            assertEquals(0, row.getFirstCellNum());
+            assertEquals(5, row.getLastCellNum());
+            assertEquals(row.getCell(0).getNumericCellValue() + 0.4, row.getCell(4).getNumericCellValue(), 0.0);
+        }
+        assertEquals(3, i);
+        assertFalse(new XSSFWorkbook().createSheet().isCompactRowStorage());
+        wb2.close();
+    }
 }
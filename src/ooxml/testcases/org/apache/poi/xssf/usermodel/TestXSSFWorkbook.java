@@ -39,6 +39,7 @@ import java.util.List;
 import java.util.zip.CRC32;
 
 import org.apache.poi.POIDataSamples;
+import org.apache.poi.POIXMLDocumentPart;
 import org.apache.poi.POIXMLProperties;
 import org.apache.poi.hssf.HSSFTestDataSamples;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
@@ -1091,6 +1092,71 @@ public final class TestXSSFWorkbook extends BaseTestXWorkbook {
         //assertCloseDoesNotModifyFile(filename, wb);
     }
 
+    @Test
+    public void readSheetsOnDemand() throws Exception {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        for (int i = 0; i < 3; i++) {
+            wb.createSheet("Sheet" + i).createRow(i).createCell(i).setCellValue("value" + i);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        wb.write(out);
+        wb.close();
+
+        wb = new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(out.toByteArray())), true);
+        assertEquals(3, wb.getNumberOfSheets());
+        assertEquals("Sheet2", wb.getSheetName(2));
+        assertEquals(2, wb.getSheetIndex("Sheet2"));
+        assertEquals(0, countReadSheets(wb));
+
+        XSSFSheet sheet = wb.getSheetAt(1);
+        assertTrue(sheet.isDocumentRead());
+        assertEquals(1, countReadSheets(wb));
+        assertFalse(wb.isSheetRead(0));
+        assertTrue(wb.isSheetRead(1));
+        assertEquals("value1", sheet.getRow(1).getCell(1).getStringCellValue());
+        sheet.getRow(1).getCell(1).setCellValue("changed");
+
+        // a sheet which was not read is removed without reading it
+        XSSFSheet unread = null;
+        for (POIXMLDocumentPart p : wb.getRelations()) {
+            if (p instanceof XSSFSheet && "Sheet2".equals(((XSSFSheet) p).getSheetName())) {
+                unread = (XSSFSheet) p;
+            }
+        }
+        assertNotNull(unread);
+        wb.removeSheetAt(2);
+        assertFalse(unread.isDocumentRead());
+        assertEquals(1, countReadSheets(wb));
+        assertEquals(2, wb.getPackage().getPartsByContentType(XSSFRelation.WORKSHEET.getContentType()).size());
+
+        // the sheets which were not read are written back unchanged
+        XSSFWorkbook wb2 = XSSFTestDataSamples.writeOutAndReadBack(wb);
+        wb.close();
+        assertEquals(2, wb2.getNumberOfSheets());
+        assertEquals("value0", wb2.getSheetAt(0).getRow(0).getCell(0).getStringCellValue());
+        assertEquals("changed", wb2.getSheetAt(1).getRow(1).getCell(1).getStringCellValue());
+        wb2.close();
+
+        // finding a unique name for a new sheet does not read the others
+        wb = new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(out.toByteArray())), true);
+        wb.removeSheetAt(0);
+        assertEquals("Sheet0", wb.createSheet().getSheetName());
+        assertFalse(wb.isSheetRead(0));
+        assertFalse(wb.isSheetRead(1));
+        assertTrue(wb.isSheetRead(2));
+        wb.close();
+    }
+
+    private static int countReadSheets(XSSFWorkbook wb) {
+        int count = 0;
+        for (POIXMLDocumentPart p : wb.getRelations()) {
+            if (p instanceof XSSFSheet && ((XSSFSheet) p).isDocumentRead()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
 	@Test
 	public void testCloseBeforeWrite() throws IOException {
 		Workbook wb = new XSSFWorkbook();
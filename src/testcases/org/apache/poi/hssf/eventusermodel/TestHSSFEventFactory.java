@@ -16,9 +16,13 @@
 ==================================================================== */
 
 package org.apache.poi.hssf.eventusermodel;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.TestCase;
 
@@ -35,6 +39,8 @@ import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.SelectionRecord;
 import org.apache.poi.hssf.record.WindowTwoRecord;
 import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.junit.After;
 
@@ -74,6 +80,114 @@ public final class TestHSSFEventFactory extends TestCase {
         assertEquals(EOFRecord.class,	   recs[numRec-1].getClass());
     }
 
+    /**
+     * Reusing the cell records must not change what the listeners see
+     */
+    public void testReuseCellRecords() throws Exception {
+        List<String> expected = readRecordTexts("45365.xls", false);
+        List<String> actual = readRecordTexts("45365.xls", true);
+        assertEquals(expected, actual);
+
+        // one instance for all numbers
+        final List<Record> numbers = new ArrayList<Record>();
+        HSSFRequest req = new HSSFRequest();
+        req.addListener(new HSSFListener() {
+            public void processRecord(Record rec) {
+                numbers.add(rec);
+            }
+        }, NumberRecord.sid);
+        HSSFEventFactory factory = new HSSFEventFactory();
+        factory.setReuseCellRecords(true);
+        factory.processWorkbookEvents(req, new POIFSFileSystem(openSample("45365.xls")));
+        assertTrue(numbers.size() > 1);
+        assertSame(numbers.get(0), numbers.get(numbers.size() - 1));
+    }
+
+    public void testProcessMappedFile() throws Exception {
+        for (String sampleFileName : new String[] { "45365.xls", "42844.xls" }) {
+            List<String> expected = readRecordTexts(sampleFileName, false);
+
+            final List<String> actual = new ArrayList<String>();
+            File file = HSSFTestDataSamples.getSampleFile(sampleFileName);
+            new HSSFEventFactory().processWorkbookEvents(createTextCollectingRequest(actual), file);
+            assertEquals(expected, actual);
+        }
+    }
+
+    public void testProcessSheetsInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (String sampleFileName : new String[] { "SampleSS.xls", "45365.xls", "42844.xls" }) {
+                checkProcessSheetsInParallel(sampleFileName, executor);
+            }
+
+            // encrypted workbooks are processed sheet by sheet
+            Biff8EncryptionKey.setCurrentUserPassword("abc");
+            checkProcessSheetsInParallel("xor-encryption-abc.xls", executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void checkProcessSheetsInParallel(String sampleFileName, ExecutorService executor) throws IOException {
+        List<String> expected = readRecordTexts(sampleFileName, false);
+
+        POIFSFileSystem fs = new POIFSFileSystem(openSample(sampleFileName));
+        checkProcessSheetsInParallel(sampleFileName, expected, fs.getRoot(), executor);
+
+        // the sheets are read concurrently from the file
+        NPOIFSFileSystem nfs = new NPOIFSFileSystem(HSSFTestDataSamples.getSampleFile(sampleFileName), true);
+        try {
+            checkProcessSheetsInParallel(sampleFileName, expected, nfs.getRoot(), executor);
+        } finally {
+            nfs.close();
+        }
+    }
+
+    private static void checkProcessSheetsInParallel(String sampleFileName, List<String> expected,
+            DirectoryNode dir, ExecutorService executor) throws IOException {
+
+        List<String> globals = new ArrayList<String>();
+        final List<List<String>> sheets = new ArrayList<List<String>>();
+        HSSFSheetRequestFactory sheetReqs = new HSSFSheetRequestFactory() {
+            public HSSFRequest createSheetRequest(int sheetIndex, BoundSheetRecord boundSheet) {
+                assertEquals(sheets.size(), sheetIndex);
+                List<String> texts = new ArrayList<String>();
+                sheets.add(texts);
+                return createTextCollectingRequest(texts);
+            }
+        };
+        new HSSFEventFactory().processWorkbookEvents(createTextCollectingRequest(globals), sheetReqs,
+                dir, executor);
+
+        assertTrue(sheets.size() > 0);
+        List<String> actual = new ArrayList<String>(globals);
+        for (List<String> sheet : sheets) {
+            assertTrue(sheet.get(0).startsWith("[BOF RECORD]"));
+            actual.addAll(sheet);
+        }
+        assertEquals(sampleFileName, expected, actual);
+    }
+
+    private static List<String> readRecordTexts(String sampleFileName, boolean reuseCellRecords) throws IOException {
+        final List<String> result = new ArrayList<String>();
+        HSSFEventFactory factory = new HSSFEventFactory();
+        factory.setReuseCellRecords(reuseCellRecords);
+        factory.processWorkbookEvents(createTextCollectingRequest(result),
+                new POIFSFileSystem(openSample(sampleFileName)));
+        return result;
+    }
+
+    private static HSSFRequest createTextCollectingRequest(final List<String> result) {
+        HSSFRequest req = new HSSFRequest();
+        req.addListenerForAllRecords(new HSSFListener() {
+            public void processRecord(Record rec) {
+                result.add(rec.toString());
+            }
+        });
+        return req;
+    }
+
     public void testWithCrazyContinueRecords() throws Exception {
         // Some files have crazy ordering of their continue records
         // Check that we don't break on them (bug #42844)
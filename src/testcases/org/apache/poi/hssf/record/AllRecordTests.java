@@ -78,6 +78,7 @@ import org.junit.runners.Suite;
     TestSCLRecord.class,
     TestSSTDeserializer.class,
     TestSSTRecord.class,
+    TestSSTStringPool.class,
     TestSSTRecordSizeCalculator.class,
     TestSharedFormulaRecord.class,
     TestStringRecord.class,
@@ -0,0 +1,90 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.record;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.hssf.record.common.UnicodeString;
+import org.apache.poi.util.HexRead;
+import org.apache.poi.util.IntMapper;
+import org.junit.Test;
+
+/**
+ * Checks that the lazily decoded {@link SSTStringPool} gives the same strings as
+ * the {@link SSTDeserializer}.
+ */
+public final class TestSSTStringPool {
+    private static final int FAKE_SID = -5555;
+
+    private static byte[] readSampleHexData(String sampleFileName, String... sectionNames) throws IOException {
+        byte[] result = {};
+        for (int i = 0; i < sectionNames.length; i++) {
+            InputStream is = HSSFTestDataSamples.openSampleFileStream(sampleFileName);
+            byte[] data = HexRead.readData(is, sectionNames[i]);
+            is.close();
+            int sid = i == 0 ? FAKE_SID : ContinueRecord.sid;
+            byte[] record = TestcaseRecordInputStream.mergeDataAndSid(sid, data.length, data);
+            byte[] concat = new byte[result.length + record.length];
+            System.arraycopy(result, 0, concat, 0, result.length);
+            System.arraycopy(record, 0, concat, result.length, record.length);
+            result = concat;
+        }
+        return result;
+    }
+
+    private static void confirmSameStrings(int stringCount, byte[] data) {
+        IntMapper<UnicodeString> expected = new IntMapper<UnicodeString>();
+        new SSTDeserializer(expected).manufactureStrings(stringCount, TestcaseRecordInputStream.create(data));
+
+        SSTStringPool pool = new SSTStringPool(stringCount, TestcaseRecordInputStream.create(data));
+        assertEquals(stringCount, pool.size());
+        for (int i = 0; i < stringCount; i++) {
+            UnicodeString actual = pool.get(i);
+            assertEquals(expected.get(i), actual);
+            assertEquals(expected.get(i).getDebugInfo(), actual.getDebugInfo());
+            // decoded only once
+            assertSame(actual, pool.get(i));
+        }
+    }
+
+    @Test
+    public void testSpanRichTextToPlainText() throws IOException {
+        confirmSameStrings(1, readSampleHexData("richtextdata.txt", "header", "continue1"));
+    }
+
+    @Test
+    public void testContinuationWithNoOverlap() throws IOException {
+        confirmSameStrings(2, readSampleHexData("evencontinuation.txt", "header", "continue1"));
+    }
+
+    @Test
+    public void testStringAcross2Continuations() throws IOException {
+        confirmSameStrings(2, readSampleHexData("stringacross2continuations.txt", "header", "continue1", "continue2"));
+    }
+
+    @Test
+    public void testExtendedStrings() throws IOException {
+        confirmSameStrings(1, readSampleHexData("extendedtextstrings.txt", "rich-header", "rich-continue1"));
+        confirmSameStrings(1, readSampleHexData("extendedtextstrings.txt", "norich-header", "norich-continue1"));
+    }
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.Collections;
 
 import org.apache.poi.hssf.HSSFITestDataProvider;
 import org.apache.poi.hssf.HSSFTestDataSamples;
@@ -59,6 +60,44 @@ public final class TestHSSFFormulaEvaluator extends BaseTestFormulaEvaluator {
 		wb.close();
 	}
 
+	/**
+	 * Only the formula cells depending on the changed cells are evaluated again
+	 */
+	@Test
+	public void testRecalculate() throws IOException {
+		HSSFWorkbook wb = new HSSFWorkbook();
+		HSSFSheet sheet = wb.createSheet("Sheet1");
+		HSSFRow row = sheet.createRow(0);
+		HSSFCell input = row.createCell(0);
+		input.setCellValue(2);
+		row.createCell(1).setCellFormula("A1*2");
+		row.createCell(2).setCellFormula("SUM(A1:B1)");
+		row.createCell(3).setCellFormula("1+1");
+		row.createCell(4).setCellFormula("INDIRECT(\"D1\")");
+		HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+		fe.evaluateAll();
+		assertEquals(6.0, row.getCell(2).getNumericCellValue(), 0.0);
+
+		// marks D1 and E1 to see which cells were evaluated again
+		row.getCell(3).setCellValue(42);
+		row.getCell(4).setCellValue(42);
+		input.setCellValue(5);
+		fe.recalculate(Collections.singleton(input));
+		assertEquals(10.0, row.getCell(1).getNumericCellValue(), 0.0);
+		assertEquals(15.0, row.getCell(2).getNumericCellValue(), 0.0);
+		assertEquals(42.0, row.getCell(3).getNumericCellValue(), 0.0);
+		assertEquals(2.0, row.getCell(4).getNumericCellValue(), 0.0);
+
+		// a changed formula rebuilds the dependencies
+		row.getCell(3).setCellFormula("B1+1");
+		fe.notifySetFormula(row.getCell(3));
+		input.setCellValue(1);
+		fe.recalculate(Collections.singleton(input));
+		assertEquals(3.0, row.getCell(3).getNumericCellValue(), 0.0);
+		assertEquals(3.0, row.getCell(4).getNumericCellValue(), 0.0);
+		wb.close();
+	}
+
 	/**
 	 * Test for bug due to attempt to convert a cached formula error result to a boolean
 	 */
@@ -18,6 +18,7 @@
 package org.apache.poi.hssf.usermodel;
 
 import static org.apache.poi.POITestCase.assertContains;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -56,6 +57,7 @@ import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.formula.ptg.Area3DPtg;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.LittleEndian;
 import org.apache.poi.util.RecordFormatException;
 import org.apache.poi.util.TempFile;
@@ -1210,4 +1212,37 @@ public final class TestHSSFWorkbook extends BaseTestWorkbook {
         wb = new HSSFWorkbook(new FileInputStream(file));
         assertCloseDoesNotModifyFile(filename, wb);
     }
+
+    @Test
+    public void writeStreamsSameWorkbookBytes() throws IOException {
+        for (String sampleFileName : new String[] { "SampleSS.xls", "45365.xls" }) {
+            HSSFWorkbook wb = HSSFTestDataSamples.openSampleWorkbook(sampleFileName);
+            assertWrittenWorkbookStream(wb);
+            wb.close();
+        }
+
+        // with records larger than the buffer used for writing
+        HSSFWorkbook wb = new HSSFWorkbook();
+        for (int s = 0; s < 3; s++) {
+            Sheet sheet = wb.createSheet();
+            for (int r = 0; r < 2000; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue("String " + s + "/" + r);
+                row.createCell(1).setCellValue(r);
+            }
+        }
+        assertWrittenWorkbookStream(wb);
+        wb.close();
+    }
+
+    private static void assertWrittenWorkbookStream(HSSFWorkbook wb) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        wb.write(out);
+        NPOIFSFileSystem fs = new NPOIFSFileSystem(new ByteArrayInputStream(out.toByteArray()));
+        InputStream in = fs.createDocumentInputStream("Workbook");
+        byte[] written = IOUtils.toByteArray(in);
+        in.close();
+        fs.close();
+        assertArrayEquals(wb.getBytes(), written);
+    }
 }
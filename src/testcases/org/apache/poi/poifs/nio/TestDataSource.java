@@ -60,6 +60,65 @@ public class TestDataSource extends TestCase
       }
    }
 
+   public void testFileReadOnlyView() throws Exception {
+      File f = data.getFile("Notes.ole2");
+      
+      FileBackedDataSource ds = new FileBackedDataSource(f);
+      try {
+          ByteBuffer copy = ds.read(512, 1024);
+          ByteBuffer view = ds.readOnly(512, 1024);
+          assertTrue(view.isReadOnly());
+          assertEquals(0, view.position());
+          assertEquals(512, view.remaining());
+          assertEquals(copy, view);
+
+          // past the end of the file, the usual read is done
+          long size = ds.size();
+          assertEquals(ds.read(512, size - 100), ds.readOnly(512, size - 100));
+      } finally {
+          ds.close();
+      }
+   }
+
+   public void testFileReadOnlyViewConcurrently() throws Exception {
+      File f = data.getFile("Notes.ole2");
+
+      final FileBackedDataSource ds = new FileBackedDataSource(f);
+      try {
+          final ByteBuffer expected = ds.read(512, 1024);
+          final Throwable[] failures = new Throwable[8];
+          Thread[] threads = new Thread[failures.length];
+          for (int i = 0; i < threads.length; i++) {
+              final int index = i;
+              threads[i] = new Thread() {
+                  @Override
+                  public void run() {
+                      try {
+                          for (int j = 0; j < 100; j++) {
+                              assertEquals(expected, ds.readOnly(512, 1024));
+                          }
+                      } catch (Throwable t) {
+                          failures[index] = t;
+                      }
+                  }
+              };
+          }
+          for (Thread thread : threads) {
+              thread.start();
+          }
+          for (Thread thread : threads) {
+              thread.join();
+          }
+          for (Throwable failure : failures) {
+              if (failure != null) {
+                  throw new AssertionError(failure);
+              }
+          }
+      } finally {
+          ds.close();
+      }
+   }
+
    public void testFileWritable() throws Exception {
        File temp = TempFile.createTempFile("TestDataSource", ".test");
        try {
@@ -29,7 +29,10 @@ import org.junit.runners.Suite;
     TestCellCacheEntry.class,
     TestEvaluationCache.class,
     TestWorkbookEvaluator.class,
-    TestForkedEvaluator.class
+    TestForkedEvaluator.class,
+    TestParallelFormulaEvaluator.class,
+    TestFormulaDependencyGraph.class,
+    TestCompiledFormula.class
 })
 public class AllSSFormulaTests {
 }
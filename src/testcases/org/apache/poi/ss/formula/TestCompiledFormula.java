@@ -0,0 +1,158 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.model.HSSFFormulaParser;
+import org.apache.poi.hssf.usermodel.HSSFCell;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFName;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.ptg.AttrPtg;
+import org.apache.poi.ss.formula.ptg.IntPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CompiledFormula}
+ */
+public final class TestCompiledFormula {
+
+    private static final String[] FORMULAS = {
+        "A1+B1*2-C1/4",
+        "IF(A1>1,\"big\",\"small\")",
+        "IF(A1<1,\"small\")",
+        "IF(A1>1,IF(B1>1,1,2),3)",
+        "IF(D1,1,2)",
+        "IF(A1>1,,\"x\")&\"y\"",
+        "CHOOSE(A1,\"one\",\"two\",\"three\")",
+        "CHOOSE(A1+5,1,2)",
+        "SUM(A1:C1)",
+        "SUM(A1)",
+        "Total*2",
+        "Other!A1+Other!A1:A2",
+        "INDIRECT(\"A1\")+1",
+        "-A1%",
+        "D1",
+        "ISBLANK(E1)",
+        "#REF!",
+        "(A1-A1)*-1",
+        "0-0*-1",
+        "-(A1-A1)",
+        "A1/(B1-B1)+1",
+        "D1+A1*B1",
+        "\"3\"+A1^2",
+        "\"x\"*2+1",
+        "E1+1",
+        "A1:C1*2",
+        "SUM(A1*2,B1)-MAX(A1+1,C1)",
+        "IF(A1*2>3,A1-1,-B1)",
+        "10^400-1",
+    };
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet sheet = wb.createSheet("Sheet1");
+        HSSFRow row = sheet.createRow(0);
+        row.createCell(0).setCellValue(2);
+        row.createCell(1).setCellValue(3);
+        row.createCell(2).setCellValue(8);
+        row.createCell(3).setCellFormula("1/0");
+        HSSFSheet other = wb.createSheet("Other");
+        other.createRow(0).createCell(0).setCellValue(5);
+        HSSFName name = wb.createName();
+        name.setNameName("Total");
+        name.setRefersToFormula("SUM(Sheet1!$A$1:$C$1)");
+        return wb;
+    }
+
+    @Test
+    public void sameResultsAsInterpreter() throws IOException {
+        HSSFWorkbook wb = createWorkbook();
+        HSSFSheet sheet = wb.getSheet("Sheet1");
+        HSSFRow row = sheet.getRow(0);
+
+        HSSFRow formulaRow = sheet.createRow(2);
+        for (int i = 0; i < FORMULAS.length; i++) {
+            formulaRow.createCell(i).setCellFormula(FORMULAS[i]);
+        }
+
+        HSSFFormulaEvaluator interpreted = new HSSFFormulaEvaluator(wb);
+        HSSFFormulaEvaluator compiled = new HSSFFormulaEvaluator(wb);
+        compiled.setCompileFormulas(true);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < FORMULAS.length; i++) {
+                HSSFCell cell = formulaRow.getCell(i);
+                CellValue expected = interpreted.evaluate(cell);
+                CellValue actual = compiled.evaluate(cell);
+                assertEquals(FORMULAS[i], expected.formatAsString(), actual.formatAsString());
+            }
+            // evaluate again after a change of an input cell
+            HSSFCell a1 = row.getCell(0);
+            a1.setCellValue(0.5);
+            interpreted.notifyUpdateCell(a1);
+            compiled.notifyUpdateCell(a1);
+        }
+        wb.close();
+    }
+
+    @Test
+    public void compile() throws IOException {
+        HSSFWorkbook wb = createWorkbook();
+        for (String formula : FORMULAS) {
+            Ptg[] ptgs = HSSFFormulaParser.parse(formula, wb);
+            assertTrue(formula, CompiledFormula.compile(ptgs).isCompiled());
+        }
+        wb.close();
+
+        // skip distance past the last token is left to the interpreter
+        Ptg[] ptgs = { new IntPtg(1), AttrPtg.createSkip(100), new IntPtg(2) };
+        assertFalse(CompiledFormula.compile(ptgs).isCompiled());
+    }
+
+    @Test
+    public void changedFormula() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet sheet = wb.createSheet("Sheet1");
+        HSSFRow row = sheet.createRow(0);
+        row.createCell(0).setCellValue(2);
+        HSSFCell cell = row.createCell(1);
+        cell.setCellFormula("A1*2");
+
+        HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+        fe.setCompileFormulas(true);
+        assertEquals(4.0, fe.evaluate(cell).getNumberValue(), 0.0);
+
+        cell.setCellFormula("A1*3");
+        fe.notifySetFormula(cell);
+        assertEquals(6.0, fe.evaluate(cell).getNumberValue(), 0.0);
+
+        cell.setCellFormula("A1*4");
+        fe.clearAllCachedResultValues();
+        assertEquals(8.0, fe.evaluate(cell).getNumberValue(), 0.0);
+        wb.close();
+    }
+}
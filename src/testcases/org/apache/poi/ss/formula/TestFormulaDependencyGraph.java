@@ -0,0 +1,161 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FormulaDependencyGraph}
+ */
+public final class TestFormulaDependencyGraph {
+
+    private static void setFormula(Sheet sheet, int row, int col, String formula) {
+        Row r = sheet.getRow(row);
+        if (r == null) {
+            r = sheet.createRow(row);
+        }
+        r.createCell(col).setCellFormula(formula);
+    }
+
+    private static FormulaDependencyGraph build(HSSFWorkbook wb, String... cells) {
+        HSSFEvaluationWorkbook ewb = HSSFEvaluationWorkbook.create(wb);
+        EvaluationCell[] evalCells = new EvaluationCell[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            CellReference ref = new CellReference(cells[i]);
+            EvaluationSheet sheet = ewb.getSheet(wb.getSheetIndex(ref.getSheetName()));
+            evalCells[i] = sheet.getCell(ref.getRow(), ref.getCol());
+        }
+        return new FormulaDependencyGraph(ewb, evalCells);
+    }
+
+    private static int[] dirty(FormulaDependencyGraph graph, String... cells) {
+        CellReference[] refs = new CellReference[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            refs[i] = new CellReference(cells[i]);
+        }
+        return graph.getDirtyCells(Arrays.asList(refs));
+    }
+
+    @Test
+    public void levelsAndRanges() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet s1 = wb.createSheet("S1");
+        Sheet s2 = wb.createSheet("S2");
+        s1.createRow(0).createCell(0).setCellValue(1);
+        setFormula(s1, 0, 1, "A1*2");               // 0: S1!B1
+        setFormula(s1, 1, 1, "SUM(A1:B1)");         // 1: S1!B2
+        setFormula(s1, 2, 1, "SUM(A1:B1)+B2");      // 2: S1!B3
+        setFormula(s2, 0, 0, "S1!B3+S1!A5000");     // 3: S2!A1
+        setFormula(s2, 0, 1, "1+1");                // 4: S2!B1
+
+        FormulaDependencyGraph graph = build(wb, "S1!B1", "S1!B2", "S1!B3", "S2!A1", "S2!B1");
+        assertEquals(5, graph.getNumberOfFormulaCells());
+        assertEquals(2, graph.indexOf(0, 2, 1));
+        assertEquals(-1, graph.indexOf(0, 0, 0));
+
+        assertEquals(4, graph.getLevels().size());
+        assertArrayEquals(new int[] { 0, 4 }, graph.getLevels().get(0));
+        assertArrayEquals(new int[] { 1 }, graph.getLevels().get(1));
+        assertArrayEquals(new int[] { 2 }, graph.getLevels().get(2));
+        assertArrayEquals(new int[] { 3 }, graph.getLevels().get(3));
+        assertEquals(0, graph.getUnresolved().length);
+
+        assertArrayEquals(new int[] { 0 }, graph.getPrecedents(1));
+        int[] dependents = graph.getDependents(0);
+        Arrays.sort(dependents);
+        assertArrayEquals(new int[] { 1, 2 }, dependents);
+
+        // value cells, inside a range and far away from all other cells
+        int[] direct = graph.getDirectDependents(0, 0, 0);
+        Arrays.sort(direct);
+        assertArrayEquals(new int[] { 0, 1, 2 }, direct);
+        assertArrayEquals(new int[] { 3 }, graph.getDirectDependents(0, 4999, 0));
+        assertEquals(0, graph.getDirectDependents(0, 3, 0).length);
+
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, dirty(graph, "S1!A1"));
+        assertArrayEquals(new int[] { 2, 3 }, dirty(graph, "S1!B3"));
+        assertArrayEquals(new int[] { 3 }, dirty(graph, "S1!A5000"));
+        assertArrayEquals(new int[] { 4 }, dirty(graph, "S2!B1"));
+        assertEquals(0, graph.getDirtyCells(Collections.<CellReference>emptyList()).length);
+        wb.close();
+    }
+
+    @Test
+    public void wholeRowAndColumnRanges() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet sheet = wb.createSheet("Sheet1");
+        setFormula(sheet, 0, 0, "1");                 // 0: A1
+        setFormula(sheet, 9, 0, "2");                 // 1: A10
+        setFormula(sheet, 9, 2, "3");                 // 2: C10
+        setFormula(sheet, 0, 3, "SUM(A:A)");          // 3: D1
+        setFormula(sheet, 1, 3, "SUM(10:10)");        // 4: D2
+        setFormula(sheet, 2, 3, "SUM(B:C)");          // 5: D3
+
+        FormulaDependencyGraph graph = build(wb, "Sheet1!A1", "Sheet1!A10", "Sheet1!C10",
+                "Sheet1!D1", "Sheet1!D2", "Sheet1!D3");
+        assertEquals(2, graph.getLevels().size());
+        assertArrayEquals(new int[] { 0, 1, 2 }, graph.getLevels().get(0));
+        assertArrayEquals(new int[] { 3, 4, 5 }, graph.getLevels().get(1));
+        int[] precedents = graph.getPrecedents(3);
+        Arrays.sort(precedents);
+        assertArrayEquals(new int[] { 0, 1 }, precedents);
+        precedents = graph.getPrecedents(4);
+        Arrays.sort(precedents);
+        assertArrayEquals(new int[] { 1, 2 }, precedents);
+        assertArrayEquals(new int[] { 2 }, graph.getPrecedents(5));
+        wb.close();
+    }
+
+    @Test
+    public void unresolvedCells() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet sheet = wb.createSheet("Sheet1");
+        sheet.createRow(0).createCell(0).setCellValue(1);
+        setFormula(sheet, 1, 0, "INDIRECT(\"A1\")");  // 0: A2, dynamic
+        setFormula(sheet, 2, 0, "A2+1");              // 1: A3, depends on a dynamic cell
+        setFormula(sheet, 3, 0, "B4+1");              // 2: A4, circular
+        setFormula(sheet, 3, 1, "A4+1");              // 3: B4, circular
+        setFormula(sheet, 4, 0, "A1+1");              // 4: A5
+
+        FormulaDependencyGraph graph = build(wb,
+                "Sheet1!A2", "Sheet1!A3", "Sheet1!A4", "Sheet1!B4", "Sheet1!A5");
+        assertTrue(graph.isDynamic(0));
+        assertEquals(1, graph.getLevels().size());
+        assertArrayEquals(new int[] { 4 }, graph.getLevels().get(0));
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, graph.getUnresolved());
+        assertEquals(-1, graph.getLevel(1));
+
+        // unresolved cells are always dirty, and evaluated last
+        assertArrayEquals(new int[] { 4, 0, 1, 2, 3 }, dirty(graph, "Sheet1!A1"));
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, dirty(graph, "Sheet1!C10"));
+        wb.close();
+    }
+}
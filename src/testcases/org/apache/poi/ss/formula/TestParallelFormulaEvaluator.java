@@ -0,0 +1,133 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParallelFormulaEvaluator}
+ */
+public final class TestParallelFormulaEvaluator {
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static void setFormula(Sheet sheet, int row, int col, String formula) {
+        Row r = sheet.getRow(row);
+        if (r == null) {
+            r = sheet.createRow(row);
+        }
+        r.createCell(col).setCellFormula(formula);
+    }
+
+    private static double getNumber(Sheet sheet, int row, int col) {
+        return sheet.getRow(row).getCell(col).getNumericCellValue();
+    }
+
+    @Test
+    public void chainsAndAreas() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet data = wb.createSheet("Data");
+        Sheet calc = wb.createSheet("Calc");
+        int rows = 500;
+        for (int i = 0; i < rows; i++) {
+            data.createRow(i).createCell(0).setCellValue(i + 1);
+            // running chain across rows, one dependency level per row
+            setFormula(data, i, 1, i == 0 ? "A1" : "B" + i + "+A" + (i + 1));
+            // many independent cells on the same level
+            setFormula(data, i, 2, "A" + (i + 1) + "*2");
+        }
+        setFormula(calc, 0, 0, "SUM(Data!C1:C" + rows + ")");
+        setFormula(calc, 0, 1, "Data!B" + rows + "-A1");
+        setFormula(calc, 0, 2, "INDIRECT(\"Data!B\" & " + rows + ")");
+        setFormula(calc, 1, 0, "B2+1");
+        setFormula(calc, 1, 1, "A2+1");
+        setFormula(calc, 2, 0, "IF(ISNUMBER(Data!A1),\"yes\",\"no\")");
+
+        new HSSFFormulaEvaluator(wb).evaluateAll(executor);
+
+        double total = rows * (rows + 1) / 2.0;
+        assertEquals(total, getNumber(data, rows - 1, 1), 0.0);
+        assertEquals(2 * total, getNumber(calc, 0, 0), 0.0);
+        assertEquals(-total, getNumber(calc, 0, 1), 0.0);
+        assertEquals(total, getNumber(calc, 0, 2), 0.0);
+        assertEquals("yes", calc.getRow(2).getCell(0).getStringCellValue());
+
+        // the circular reference is evaluated like the serial evaluation does it
+        HSSFWorkbook serial = new HSSFWorkbook();
+        Sheet serialCalc = serial.createSheet("Calc");
+        setFormula(serialCalc, 1, 0, "B2+1");
+        setFormula(serialCalc, 1, 1, "A2+1");
+        HSSFFormulaEvaluator.evaluateAllFormulaCells(serial);
+        for (int col = 0; col < 2; col++) {
+            Cell expected = serialCalc.getRow(1).getCell(col);
+            Cell actual = calc.getRow(1).getCell(col);
+            assertEquals(expected.getCachedFormulaResultType(), actual.getCachedFormulaResultType());
+            if (expected.getCachedFormulaResultType() == Cell.CELL_TYPE_ERROR) {
+                assertEquals(expected.getErrorCellValue(), actual.getErrorCellValue());
+            } else {
+                assertEquals(expected.getNumericCellValue(), actual.getNumericCellValue(), 0.0);
+            }
+        }
+        serial.close();
+        wb.close();
+    }
+
+    @Test
+    public void errorsAndNames() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet sheet = wb.createSheet("Sheet1");
+        sheet.createRow(0).createCell(0).setCellValue(3);
+        org.apache.poi.ss.usermodel.Name name = wb.createName();
+        name.setNameName("Triple");
+        name.setRefersToFormula("Sheet1!$B$1*3");
+        setFormula(sheet, 0, 1, "A1/0");
+        setFormula(sheet, 0, 2, "A1*3");
+        setFormula(sheet, 1, 0, "C1+1");
+        setFormula(sheet, 1, 1, "ISERROR(B1)");
+
+        new HSSFFormulaEvaluator(wb).evaluateAll(executor);
+
+        assertEquals(FormulaError.DIV0.getCode(), sheet.getRow(0).getCell(1).getErrorCellValue());
+        assertEquals(10.0, getNumber(sheet, 1, 0), 0.0);
+        assertEquals(true, sheet.getRow(1).getCell(1).getBooleanCellValue());
+        wb.close();
+    }
+}
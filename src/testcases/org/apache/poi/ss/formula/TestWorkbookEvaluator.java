@@ -575,4 +575,147 @@ public class TestWorkbookEvaluator {
         
         testIFEqualsFormulaEvaluation_teardown(wb);
     }
+
+    /**
+     * Exact match lookups use a cached index, which must follow changes of the looked up cells
+     */
+    @Test
+    public void testExactLookupIndex() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet sheet = wb.createSheet("Sheet1");
+        for (int i = 0; i < 10; i++) {
+            HSSFRow row = sheet.createRow(i);
+            row.createCell(0).setCellValue("Key" + i);
+            row.createCell(1).setCellValue(i * 10);
+        }
+        // duplicate key, the first occurrence is found
+        sheet.getRow(9).getCell(0).setCellValue("KEY3");
+        HSSFRow row = sheet.createRow(11);
+        HSSFCell vlookup = row.createCell(0);
+        vlookup.setCellFormula("VLOOKUP(\"key3\",A1:B12,2,FALSE)");
+        HSSFCell match = row.createCell(1);
+        match.setCellFormula("MATCH(\"Key9\",A1:A12,0)");
+        HSSFCell missing = row.createCell(2);
+        missing.setCellFormula("MATCH(\"New\",A1:A12,0)");
+        HSSFCell wildcard = row.createCell(3);
+        wildcard.setCellFormula("VLOOKUP(\"K*5\",A1:B12,2,FALSE)");
+
+        HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+        assertEquals(30.0, fe.evaluate(vlookup).getNumberValue(), 0.0);
+        assertEquals(ErrorEval.NA.getErrorCode(), fe.evaluate(match).getErrorValue());
+        assertEquals(ErrorEval.NA.getErrorCode(), fe.evaluate(missing).getErrorValue());
+        assertEquals(50.0, fe.evaluate(wildcard).getNumberValue(), 0.0);
+
+        // changed value inside the indexed column
+        HSSFCell a10 = sheet.getRow(9).getCell(0);
+        a10.setCellValue("Key9");
+        fe.notifyUpdateCell(a10);
+        assertEquals(10.0, fe.evaluate(match).getNumberValue(), 0.0);
+        assertEquals(30.0, fe.evaluate(vlookup).getNumberValue(), 0.0);
+
+        // blank cell inside the indexed column gets a value
+        HSSFCell a11 = sheet.createRow(10).createCell(0);
+        a11.setCellValue("New");
+        fe.notifyUpdateCell(a11);
+        assertEquals(11.0, fe.evaluate(missing).getNumberValue(), 0.0);
+
+        // formula cells inside the indexed column
+        HSSFCell a4 = sheet.getRow(3).getCell(0);
+        a4.setCellFormula("\"Key\"&B1");
+        fe.notifySetFormula(a4);
+        assertEquals(ErrorEval.NA.getErrorCode(), fe.evaluate(vlookup).getErrorValue());
+        HSSFCell b1 = sheet.getRow(0).getCell(1);
+        b1.setCellValue(3);
+        fe.notifyUpdateCell(b1);
+        assertEquals(30.0, fe.evaluate(vlookup).getNumberValue(), 0.0);
+
+        wb.close();
+    }
+
+    @Test
+    public void testCriteriaIndex() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet sheet = wb.createSheet("Sheet1");
+        String[] keys = { "a", "B", "a", "", "b", "A", "7", "c" };
+        for (int i = 0; i < keys.length; i++) {
+            HSSFRow row = sheet.createRow(i);
+            row.createCell(0).setCellValue(keys[i]);
+            row.createCell(1).setCellValue(i + 1);
+        }
+        sheet.getRow(7).createCell(0).setCellValue(7);
+        // blank cell inside the criteria range
+        sheet.getRow(3).removeCell(sheet.getRow(3).getCell(0));
+
+        HSSFRow row = sheet.createRow(10);
+        HSSFCell countA = row.createCell(0);
+        countA.setCellFormula("COUNTIF(A1:A9,\"a\")");
+        HSSFCell countSeven = row.createCell(1);
+        countSeven.setCellFormula("COUNTIF(A1:A9,7)");
+        HSSFCell countBlank = row.createCell(2);
+        countBlank.setCellFormula("COUNTIF(A1:A9,\"\")");
+        HSSFCell sumB = row.createCell(3);
+        sumB.setCellFormula("SUMIF(A1:A9,\"b\",B1:B9)");
+        HSSFCell sumGreater = row.createCell(4);
+        sumGreater.setCellFormula("SUMIF(B1:B9,\">=6\")");
+        HSSFCell sumBoth = row.createCell(5);
+        sumBoth.setCellFormula("SUMIFS(B1:B9,A1:A9,\"a\",B1:B9,\"<5\")");
+        HSSFCell sumNotEqual = row.createCell(6);
+        sumNotEqual.setCellFormula("SUMIFS(B1:B9,A1:A9,\"<>a\",B1:B9,\">1\")");
+
+        HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+        assertEquals(3.0, fe.evaluate(countA).getNumberValue(), 0.0);
+        assertEquals(2.0, fe.evaluate(countSeven).getNumberValue(), 0.0);
+        assertEquals(2.0, fe.evaluate(countBlank).getNumberValue(), 0.0);
+        assertEquals(7.0, fe.evaluate(sumB).getNumberValue(), 0.0);
+        assertEquals(21.0, fe.evaluate(sumGreater).getNumberValue(), 0.0);
+        assertEquals(4.0, fe.evaluate(sumBoth).getNumberValue(), 0.0);
+        assertEquals(18.0, fe.evaluate(sumNotEqual).getNumberValue(), 0.0);
+
+        // changed value inside the criteria range
+        HSSFCell a2 = sheet.getRow(1).getCell(0);
+        a2.setCellValue("a");
+        fe.notifyUpdateCell(a2);
+        assertEquals(4.0, fe.evaluate(countA).getNumberValue(), 0.0);
+        assertEquals(5.0, fe.evaluate(sumB).getNumberValue(), 0.0);
+        assertEquals(6.0, fe.evaluate(sumBoth).getNumberValue(), 0.0);
+
+        // blank cell inside the criteria range gets a value
+        HSSFCell a4 = sheet.getRow(3).createCell(0);
+        a4.setCellValue("A");
+        fe.notifyUpdateCell(a4);
+        assertEquals(5.0, fe.evaluate(countA).getNumberValue(), 0.0);
+        assertEquals(1.0, fe.evaluate(countBlank).getNumberValue(), 0.0);
+        assertEquals(10.0, fe.evaluate(sumBoth).getNumberValue(), 0.0);
+
+        wb.close();
+    }
+
+    /**
+     * Indexes of whole columns only read the rows up to the last row of the sheet
+     */
+    @Test
+    public void testWholeColumnIndex() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet sheet = wb.createSheet("Sheet1");
+        for (int i = 0; i < 3; i++) {
+            sheet.createRow(i).createCell(0).setCellValue("Key" + i);
+        }
+        HSSFCell match = sheet.getRow(0).createCell(2);
+        match.setCellFormula("MATCH(\"New\",A:A,0)");
+        HSSFCell blanks = sheet.getRow(0).createCell(3);
+        blanks.setCellFormula("COUNTIF(A:A,\"\")");
+
+        HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+        assertEquals(ErrorEval.NA.getErrorCode(), fe.evaluate(match).getErrorValue());
+        assertEquals(65536 - 3, fe.evaluate(blanks).getNumberValue(), 0.0);
+
+        // a cell below the last row gets a value
+        HSSFCell a101 = sheet.createRow(100).createCell(0);
+        a101.setCellValue("New");
+        fe.notifyUpdateCell(a101);
+        assertEquals(101.0, fe.evaluate(match).getNumberValue(), 0.0);
+        assertEquals(65536 - 4, fe.evaluate(blanks).getNumberValue(), 0.0);
+
+        wb.close();
+    }
 }
@@ -18,14 +18,33 @@
 package org.apache.poi.ss.formula.eval.forked;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
 import org.apache.poi.hssf.usermodel.HSSFRow;
 import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.formula.IStabilityClassifier;
+import org.apache.poi.ss.formula.OperationEvaluationContext;
+import org.apache.poi.ss.formula.eval.EvaluationException;
 import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.OperandResolver;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.functions.FreeRefFunction;
+import org.apache.poi.ss.formula.udf.DefaultUDFFinder;
+import org.apache.poi.ss.usermodel.Cell;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -88,6 +107,216 @@ public final class TestForkedEvaluator {
 		wb.close();
 	}
 
+	private static int _countedCalls;
+
+	/**
+	 * COUNTED(x) returns x and counts how often it is evaluated
+	 */
+	private static final FreeRefFunction COUNTED = new FreeRefFunction() {
+		public ValueEval evaluate(ValueEval[] args, OperationEvaluationContext ec) {
+			_countedCalls++;
+			try {
+				return OperandResolver.getSingleValue(args[0], ec.getRowIndex(), ec.getColumnIndex());
+			} catch (EvaluationException e) {
+				return e.getErrorEval();
+			}
+		}
+	};
+
+	private static double evaluateNumber(ForkedEvaluator fe, String sheetName, int rowIndex, int columnIndex) {
+		return ((NumberEval) fe.evaluate(sheetName, rowIndex, columnIndex)).getNumberValue();
+	}
+
+	/**
+	 * Forks reuse the results of the evaluator they were forked from for formulas which do not
+	 * depend on their updated cells
+	 */
+	@Test
+	public void testFork() throws IOException {
+		HSSFWorkbook wb = createWorkbook();
+		wb.addToolPack(new DefaultUDFFinder(new String[] { "COUNTED" }, new FreeRefFunction[] { COUNTED }));
+		wb.getSheet("Inputs").getRow(0).createCell(2); // blank Inputs!C1
+		HSSFRow row = wb.getSheet("Calculations").getRow(0);
+		row.createCell(2).setCellFormula("COUNTED(B1*2)");
+		row.createCell(3).setCellFormula("C1+Inputs!A1");
+		row.createCell(4).setCellFormula("COUNTED(Inputs!C1+1)");
+		_countedCalls = 0;
+
+		ForkedEvaluator base = ForkedEvaluator.create(wb, null, null);
+		assertEquals(12.0, evaluateNumber(base, "Calculations", 0, 3), 0.0);
+		assertEquals(1.0, evaluateNumber(base, "Calculations", 0, 4), 0.0);
+		assertEquals(2, _countedCalls);
+
+		ForkedEvaluator fe1 = base.fork();
+		fe1.updateCell("Inputs", 0, 0, new NumberEval(10.0));
+		assertEquals(47.0, evaluateNumber(fe1, "Calculations", 0, 0), 0.0);
+		assertEquals(20.0, evaluateNumber(fe1, "Calculations", 0, 3), 0.0);
+		assertEquals(1.0, evaluateNumber(fe1, "Calculations", 0, 4), 0.0);
+		assertEquals(2, _countedCalls);
+
+		// dependency on a blank cell
+		ForkedEvaluator fe2 = base.fork();
+		fe2.updateCell("Inputs", 0, 2, new NumberEval(4.0));
+		assertEquals(5.0, evaluateNumber(fe2, "Calculations", 0, 4), 0.0);
+		assertEquals(12.0, evaluateNumber(fe2, "Calculations", 0, 3), 0.0);
+		assertEquals(3, _countedCalls);
+
+		// fork of a fork, starting with Inputs!A1 = 10
+		ForkedEvaluator fe3 = fe1.fork();
+		fe3.updateCell("Inputs", 0, 1, new NumberEval(1.0));
+		assertEquals(49.0, evaluateNumber(fe3, "Calculations", 0, 0), 0.0);
+		assertEquals(20.0, evaluateNumber(fe3, "Calculations", 0, 3), 0.0);
+		assertEquals(3, _countedCalls);
+		// C1 was reused so far, now it has to be recalculated
+		fe3.updateCell("Calculations", 0, 1, new NumberEval(1.0));
+		assertEquals(12.0, evaluateNumber(fe3, "Calculations", 0, 3), 0.0);
+		assertEquals(9.0, evaluateNumber(fe3, "Calculations", 0, 0), 0.0);
+		assertEquals(4, _countedCalls);
+
+		// the evaluators forked from are not affected
+		assertEquals(47.0, evaluateNumber(fe1, "Calculations", 0, 0), 0.0);
+		assertEquals(20.0, evaluateNumber(fe1, "Calculations", 0, 3), 0.0);
+		assertEquals(7.0, evaluateNumber(base, "Calculations", 0, 0), 0.0);
+
+		try {
+			fe1.updateCell("Inputs", 0, 0, new NumberEval(1.0));
+			fail("expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		HSSFWorkbook copy = createWorkbook();
+		fe3.copyUpdatedCells(copy);
+		assertEquals(10.0, copy.getSheet("Inputs").getRow(0).getCell(0).getNumericCellValue(), 0.0);
+		assertEquals(1.0, copy.getSheet("Inputs").getRow(0).getCell(1).getNumericCellValue(), 0.0);
+		assertEquals(1.0, copy.getSheet("Calculations").getRow(0).getCell(1).getNumericCellValue(), 0.0);
+		assertEquals(Cell.CELL_TYPE_FORMULA, copy.getSheet("Calculations").getRow(0).getCell(0).getCellType());
+
+		copy.close();
+		wb.close();
+	}
+
+	/**
+	 * Forks of one evaluator can run on separate threads
+	 */
+	@Test
+	public void testForkOnSeveralThreads() throws Exception {
+		HSSFWorkbook wb = createWorkbook();
+		final ForkedEvaluator base = ForkedEvaluator.create(wb, null, null);
+		assertEquals(7.0, evaluateNumber(base, "Calculations", 0, 0), 0.0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Double>> results = new ArrayList<Future<Double>>();
+			for (int i = 0; i < 40; i++) {
+				final double input = i;
+				results.add(executor.submit(new Callable<Double>() {
+					public Double call() {
+						ForkedEvaluator fe = base.fork();
+						fe.updateCell("Inputs", 0, 0, new NumberEval(input));
+						return Double.valueOf(evaluateNumber(fe, "Calculations", 0, 0));
+					}
+				}));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals(5.0 * i - 3.0, results.get(i).get().doubleValue(), 0.0);
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		wb.close();
+	}
+
+	/**
+	 * Forks use the UDF finder given when the evaluator they were forked from was created, also if
+	 * it is not added to the master workbook
+	 */
+	@Test
+	public void testForkWithUDFFinder() throws IOException {
+		HSSFWorkbook wb = createWorkbook();
+		wb.addToolPack(new DefaultUDFFinder(new String[] { "COUNTED" }, new FreeRefFunction[] { COUNTED }));
+		wb.getSheet("Calculations").getRow(0).createCell(2).setCellFormula("COUNTED(Inputs!A1)");
+		// the workbook read back does not know the UDF
+		HSSFWorkbook wbBack = HSSFTestDataSamples.writeOutAndReadBack(wb);
+		wb.close();
+
+		SharedEvaluationWorkbook master = new SharedEvaluationWorkbook(HSSFEvaluationWorkbook.create(wbBack));
+		ForkedEvaluator base = ForkedEvaluator.create(master, null,
+				new DefaultUDFFinder(new String[] { "COUNTED" }, new FreeRefFunction[] { COUNTED }));
+		assertEquals(2.0, evaluateNumber(base, "Calculations", 0, 2), 0.0);
+
+		ForkedEvaluator fe = base.fork();
+		fe.updateCell("Inputs", 0, 0, new NumberEval(6.0));
+		assertEquals(6.0, evaluateNumber(fe, "Calculations", 0, 2), 0.0);
+		assertEquals(6.0, evaluateNumber(fe.fork(), "Calculations", 0, 2), 0.0);
+
+		wbBack.close();
+	}
+
+	/**
+	 * Evaluators forked from one {@link SharedEvaluationWorkbook} can run on separate threads
+	 */
+	@Test
+	public void testSharedMasterWorkbook() throws Exception {
+		HSSFWorkbook wb = createWorkbook();
+		final SharedEvaluationWorkbook master = new SharedEvaluationWorkbook(HSSFEvaluationWorkbook.create(wb));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Double>> results = new ArrayList<Future<Double>>();
+			for (int i = 0; i < 40; i++) {
+				final double input = i;
+				results.add(executor.submit(new Callable<Double>() {
+					public Double call() {
+						ForkedEvaluator fe = ForkedEvaluator.create(master, null, null);
+						fe.updateCell("Inputs", 0, 0, new NumberEval(input));
+						fe.updateCell("Inputs", 0, 1, new NumberEval(1.0));
+						return Double.valueOf(((NumberEval) fe.evaluate("Calculations", 0, 0)).getNumberValue());
+					}
+				}));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals(5.0 * i - 1.0, results.get(i).get().doubleValue(), 0.0);
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		// the master workbook is left unchanged
+		ForkedEvaluator fe = ForkedEvaluator.create(master, null, null);
+		assertEquals(7.0, ((NumberEval) fe.evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+
+		wb.close();
+	}
+
+	/**
+	 * A UDF finder given to one evaluator forked from a {@link SharedEvaluationWorkbook} is not
+	 * added to the master workbook, nor seen by the other evaluators
+	 */
+	@Test
+	public void testSharedMasterWorkbookUDFFinder() throws IOException {
+		HSSFWorkbook wb = createWorkbook();
+		HSSFEvaluationWorkbook masterBook = HSSFEvaluationWorkbook.create(wb);
+		SharedEvaluationWorkbook master = new SharedEvaluationWorkbook(masterBook);
+		assertNotSame(master.getUDFFinder(), master.getUDFFinder());
+
+		FreeRefFunction myFunc = new FreeRefFunction() {
+			public ValueEval evaluate(ValueEval[] args, OperationEvaluationContext ec) {
+				return new NumberEval(42);
+			}
+		};
+		ForkedEvaluator.create(master, null, new DefaultUDFFinder(
+				new String[] { "myFunc" }, new FreeRefFunction[] { myFunc }));
+		ForkedEvaluator.create(master, null, null);
+
+		assertNull(masterBook.getUDFFinder().findFunction("myFunc"));
+		assertNull(master.getUDFFinder().findFunction("myFunc"));
+		assertNotNull(master.getUDFFinder().findFunction("ISEVEN"));
+
+		wb.close();
+	}
+
 	/**
 	 * As of Sep 2009, the Forked evaluator can update values from existing cells (this is because
 	 * the underlying 'master' cell is used as a key into the calculation cache.  Prior to the fix
@@ -25,6 +25,7 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+    TestAggregateFunction.class,
     TestAverage.class,
     TestCountFuncs.class,
     TestDate.class,
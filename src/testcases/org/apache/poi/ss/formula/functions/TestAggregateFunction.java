@@ -0,0 +1,116 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.functions;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.EvaluationException;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.junit.Test;
+
+/**
+ * Tests that the accumulators of {@link AggregateFunction}s give the same results as
+ * evaluating the collected array of numbers.
+ */
+public final class TestAggregateFunction {
+
+    private static final Function[] FUNCTIONS = {
+        AggregateFunction.SUM,
+        AggregateFunction.SUMSQ,
+        AggregateFunction.PRODUCT,
+        AggregateFunction.MIN,
+        AggregateFunction.MAX,
+        AggregateFunction.AVERAGE,
+    };
+
+    private static ValueEval[] createArgs() {
+        ValueEval[] areaValues = {
+            new NumberEval(1.5), BlankEval.instance,
+            new StringEval("abc"), new NumberEval(-4),
+            BoolEval.TRUE, new NumberEval(1e10),
+        };
+        return new ValueEval[] {
+            EvalFactory.createAreaEval("A1:B3", areaValues),
+            new NumberEval(3),
+            BoolEval.TRUE,
+            new StringEval("0.25"),
+            EvalFactory.createRefEval("C1", new NumberEval(-7)),
+        };
+    }
+
+    private static void confirm(Function function, ValueEval[] args, ValueEval expected) {
+        ValueEval actual = function.evaluate(args, 0, 0);
+        assertEquals(expected.getClass(), actual.getClass());
+        if (expected instanceof NumberEval) {
+            assertEquals(((NumberEval)expected).getNumberValue(), ((NumberEval)actual).getNumberValue(), 0.0);
+        } else {
+            assertEquals(((ErrorEval)expected).getErrorCode(), ((ErrorEval)actual).getErrorCode());
+        }
+    }
+
+    private static ValueEval evaluateArray(Function function, ValueEval[] args) {
+        AggregateFunction aggregate = (AggregateFunction) function;
+        try {
+            double[] values = aggregate.getNumberArray(args);
+            return new NumberEval(aggregate.evaluate(values));
+        } catch (EvaluationException e) {
+            return e.getErrorEval();
+        }
+    }
+
+    @Test
+    public void sameResultsAsArray() {
+        ValueEval[] args = createArgs();
+        for (Function function : FUNCTIONS) {
+            confirm(function, args, evaluateArray(function, args));
+        }
+        assertEquals(1.5 - 4 + 1e10 + 3 + 1 + 0.25 - 7,
+                ((NumberEval)AggregateFunction.SUM.evaluate(args, 0, 0)).getNumberValue(), 0.0);
+    }
+
+    @Test
+    public void noNumbers() {
+        ValueEval[] args = { EvalFactory.createAreaEval("A1:A2", new ValueEval[] {
+            BlankEval.instance, new StringEval("x") }) };
+        confirm(AggregateFunction.SUM, args, NumberEval.ZERO);
+        confirm(AggregateFunction.SUMSQ, args, NumberEval.ZERO);
+        confirm(AggregateFunction.PRODUCT, args, NumberEval.ZERO);
+        confirm(AggregateFunction.MIN, args, NumberEval.ZERO);
+        confirm(AggregateFunction.MAX, args, NumberEval.ZERO);
+        confirm(AggregateFunction.AVERAGE, args, ErrorEval.DIV_ZERO);
+    }
+
+    @Test
+    public void errors() {
+        ValueEval[] args = { new NumberEval(1), ErrorEval.NA, new NumberEval(2) };
+        for (Function function : FUNCTIONS) {
+            confirm(function, args, ErrorEval.NA);
+        }
+        args = new ValueEval[] { new StringEval("abc") };
+        for (Function function : FUNCTIONS) {
+            confirm(function, args, ErrorEval.VALUE_INVALID);
+        }
+        args = new ValueEval[] { new NumberEval(1e200), new NumberEval(1e200) };
+        confirm(AggregateFunction.PRODUCT, args, ErrorEval.NUM_ERROR);
+    }
+}
@@ -36,6 +36,8 @@ import org.junit.runners.Suite;
     , TestPOILogFactory.class
     , TestPOILogger.class
     , TestShortField.class
+    , TestSortedIntArrayMap.class
+    , TestSortedIntTreeMap.class
     , TestStringUtil.class
     , TestTempFile.class
 })
@@ -0,0 +1,156 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link SortedIntMap} contract, for each implementation
+ */
+public abstract class BaseTestSortedIntMap {
+
+    protected abstract <V> SortedIntMap<V> createMap();
+
+    @Test
+    public void putAndGet() {
+        SortedIntMap<String> map = createMap();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(5, "5"));
+        assertNull(map.put(1, "1"));
+        assertNull(map.put(9, "9"));
+        assertNull(map.put(3, "3"));
+        assertEquals("3", map.put(3, "three"));
+
+        assertEquals(4, map.size());
+        assertEquals("1", map.get(1));
+        assertEquals("three", map.get(3));
+        assertNull(map.get(4));
+        assertTrue(map.containsKey(9));
+        assertFalse(map.containsKey(10));
+        assertEquals(1, map.firstKey());
+        assertEquals(9, map.lastKey());
+        assertEquals("[1, three, 5, 9]", map.values().toString());
+    }
+
+    @Test
+    public void removeAndClear() {
+        SortedIntMap<String> map = createMap();
+        for (int i = 0; i < 10; i++) {
+            map.put(i, Integer.toString(i));
+        }
+        assertEquals("0", map.remove(0));
+        assertEquals("9", map.remove(9));
+        assertEquals("4", map.remove(4));
+        assertNull(map.remove(4));
+        assertEquals("[1, 2, 3, 5, 6, 7, 8]", map.values().toString());
+        assertEquals(1, map.firstKey());
+        assertEquals(8, map.lastKey());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+        try {
+            map.firstKey();
+            fail("expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+        try {
+            map.lastKey();
+            fail("expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void ranges() {
+        SortedIntMap<String> map = createMap();
+        map.put(2, "2");
+        map.put(4, "4");
+        map.put(6, "6");
+
+        assertEquals(0, map.headSize(0));
+        assertEquals(0, map.headSize(2));
+        assertEquals(1, map.headSize(3));
+        assertEquals(2, map.headSize(6));
+        assertEquals(3, map.headSize(100));
+
+        assertEquals("[2, 4]", map.values(0, 6).toString());
+        assertEquals("[4, 6]", map.values(3, 7).toString());
+        assertEquals("[]", map.values(7, 10).toString());
+        assertEquals("[]", map.values(5, 1).toString());
+    }
+
+    @Test
+    public void iteratorRemove() {
+        SortedIntMap<String> map = createMap();
+        for (int i = 0; i < 6; i++) {
+            map.put(i, Integer.toString(i));
+        }
+        Iterator<String> it = map.values().iterator();
+        while (it.hasNext()) {
+            if (Integer.parseInt(it.next()) % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals("[1, 3, 5]", map.values().toString());
+        assertEquals(3, map.size());
+
+        it = map.values().iterator();
+        it.next();
+        map.put(10, "10");
+        try {
+            it.next();
+            fail("expected ConcurrentModificationException");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void behavesLikeTreeMap() {
+        Random rnd = new Random(42);
+        SortedIntMap<Integer> map = createMap();
+        TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+        for (int i = 0; i < 5000; i++) {
+            int key = rnd.nextInt(500);
+            if (rnd.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected.values().toString(), map.values().toString());
+        assertEquals(expected.headMap(250).size(), map.headSize(250));
+        assertEquals(expected.subMap(100, 300).values().toString(), map.values(100, 300).toString());
+    }
+}